@@ -16,76 +16,72 @@
 
 package simx.profiler.discovery.consistency;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import simx.profiler.model.EventIndex;
 import simx.profiler.model.MessageProcessingEvent;
 import simx.profiler.model.MessageSentEvent;
 
 /**
+ * The ConsistencyChecker checks the consistency of the communication between
+ * pairs of actor instances. The pairs are checked independently of each
+ * other, so the pairs of frozen profiling data are checked in parallel in the
+ * common fork join pool.
  *
  * @author Stephan Rehfeld
  */
 public class ConsistencyChecker {
     
     public static void checkConsistency( final List< ConsistencyCheckData > data, final ConsistencyCheckProgressListener progressListener ) {
-        int actorsCounter = 0;
+        // The workers of the fork join pool are not interrupted when the check is cancelled, so they ask the caller.
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger actorsCounter = new AtomicInteger();
+        final boolean frozen = data.stream().allMatch( (d) -> d.from.type.profilingData.isFrozen() && d.to.type.profilingData.isFrozen() );
+        (frozen ? data.parallelStream() : data.stream()).forEach( (d) -> {
+            if( caller.isInterrupted() ) return;
+            checkConsistency( d, progressListener );
+            progressListener.actorsCheckedProgressed( actorsCounter.incrementAndGet() * 100 / data.size() );
+        });
+    }
+    
+    private static void checkConsistency( final ConsistencyCheckData d, final ConsistencyCheckProgressListener progressListener ) {
+        if( d.getSourceSimulationLoopMessage() == null || d.getTransferMessage() == null || d.getTargetSimulationLoopMessage() == null ) return;
         
-        for( final ConsistencyCheckData d : data ) {
-            if( Thread.currentThread().isInterrupted() ) return;
-            ++actorsCounter;  
-            progressListener.actorsCheckedProgressed( actorsCounter * 100 / data.size() );
-            
-            if( d.getSourceSimulationLoopMessage() == null || d.getTransferMessage() == null || d.getTargetSimulationLoopMessage() == null ) continue;
-            
-            int inconsistentCounter = 0;
-            progressListener.communicationOfActorCheckedProgrss( 0 );
-            final List< MessageProcessingEvent > sourceSimulationLoopProcessingEvents = new ArrayList<>();
-            final List< MessageSentEvent > transferMessageSentEvents = new ArrayList<>();
-            final List< MessageProcessingEvent > targetSimulationLoopProcessingEvents = new ArrayList<>();
-            
-            d.from.getMessagesProcessed().stream().filter((mpe) -> ( mpe.messageInstance.type.equals( d.getSourceSimulationLoopMessage() ) )).forEach((mpe) -> {
-                sourceSimulationLoopProcessingEvents.add( mpe );
-            });
-            
-            d.from.getMessagesSent().stream().filter((mse) -> ( mse.messageInstance.type.equals( d.getTransferMessage() ) && mse.receiver.equals( d.to ) )).forEach((mse) -> {
-                transferMessageSentEvents.add( mse );
-            });
+        int inconsistentCounter = 0;
+        progressListener.communicationOfActorCheckedProgrss( 0 );
+        final EventIndex fromIndex = d.from.getEventIndex();
+        final EventIndex toIndex = d.to.getEventIndex();
+        final List< MessageProcessingEvent > sourceSimulationLoopProcessingEvents = fromIndex.processedInRange( d.getSourceSimulationLoopMessage(), Long.MIN_VALUE, Long.MAX_VALUE );
+        
+        int loopCounter = 0;
+        
+        for( final MessageProcessingEvent mpe : sourceSimulationLoopProcessingEvents ) {
+            ++loopCounter;
             
-            d.to.getMessagesProcessed().stream().filter((mpe) -> ( mpe.messageInstance.type.equals( d.getTargetSimulationLoopMessage() ) )).forEach((mpe) -> {
-                targetSimulationLoopProcessingEvents.add( mpe );
-            });
-            int loopCounter = 0;
+            long start = Long.MAX_VALUE;
+            long end = Long.MIN_VALUE;
             
-            for( final MessageProcessingEvent mpe : sourceSimulationLoopProcessingEvents ) {
-                ++loopCounter;
-                
-                long start = Long.MAX_VALUE;
-                long end = Long.MIN_VALUE;
-                
-                for( final MessageSentEvent mse : transferMessageSentEvents ) {
-                    if( mse.timestamp >= mpe.start && mse.timestamp <= mpe.end ) {
-                        if( mse.messageInstance.getMessageProcessingEvents().size() != 1 ) {
-                            System.out.println( "Not supported!" );
-                        } else {
-                            final MessageProcessingEvent processed = mse.messageInstance.getMessageProcessingEvents().get( 0 );
-                            if( processed.start < start ) start = processed.start;
-                            if( processed.end > end ) end = processed.end;                          
-                        }
-                    }
-                }
-                
-                for( final MessageProcessingEvent targetSimLoopPE : targetSimulationLoopProcessingEvents ) {
-                    if( targetSimLoopPE.start > start && targetSimLoopPE.start < end ) {
-                        ++inconsistentCounter;
-                        break;
+            for( final MessageSentEvent mse : fromIndex.sentInRange( d.getTransferMessage(), mpe.start, mpe.end ) ) {
+                if( mse.receiver.equals( d.to ) ) {
+                    if( mse.messageInstance.getMessageProcessingEventsCount() != 1 ) {
+                        System.out.println( "Not supported!" );
+                    } else {
+                        final MessageProcessingEvent processed = mse.messageInstance.getMessageProcessingEvent( 0 );
+                        if( processed.start < start ) start = processed.start;
+                        if( processed.end > end ) end = processed.end;                          
                     }
                 }
-                
-                progressListener.communicationOfActorCheckedProgrss( loopCounter * 100 / sourceSimulationLoopProcessingEvents.size() );                
-                d.setConsistency( "" + ((double)(sourceSimulationLoopProcessingEvents.size() - inconsistentCounter ) * 100.0 / (double)sourceSimulationLoopProcessingEvents.size() ));
             }
             
+            if( start < end ) {
+                final MessageProcessingEvent targetSimLoopPE = toIndex.ceilingProcessed( d.getTargetSimulationLoopMessage(), start + 1 );
+                if( targetSimLoopPE != null && targetSimLoopPE.start < end ) {
+                    ++inconsistentCounter;
+                }
+            }
             
+            progressListener.communicationOfActorCheckedProgrss( loopCounter * 100 / sourceSimulationLoopProcessingEvents.size() );                
+            d.setConsistency( "" + ((double)(sourceSimulationLoopProcessingEvents.size() - inconsistentCounter ) * 100.0 / (double)sourceSimulationLoopProcessingEvents.size() ));
         }
     }
     
@@ -18,6 +18,7 @@ package simx.profiler.discovery.latency;
 
 import java.util.ArrayList;
 import java.util.List;
+import simx.profiler.model.EventIndex;
 import simx.profiler.model.MessageProcessingEvent;
 import simx.profiler.model.MessageSentEvent;
 
@@ -113,15 +114,15 @@ public class LatencyCalculator {
         int counter = 0;
         if( start.getTimespanType() == ProcessingTimespan.TimespanType.BEGIN_OF_SIMULATION_LOOP_TO_MESSAGE_IN_MAILBOX ) {
             // Find all Simulation Loop messages
-            
+            final EventIndex index = start.getActorInstance().getEventIndex();
             for( final MessageProcessingEvent mpe : start.getActorInstance().getMessagesProcessed() ) {
                 ++counter;
                 listener.latencyDiscoveryProgress( (counter * 100) / messageEvents );
                 if( mpe.messageInstance.type.equals( start.getMessageType() ) ) {
                     if( Thread.currentThread().isInterrupted() ) return null;
-                    for( final MessageSentEvent mse : start.getActorInstance().getMessagesSent() ) {
+                    for( final MessageSentEvent mse : index.sentInRange( start.getNext().getMessageType(), mpe.start, Long.MAX_VALUE ) ) {
                         // Find that next's message has been sent
-                        if( mse.messageInstance.type.equals( start.getNext().getMessageType() ) && mse.timestamp >= mpe.start  && mse.receiver.equals( start.getNext().getActorInstance() ) ) {
+                        if( mse.receiver.equals( start.getNext().getActorInstance() ) ) {
                             final long timespan = mse.timestamp - mpe.start; 
                             start.registerTimespan( timespan );
                             
@@ -140,11 +141,12 @@ public class LatencyCalculator {
                 listener.latencyDiscoveryProgress( (counter * 100) / messageEvents );
                 // TODO Wrong, also check if the message has been sent by the right actor
                 if( mpe.messageInstance.type.equals( start.getMessageType() ) ) {
-                    if( mpe.messageInstance.getMessageSentEvents().size() == 1 ) {
+                    if( mpe.messageInstance.getMessageSentEventsCount() == 1 ) {
                         if( Thread.currentThread().isInterrupted() ) return null;
-                        final long timespan = mpe.start - mpe.messageInstance.getMessageSentEvents().get( 0 ).timestamp; 
+                        final long sendTime = mpe.messageInstance.getFirstSendTime();
+                        final long timespan = mpe.start - sendTime; 
                         final long end = calculateLatency( start.getNext(), mpe.start );
-                        data.add( new ImmutableTuple( mpe.messageInstance.getMessageSentEvents().get( 0 ).timestamp, end - mpe.messageInstance.getMessageSentEvents().get( 0 ).timestamp ) );
+                        data.add( new ImmutableTuple( sendTime, end - sendTime ) );
                         System.out.println( "Single send" );
                     } else {
                         // TODO: SEARCH
@@ -166,65 +168,46 @@ public class LatencyCalculator {
     }
     
     private static long calculateLatency( final ProcessingTimespan current, final long start ) {
+        final EventIndex index = current.getActorInstance().getEventIndex();
         if( current.getTimespanType() == ProcessingTimespan.TimespanType.BEGIN_OF_MESSAGE_PROCESSING_TO_BEGIN_OF_SIMULATION_LOOP ) {
-            for( final MessageProcessingEvent mpe : current.getActorInstance().getMessagesProcessed() ) {
-                if( mpe.messageInstance.type.equals( current.getMessageType() ) && mpe.start >= start ) {
-                    final long timespan = mpe.start - start;
-                    current.registerTimespan( timespan );
-                    return calculateLatency( current.getNext(), mpe.start );
-                }
-            }
-            return -1;
+            final MessageProcessingEvent mpe = index.ceilingProcessed( current.getMessageType(), start );
+            if( mpe == null ) return -1;
+            final long timespan = mpe.start - start;
+            current.registerTimespan( timespan );
+            return calculateLatency( current.getNext(), mpe.start );
         } else if( current.getTimespanType() == ProcessingTimespan.TimespanType.BEGIN_OF_MESSAGE_PROCESSING_TO_MESSAGE_IN_MAILBOX ) {
-            for( final MessageSentEvent mse : current.getActorInstance().getMessagesSent() ) {
-                if( mse.messageInstance.type.equals( current.getMessageType() ) && mse.timestamp >= start ) {
-                    final long timespan = mse.timestamp - start;
-                    current.registerTimespan( timespan );
-                    return calculateLatency( current.getNext(), mse.timestamp );
-                }
-            }
-            return -1;
+            final MessageSentEvent mse = index.ceilingSent( current.getMessageType(), start );
+            if( mse == null ) return -1;
+            final long timespan = mse.timestamp - start;
+            current.registerTimespan( timespan );
+            return calculateLatency( current.getNext(), mse.timestamp );
         } else if( current.getTimespanType() == ProcessingTimespan.TimespanType.BEGIN_OF_SIMULATION_LOOP_TO_MESSAGE_IN_MAILBOX ) {
-            for( final MessageProcessingEvent mpe : current.getActorInstance().getMessagesProcessed() ) {
-                if( mpe.messageInstance.type.equals( current.getMessageType() ) && mpe.start >= start ) {   
-                    for( final MessageSentEvent mse : current.getActorInstance().getMessagesSent() ) {
-                        // Find that next's message has been sent
-                        if( mse.messageInstance.type.equals( current.getNext().getMessageType() ) && mse.timestamp >= mpe.start ) {
-                            final long timespan = mse.timestamp - mpe.start; 
-                            current.registerTimespan( timespan );
-                            return calculateLatency( current.getNext(), mse.timestamp );
-                        }                   
-                    }    
-                }
-            }
-            return -1;
+            final MessageProcessingEvent mpe = index.ceilingProcessed( current.getMessageType(), start );
+            if( mpe == null ) return -1;
+            // Find that next's message has been sent
+            final MessageSentEvent mse = index.ceilingSent( current.getNext().getMessageType(), mpe.start );
+            if( mse == null ) return -1;
+            final long timespan = mse.timestamp - mpe.start; 
+            current.registerTimespan( timespan );
+            return calculateLatency( current.getNext(), mse.timestamp );
         } else if( current.getTimespanType() == ProcessingTimespan.TimespanType.MESSAGE_WAITS_IN_MAIL_BOX ) {
-            for( final MessageProcessingEvent mpe : current.getActorInstance().getMessagesProcessed() ) {
-                if( mpe.messageInstance.type.equals( current.getMessageType() ) && mpe.start >= start ) {   
-                    final long timespan = mpe.start - start;
-                    current.registerTimespan( timespan );
-                    return calculateLatency( current.getNext(), mpe.start );
-                }
-            }
-            return -1;
+            final MessageProcessingEvent mpe = index.ceilingProcessed( current.getMessageType(), start );
+            if( mpe == null ) return -1;
+            final long timespan = mpe.start - start;
+            current.registerTimespan( timespan );
+            return calculateLatency( current.getNext(), mpe.start );
         } else if( current.getTimespanType() == ProcessingTimespan.TimespanType.FINAL_MESSAGE_PROCESSED ) {
-            for( final MessageProcessingEvent mpe : current.getActorInstance().getMessagesProcessed() ) {
-                if( mpe.messageInstance.type.equals( current.getMessageType() ) && mpe.start >= start ) {   
-                    final long timespan = mpe.end - start;
-                    current.registerTimespan( timespan );
-                    return mpe.end;
-                }
-            }
-            return -1;
+            final MessageProcessingEvent mpe = index.ceilingProcessed( current.getMessageType(), start );
+            if( mpe == null ) return -1;
+            final long timespan = mpe.end - start;
+            current.registerTimespan( timespan );
+            return mpe.end;
         } else if( current.getTimespanType() == ProcessingTimespan.TimespanType.FINAL_SIMULATION_LOOP ) {
-            for( final MessageProcessingEvent mpe : current.getActorInstance().getMessagesProcessed() ) {
-                if( mpe.messageInstance.type.equals( current.getMessageType() ) && mpe.start >= start ) {   
-                    final long timespan = mpe.end- start;
-                    current.registerTimespan( timespan );
-                    return mpe.end;
-                }
-            }
-            return -1;
+            final MessageProcessingEvent mpe = index.ceilingProcessed( current.getMessageType(), start );
+            if( mpe == null ) return -1;
+            final long timespan = mpe.end- start;
+            current.registerTimespan( timespan );
+            return mpe.end;
         }
         throw new IllegalStateException( "This should not happen!" );
     }
@@ -20,6 +20,7 @@ import java.awt.BorderLayout;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.swing.ListSelectionModel;
@@ -43,6 +44,7 @@ import org.openide.util.Utilities;
 import org.openide.util.lookup.AbstractLookup;
 import org.openide.util.lookup.InstanceContent;
 import simx.profiler.model.ActorInstance;
+import simx.profiler.model.Histogram;
 import simx.profiler.model.MessageType;
 import org.jfree.util.Rotation;
 
@@ -810,7 +812,16 @@ public final class ActorInstanceInfoTopComponent extends TopComponent implements
         this.messagesSentTextField.setText( "" + instance.getSentMessagesCount() );
         this.messageReceivedTextField.setText( "" + instance.getReceivesMessagesCount() );
         this.processingTimeTextField.setText( "" + ((double)instance.getOverallProcessingTime()/1000000.0) );
-        this.timeInMailboxTextField.setText( "" + (instance.getAverageTimeInMailbox() / 1000000.0) );
+        this.processingTimeTextField.setToolTipText( instance.getProcessingTimeHistogram().toPercentileString() );
+        this.timeInMailboxTextField.setText( "" + (instance.getAverageTimeInMailbox() / 1000000.0) + " (" + instance.getTimeInMailboxHistogram().toPercentileString() + ")" );
+        this.timeInMailboxTextField.setToolTipText( null );
+        if( instance.type.profilingData.isFrozen() ) {
+            final Map< String, Histogram > bySender = new HashMap<>();
+            instance.type.profilingData.getMailboxWaits().getHistogramsBySender( instance, null ).forEach( (sender, histogram) -> {
+                bySender.put( sender.type.shortTypeName + " " + sender.id, histogram );
+            } );
+            this.timeInMailboxTextField.setToolTipText( MailboxWaitsToolTip.create( bySender ) );
+        }
         
         final List< String > messageTypes = new ArrayList<>();
         messageTypes.add( "" );
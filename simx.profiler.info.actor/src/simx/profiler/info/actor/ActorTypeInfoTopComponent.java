@@ -20,6 +20,7 @@ import java.awt.BorderLayout;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -44,8 +45,9 @@ import org.openide.util.lookup.AbstractLookup;
 import org.openide.util.lookup.InstanceContent;
 import simx.profiler.model.ActorInstance;
 import simx.profiler.model.ActorType;
+import simx.profiler.model.Histogram;
+import simx.profiler.model.MailboxWaits;
 import simx.profiler.model.MessageType;
-import simx.profiler.model.ProfilingData;
 import org.jfree.data.general.DefaultPieDataset;
 import org.jfree.util.Rotation;
 
@@ -771,11 +773,23 @@ public final class ActorTypeInfoTopComponent extends TopComponent implements Loo
         this.messagesSentTextField.setText( "" + actorType.getSentMessagesCount() );
         this.messagesReceivedTextField.setText( "" + actorType.getReceivedMessagesCount() );
         this.processingTimeTextField.setText( "" + ((double)actorType.getOverallProcessingTime()/1000000.0) );
-        this.timeInMailboxTextField.setText( "" + (actorType.getAverageTimeInMailbox() / 1000000.0) );
+        this.processingTimeTextField.setToolTipText( actorType.getProcessingTimeHistogram().toPercentileString() );
+        this.timeInMailboxTextField.setText( "" + (actorType.getAverageTimeInMailbox() / 1000000.0) + " (" + actorType.getTimeInMailboxHistogram().toPercentileString() + ")" );
+        this.timeInMailboxTextField.setToolTipText( null );
+        if( actorType.profilingData.isFrozen() ) {
+            final MailboxWaits mailboxWaits = actorType.profilingData.getMailboxWaits();
+            final Map< String, Histogram > bySender = new HashMap<>();
+            actorType.getActorInstances().stream().forEach( (instance) -> {
+                mailboxWaits.getHistogramsBySender( instance, null ).forEach( (sender, histogram) -> {
+                    bySender.computeIfAbsent( sender.type.shortTypeName, (name) -> new Histogram() ).add( histogram );
+                } );
+            } );
+            this.timeInMailboxTextField.setToolTipText( MailboxWaitsToolTip.create( bySender ) );
+        }
         
         this.actorInstances = actorType.getActorInstances();
         this.instancesTable.clearSelection();
-        this.instancesTable.setModel( new ActorInstancesTableModel( actorType.getActorInstances(), ProfilingData.getLoadedProfilingData().applicationStart() ));
+        this.instancesTable.setModel( new ActorInstancesTableModel( actorType.getActorInstances(), actorType.profilingData.applicationStart() ));
         
         this.sentMessages = new ArrayList<>( actorType.sentMessagesStatistic().entrySet() );
         this.messagesSentTable.setModel( new MessagesSentTableModel( actorType.sentMessagesStatistic(), actorType.getSentMessagesCount() ) );
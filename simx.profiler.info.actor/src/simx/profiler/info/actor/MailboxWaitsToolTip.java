@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.info.actor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import simx.profiler.model.Histogram;
+
+/**
+ * This class creates the tool tip of the time in mailbox fields, which shows
+ * the distribution of the times in the mailbox for the senders that sent the
+ * most messages.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class MailboxWaitsToolTip {
+    
+    /**
+     * The maximum number of senders that are shown.
+     */
+    private static final int MAX_SENDERS = 10;
+    
+    private MailboxWaitsToolTip() {
+    }
+    
+    /**
+     * This method creates the tool tip.
+     * 
+     * @param bySender The distribution of the times in the mailbox by the name of the sender. Must not be null.
+     * @return The tool tip as HTML, or null if there are no messages.
+     */
+    static String create( final Map< String, Histogram > bySender ) {
+        if( bySender == null ) throw new IllegalArgumentException( "The parameter 'bySender' must not be null!" );
+        if( bySender.isEmpty() ) return null;
+        final List< Map.Entry< String, Histogram > > senders = new ArrayList<>( bySender.entrySet() );
+        senders.sort( (a, b) -> Long.compare( b.getValue().getCount(), a.getValue().getCount() ) );
+        final StringBuilder toolTip = new StringBuilder( "<html>Time in mailbox by sender:" );
+        senders.stream().limit( MAX_SENDERS ).forEach( (e) -> {
+            toolTip.append( "<br>" ).append( e.getKey() ).append( ": " ).append( e.getValue().getCount() ).append( " messages, " ).append( e.getValue().toPercentileString() );
+        } );
+        if( senders.size() > MAX_SENDERS ) toolTip.append( "<br>" ).append( senders.size() - MAX_SENDERS ).append( " more senders" );
+        return toolTip.append( "</html>" ).toString();
+    }
+    
+}
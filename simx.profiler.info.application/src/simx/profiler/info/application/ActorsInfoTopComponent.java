@@ -17,13 +17,14 @@
 package simx.profiler.info.application;
 
 import java.awt.BorderLayout;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import org.jfree.chart.ChartFactory;
@@ -41,6 +42,9 @@ import org.netbeans.api.visual.model.ObjectState;
 import org.openide.awt.ActionID;
 import org.openide.awt.ActionReference;
 import org.openide.windows.TopComponent;
+import org.openide.util.Lookup;
+import org.openide.util.LookupEvent;
+import org.openide.util.LookupListener;
 import org.openide.util.NbBundle.Messages;
 import org.openide.util.lookup.AbstractLookup;
 import org.openide.util.lookup.InstanceContent;
@@ -50,8 +54,9 @@ import simx.profiler.model.ActorInstance;
 import simx.profiler.model.ActorType;
 import simx.profiler.model.ImmutableTupel;
 import simx.profiler.model.MessageType;
-import simx.profiler.model.ParallelismEvent;
+import simx.profiler.model.ParallelismProfile;
 import simx.profiler.model.ProfilingData;
+import simx.profiler.model.events.ProfilingDataLoadedEvent;
 
 /**
  * Top component which displays something.
@@ -77,20 +82,27 @@ import simx.profiler.model.ProfilingData;
     "CTL_ActorsInfoTopComponent=ActorsInfo Window",
     "HINT_ActorsInfoTopComponent=This is a ActorsInfo window"
 })
-public final class ActorsInfoTopComponent extends TopComponent {
+public final class ActorsInfoTopComponent extends TopComponent implements LookupListener {
     
-    private final ProfilingData profilingData;
-    private final List< ActorType > actorTypes;
-    private final List< ActorInstance > actorInstances;
+    /**
+     * The maximal number of points of the plot of the degree of parallelism.
+     */
+    private static final int MAX_PLOT_POINTS = 10000;
+    
+    private ProfilingData profilingData;
+    private List< ActorType > actorTypes;
+    private List< ActorInstance > actorInstances;
     private final InstanceContent content;
     private ActorType selectedActorType;
     private ActorInstance selectedActorInstance;
-    private final CommunicationData applicationCommunicationData;
+    private CommunicationData applicationCommunicationData;
     private CommunicationData selectedCommunicationData;
     private StartLatencyDiscoveryEvent latencyDiscoveryStartEvent;
     private StartConsistencyDiscoveryEvent startConsistencyDiscoveryEvent;
     private final DefaultCategoryDataset parallelismHistogramDataSet;
     private final XYSeriesCollection dopPlotData;
+    private final TimeWindowPanel timeWindowPanel;
+    private Lookup.Result< ProfilingDataLoadedEvent > result = null;
      
     public ActorsInfoTopComponent() {
         initComponents();
@@ -101,30 +113,58 @@ public final class ActorsInfoTopComponent extends TopComponent {
         
         this.associateLookup( new AbstractLookup( this.content ) );
         
+        ListSelectionModel listSelectionModel = this.actorTypeInformationTable.getSelectionModel();
+        listSelectionModel.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
+        listSelectionModel.addListSelectionListener( (final ListSelectionEvent e) -> {
+            final int row = actorTypeInformationTable.getSelectedRow();
+            if( row >= 0 && row < actorTypes.size() ) setSelectedActorType( actorTypes.get( row ) );
+        });
+        listSelectionModel = this.actorInstanceInformationTable.getSelectionModel();
+        listSelectionModel.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
+        listSelectionModel.addListSelectionListener( (ListSelectionEvent e) -> {
+            final int row = actorInstanceInformationTable.getSelectedRow();
+            if( row >= 0 && row < actorInstances.size() ) setSelectedActorInstance( actorInstances.get( row ) );
+        });
+        
+        this.dopPlotData = new XYSeriesCollection();
+        JFreeChart dopChart = ChartFactory.createXYLineChart( "", "", "", this.dopPlotData );
+        final ChartPanel dopChartPanel = new ChartPanel( dopChart );
+        dopChartPanel.setPreferredSize( new java.awt.Dimension(261, 157) );
+        this.dopPanel.setLayout( new BorderLayout() );
+        this.dopPanel.add( dopChartPanel, BorderLayout.CENTER );
+        
+        this.parallelismHistogramDataSet = new DefaultCategoryDataset();
+        final JFreeChart chart = ChartFactory.createBarChart( "", "Parallelism", "ms", this.parallelismHistogramDataSet, PlotOrientation.VERTICAL, false, true, false );
+        final ChartPanel chartPanel = new ChartPanel( chart );
+        this.parallelismHistogramPanel.setLayout( new BorderLayout() );
+        this.parallelismHistogramPanel.add( chartPanel, BorderLayout.CENTER );
         
-        this.profilingData = ProfilingData.getLoadedProfilingData();
+        this.timeWindowPanel = new TimeWindowPanel();
+        this.jTabbedPane1.addTab( "Time Window", this.timeWindowPanel );
+        
+        if( ProfilingData.getLoadedProfilingData() != null ) this.setProfilingData( ProfilingData.getLoadedProfilingData() );
+    }
+    
+    /**
+     * This method (re)builds all views of this window from the given profiling data. It is called again whenever
+     * new profiling data has been published, e.g. while a growing trace is followed.
+     * 
+     * @param profilingData The profiling data to show.
+     */
+    private void setProfilingData( final ProfilingData profilingData ) {
+        this.profilingData = profilingData;
         final Map< MessageType, Integer > applicationCommunicationDataLocal = new HashMap<>();
         this.profilingData.getMessageTypes().stream().forEach((messageType) -> {
             applicationCommunicationDataLocal.put( messageType, messageType.getTimesSent() );
         });
         this.applicationCommunicationData = new CommunicationData( new ImmutableTupel<>( null, null ), applicationCommunicationDataLocal );
-        this.content.set( Collections.singleton( this.applicationCommunicationData ), null);
+        this.constructContent();
         
         this.actorTypes = this.profilingData.getActorTypes();
         this.actorTypeInformationTable.setModel( new ActorTypeInformationTableModel( this.profilingData ) );
-        ListSelectionModel listSelectionModel = this.actorTypeInformationTable.getSelectionModel();
-        listSelectionModel.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
-        listSelectionModel.addListSelectionListener( (final ListSelectionEvent e) -> {
-            setSelectedActorType( actorTypes.get( actorTypeInformationTable.getSelectedRow() ) );
-        });
         this.actorInstances = profilingData.getActorInstances();
-        listSelectionModel = this.actorInstanceInformationTable.getSelectionModel();
-        listSelectionModel.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
-        listSelectionModel.addListSelectionListener( (ListSelectionEvent e) -> {
-            final ActorInstance actorInstance = actorInstances.get( actorInstanceInformationTable.getSelectedRow() );
-            setSelectedActorInstance( actorInstance );
-        });
         this.actorInstanceInformationTable.setModel( new ActorInstanceInformationTableModel( this.profilingData ) );
+        this.timeWindowPanel.setProfilingData( this.profilingData );
         
         long minProcessingTime = Long.MAX_VALUE;
         long maxProcessingTime = Long.MIN_VALUE;
@@ -149,7 +189,7 @@ public final class ActorsInfoTopComponent extends TopComponent {
             }
         }
 
-        int messagesSpan = maxMessagesCount - minMessagesCount;
+        int messagesSpan = Math.max( 1, maxMessagesCount - minMessagesCount );
         for( final Map.Entry< ImmutableTupel< ActorType, ActorType >, Integer > e : typeCommunicationScaleFactors.entrySet() ) {
             final int factor = (((e.getValue() - minMessagesCount) * 4) / messagesSpan ) + 1;
             typeCommunicationScaleFactors.put( e.getKey(), factor );
@@ -236,7 +276,7 @@ public final class ActorsInfoTopComponent extends TopComponent {
             }
         }
 
-        messagesSpan = maxMessagesCount - minMessagesCount;
+        messagesSpan = Math.max( 1, maxMessagesCount - minMessagesCount );
         for( final Map.Entry< ImmutableTupel< ActorInstance, ActorInstance >, Integer > e : instanceCommunicationScaleFactors.entrySet() ) {
             final int factor = (((e.getValue() - minMessagesCount) * 4) / messagesSpan ) + 1;
             instanceCommunicationScaleFactors.put( e.getKey(), factor );
@@ -296,59 +336,40 @@ public final class ActorsInfoTopComponent extends TopComponent {
             });
         });
         
-        this.dopPlotData = new XYSeriesCollection();
-        JFreeChart dopChart = ChartFactory.createXYLineChart( "", "", "", this.dopPlotData );
-        final ChartPanel dopChartPanel = new ChartPanel( dopChart );
-        dopChartPanel.setPreferredSize( new java.awt.Dimension(261, 157) );
-        this.dopPanel.setLayout( new BorderLayout() );
-        this.dopPanel.add( dopChartPanel, BorderLayout.CENTER );
+        this.dopPlotData.removeAllSeries();
+        this.parallelismHistogramDataSet.clear();
         
         final XYSeries plotData = new XYSeries( "Degree of Parallelism" );
         
-        final List< ParallelismEvent > parallelismEvents = this.profilingData.getParallelismEvents();
-        Collections.sort( parallelismEvents );
-        int parallelismLevel = 1;
-        long lastTimeStamp = parallelismEvents.get( 0 ).timestamp;
-        final long firstTimeStamp = lastTimeStamp;
-        final Map< Integer, Long > histogramData = new HashMap<>();
-        plotData.add( 0, 1 );
-        for( int i = 1; i < parallelismEvents.size(); ++i ) {
-            if( histogramData.containsKey( parallelismLevel ) ) {               
-                final long old = histogramData.get( parallelismLevel );
-                histogramData.put( parallelismLevel, parallelismEvents.get( i ).timestamp - lastTimeStamp + old );
-            } else {
-                histogramData.put( parallelismLevel, parallelismEvents.get( i ).timestamp - lastTimeStamp );
+        final ParallelismProfile parallelismProfile = this.profilingData.getParallelismProfile();
+        final int steps = parallelismProfile.getStepsCount();
+        if( steps <= MAX_PLOT_POINTS ) {
+            final long firstTimeStamp = steps == 0 ? 0 : parallelismProfile.getTime( 0 );
+            for( int i = 0; i < steps; ++i ) {
+                plotData.add( (double)(parallelismProfile.getTime( i ) - firstTimeStamp) / 1000000000.0, parallelismProfile.getParallelism( i ), false );
             }
-            lastTimeStamp = parallelismEvents.get( i ).timestamp;
-            if( parallelismEvents.get( i ).eventType == ParallelismEvent.ParallelimEventTypes.PROCESSING_START ) {
-               ++parallelismLevel; 
-            } else {
-               --parallelismLevel;
-            }
-            plotData.add( (double)(lastTimeStamp - firstTimeStamp) / 1000000000.0, parallelismLevel );
+        } else {
+            // Traces with more steps than points are plotted with the average DOP of equally long intervals.
+            final double[] series = parallelismProfile.getAverageParallelismSeries( MAX_PLOT_POINTS );
+            final double interval = (double)(parallelismProfile.getTime( steps - 1 ) - parallelismProfile.getTime( 0 )) / MAX_PLOT_POINTS / 1000000000.0;
+            for( int i = 0; i < series.length; ++i ) plotData.add( i * interval, series[ i ], false );
         }
         this.dopPlotData.addSeries( plotData );
-        this.parallelismHistogramDataSet = new DefaultCategoryDataset();
+        this.fillParallelismHistogram( parallelismProfile );
         
         double avgParallelism1 = 0.0;
         double avgParallelism2 = 0.0;
         long t = 0;
         
-        for( int i = 1; i < histogramData.size(); ++i ) {
-            t += histogramData.get( i );
+        for( int i = 1; i <= parallelismProfile.getMaxParallelism(); ++i ) {
+            t += parallelismProfile.getTimeAtParallelism( i );
         }
         
-        for( int i = 0; i < histogramData.size(); ++i ) {
-            parallelismHistogramDataSet.addValue( (double)histogramData.get( i ) / 1000000.0, "", i==0?"Idle":""+i );
-            avgParallelism1 += i * ((double)histogramData.get( i ) / this.profilingData.applicationRunTime() );
-            avgParallelism2 += i * ((double)histogramData.get( i ) / t );
+        for( int i = 0; i <= parallelismProfile.getMaxParallelism(); ++i ) {
+            avgParallelism1 += i * ((double)parallelismProfile.getTimeAtParallelism( i ) / this.profilingData.applicationRunTime() );
+            avgParallelism2 += i * ((double)parallelismProfile.getTimeAtParallelism( i ) / t );
         }
         
-        final JFreeChart chart = ChartFactory.createBarChart( "", "Parallelism", "ms", this.parallelismHistogramDataSet, PlotOrientation.VERTICAL, false, true, false );
-        final ChartPanel chartPanel = new ChartPanel( chart );
-        this.parallelismHistogramPanel.setLayout( new BorderLayout() );
-        this.parallelismHistogramPanel.add( chartPanel, BorderLayout.CENTER );
-        
         this.runtimeTextField.setText( "" + (this.profilingData.applicationRunTime() / 1000000.0) );
         this.computationTimeMsTextField.setText( "" + (this.profilingData.getOverallProcessingTime() / 1000000.0 ));
         this.computationTimePercentTextField.setText( "" + (this.profilingData.getOverallProcessingTime() * 100.0 / this.profilingData.applicationRunTime() ) );
@@ -369,10 +390,10 @@ public final class ActorsInfoTopComponent extends TopComponent {
             spawnTreeGraphScene.addNode( actorInstance );
         });
         for( final ActorInstance actorInstance : this.actorInstances ) {
-            if( actorInstance.supervisor != null ) {
-                final ImmutableTupel< ActorInstance, ActorInstance > edge = new ImmutableTupel( actorInstance.supervisor, actorInstance );
+            if( actorInstance.getSupervisor() != null ) {
+                final ImmutableTupel< ActorInstance, ActorInstance > edge = new ImmutableTupel( actorInstance.getSupervisor(), actorInstance );
                 spawnTreeGraphScene.addEdge( edge );
-                spawnTreeGraphScene.setEdgeSource( edge, actorInstance.supervisor );
+                spawnTreeGraphScene.setEdgeSource( edge, actorInstance.getSupervisor() );
                 spawnTreeGraphScene.setEdgeTarget( edge, actorInstance );
             }
         }
@@ -841,33 +862,24 @@ public final class ActorsInfoTopComponent extends TopComponent {
 
     private void includeIdleTimeCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_includeIdleTimeCheckBoxActionPerformed
         this.parallelismHistogramDataSet.clear();
+        if( this.profilingData == null ) return;
         
-        final List< ParallelismEvent > parallelismEvents = this.profilingData.getParallelismEvents();
-        Collections.sort( parallelismEvents );
-        int parallelismLevel = 1;
-        long lastTimeStamp = parallelismEvents.get( 0 ).timestamp;
-        final Map< Integer, Long > histogramData = new HashMap<>();
-        for( int i = 1; i < parallelismEvents.size(); ++i ) {
-            if( histogramData.containsKey( parallelismLevel ) ) {               
-                final long old = histogramData.get( parallelismLevel );
-                histogramData.put( parallelismLevel, parallelismEvents.get( i ).timestamp - lastTimeStamp + old );
-            } else {
-                histogramData.put( parallelismLevel, parallelismEvents.get( i ).timestamp - lastTimeStamp );
-            }
-            lastTimeStamp = parallelismEvents.get( i ).timestamp;
-            if( parallelismEvents.get( i ).eventType == ParallelismEvent.ParallelimEventTypes.PROCESSING_START ) {
-               ++parallelismLevel; 
-            } else {
-               --parallelismLevel;
-            }
-        }
-        
-        for( int i = 0; i < histogramData.size(); ++i ) {
-            if( i != 0 || i == 0 && this.includeIdleTimeCheckBox.isSelected() ) 
-                parallelismHistogramDataSet.addValue( (double)histogramData.get( i ) / 1000000.0, "", i==0?"Idle":""+i );
-        }
+        this.fillParallelismHistogram( this.profilingData.getParallelismProfile() );
     }//GEN-LAST:event_includeIdleTimeCheckBoxActionPerformed
 
+    /**
+     * This method fills the histogram of the time spent at each degree of parallelism. The idle time is only shown
+     * if the check box is selected.
+     * 
+     * @param parallelismProfile The parallelism profile of the profiling data.
+     */
+    private void fillParallelismHistogram( final ParallelismProfile parallelismProfile ) {
+        for( int i = 0; i <= parallelismProfile.getMaxParallelism(); ++i ) {
+            if( i != 0 || this.includeIdleTimeCheckBox.isSelected() ) 
+                this.parallelismHistogramDataSet.addValue( (double)parallelismProfile.getTimeAtParallelism( i ) / 1000000.0, "", i==0?"Idle":""+i );
+        }
+    }
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JTable actorInstanceInformationTable;
     private javax.swing.JTextField actorInstancesTextField;
@@ -919,12 +931,29 @@ public final class ActorsInfoTopComponent extends TopComponent {
     // End of variables declaration//GEN-END:variables
     @Override
     public void componentOpened() {
-        
+        this.result = ProfilingData.getLookup().lookupResult( ProfilingDataLoadedEvent.class );
+        this.result.addLookupListener( this );
+        this.result.allInstances();
     }
 
     @Override
     public void componentClosed() {
-        
+        this.result.removeLookupListener( this );
+        this.result = null;
+    }
+    
+    @Override
+    public void resultChanged( final LookupEvent le ) {
+        final Lookup.Result< ProfilingDataLoadedEvent > currentResult = this.result;
+        if( currentResult == null ) return;
+        final Collection< ? extends ProfilingDataLoadedEvent > events = currentResult.allInstances();
+        if( events.isEmpty() ) return;
+        final ProfilingData loadedProfilingData = events.iterator().next().getProfilingData();
+        if( SwingUtilities.isEventDispatchThread() ) {
+            this.setProfilingData( loadedProfilingData );
+        } else {
+            SwingUtilities.invokeLater( () -> this.setProfilingData( loadedProfilingData ) );
+        }
     }
 
     void writeProperties(java.util.Properties p) {
@@ -965,7 +994,7 @@ public final class ActorsInfoTopComponent extends TopComponent {
         if( this.startConsistencyDiscoveryEvent != null ) selectedObjects.add( this.startConsistencyDiscoveryEvent );
         if( this.selectedCommunicationData != null ) 
             selectedObjects.add( this.selectedCommunicationData );
-        else 
+        else if( this.applicationCommunicationData != null )
             selectedObjects.add( this.applicationCommunicationData );
         content.set( selectedObjects, null );
     }
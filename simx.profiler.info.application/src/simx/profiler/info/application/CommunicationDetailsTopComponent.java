@@ -23,20 +23,26 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import javax.swing.SwingUtilities;
 import org.netbeans.api.settings.ConvertAsProperties;
 import org.openide.awt.ActionID;
 import org.openide.awt.ActionReference;
 import org.openide.windows.TopComponent;
+import org.openide.util.Lookup;
+import org.openide.util.LookupEvent;
+import org.openide.util.LookupListener;
 import org.openide.util.NbBundle.Messages;
 import simx.profiler.model.ActorInstance;
 import simx.profiler.model.MessageProcessingEvent;
 import simx.profiler.model.MessageSentEvent;
 import simx.profiler.model.MessageType;
 import simx.profiler.model.ProfilingData;
+import simx.profiler.model.events.ProfilingDataLoadedEvent;
 
 /**
  * Top component which displays something.
@@ -62,15 +68,17 @@ import simx.profiler.model.ProfilingData;
     "CTL_CommunicationDetailsTopComponent=CommunicationDetails Window",
     "HINT_CommunicationDetailsTopComponent=This is a CommunicationDetails window"
 })
-public final class CommunicationDetailsTopComponent extends TopComponent {
+public final class CommunicationDetailsTopComponent extends TopComponent implements LookupListener {
 
-    private final ProfilingData profilingData;
+    private ProfilingData profilingData;
+    private Lookup.Result< ProfilingDataLoadedEvent > result = null;
     
     class NamesDrawPanel extends javax.swing.JPanel {
         
         @Override
         public void paintComponent( final Graphics g ) {
             super.paintComponent(g);
+            if( profilingData == null ) return;
             final Graphics2D g2 = (Graphics2D)g;
             
             
@@ -90,6 +98,7 @@ public final class CommunicationDetailsTopComponent extends TopComponent {
         @Override
         public void paintComponent( final Graphics g ) {
             super.paintComponent(g);
+            if( profilingData == null ) return;
             final Graphics2D g2 = (Graphics2D)g;
             
             
@@ -137,9 +146,9 @@ public final class CommunicationDetailsTopComponent extends TopComponent {
                     g2.fill(rect);
                     
                     
-                    if( jSlider1.getValue() <= 1000 && mpe.messageInstance.getMessageSentEvents().size() == 1 ) {
+                    if( jSlider1.getValue() <= 1000 && mpe.messageInstance.getMessageSentEventsCount() == 1 ) {
                         
-                        final MessageSentEvent mse = mpe.messageInstance.getMessageSentEvents().get( 0 );
+                        final MessageSentEvent mse = mpe.messageInstance.getMessageSentEvent( 0 );
                         final double xEnd = (double)width * normalizedStart;
                         final double yEnd = 20 + 35 * i;
                         
@@ -147,7 +156,7 @@ public final class CommunicationDetailsTopComponent extends TopComponent {
                         final double normalizedMessageStart = (double)(relativeMessageStart-(long)detailsScrollBar.getValue()*1000000l)/(double)((long)jSlider1.getValue() * 1000000l);
                         
                         final double xStart = (double)width * normalizedMessageStart;
-                        final double yStart = 20 + 35 * profilingData.getActorInstances().indexOf( mse.sender );
+                        final double yStart = 20 + 35 * mse.sender.index;
                         
                         final Line2D messageLine = new Line2D.Double(xStart, yStart, xEnd, yEnd);
                         g2.draw( messageLine );
@@ -172,18 +181,13 @@ public final class CommunicationDetailsTopComponent extends TopComponent {
     }
     
     public CommunicationDetailsTopComponent() {
-        this.profilingData = ProfilingData.getLoadedProfilingData();
         initComponents();
         setName(Bundle.CTL_CommunicationDetailsTopComponent());
         setToolTipText(Bundle.HINT_CommunicationDetailsTopComponent());
         
         this.jSlider1.setMinimum( 1 );
-        this.jSlider1.setMaximum( (int)(this.profilingData.applicationRunTime()/1000000) );
-        this.jSlider1.setValue( (int)(this.profilingData.applicationRunTime()/1000000) );
-        this.timeResolutionTextField.setText( ""+ (int)(this.profilingData.applicationRunTime()/1000000) );
         this.detailsScrollBar.setMinimum( 0 );
-        this.detailsScrollBar.setMaximum( (int)(this.profilingData.applicationRunTime()/1000000) );
-        this.detailsScrollBar.setVisibleAmount( (int)(this.profilingData.applicationRunTime()/1000000) );
+        if( ProfilingData.getLoadedProfilingData() != null ) this.setProfilingData( ProfilingData.getLoadedProfilingData() );
         
         this.actorIdsPanel.setLayout( new BorderLayout() );
         final NamesDrawPanel namesDrawPanel = new NamesDrawPanel();
@@ -339,14 +343,50 @@ public final class CommunicationDetailsTopComponent extends TopComponent {
     private javax.swing.JSlider jSlider1;
     private javax.swing.JTextField timeResolutionTextField;
     // End of variables declaration//GEN-END:variables
+    /**
+     * This method shows the given profiling data. If the same profiling data is set again after it has grown, the
+     * time range is extended. A time resolution that showed the whole run before keeps showing the whole run.
+     * 
+     * @param profilingData The profiling data to show.
+     */
+    private void setProfilingData( final ProfilingData profilingData ) {
+        final boolean showsWholeRun = this.profilingData == null || this.jSlider1.getValue() == this.jSlider1.getMaximum();
+        this.profilingData = profilingData;
+        final int runTime = (int)(this.profilingData.applicationRunTime()/1000000);
+        this.jSlider1.setMaximum( runTime );
+        this.detailsScrollBar.setMaximum( runTime );
+        if( showsWholeRun ) this.jSlider1.setValue( runTime );
+        this.timeResolutionTextField.setText( ""+ this.jSlider1.getValue() );
+        this.detailsScrollBar.setVisibleAmount( this.jSlider1.getValue() );
+        this.actorIdsPanel.repaint();
+        this.communicationDetailsPanel.repaint();
+    }
+
     @Override
     public void componentOpened() {
-        // TODO add custom code on component opening
+        this.result = ProfilingData.getLookup().lookupResult( ProfilingDataLoadedEvent.class );
+        this.result.addLookupListener( this );
+        this.result.allInstances();
     }
 
     @Override
     public void componentClosed() {
-        // TODO add custom code on component closing
+        this.result.removeLookupListener( this );
+        this.result = null;
+    }
+    
+    @Override
+    public void resultChanged( final LookupEvent le ) {
+        final Lookup.Result< ProfilingDataLoadedEvent > currentResult = this.result;
+        if( currentResult == null ) return;
+        final Collection< ? extends ProfilingDataLoadedEvent > events = currentResult.allInstances();
+        if( events.isEmpty() ) return;
+        final ProfilingData loadedProfilingData = events.iterator().next().getProfilingData();
+        if( SwingUtilities.isEventDispatchThread() ) {
+            this.setProfilingData( loadedProfilingData );
+        } else {
+            SwingUtilities.invokeLater( () -> this.setProfilingData( loadedProfilingData ) );
+        }
     }
 
     void writeProperties(java.util.Properties p) {
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.info.application;
+
+import java.util.List;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+import simx.profiler.model.ProfilingDataDiff;
+
+/**
+ * A table model for the entries of a comparison of two runs. All times are
+ * shown in milliseconds. Positive deltas mean that the current run needs more
+ * time than the baseline.
+ * 
+ * @author Stephan Rehfeld
+ */
+public class DiffTableModel implements TableModel {
+    
+    private static final String[] COLUMN_NAMES = { "Kind", "Name", "Regression (ms)", "Sent \u0394", "Processed \u0394", "Mean Time \u0394 (ms)", "p99 Time \u0394 (ms)", "Mailbox \u0394 (ms)", "DOP \u0394" };
+    
+    private final List< ProfilingDataDiff.Entry > entries;
+    
+    DiffTableModel( final List< ProfilingDataDiff.Entry > entries ) {
+        if( entries == null ) throw new IllegalArgumentException( "The parameter 'entries' must not be null!" );
+        this.entries = entries;
+    }
+    
+    /**
+     * This method returns the entry that is shown in a row.
+     * 
+     * @param rowIndex The index of the row.
+     * @return The entry.
+     */
+    ProfilingDataDiff.Entry getEntry( final int rowIndex ) {
+        return this.entries.get( rowIndex );
+    }
+    
+    @Override
+    public int getRowCount() {
+        return this.entries.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName( final int columnIndex ) {
+        return columnIndex < COLUMN_NAMES.length ? COLUMN_NAMES[ columnIndex ] : "";
+    }
+
+    @Override
+    public Class<?> getColumnClass( final int columnIndex ) {
+        if( columnIndex == 0 || columnIndex == 1 ) return String.class;
+        if( columnIndex == 3 || columnIndex == 4 ) return Long.class;
+        if( columnIndex < COLUMN_NAMES.length ) return Double.class;
+        return null;
+    }
+
+    @Override
+    public boolean isCellEditable( final int rowIndex, final int columnIndex ) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt( final int rowIndex, final int columnIndex ) {
+        final ProfilingDataDiff.Entry entry = this.entries.get( rowIndex );
+        if( columnIndex == 0 ) return entry.kind.description;
+        if( columnIndex == 1 ) return entry.name;
+        if( columnIndex == 2 ) return entry.getRegression() / 1000000.0;
+        if( columnIndex == 3 ) return entry.getSentCountDelta();
+        if( columnIndex == 4 ) return entry.getProcessedCountDelta();
+        if( columnIndex == 5 ) return entry.getMeanProcessingTimeDelta() / 1000000.0;
+        if( columnIndex == 6 ) return entry.getProcessingTimeDeltaAtPercentile( 99 ) / 1000000.0;
+        if( columnIndex == 7 ) return entry.getMeanTimeInMailboxDelta() / 1000000.0;
+        if( columnIndex == 8 ) return entry.getParallelismDelta();
+        return null;
+    }
+
+    @Override
+    public void setValueAt(final Object aValue, final int rowIndex, final int columnIndex) {
+        
+    }
+
+    @Override
+    public void addTableModelListener(TableModelListener l) {
+        
+    }
+
+    @Override
+    public void removeTableModelListener(TableModelListener l) {
+        
+    }
+    
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.info.application;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeListener;
+import org.netbeans.api.settings.ConvertAsProperties;
+import org.openide.awt.ActionID;
+import org.openide.awt.ActionReference;
+import org.openide.util.NbBundle.Messages;
+import org.openide.util.RequestProcessor;
+import org.openide.windows.TopComponent;
+import simx.profiler.model.Histogram;
+import simx.profiler.model.ProfilingData;
+import simx.profiler.model.ProfilingDataDiff;
+import simx.profiler.model.Session;
+import simx.profiler.model.SessionManager;
+
+/**
+ * A window that compares two loaded sessions, e.g. the runs of two builds. The
+ * application, the actor types, the message types and the paths are listed by
+ * their regression, the largest regression first. The details of the selected
+ * entry show the distributions of both runs.
+ */
+@ConvertAsProperties(
+        dtd = "-//simx.profiler.info.application//Diff//EN",
+        autostore = false
+)
+@TopComponent.Description(
+        preferredID = "DiffTopComponent",
+        //iconBase="SET/PATH/TO/ICON/HERE", 
+        persistenceType = TopComponent.PERSISTENCE_ALWAYS
+)
+@TopComponent.Registration(mode = "editor", openAtStartup = false)
+@ActionID(category = "Window", id = "simx.profiler.info.application.DiffTopComponent")
+@ActionReference(path = "Menu/Window" /*, position = 333 */)
+@TopComponent.OpenActionRegistration(
+        displayName = "#CTL_DiffAction",
+        preferredID = "DiffTopComponent"
+)
+@Messages({
+    "CTL_DiffAction=Diff",
+    "CTL_DiffTopComponent=Diff Window",
+    "HINT_DiffTopComponent=Compares two runs"
+})
+public final class DiffTopComponent extends TopComponent {
+    
+    /**
+     * The request processor that compares the runs.
+     */
+    private static final RequestProcessor REQUEST_PROCESSOR = new RequestProcessor( "Profiling Data Diff", 1 );
+    
+    /**
+     * The item of the kind filter that shows the entries of all kinds.
+     */
+    private static final String ALL_KINDS = "All";
+    
+    private final JComboBox< Session > baselineComboBox;
+    private final JComboBox< Session > currentComboBox;
+    private final JComboBox< Object > kindComboBox;
+    private final JButton compareButton;
+    private final JLabel statusLabel;
+    private final JTable entriesTable;
+    private final JTextArea detailsTextArea;
+    
+    private final ChangeListener sessionsListener;
+    
+    private ProfilingDataDiff diff;
+    private DiffTableModel tableModel;
+    
+    public DiffTopComponent() {
+        setName(Bundle.CTL_DiffTopComponent());
+        setToolTipText(Bundle.HINT_DiffTopComponent());
+        setLayout( new BorderLayout() );
+        
+        this.baselineComboBox = new JComboBox<>();
+        this.currentComboBox = new JComboBox<>();
+        this.kindComboBox = new JComboBox<>();
+        this.kindComboBox.addItem( ALL_KINDS );
+        for( final ProfilingDataDiff.Kind kind : ProfilingDataDiff.Kind.values() ) this.kindComboBox.addItem( kind );
+        this.kindComboBox.addActionListener( (e) -> this.showEntries() );
+        this.compareButton = new JButton( "Compare" );
+        this.compareButton.addActionListener( (e) -> this.compare() );
+        this.statusLabel = new JLabel();
+        
+        final JPanel selectionPanel = new JPanel( new FlowLayout( FlowLayout.LEADING ) );
+        selectionPanel.add( new JLabel( "Baseline:" ) );
+        selectionPanel.add( this.baselineComboBox );
+        selectionPanel.add( new JLabel( "Current:" ) );
+        selectionPanel.add( this.currentComboBox );
+        selectionPanel.add( this.compareButton );
+        selectionPanel.add( new JLabel( "Show:" ) );
+        selectionPanel.add( this.kindComboBox );
+        selectionPanel.add( this.statusLabel );
+        add( selectionPanel, BorderLayout.NORTH );
+        
+        this.entriesTable = new JTable();
+        this.entriesTable.setAutoCreateRowSorter( true );
+        this.entriesTable.getSelectionModel().setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
+        this.entriesTable.getSelectionModel().addListSelectionListener( (e) -> this.showDetails() );
+        this.detailsTextArea = new JTextArea( 8, 80 );
+        this.detailsTextArea.setEditable( false );
+        final JSplitPane splitPane = new JSplitPane( JSplitPane.VERTICAL_SPLIT, new JScrollPane( this.entriesTable ), new JScrollPane( this.detailsTextArea ) );
+        splitPane.setResizeWeight( 0.8 );
+        add( splitPane, BorderLayout.CENTER );
+        
+        this.sessionsListener = (e) -> SwingUtilities.invokeLater( this::updateSessions );
+    }
+    
+    @Override
+    public void componentOpened() {
+        SessionManager.getDefault().addChangeListener( this.sessionsListener );
+        this.updateSessions();
+    }
+
+    @Override
+    public void componentClosed() {
+        SessionManager.getDefault().removeChangeListener( this.sessionsListener );
+    }
+    
+    /**
+     * This method fills the selection of the runs with the loaded sessions. The selected sessions are kept if they
+     * are still loaded. Followed sessions are not offered, because their profiling data is still changing while it is
+     * compared in the background. Only frozen profiling data can be compared.
+     */
+    private void updateSessions() {
+        final List< Session > sessions = SessionManager.getDefault().getSessions();
+        final Object baseline = this.baselineComboBox.getSelectedItem();
+        final Object current = this.currentComboBox.getSelectedItem();
+        this.baselineComboBox.removeAllItems();
+        this.currentComboBox.removeAllItems();
+        for( final Session session : sessions ) {
+            final ProfilingData profilingData = session.getProfilingData();
+            if( profilingData == null || !profilingData.isFrozen() ) continue;
+            this.baselineComboBox.addItem( session );
+            this.currentComboBox.addItem( session );
+        }
+        if( baseline != null ) this.baselineComboBox.setSelectedItem( baseline );
+        if( current != null ) {
+            this.currentComboBox.setSelectedItem( current );
+        } else {
+            this.currentComboBox.setSelectedItem( SessionManager.getDefault().getActiveSession() );
+        }
+        this.compareButton.setEnabled( this.baselineComboBox.getItemCount() > 0 );
+    }
+    
+    private void compare() {
+        final Session baselineSession = (Session)this.baselineComboBox.getSelectedItem();
+        final Session currentSession = (Session)this.currentComboBox.getSelectedItem();
+        if( baselineSession == null || currentSession == null ) return;
+        // The sessions are pinned, so they are not unloaded to stay within the memory budget while they are compared.
+        final SessionManager sessionManager = SessionManager.getDefault();
+        final ProfilingData baseline = sessionManager.pin( baselineSession );
+        if( baseline == null ) return;
+        final ProfilingData current = sessionManager.pin( currentSession );
+        if( current == null || !baseline.isFrozen() || !current.isFrozen() ) {
+            sessionManager.unpin( baselineSession );
+            if( current != null ) sessionManager.unpin( currentSession );
+            return;
+        }
+        
+        this.compareButton.setEnabled( false );
+        this.statusLabel.setText( "Comparing..." );
+        REQUEST_PROCESSOR.post( () -> {
+            final long start = System.nanoTime();
+            ProfilingDataDiff diff = null;
+            try {
+                diff = ProfilingDataDiff.compare( baseline, current );
+            } finally {
+                sessionManager.unpin( baselineSession );
+                sessionManager.unpin( currentSession );
+                final ProfilingDataDiff result = diff;
+                final long duration = (System.nanoTime() - start) / 1000000;
+                SwingUtilities.invokeLater( () -> {
+                    if( result == null ) {
+                        this.statusLabel.setText( "Comparing " + baselineSession.getName() + " and " + currentSession.getName() + " failed." );
+                    } else {
+                        this.diff = result;
+                        this.statusLabel.setText( baselineSession.getName() + " -> " + currentSession.getName() + " (" + duration + " ms)" );
+                        this.showEntries();
+                    }
+                    this.compareButton.setEnabled( true );
+                });
+            }
+        });
+    }
+    
+    private void showEntries() {
+        if( this.diff == null ) return;
+        final Object kind = this.kindComboBox.getSelectedItem();
+        this.tableModel = new DiffTableModel( kind instanceof ProfilingDataDiff.Kind ? this.diff.getEntries( (ProfilingDataDiff.Kind)kind ) : this.diff.getEntries() );
+        this.entriesTable.setModel( this.tableModel );
+        this.detailsTextArea.setText( "" );
+    }
+    
+    private void showDetails() {
+        final int row = this.entriesTable.getSelectedRow();
+        if( this.tableModel == null || row < 0 ) return;
+        final ProfilingDataDiff.Entry entry = this.tableModel.getEntry( this.entriesTable.convertRowIndexToModel( row ) );
+        this.detailsTextArea.setText( entry.kind.description + " " + entry.name + "\n"
+            + "Baseline: " + describe( entry.baseline ) + "\n"
+            + "Current:  " + describe( entry.current ) + "\n"
+            + "Regression: " + (entry.getRegression() / 1000000.0) + " ms" );
+        this.detailsTextArea.setCaretPosition( 0 );
+    }
+    
+    private static String describe( final ProfilingDataDiff.Summary summary ) {
+        final Histogram timeInMailbox = summary.getTimeInMailboxHistogram();
+        return summary.sentCount + " sent, " + summary.processedCount + " processed, processing time "
+            + summary.getProcessingTimeHistogram().toPercentileString() + ", time in mailbox "
+            + (timeInMailbox.getCount() == 0 ? "-" : timeInMailbox.toPercentileString()) + ", DOP " + summary.parallelism;
+    }
+    
+    void writeProperties(java.util.Properties p) {
+        // better to version settings since initial version as advocated at
+        // http://wiki.apidesign.org/wiki/PropertyFiles
+        p.setProperty("version", "1.0");
+    }
+
+    void readProperties(java.util.Properties p) {
+        String version = p.getProperty("version");
+    }
+    
+}
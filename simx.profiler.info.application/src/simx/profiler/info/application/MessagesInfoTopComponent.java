@@ -43,7 +43,6 @@ import org.openide.util.Utilities;
 import org.openide.util.lookup.AbstractLookup;
 import org.openide.util.lookup.InstanceContent;
 import simx.profiler.model.MessageType;
-import simx.profiler.model.ProfilingData;
 
 /**
  * Top component which displays something.
@@ -73,8 +72,6 @@ public final class MessagesInfoTopComponent extends TopComponent implements Look
 
     private Lookup.Result<CommunicationData> result = null;
     
-    private final ProfilingData profilingData;
-    
     private final DefaultPieDataset messagesDataSet;
     
     private CommunicationData communicationData;
@@ -90,8 +87,6 @@ public final class MessagesInfoTopComponent extends TopComponent implements Look
         
         this.associateLookup( new AbstractLookup( this.content ) );
         
-        this.profilingData = ProfilingData.getLoadedProfilingData();
-        
         this.messagesDataSet = new DefaultPieDataset();
         
         this.createPieChart( this.messagesDataSet, this.graphicalPanel );
@@ -29,6 +29,7 @@ import org.netbeans.api.visual.widget.general.IconNodeWidget;
 import org.openide.util.ImageUtilities;
 import simx.profiler.model.ActorInstance;
 import simx.profiler.model.ImmutableTupel;
+import simx.profiler.model.SpawnTree;
 
 /**
  *
@@ -56,6 +57,9 @@ public class SpawnTreeGraphScene extends GraphScene< ActorInstance, ImmutableTup
         final IconNodeWidget widget = new IconNodeWidget( this );
         widget.setImage( ImageUtilities.loadImage( "simx/profiler/info/application/actor.png" ));    
         widget.setLabel( node.shortId + " (" + node.type.shortTypeName + ")" );
+        final SpawnTree spawnTree = node.type.profilingData.getSpawnTree();
+        widget.setToolTipText( spawnTree.getSubtreeSize( node ) + " actors, " + spawnTree.getSubtreeSentMessagesCount( node ) + " messages sent, "
+                + spawnTree.getSubtreeReceivedMessagesCount( node ) + " messages received, " + (spawnTree.getSubtreeProcessingTime( node ) / 1000000.0) + " ms processing time" );
         
         final WidgetAction.Chain actions = widget.getActions ();
         actions.addAction( ActionFactory.createMoveAction() );
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.info.application;
+
+import java.awt.BorderLayout;
+import java.awt.GridLayout;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import org.openide.util.RequestProcessor;
+import simx.profiler.model.ProfilingData;
+import simx.profiler.model.TimeWindowIndex;
+
+/**
+ * A panel to select a time window of the application run with two sliders.
+ * It shows the number of sent and processed messages, the processing time,
+ * the average time in the mailbox and the degree of parallelism within the
+ * window. The values are answered by the time window index of the profiling
+ * data, so they are updated while a slider is moved. The index of frozen
+ * profiling data is built in the background. The index of a followed trace is
+ * built on the event dispatch thread, because the follower adds the events
+ * on that thread as well.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class TimeWindowPanel extends JPanel {
+    
+    private static final RequestProcessor REQUEST_PROCESSOR = new RequestProcessor( "Time Window Index", 1 );
+    
+    private final JSlider fromSlider;
+    private final JSlider toSlider;
+    private final JTextField fromTextField;
+    private final JTextField toTextField;
+    private final JTextField messagesSentTextField;
+    private final JTextField messagesProcessedTextField;
+    private final JTextField processingTimeTextField;
+    private final JTextField averageTimeInMailboxTextField;
+    private final JTextField averageParallelismTextField;
+    private final JTextField maxParallelismTextField;
+    
+    private ProfilingData profilingData;
+    
+    /**
+     * The index is created when the panel is shown for the first time after the profiling data has been set.
+     */
+    private TimeWindowIndex timeWindowIndex;
+    
+    /**
+     * True if the profiling data has been set or updated since the index has been requested, and true while the
+     * index is built.
+     */
+    private boolean outdated;
+    private boolean building;
+    
+    TimeWindowPanel() {
+        super( new BorderLayout() );
+        this.fromSlider = new JSlider( 0, 0, 0 );
+        this.toSlider = new JSlider( 0, 0, 0 );
+        this.fromTextField = createTextField();
+        this.toTextField = createTextField();
+        this.messagesSentTextField = createTextField();
+        this.messagesProcessedTextField = createTextField();
+        this.processingTimeTextField = createTextField();
+        this.averageTimeInMailboxTextField = createTextField();
+        this.averageParallelismTextField = createTextField();
+        this.maxParallelismTextField = createTextField();
+        
+        final JPanel selectionPanel = new JPanel( new GridLayout( 0, 3, 5, 5 ) );
+        selectionPanel.setBorder( BorderFactory.createTitledBorder( "Time Window (ms since application start)" ) );
+        selectionPanel.add( new JLabel( "From" ) );
+        selectionPanel.add( this.fromSlider );
+        selectionPanel.add( this.fromTextField );
+        selectionPanel.add( new JLabel( "To" ) );
+        selectionPanel.add( this.toSlider );
+        selectionPanel.add( this.toTextField );
+        
+        final JPanel valuesPanel = new JPanel( new GridLayout( 0, 2, 5, 5 ) );
+        valuesPanel.setBorder( BorderFactory.createTitledBorder( "Within the Time Window" ) );
+        valuesPanel.add( new JLabel( "Messages sent" ) );
+        valuesPanel.add( this.messagesSentTextField );
+        valuesPanel.add( new JLabel( "Messages processed" ) );
+        valuesPanel.add( this.messagesProcessedTextField );
+        valuesPanel.add( new JLabel( "Processing time (ms)" ) );
+        valuesPanel.add( this.processingTimeTextField );
+        valuesPanel.add( new JLabel( "Average time in mailbox (ms)" ) );
+        valuesPanel.add( this.averageTimeInMailboxTextField );
+        valuesPanel.add( new JLabel( "Average parallelism" ) );
+        valuesPanel.add( this.averageParallelismTextField );
+        valuesPanel.add( new JLabel( "Maximum parallelism" ) );
+        valuesPanel.add( this.maxParallelismTextField );
+        
+        final JPanel contentPanel = new JPanel( new BorderLayout() );
+        contentPanel.add( selectionPanel, BorderLayout.NORTH );
+        contentPanel.add( valuesPanel, BorderLayout.CENTER );
+        this.add( contentPanel, BorderLayout.NORTH );
+        
+        this.fromSlider.addChangeListener( (e) -> {
+            if( this.fromSlider.getValue() > this.toSlider.getValue() ) this.toSlider.setValue( this.fromSlider.getValue() );
+            this.update();
+        });
+        this.toSlider.addChangeListener( (e) -> {
+            if( this.toSlider.getValue() < this.fromSlider.getValue() ) this.fromSlider.setValue( this.toSlider.getValue() );
+            this.update();
+        });
+        this.addComponentListener( new ComponentAdapter() {
+            @Override
+            public void componentShown( final ComponentEvent e ) {
+                update();
+            }
+        });
+    }
+    
+    /**
+     * This method sets the profiling data whose time windows are shown. The window is reset to the whole run.
+     * 
+     * @param profilingData The profiling data. Must not be null.
+     */
+    void setProfilingData( final ProfilingData profilingData ) {
+        if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
+        if( profilingData != this.profilingData ) this.timeWindowIndex = null;
+        this.profilingData = profilingData;
+        this.outdated = true;
+        final int runTime = (int)Math.min( Integer.MAX_VALUE, Math.max( 0, profilingData.applicationRunTime() / 1000000 + 1 ) );
+        this.fromSlider.setMaximum( runTime );
+        this.toSlider.setMaximum( runTime );
+        this.fromSlider.setValue( 0 );
+        this.toSlider.setValue( runTime );
+        this.update();
+    }
+    
+    private void update() {
+        if( this.profilingData == null || !this.isShowing() ) return;
+        if( this.outdated && !this.building ) this.buildIndex();
+        this.fromTextField.setText( "" + this.fromSlider.getValue() );
+        this.toTextField.setText( "" + this.toSlider.getValue() );
+        if( this.timeWindowIndex == null ) return;
+        final long from = this.profilingData.applicationStart() + this.fromSlider.getValue() * 1000000L;
+        final long to = this.profilingData.applicationStart() + this.toSlider.getValue() * 1000000L;
+        this.messagesSentTextField.setText( "" + this.timeWindowIndex.getSentMessagesCount( from, to ) );
+        this.messagesProcessedTextField.setText( "" + this.timeWindowIndex.getProcessedMessagesCount( from, to ) );
+        this.processingTimeTextField.setText( "" + (this.timeWindowIndex.getProcessingTime( from, to ) / 1000000.0) );
+        this.averageTimeInMailboxTextField.setText( "" + (this.timeWindowIndex.getAverageTimeInMailbox( from, to ) / 1000000.0) );
+        this.averageParallelismTextField.setText( "" + this.timeWindowIndex.getAverageParallelism( from, to ) );
+        this.maxParallelismTextField.setText( "" + this.timeWindowIndex.getMaxParallelism( from, to ) );
+    }
+    
+    /**
+     * This method builds the index of the current profiling data and shows its values when it is ready. The index
+     * of frozen profiling data is built on the request processor. The index of profiling data that is still growing
+     * is built right away, because the events must not be added while the index reads them.
+     */
+    private void buildIndex() {
+        final ProfilingData data = this.profilingData;
+        this.outdated = false;
+        if( !data.isFrozen() ) {
+            this.timeWindowIndex = data.getTimeWindowIndex();
+            return;
+        }
+        this.building = true;
+        REQUEST_PROCESSOR.post( () -> {
+            TimeWindowIndex index = null;
+            try {
+                index = data.getTimeWindowIndex();
+            } finally {
+                final TimeWindowIndex result = index;
+                SwingUtilities.invokeLater( () -> {
+                    this.building = false;
+                    if( data == this.profilingData && result != null ) this.timeWindowIndex = result;
+                    this.update();
+                });
+            }
+        });
+    }
+    
+    private static JTextField createTextField() {
+        final JTextField textField = new JTextField();
+        textField.setEditable( false );
+        return textField;
+    }
+    
+}
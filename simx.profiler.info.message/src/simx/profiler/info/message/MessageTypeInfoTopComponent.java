@@ -39,6 +39,7 @@ import org.openide.util.lookup.AbstractLookup;
 import org.openide.util.lookup.InstanceContent;
 import simx.profiler.model.ActorInstance;
 import simx.profiler.model.ActorType;
+import simx.profiler.model.Histogram;
 import simx.profiler.model.ImmutableTupel;
 import simx.profiler.model.MessageType;
 
@@ -68,6 +69,11 @@ import simx.profiler.model.MessageType;
 })
 public final class MessageTypeInfoTopComponent extends TopComponent implements LookupListener {
 
+    /**
+     * The maximum number of senders that are shown in the tool tip of the processing time.
+     */
+    private static final int MAX_SENDERS = 10;
+    
     private Lookup.Result< MessageType > result = null;
     
     private final InstanceContent content;
@@ -562,7 +568,8 @@ public final class MessageTypeInfoTopComponent extends TopComponent implements L
         this.nameTextField.setText( type.longType );
         this.timesSentTextField.setText( "" + type.getTimesSent() );
         this.timesProcessedTextField.setText( "" + type.getTimesProcessed() );
-        this.avergaProcessingTimeTextField.setText( "" + ((double)type.getAverageProcessingTime()/1000000.0) + " ms" );
+        this.avergaProcessingTimeTextField.setText( "" + ((double)type.getAverageProcessingTime()/1000000.0) + " ms (" + type.getProcessingTimeHistogram().toPercentileString() + ")" );
+        this.avergaProcessingTimeTextField.setToolTipText( this.createTimeInMailboxToolTip( type ) );
         
         this.sentByTypes = new ArrayList<>( type.getSentByTypeStatistic().entrySet() );
         this.sentByTypeTable.setModel( new MessageSentByTypeTableModel( this.sentByTypes, type.getTimesSent() ) );
@@ -574,4 +581,24 @@ public final class MessageTypeInfoTopComponent extends TopComponent implements L
         this.receivedByInstances = new ArrayList<>( type.getReceivedByInstanceStatistic().entrySet() );
         this.messageReceivedByInstanceTable.setModel( new MessageReceivedByInstanceTableModel( this.receivedByInstances, type.getTimesProcessed() ) );
     }
+    
+    /**
+     * This method creates the tool tip of the processing time, which shows the time in the mailbox of all messages
+     * of the type and, if the profiling data is frozen, of the senders that sent the most messages.
+     * 
+     * @param type The selected message type.
+     * @return The tool tip as HTML.
+     */
+    private String createTimeInMailboxToolTip( final MessageType type ) {
+        final StringBuilder toolTip = new StringBuilder( "<html>Time in mailbox: " ).append( type.getTimeInMailboxHistogram().toPercentileString() );
+        if( type.profilingData.isFrozen() ) {
+            final List< Map.Entry< ActorInstance, Histogram > > senders = new ArrayList<>( type.profilingData.getMailboxWaits().getHistogramsBySender( null, type ).entrySet() );
+            senders.sort( (a, b) -> Long.compare( b.getValue().getCount(), a.getValue().getCount() ) );
+            senders.stream().limit( MAX_SENDERS ).forEach( (e) -> {
+                toolTip.append( "<br>" ).append( e.getKey().type.shortTypeName ).append( " " ).append( e.getKey().id ).append( ": " ).append( e.getValue().getCount() ).append( " messages, " ).append( e.getValue().toPercentileString() );
+            } );
+            if( senders.size() > MAX_SENDERS ) toolTip.append( "<br>" ).append( senders.size() - MAX_SENDERS ).append( " more senders" );
+        }
+        return toolTip.append( "</html>" ).toString();
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import org.openide.util.lookup.ServiceProvider;
+import simx.profiler.model.IModelLoader;
+import simx.profiler.model.LoadOptions;
+import simx.profiler.model.LoadProgressListener;
+import simx.profiler.model.ProfilingData;
+
+/**
+ * The model loader for traces in the binary trace format. A directory is
+ * accepted if it contains a binary trace file that is not older than the csv
+ * files in the same directory. This loader is preferred over the csv loader,
+ * but a leftover binary trace file does not hide newer csv files, which can
+ * also be followed while they grow.
+ *
+ * @see BinaryTraceFormat
+ * @author Stephan Rehfeld
+ */
+@ServiceProvider(service=IModelLoader.class, position=100)
+public class BinaryModelLoader implements IModelLoader {
+
+    @Override
+    public ProfilingData load( final File path ) throws IOException, DataFormatException {
+        return this.load( path, null );
+    }
+
+    @Override
+    public ProfilingData load( final File path, final LoadProgressListener listener ) throws IOException, DataFormatException {
+        return this.load( path, LoadOptions.ALL, listener );
+    }
+
+    @Override
+    public ProfilingData load( final File path, final LoadOptions options, final LoadProgressListener listener ) throws IOException, DataFormatException {
+        if( path == null ) throw new IllegalArgumentException( "The parameter 'path' must not be null!" );
+        if( options == null ) throw new IllegalArgumentException( "The parameter 'options' must not be null!" );
+        final File file = path.isDirectory() ? new File( path, BinaryTraceFormat.FILE_NAME ) : path;
+        if( !file.isFile() ) throw new FileNotFoundException( "Binary trace file is not in the directory" );
+
+        final ProfilingData profilingData = new ProfilingData();
+        try( final BinaryTraceReader reader = new BinaryTraceReader( new FileInputStream( file ), file.getName() ) ) {
+            final TraceEventSink sink = new ProfilingDataSink( profilingData );
+            reader.read( options.isAll() ? sink : new FilteringTraceEventSink( sink, options ), new LoadProgress( listener, file.length() ) );
+        }
+        return profilingData.freeze();
+    }
+
+    @Override
+    public boolean accepts( final File path ) {
+        if( path == null || !path.isDirectory() ) return false;
+        final File file = new File( path, BinaryTraceFormat.FILE_NAME );
+        if( !file.isFile() ) return false;
+        for( final String name : new String[] { ModelLoader.ACTOR_CREATION_DATA_FILE, ModelLoader.SEND_DATA_FILE, ModelLoader.MESSAGE_PROCESSING_DATA_FILE } ) {
+            final TraceFile csvFile = TraceFile.find( path, name );
+            if( csvFile != null && csvFile.file.lastModified() > file.lastModified() ) return false;
+        }
+        return true;
+    }
+
+}
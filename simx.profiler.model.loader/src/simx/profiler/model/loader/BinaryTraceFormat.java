@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The constants of the binary trace format of the profiler.
+ *
+ * A binary trace is a single file that contains the same events as the three
+ * csv files of a trace directory, in the same order. It starts with the magic
+ * bytes and the version, followed by a stream of records. Each record starts
+ * with a tag byte:
+ *
+ * SYMBOL: the length and the UTF-8 bytes of an actor path, actor type or
+ * message type. Symbols are numbered in the order of their definition and are
+ * defined before their first use.
+ *
+ * ACTOR_CREATED: creation time, actor, actor type and supervisor.
+ *
+ * MESSAGE_SENT: send time, sender, receiver, message type and message id.
+ *
+ * MESSAGE_PROCESSED: start time, duration, message type, message id, sender
+ * and receiver.
+ *
+ * END: the end of the trace.
+ *
+ * Symbol references are unsigned varints. Timestamps are stored as zig-zag
+ * encoded varint deltas to the previous timestamp of the same record type,
+ * the duration of a processing event as zig-zag varint. Message ids are stored
+ * as fixed width 4 byte big endian integers.
+ *
+ * @author Stephan Rehfeld
+ */
+public class BinaryTraceFormat {
+
+    /**
+     * The name of a binary trace file in a trace directory.
+     */
+    public static final String FILE_NAME = "profilingdata.simxtrace";
+
+    /**
+     * The magic bytes at the beginning of a binary trace.
+     */
+    static final byte[] MAGIC = "SIMXTRCE".getBytes( StandardCharsets.US_ASCII );
+
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int SYMBOL = 1;
+    static final int ACTOR_CREATED = 2;
+    static final int MESSAGE_SENT = 3;
+    static final int MESSAGE_PROCESSED = 4;
+
+    private BinaryTraceFormat() {
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import simx.profiler.model.LoadPhase;
+
+/**
+ * A reader for the binary trace format. It decodes the records and passes
+ * the events to a TraceEventSink. The string of each symbol is created once.
+ *
+ * @see BinaryTraceFormat
+ * @author Stephan Rehfeld
+ */
+public class BinaryTraceReader implements Closeable {
+
+    /**
+     * The source of the trace.
+     */
+    private final InputStream in;
+
+    /**
+     * A description of the trace, used in error messages.
+     */
+    private final String description;
+
+    /**
+     * The buffer.
+     */
+    private final byte[] buffer;
+
+    /**
+     * The position of the next byte in the buffer.
+     */
+    private int position;
+
+    /**
+     * The number of valid bytes in the buffer.
+     */
+    private int limit;
+
+    /**
+     * The number of bytes before the buffer.
+     */
+    private long offset;
+
+    /**
+     * The defined symbols.
+     */
+    private String[] symbols;
+
+    /**
+     * The number of defined symbols.
+     */
+    private int symbolCount;
+
+    /**
+     * The progress that is advanced whenever the buffer is refilled. May be null.
+     */
+    private LoadProgress progress;
+
+    /**
+     * The number of events that have been read since the progress has been advanced.
+     */
+    private long events;
+
+    /**
+     * This constructor creates a new reader.
+     *
+     * @param in The source of the trace. Must not be null. It is closed when the reader is closed.
+     * @param description A description of the trace, used in error messages. Must not be null.
+     */
+    public BinaryTraceReader( final InputStream in, final String description ) {
+        if( in == null ) throw new IllegalArgumentException( "The parameter 'in' must not be null!" );
+        if( description == null ) throw new IllegalArgumentException( "The parameter 'description' must not be null!" );
+        this.in = in;
+        this.description = description;
+        this.buffer = new byte[ 1024 * 1024 ];
+        this.symbols = new String[ 1024 ];
+    }
+
+    /**
+     * This method reads the complete trace and passes all events to the sink.
+     *
+     * @param sink The sink that receives the events. Must not be null.
+     * @throws IOException
+     * @throws DataFormatException If the trace is not a valid binary trace.
+     */
+    public void read( final TraceEventSink sink ) throws IOException, DataFormatException {
+        this.read( sink, null );
+    }
+
+    /**
+     * This method reads the complete trace, passes all events to the sink and
+     * advances the progress whenever a block of the trace has been consumed.
+     *
+     * @param sink The sink that receives the events. Must not be null.
+     * @param progress The progress of the loading. May be null.
+     * @throws IOException If reading fails or the loading has been cancelled.
+     * @throws DataFormatException If the trace is not a valid binary trace.
+     */
+    public void read( final TraceEventSink sink, final LoadProgress progress ) throws IOException, DataFormatException {
+        if( sink == null ) throw new IllegalArgumentException( "The parameter 'sink' must not be null!" );
+        this.progress = progress;
+
+        for( final byte b : BinaryTraceFormat.MAGIC ) {
+            if( this.readByte() != b ) throw new DataFormatException( this.description + " is not a binary trace." );
+        }
+        final long version = this.readVarint();
+        if( version != BinaryTraceFormat.VERSION ) throw new DataFormatException( this.description + " has the unsupported version " + version + "." );
+
+        long creationTime = 0;
+        long sendTime = 0;
+        long processingStart = 0;
+
+        while( true ) {
+            final int tag = this.readByte();
+            switch( tag ) {
+                case BinaryTraceFormat.END:
+                    if( this.progress != null ) this.progress.advance( LoadPhase.BINARY_TRACE, this.position, this.events );
+                    return;
+                case BinaryTraceFormat.SYMBOL:
+                    this.readSymbolDefinition();
+                    break;
+                case BinaryTraceFormat.ACTOR_CREATED: {
+                    creationTime += unZigZag( this.readVarint() );
+                    final String id = this.readSymbol();
+                    final String typeName = this.readSymbol();
+                    final String supervisor = this.readSymbol();
+                    sink.actorCreated( creationTime, id, typeName, supervisor );
+                    this.events++;
+                    break;
+                }
+                case BinaryTraceFormat.MESSAGE_SENT: {
+                    sendTime += unZigZag( this.readVarint() );
+                    final String sender = this.readSymbol();
+                    final String receiver = this.readSymbol();
+                    final String messageType = this.readSymbol();
+                    final int messageID = this.readInt();
+                    sink.messageSent( sendTime, sender, receiver, messageType, messageID );
+                    this.events++;
+                    break;
+                }
+                case BinaryTraceFormat.MESSAGE_PROCESSED: {
+                    processingStart += unZigZag( this.readVarint() );
+                    final long end = processingStart + unZigZag( this.readVarint() );
+                    final String messageType = this.readSymbol();
+                    final int messageID = this.readInt();
+                    final String sender = this.readSymbol();
+                    final String receiver = this.readSymbol();
+                    sink.messageProcessed( processingStart, end, messageType, messageID, sender, receiver );
+                    this.events++;
+                    break;
+                }
+                default:
+                    throw this.formatException( "Unknown record type " + tag );
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    private void readSymbolDefinition() throws IOException, DataFormatException {
+        final long length = this.readVarint();
+        if( length > this.buffer.length ) throw this.formatException( "Symbol of " + length + " bytes is too long" );
+        if( this.limit - this.position < length ) this.compactAndFill( (int)length );
+        if( this.symbolCount == this.symbols.length ) this.symbols = Arrays.copyOf( this.symbols, this.symbols.length * 2 );
+        this.symbols[ this.symbolCount++ ] = new String( this.buffer, this.position, (int)length, StandardCharsets.UTF_8 );
+        this.position += (int)length;
+    }
+
+    private String readSymbol() throws IOException, DataFormatException {
+        final long id = this.readVarint();
+        if( id >= this.symbolCount ) throw this.formatException( "Undefined symbol " + id );
+        return this.symbols[ (int)id ];
+    }
+
+    private int readInt() throws IOException, DataFormatException {
+        return (this.readByte() << 24) | (this.readByte() << 16) | (this.readByte() << 8) | this.readByte();
+    }
+
+    private long readVarint() throws IOException, DataFormatException {
+        long value = 0;
+        for( int shift = 0; shift < 64; shift += 7 ) {
+            final int b = this.readByte();
+            value |= (long)(b & 0x7F) << shift;
+            if( (b & 0x80) == 0 ) return value;
+        }
+        throw this.formatException( "Malformed varint" );
+    }
+
+    private int readByte() throws IOException, DataFormatException {
+        if( this.position == this.limit ) this.compactAndFill( 1 );
+        return this.buffer[ this.position++ ] & 0xff;
+    }
+
+    /**
+     * This method moves the unread bytes to the beginning of the buffer and
+     * reads until at least the given number of bytes is available.
+     */
+    private void compactAndFill( final int required ) throws IOException, DataFormatException {
+        if( this.progress != null ) {
+            this.progress.advance( LoadPhase.BINARY_TRACE, this.position, this.events );
+            this.events = 0;
+        }
+        final int remaining = this.limit - this.position;
+        System.arraycopy( this.buffer, this.position, this.buffer, 0, remaining );
+        this.offset += this.position;
+        this.position = 0;
+        this.limit = remaining;
+        while( this.limit < required ) {
+            final int read = this.in.read( this.buffer, this.limit, this.buffer.length - this.limit );
+            if( read == -1 ) throw this.formatException( "Unexpected end of the trace" );
+            this.limit += read;
+        }
+    }
+
+    private DataFormatException formatException( final String message ) {
+        return new DataFormatException( message + " in " + this.description + " at byte " + (this.offset + this.position) + "." );
+    }
+
+    private static long unZigZag( final long value ) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
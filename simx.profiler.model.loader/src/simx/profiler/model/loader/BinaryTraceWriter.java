@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A trace event sink that writes the events in the binary trace format. The
+ * trace is only complete after the writer has been closed. For the parsed
+ * chunks of the csv files, the symbols of the chunk are mapped to the symbols
+ * of the trace once per chunk.
+ *
+ * @see BinaryTraceFormat
+ * @author Stephan Rehfeld
+ */
+public class BinaryTraceWriter implements TraceEventSink, Closeable {
+
+    /**
+     * The target of the trace.
+     */
+    private final OutputStream out;
+
+    /**
+     * The ids of the symbols that have been defined already.
+     */
+    private final Map< String, Integer > symbols;
+
+    private long lastCreationTime;
+    private long lastSendTime;
+    private long lastProcessingStart;
+
+    /**
+     * True if the writer has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * This constructor creates a new writer and writes the header of the trace.
+     *
+     * @param out The target of the trace. Must not be null. It is closed when the writer is closed.
+     * @throws IOException
+     */
+    public BinaryTraceWriter( final OutputStream out ) throws IOException {
+        if( out == null ) throw new IllegalArgumentException( "The parameter 'out' must not be null!" );
+        this.out = new BufferedOutputStream( out, 1024 * 1024 );
+        this.symbols = new HashMap<>();
+        this.out.write( BinaryTraceFormat.MAGIC );
+        this.writeVarint( BinaryTraceFormat.VERSION );
+    }
+
+    @Override
+    public void actorCreated( final long creationTime, final String id, final String typeName, final String supervisor ) throws IOException {
+        final int idSymbol = this.symbol( id );
+        final int typeNameSymbol = this.symbol( typeName );
+        final int supervisorSymbol = this.symbol( supervisor );
+        this.out.write( BinaryTraceFormat.ACTOR_CREATED );
+        this.writeVarint( zigZag( creationTime - this.lastCreationTime ) );
+        this.writeVarint( idSymbol );
+        this.writeVarint( typeNameSymbol );
+        this.writeVarint( supervisorSymbol );
+        this.lastCreationTime = creationTime;
+    }
+
+    @Override
+    public void messageSent( final long sendTime, final String sender, final String receiver, final String messageType, final int messageID ) throws IOException {
+        final int senderSymbol = this.symbol( sender );
+        final int receiverSymbol = this.symbol( receiver );
+        final int messageTypeSymbol = this.symbol( messageType );
+        this.writeMessageSent( sendTime, senderSymbol, receiverSymbol, messageTypeSymbol, messageID );
+    }
+
+    @Override
+    public void messageProcessed( final long start, final long end, final String messageType, final int messageID, final String sender, final String receiver ) throws IOException {
+        final int messageTypeSymbol = this.symbol( messageType );
+        final int senderSymbol = this.symbol( sender );
+        final int receiverSymbol = this.symbol( receiver );
+        this.writeMessageProcessed( start, end, messageTypeSymbol, messageID, senderSymbol, receiverSymbol );
+    }
+
+    @Override
+    public void messagesSent( final SendEventBuffer buffer ) throws IOException {
+        final SymbolTable symbols = buffer.getSymbols();
+        final int[] mapping = newMapping( symbols );
+        for( int i = 0; i < buffer.size(); ++i ) {
+            final int senderSymbol = this.symbol( mapping, symbols, buffer.getSender( i ) );
+            final int receiverSymbol = this.symbol( mapping, symbols, buffer.getReceiver( i ) );
+            final int messageTypeSymbol = this.symbol( mapping, symbols, buffer.getMessageType( i ) );
+            this.writeMessageSent( buffer.getSendTime( i ), senderSymbol, receiverSymbol, messageTypeSymbol, buffer.getMessageID( i ) );
+        }
+    }
+
+    @Override
+    public void messagesProcessed( final ProcessingEventBuffer buffer ) throws IOException {
+        final SymbolTable symbols = buffer.getSymbols();
+        final int[] mapping = newMapping( symbols );
+        for( int i = 0; i < buffer.size(); ++i ) {
+            final int messageTypeSymbol = this.symbol( mapping, symbols, buffer.getMessageType( i ) );
+            final int senderSymbol = this.symbol( mapping, symbols, buffer.getSender( i ) );
+            final int receiverSymbol = this.symbol( mapping, symbols, buffer.getReceiver( i ) );
+            this.writeMessageProcessed( buffer.getStart( i ), buffer.getEnd( i ), messageTypeSymbol, buffer.getMessageID( i ), senderSymbol, receiverSymbol );
+        }
+    }
+
+    private void writeMessageSent( final long sendTime, final int senderSymbol, final int receiverSymbol, final int messageTypeSymbol, final int messageID ) throws IOException {
+        this.out.write( BinaryTraceFormat.MESSAGE_SENT );
+        this.writeVarint( zigZag( sendTime - this.lastSendTime ) );
+        this.writeVarint( senderSymbol );
+        this.writeVarint( receiverSymbol );
+        this.writeVarint( messageTypeSymbol );
+        this.writeInt( messageID );
+        this.lastSendTime = sendTime;
+    }
+
+    private void writeMessageProcessed( final long start, final long end, final int messageTypeSymbol, final int messageID, final int senderSymbol, final int receiverSymbol ) throws IOException {
+        this.out.write( BinaryTraceFormat.MESSAGE_PROCESSED );
+        this.writeVarint( zigZag( start - this.lastProcessingStart ) );
+        this.writeVarint( zigZag( end - start ) );
+        this.writeVarint( messageTypeSymbol );
+        this.writeInt( messageID );
+        this.writeVarint( senderSymbol );
+        this.writeVarint( receiverSymbol );
+        this.lastProcessingStart = start;
+    }
+
+    /**
+     * This method writes the end of the trace and closes the target.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if( this.closed ) return;
+        this.closed = true;
+        try( final OutputStream target = this.out ) {
+            target.write( BinaryTraceFormat.END );
+        }
+    }
+
+    private int symbol( final String name ) throws IOException {
+        if( name == null ) throw new IllegalArgumentException( "Symbols must not be null!" );
+        final Integer known = this.symbols.get( name );
+        if( known != null ) return known;
+        final int id = this.symbols.size();
+        this.symbols.put( name, id );
+        final byte[] bytes = name.getBytes( StandardCharsets.UTF_8 );
+        this.out.write( BinaryTraceFormat.SYMBOL );
+        this.writeVarint( bytes.length );
+        this.out.write( bytes );
+        return id;
+    }
+
+    /**
+     * This method maps a symbol of a chunk to a symbol of the trace. The
+     * symbol of the trace is defined on the first use.
+     */
+    private int symbol( final int[] mapping, final SymbolTable symbols, final int symbol ) throws IOException {
+        int id = mapping[ symbol ];
+        if( id == -1 ) {
+            id = this.symbol( symbols.name( symbol ) );
+            mapping[ symbol ] = id;
+        }
+        return id;
+    }
+
+    private static int[] newMapping( final SymbolTable symbols ) {
+        final int[] mapping = new int[ symbols.size() ];
+        Arrays.fill( mapping, -1 );
+        return mapping;
+    }
+
+    private void writeVarint( long value ) throws IOException {
+        while( (value & ~0x7FL) != 0 ) {
+            this.out.write( (int)((value & 0x7F) | 0x80) );
+            value >>>= 7;
+        }
+        this.out.write( (int)value );
+    }
+
+    private void writeInt( final int value ) throws IOException {
+        this.out.write( value >>> 24 );
+        this.out.write( value >>> 16 );
+        this.out.write( value >>> 8 );
+        this.out.write( value );
+    }
+
+    private static long zigZag( final long value ) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+}
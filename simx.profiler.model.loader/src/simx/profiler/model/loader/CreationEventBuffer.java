@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import simx.profiler.model.LoadOptions;
+
+/**
+ * A CreationEventBuffer holds the parsed lines of the actor creation data
+ * file in primitive arrays. Text fields are stored as ids of a symbol table
+ * that belongs to the buffer. Actors that are not accepted by the load
+ * options are skipped while parsing.
+ *
+ * @author Stephan Rehfeld
+ */
+public class CreationEventBuffer implements EventBuffer {
+
+    /**
+     * The symbol table for the text fields of this buffer.
+     */
+    private final SymbolTable symbols;
+
+    /**
+     * The options that restrict the parsed events.
+     */
+    private final LoadOptions options;
+
+    private long[] creationTimes;
+    private int[] ids;
+    private int[] typeNames;
+    private int[] supervisors;
+
+    /**
+     * The number of events in this buffer.
+     */
+    private int size;
+
+    /**
+     * This constructor creates a new, empty buffer.
+     *
+     * @param expectedSize The expected number of events.
+     */
+    public CreationEventBuffer( final int expectedSize ) {
+        this( expectedSize, LoadOptions.ALL );
+    }
+
+    /**
+     * This constructor creates a new, empty buffer that only keeps the actors
+     * that are accepted by the given options.
+     *
+     * @param expectedSize The expected number of events.
+     * @param options The options that restrict the parsed events. Must not be null.
+     */
+    public CreationEventBuffer( final int expectedSize, final LoadOptions options ) {
+        if( options == null ) throw new IllegalArgumentException( "The parameter 'options' must not be null!" );
+        final int capacity = Math.max( 16, expectedSize );
+        this.options = options;
+        this.symbols = new SymbolTable();
+        this.creationTimes = new long[ capacity ];
+        this.ids = new int[ capacity ];
+        this.typeNames = new int[ capacity ];
+        this.supervisors = new int[ capacity ];
+    }
+
+    @Override
+    public void parse( final CsvTokenizer tokenizer ) throws IOException, DataFormatException {
+        while( tokenizer.nextLine() ) {
+            if( this.size == this.creationTimes.length ) this.grow();
+            final long creationTime = tokenizer.nextLong();
+            if( !this.options.acceptsActorCreation( creationTime ) ) {
+                tokenizer.skipLine();
+                continue;
+            }
+            this.creationTimes[ this.size ] = creationTime;
+            this.ids[ this.size ] = tokenizer.nextSymbol( this.symbols );
+            this.typeNames[ this.size ] = tokenizer.nextSymbol( this.symbols );
+            this.supervisors[ this.size ] = tokenizer.nextSymbol( this.symbols );
+            tokenizer.endOfLine( 4 );
+            this.size++;
+        }
+    }
+
+    @Override
+    public void replay( final TraceEventSink sink ) throws IOException {
+        for( int i = 0; i < this.size; ++i ) {
+            sink.actorCreated( this.creationTimes[ i ], this.symbols.name( this.ids[ i ] ), this.symbols.name( this.typeNames[ i ] ), this.symbols.name( this.supervisors[ i ] ) );
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    private void grow() {
+        final int capacity = this.creationTimes.length * 2;
+        this.creationTimes = Arrays.copyOf( this.creationTimes, capacity );
+        this.ids = Arrays.copyOf( this.ids, capacity );
+        this.typeNames = Arrays.copyOf( this.typeNames, capacity );
+        this.supervisors = Arrays.copyOf( this.supervisors, capacity );
+    }
+
+}
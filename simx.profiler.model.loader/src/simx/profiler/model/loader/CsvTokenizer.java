@@ -0,0 +1,403 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+/**
+ * A tokenizer for the ';' separated profiling data files of Simulator X. It
+ * works directly on the bytes of the file. A stream is read into one reusable
+ * buffer, line aligned segments of a mapped file are read in place.
+ * Numbers are parsed into primitives, text fields are resolved via a
+ * SymbolTable. Hence, no objects are created per line or per field.
+ *
+ * Usage: call nextLine() to move to the next line, read the fields in order
+ * and finish each line with endOfLine().
+ *
+ * @author Stephan Rehfeld
+ */
+public class CsvTokenizer implements Closeable {
+
+    /**
+     * The separator between two fields.
+     */
+    private static final byte SEPARATOR = ';';
+
+    /**
+     * The default size of the buffer.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The source of the bytes, or null if the segments are read.
+     */
+    private final InputStream in;
+
+    /**
+     * The line aligned segments, or null if the stream is read. A segment is
+     * released when the next one is read.
+     */
+    private final List< ByteBuffer > segments;
+
+    /**
+     * The index of the current segment.
+     */
+    private int segment;
+
+    /**
+     * A description of the file, used in error messages.
+     */
+    private final String fileDescription;
+
+    /**
+     * The buffer the stream is read into. It always contains the complete
+     * current line. If the segments are read, it is used to copy text fields.
+     */
+    private byte[] buffer;
+
+    /**
+     * The current segment, or null if the stream is read.
+     */
+    private ByteBuffer segmentData;
+
+    /**
+     * The number of valid bytes in the buffer or the current segment.
+     */
+    private int limit;
+
+    /**
+     * The position of the next field within the current line.
+     */
+    private int position;
+
+    /**
+     * The end of the current line, excluding the line break.
+     */
+    private int lineEnd;
+
+    /**
+     * The start of the next line.
+     */
+    private int nextLineStart;
+
+    /**
+     * True if the input stream has been read completely.
+     */
+    private boolean endOfInput;
+
+    /**
+     * True if all fields of the current line have been read.
+     */
+    private boolean lineConsumed;
+
+    /**
+     * The number of the current line, starting with 1.
+     */
+    private long lineNumber;
+
+    /**
+     * The number of bytes that has been read from the input stream or the segments.
+     */
+    private long bytesRead;
+
+    /**
+     * This constructor creates a new tokenizer.
+     *
+     * @param in The input stream to read from. Must not be null. The tokenizer
+     *           does its own buffering, so there is no need to wrap it.
+     * @param fileDescription A description of the file, used in error messages. Must not be null.
+     */
+    public CsvTokenizer( final InputStream in, final String fileDescription ) {
+        if( in == null ) throw new IllegalArgumentException( "The parameter 'in' must not be null!" );
+        if( fileDescription == null ) throw new IllegalArgumentException( "The parameter 'fileDescription' must not be null!" );
+        this.in = in;
+        this.segments = null;
+        this.fileDescription = fileDescription;
+        this.buffer = new byte[ DEFAULT_BUFFER_SIZE ];
+    }
+
+    /**
+     * This constructor creates a new tokenizer that reads the bytes of
+     * segments in place, e.g. of a memory-mapped file. Each segment must end
+     * after a line break, only the last one may end within a line. The bytes
+     * between 0 and the limit of a segment are read.
+     *
+     * @param segments The segments. Must not be null.
+     * @param fileDescription A description of the file, used in error messages. Must not be null.
+     */
+    CsvTokenizer( final List< ByteBuffer > segments, final String fileDescription ) {
+        if( segments == null ) throw new IllegalArgumentException( "The parameter 'segments' must not be null!" );
+        if( fileDescription == null ) throw new IllegalArgumentException( "The parameter 'fileDescription' must not be null!" );
+        this.in = null;
+        this.segments = segments;
+        this.segment = -1;
+        this.fileDescription = fileDescription;
+        this.buffer = new byte[ 64 ];
+    }
+
+    /**
+     * This method moves the tokenizer to the next line.
+     *
+     * @return True if there is another line, false if the end of the input has been reached.
+     * @throws IOException
+     */
+    public boolean nextLine() throws IOException {
+        int searchFrom = this.nextLineStart;
+        int lineStart = this.nextLineStart;
+        while( true ) {
+            for( int i = searchFrom; i < this.limit; ++i ) {
+                if( this.at( i ) == '\n' ) {
+                    this.startLine( lineStart, i, i + 1 );
+                    return true;
+                }
+            }
+            if( this.endOfInput ) {
+                if( lineStart == this.limit ) return false;
+                this.startLine( lineStart, this.limit, this.limit );
+                return true;
+            }
+            if( this.segments != null ) {
+                // A line only reaches the end of a segment without a line break in the last segment.
+                if( lineStart < this.limit || !this.nextSegment() ) {
+                    this.endOfInput = true;
+                    searchFrom = this.limit;
+                } else {
+                    searchFrom = 0;
+                    lineStart = 0;
+                }
+                continue;
+            }
+            searchFrom = this.limit - lineStart;
+            this.fill( lineStart );
+            lineStart = 0;
+        }
+    }
+
+    /**
+     * This method skips the remaining fields of the current line.
+     */
+    public void skipLine() {
+        this.position = this.lineEnd;
+        this.lineConsumed = true;
+    }
+
+    /**
+     * This method returns if the current line contains further fields.
+     *
+     * @return True if the current line contains further fields.
+     */
+    public boolean hasMoreFields() {
+        return !this.lineConsumed;
+    }
+
+    /**
+     * This method checks that all fields of the current line have been read.
+     *
+     * @param expectedFields The number of fields a line must have. Used in the error message.
+     * @throws DataFormatException If the line contains further fields.
+     */
+    public void endOfLine( final int expectedFields ) throws DataFormatException {
+        if( this.lineConsumed ) return;
+        // Like String.split, trailing empty fields are ignored.
+        for( int i = this.position; i < this.lineEnd; ++i ) {
+            if( this.at( i ) != SEPARATOR ) throw this.fieldCountException( expectedFields );
+        }
+        this.skipLine();
+    }
+
+    /**
+     * This method parses the next field as long.
+     *
+     * @return The parsed value.
+     * @throws DataFormatException If there is no further field or the field is not a number.
+     */
+    public long nextLong() throws DataFormatException {
+        final int end = this.fieldEnd();
+        final long value = this.parseLong( end );
+        this.advance( end );
+        return value;
+    }
+
+    /**
+     * This method parses the next field as int.
+     *
+     * @return The parsed value.
+     * @throws DataFormatException If there is no further field or the field is not an int.
+     */
+    public int nextInt() throws DataFormatException {
+        final int end = this.fieldEnd();
+        final long value = this.parseLong( end );
+        if( value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ) throw this.numberException( end );
+        this.advance( end );
+        return (int)value;
+    }
+
+    /**
+     * This method resolves the next field in the given symbol table.
+     *
+     * @param symbolTable The symbol table. Must not be null.
+     * @return The id of the symbol.
+     * @throws DataFormatException If there is no further field.
+     */
+    public int nextSymbol( final SymbolTable symbolTable ) throws DataFormatException {
+        final int end = this.fieldEnd();
+        final int length = end - this.position;
+        final int symbol = this.segments == null ? symbolTable.intern( this.buffer, this.position, length ) : symbolTable.intern( this.copy( this.position, end ), 0, length );
+        this.advance( end );
+        return symbol;
+    }
+
+    /**
+     * This method returns the number of the current line, starting with 1.
+     *
+     * @return The number of the current line.
+     */
+    public long getLineNumber() {
+        return this.lineNumber;
+    }
+
+    /**
+     * This method returns the number of bytes that has been read from the
+     * underlying stream so far.
+     *
+     * @return The number of bytes read so far.
+     */
+    public long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if( this.in != null ) this.in.close();
+    }
+
+    private void startLine( final int lineStart, final int newLine, final int nextLineStart ) {
+        int end = newLine;
+        if( end > lineStart && this.at( end - 1 ) == '\r' ) --end;
+        this.position = lineStart;
+        this.lineEnd = end;
+        this.nextLineStart = nextLineStart;
+        this.lineConsumed = false;
+        this.lineNumber++;
+    }
+
+    private void fill( final int keepFrom ) throws IOException {
+        final int remaining = this.limit - keepFrom;
+        if( keepFrom == 0 && remaining == this.buffer.length ) {
+            this.buffer = Arrays.copyOf( this.buffer, this.buffer.length * 2 );
+        } else if( remaining > 0 ) {
+            System.arraycopy( this.buffer, keepFrom, this.buffer, 0, remaining );
+        }
+        this.limit = remaining;
+        this.nextLineStart = 0;
+        while( this.limit < this.buffer.length ) {
+            final int read = this.in.read( this.buffer, this.limit, this.buffer.length - this.limit );
+            if( read == -1 ) {
+                this.endOfInput = true;
+                return;
+            }
+            if( read == 0 ) continue;
+            this.limit += read;
+            this.bytesRead += read;
+            return;
+        }
+    }
+
+    private boolean nextSegment() {
+        if( this.segment >= 0 ) this.segments.set( this.segment, null );
+        if( ++this.segment == this.segments.size() ) return false;
+        this.segmentData = this.segments.get( this.segment );
+        this.limit = this.segmentData.limit();
+        this.nextLineStart = 0;
+        this.bytesRead += this.limit;
+        return true;
+    }
+
+    /**
+     * This method returns a byte of the buffer or the current segment. The
+     * stream is read into an array, because it is faster to access.
+     */
+    private byte at( final int index ) {
+        return this.segments == null ? this.buffer[ index ] : this.segmentData.get( index );
+    }
+
+    /**
+     * This method copies bytes of the current segment into the buffer.
+     */
+    private byte[] copy( final int from, final int to ) {
+        if( to - from > this.buffer.length ) this.buffer = new byte[ Math.max( to - from, this.buffer.length * 2 ) ];
+        for( int i = from; i < to; ++i ) this.buffer[ i - from ] = this.segmentData.get( i );
+        return this.buffer;
+    }
+
+    private long parseLong( final int end ) throws DataFormatException {
+        int i = this.position;
+        boolean negative = false;
+        if( i < end && (this.at( i ) == '-' || this.at( i ) == '+') ) {
+            negative = this.at( i ) == '-';
+            ++i;
+        }
+        if( i == end || end - i > 19 ) throw this.numberException( end );
+        long value = 0;
+        for( ; i < end; ++i ) {
+            final int digit = this.at( i ) - '0';
+            if( digit < 0 || digit > 9 ) throw this.numberException( end );
+            value = value * 10 - digit;
+            if( value > 0 ) throw this.numberException( end );
+        }
+        if( !negative && value == Long.MIN_VALUE ) throw this.numberException( end );
+        return negative ? value : -value;
+    }
+
+    private int fieldEnd() throws DataFormatException {
+        if( this.lineConsumed ) throw this.tooFewFieldsException();
+        for( int i = this.position; i < this.lineEnd; ++i ) {
+            if( this.at( i ) == SEPARATOR ) return i;
+        }
+        return this.lineEnd;
+    }
+
+    private void advance( final int fieldEnd ) {
+        if( fieldEnd == this.lineEnd ) {
+            this.position = this.lineEnd;
+            this.lineConsumed = true;
+        } else {
+            this.position = fieldEnd + 1;
+        }
+    }
+
+    private DataFormatException tooFewFieldsException() {
+        return new DataFormatException( "The " + this.fileDescription + " contains too few elements in line " + this.lineNumber + "." );
+    }
+
+    private DataFormatException numberException( final int fieldEnd ) {
+        final byte[] field = new byte[ fieldEnd - this.position ];
+        for( int i = 0; i < field.length; ++i ) field[ i ] = this.at( this.position + i );
+        return new DataFormatException( "The " + this.fileDescription + " contains an invalid number '" + new String( field ) + "' in line " + this.lineNumber + "." );
+    }
+
+    private DataFormatException fieldCountException( final int expectedFields ) {
+        return new DataFormatException( "The " + this.fileDescription + " must contain lines with " + expectedFields + " elements. In line " + this.lineNumber + "." );
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+
+/**
+ * An EventBuffer holds the parsed lines of one chunk of a profiling data file
+ * until they are passed to a TraceEventSink. Parsing may happen on any
+ * thread, replaying always happens on the loading thread in file order.
+ *
+ * @author Stephan Rehfeld
+ */
+public interface EventBuffer {
+
+    /**
+     * An implementation of this method should read all lines of the tokenizer
+     * into the buffer.
+     *
+     * @param tokenizer The tokenizer to read from. Must not be null.
+     * @throws IOException
+     * @throws DataFormatException
+     */
+    public void parse( final CsvTokenizer tokenizer ) throws IOException, DataFormatException;
+
+    /**
+     * An implementation of this method should pass all events of the buffer
+     * to the sink, in the order they appeared in the file.
+     *
+     * @param sink The sink that receives the events. Must not be null.
+     * @throws IOException
+     */
+    public void replay( final TraceEventSink sink ) throws IOException;
+
+    /**
+     * An implementation of this method should return the number of events in
+     * the buffer.
+     *
+     * @return The number of events in the buffer.
+     */
+    public int size();
+
+}
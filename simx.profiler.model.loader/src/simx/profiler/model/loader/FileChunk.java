@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A FileChunk is a line aligned region of a profiling data file. A chunk
+ * always starts at the beginning of a line and ends after a line break or at
+ * the end of the file. Hence, the chunks of a file can be parsed
+ * independently from each other.
+ *
+ * @author Stephan Rehfeld
+ */
+public class FileChunk {
+
+    /**
+     * The position of the first byte of this chunk.
+     */
+    public final long start;
+
+    /**
+     * The position after the last byte of this chunk.
+     */
+    public final long end;
+
+    /**
+     * This constructor creates a new chunk.
+     *
+     * @param start The position of the first byte of this chunk.
+     * @param end The position after the last byte of this chunk.
+     */
+    public FileChunk( final long start, final long end ) {
+        if( start < 0 ) throw new IllegalArgumentException( "The parameter 'start' must not be negative!" );
+        if( end < start ) throw new IllegalArgumentException( "The parameter 'end' must not be smaller than 'start'!" );
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * This method returns the size of this chunk in bytes.
+     *
+     * @return The size of this chunk in bytes.
+     */
+    public long size() {
+        return this.end - this.start;
+    }
+
+    /**
+     * This method opens a stream that reads the bytes of this chunk. The
+     * stream uses positional reads, so several streams may read from the same
+     * channel concurrently. Closing the stream does not close the channel.
+     *
+     * @param channel The channel of the file. Must not be null.
+     * @return A stream that reads the bytes of this chunk.
+     */
+    public InputStream openStream( final FileChannel channel ) {
+        if( channel == null ) throw new IllegalArgumentException( "The parameter 'channel' must not be null!" );
+        return new InputStream() {
+
+            private long position = FileChunk.this.start;
+
+            @Override
+            public int read() throws IOException {
+                final byte[] b = new byte[ 1 ];
+                return this.read( b, 0, 1 ) == -1 ? -1 : b[ 0 ] & 0xff;
+            }
+
+            @Override
+            public int read( final byte[] b, final int off, final int len ) throws IOException {
+                final long remaining = FileChunk.this.end - this.position;
+                if( remaining <= 0 ) return -1;
+                final int count = (int)Math.min( len, remaining );
+                final int read = channel.read( ByteBuffer.wrap( b, off, count ), this.position );
+                if( read == -1 ) return -1;
+                this.position += read;
+                return read;
+            }
+
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "FileChunk{" + "start=" + start + ", end=" + end + '}';
+    }
+
+    /**
+     * This method splits the data lines of a file into line aligned chunks.
+     * The first line of the file is a header and is not part of any chunk.
+     *
+     * @param channel The channel of the file. Must not be null.
+     * @param chunkSize The desired size of the chunks in bytes. Chunks are
+     *                  slightly larger, because they are extended to the next
+     *                  line break.
+     * @return The list of chunks, in the order of the file.
+     * @throws IOException
+     */
+    public static List< FileChunk > split( final FileChannel channel, final long chunkSize ) throws IOException {
+        if( channel == null ) throw new IllegalArgumentException( "The parameter 'channel' must not be null!" );
+        if( chunkSize < 1 ) throw new IllegalArgumentException( "The parameter 'chunkSize' must be positive!" );
+
+        final long size = channel.size();
+        final List< FileChunk > chunks = new ArrayList<>();
+        long start = nextLineStart( channel, 0, size );
+        while( start < size ) {
+            final long end = chunkSize >= size - start ? size : nextLineStart( channel, start + chunkSize, size );
+            chunks.add( new FileChunk( start, end ) );
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart( final FileChannel channel, final long from, final long size ) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+        long position = from;
+        while( position < size ) {
+            buffer.clear();
+            final int read = channel.read( buffer, position );
+            if( read == -1 ) break;
+            for( int i = 0; i < read; ++i ) {
+                if( buffer.get( i ) == '\n' ) return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.IOException;
+import simx.profiler.model.LoadOptions;
+
+/**
+ * A trace event sink that passes only the events that are accepted by the
+ * load options on to another sink. It is used for traces that are not parsed
+ * from csv files, like binary traces and the trace cache.
+ *
+ * @author Stephan Rehfeld
+ */
+public class FilteringTraceEventSink implements TraceEventSink {
+
+    /**
+     * The sink that receives the accepted events.
+     */
+    private final TraceEventSink sink;
+
+    /**
+     * The options that restrict the events.
+     */
+    private final LoadOptions options;
+
+    /**
+     * This constructor creates a new filtering sink.
+     *
+     * @param sink The sink that receives the accepted events. Must not be null.
+     * @param options The options that restrict the events. Must not be null.
+     */
+    public FilteringTraceEventSink( final TraceEventSink sink, final LoadOptions options ) {
+        if( sink == null ) throw new IllegalArgumentException( "The parameter 'sink' must not be null!" );
+        if( options == null ) throw new IllegalArgumentException( "The parameter 'options' must not be null!" );
+        this.sink = sink;
+        this.options = options;
+    }
+
+    @Override
+    public void actorCreated( final long creationTime, final String id, final String typeName, final String supervisor ) throws IOException {
+        if( this.options.acceptsActorCreation( creationTime ) ) this.sink.actorCreated( creationTime, id, typeName, supervisor );
+    }
+
+    @Override
+    public void messageSent( final long sendTime, final String sender, final String receiver, final String messageType, final int messageID ) throws IOException {
+        if( this.options.acceptsTime( sendTime ) && this.options.acceptsMessage( messageID ) ) this.sink.messageSent( sendTime, sender, receiver, messageType, messageID );
+    }
+
+    @Override
+    public void messageProcessed( final long start, final long end, final String messageType, final int messageID, final String sender, final String receiver ) throws IOException {
+        if( this.options.acceptsInterval( start, end ) && this.options.acceptsMessage( messageID ) ) this.sink.messageProcessed( start, end, messageType, messageID, sender, receiver );
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.InterruptedIOException;
+import simx.profiler.model.LoadPhase;
+import simx.profiler.model.LoadProgressListener;
+
+/**
+ * LoadProgress keeps track of the bytes and events that have been read and
+ * reports them to a LoadProgressListener. It also checks if the loading has
+ * been cancelled by the listener or by interrupting the loading thread.
+ *
+ * @author Stephan Rehfeld
+ */
+public class LoadProgress {
+
+    /**
+     * The listener. May be null.
+     */
+    private final LoadProgressListener listener;
+
+    /**
+     * The number of bytes that are going to be read.
+     */
+    private final long bytesTotal;
+
+    private long bytesRead;
+    private long eventsRead;
+
+    /**
+     * This constructor creates a new progress.
+     *
+     * @param listener The listener. May be null.
+     * @param bytesTotal The number of bytes that are going to be read.
+     */
+    public LoadProgress( final LoadProgressListener listener, final long bytesTotal ) {
+        this.listener = listener;
+        this.bytesTotal = bytesTotal;
+    }
+
+    /**
+     * This method adds the given bytes and events to the progress, reports it
+     * and checks for cancellation.
+     *
+     * @param phase The current phase.
+     * @param bytes The number of bytes that have been read since the last call.
+     * @param events The number of events that have been read since the last call.
+     * @throws InterruptedIOException If the loading has been cancelled.
+     */
+    public void advance( final LoadPhase phase, final long bytes, final long events ) throws InterruptedIOException {
+        this.bytesRead += bytes;
+        this.eventsRead += events;
+        if( this.listener != null ) this.listener.progress( phase, this.bytesRead, this.bytesTotal, this.eventsRead );
+        this.checkCancelled();
+    }
+
+    /**
+     * This method checks if the loading has been cancelled.
+     *
+     * @throws InterruptedIOException If the loading has been cancelled.
+     */
+    public void checkCancelled() throws InterruptedIOException {
+        if( Thread.currentThread().isInterrupted() || (this.listener != null && this.listener.isCancelled()) ) {
+            throw new InterruptedIOException( "Loading the profiling data has been cancelled." );
+        }
+    }
+
+}
@@ -16,104 +16,398 @@
 
 package simx.profiler.model.loader;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.zip.DataFormatException;
 import org.openide.util.lookup.ServiceProvider;
-import simx.profiler.model.ActorInstance;
 import simx.profiler.model.IModelLoader;
+import simx.profiler.model.LoadOptions;
+import simx.profiler.model.LoadPhase;
+import simx.profiler.model.LoadProgressListener;
 import simx.profiler.model.ProfilingData;
 
 /**
+ * The model loader for the profiling data of Simulator X. The actor creation
+ * data is read first. The send data and message processing data files are
+ * split into line aligned chunks that are parsed concurrently on all cores.
+ * The parsed chunks are passed to a TraceEventSink in the order of the files,
+ * so the resulting model is the same as if the files were read one line after
+ * another.
+ * 
+ * How the bytes are read from the files is determined by the TraceReadMode.
+ * Each file may also be compressed with gzip (".csv.gz") or raw deflate
+ * (".csv.deflate"). Compressed files cannot be split, they are decompressed
+ * on a separate thread and parsed as a whole while decompression goes on.
+ * 
+ * The progress is reported to a LoadProgressListener after each chunk. If the
+ * listener cancels the loading or the loading thread is interrupted, the
+ * loader stops with an InterruptedIOException.
+ * 
+ * LoadOptions restrict the loaded events to a time range and a sample of the
+ * messages. Lines that are not accepted are skipped while the chunks are
+ * parsed. Restricted loads are served from an up to date trace cache, but
+ * they never write the cache.
  *
  * @author Stephan Rehfeld
  */
-@ServiceProvider(service=IModelLoader.class)
+@ServiceProvider(service=IModelLoader.class, position=200)
 public class ModelLoader implements IModelLoader {
 
+    /**
+     * The desired size of a chunk of the send data and message processing data files.
+     */
+    private static final long CHUNK_SIZE = 16 * 1024 * 1024;
+    
+    /**
+     * The average number of bytes of a line, used to presize the event buffers.
+     */
+    private static final int ESTIMATED_LINE_LENGTH = 64;
+    
+    /**
+     * The names of the csv files of a trace.
+     */
+    public static final String ACTOR_CREATION_DATA_FILE = "creationdata.csv";
+    public static final String SEND_DATA_FILE = "senddata.csv";
+    public static final String MESSAGE_PROCESSING_DATA_FILE = "messageprocessingdata.csv";
+    
+    /**
+     * The name of the system property to disable the trace cache.
+     */
+    public static final String CACHE_PROPERTY = "simx.profiler.loader.cache";
+    
+    /**
+     * How the bytes are read from the files.
+     */
+    private final TraceReadMode readMode;
+    
+    /**
+     * True if the loaded events are cached in a TraceCache.
+     */
+    private final boolean useCache;
+    
+    /**
+     * This constructor creates a new model loader that uses the read mode
+     * selected by the system property "simx.profiler.loader.readMode". The
+     * trace cache is used unless the system property
+     * "simx.profiler.loader.cache" is set to false.
+     */
+    public ModelLoader() {
+        this( TraceReadMode.fromSystemProperty(), !"false".equalsIgnoreCase( System.getProperty( CACHE_PROPERTY ) ) );
+    }
+    
+    /**
+     * This constructor creates a new model loader that uses the given read mode.
+     * 
+     * @param readMode How the bytes are read from the files. Must not be null.
+     * @param useCache True if the loaded events should be cached next to the trace.
+     */
+    public ModelLoader( final TraceReadMode readMode, final boolean useCache ) {
+        if( readMode == null ) throw new IllegalArgumentException( "The parameter 'readMode' must not be null!" );
+        this.readMode = readMode;
+        this.useCache = useCache;
+    }
+    
+    /**
+     * This method loads the profiling data. If the trace cache is enabled and
+     * up to date, the data is loaded from the cache. Otherwise the csv files
+     * are read and the cache is written on the way.
+     * 
+     * @param path The directory that contains the profiling data. Must not be null.
+     * @return The loaded profile.
+     * @throws IOException
+     * @throws DataFormatException 
+     */
     @Override
     public ProfilingData load( final File path ) throws IOException, DataFormatException {
+        return this.load( path, null );
+    }
+    
+    /**
+     * This method loads the profiling data like load( path ) and reports the
+     * progress to the given listener.
+     * 
+     * @param path The directory that contains the profiling data. Must not be null.
+     * @param listener The listener for the progress. May be null.
+     * @return The loaded profile.
+     * @throws IOException If reading fails or the loading has been cancelled.
+     * @throws DataFormatException 
+     */
+    @Override
+    public ProfilingData load( final File path, final LoadProgressListener listener ) throws IOException, DataFormatException {
+        return this.load( path, LoadOptions.ALL, listener );
+    }
+    
+    /**
+     * This method loads the events of the profiling data that are accepted by
+     * the given options and reports the progress to the given listener. The
+     * cache is only written if all events are loaded. The returned profiling
+     * data is frozen.
+     * 
+     * @param path The directory that contains the profiling data. Must not be null.
+     * @param options The options that restrict the loaded events. Must not be null.
+     * @param listener The listener for the progress. May be null.
+     * @return The loaded profile.
+     * @throws IOException If reading fails or the loading has been cancelled.
+     * @throws DataFormatException 
+     */
+    @Override
+    public ProfilingData load( final File path, final LoadOptions options, final LoadProgressListener listener ) throws IOException, DataFormatException {
+        if( path == null ) throw new IllegalArgumentException( "The parameter 'path' must not be null!" );
+        if( options == null ) throw new IllegalArgumentException( "The parameter 'options' must not be null!" );
+        if( !this.useCache ) {
+            final ProfilingData profilingData = new ProfilingData();
+            this.read( path, new ProfilingDataSink( profilingData ), options, listener );
+            return profilingData.freeze();
+        }
+        
+        final TraceCache cache = new TraceCache( path, ACTOR_CREATION_DATA_FILE, SEND_DATA_FILE, MESSAGE_PROCESSING_DATA_FILE );
+        final ProfilingData cachedProfilingData = cache.load( options, listener );
+        if( cachedProfilingData != null ) return cachedProfilingData.freeze();
+        
+        final ProfilingData profilingData = new ProfilingData();
+        final TraceCache.Writer writer = options.isAll() ? cache.createWriter( new ProfilingDataSink( profilingData ) ) : null;
+        if( writer == null ) {
+            this.read( path, new ProfilingDataSink( profilingData ), options, listener );
+            return profilingData.freeze();
+        }
+        try {
+            this.read( path, writer, options, listener );
+            writer.commit();
+        } finally {
+            writer.close();
+        }
+        return profilingData.freeze();
+    }
+    
+    /**
+     * This method reads the profiling data from the given directory and passes
+     * all events to the sink, in the order of the files.
+     * 
+     * @param path The directory that contains the profiling data. Must not be null.
+     * @param sink The sink that receives the events. Must not be null.
+     * @throws IOException
+     * @throws DataFormatException 
+     */
+    public void read( final File path, final TraceEventSink sink ) throws IOException, DataFormatException {
+        this.read( path, sink, LoadOptions.ALL, null );
+    }
+    
+    /**
+     * This method reads the profiling data from the given directory, passes
+     * all events to the sink, in the order of the files, and reports the
+     * progress to the listener after each chunk. Events that are not accepted
+     * by the options are skipped.
+     * 
+     * @param path The directory that contains the profiling data. Must not be null.
+     * @param sink The sink that receives the events. Must not be null.
+     * @param options The options that restrict the events. Must not be null.
+     * @param listener The listener for the progress. May be null.
+     * @throws IOException If reading fails or the loading has been cancelled.
+     * @throws DataFormatException 
+     */
+    public void read( final File path, final TraceEventSink sink, final LoadOptions options, final LoadProgressListener listener ) throws IOException, DataFormatException {
+        if( path == null ) throw new IllegalArgumentException( "The parameter 'path' must not be null!" );
+        if( sink == null ) throw new IllegalArgumentException( "The parameter 'sink' must not be null!" );
+        if( options == null ) throw new IllegalArgumentException( "The parameter 'options' must not be null!" );
         if( !path.exists() ) throw new FileNotFoundException( "Directory does not exist.");
         if( !path.isDirectory() ) throw new IllegalArgumentException( "The parameter 'path' needs to point to a directory." );
         
-        final File actorCreationDataFile = new File( path.getAbsolutePath() + File.separator + "creationdata.csv" );
-        if( !actorCreationDataFile.exists() ) throw new FileNotFoundException( "Actor creation data file is not in the directory" );
+        final TraceFile actorCreationDataFile = TraceFile.find( path, ACTOR_CREATION_DATA_FILE );
+        if( actorCreationDataFile == null ) throw new FileNotFoundException( "Actor creation data file is not in the directory" );
         
-        final File sendDataFile = new File( path.getAbsolutePath() + File.separator + "senddata.csv" );
-        if( !sendDataFile.exists() ) throw new FileNotFoundException( "Actor send data file is not in the directory" );
+        final TraceFile sendDataFile = TraceFile.find( path, SEND_DATA_FILE );
+        if( sendDataFile == null ) throw new FileNotFoundException( "Actor send data file is not in the directory" );
         
-        final File messageProcessingDataFile = new File( path.getAbsolutePath() + File.separator + "messageprocessingdata.csv" );
-        if( !messageProcessingDataFile.exists() ) throw new FileNotFoundException( "Actor message processing file is not in the directory" );
+        final TraceFile messageProcessingDataFile = TraceFile.find( path, MESSAGE_PROCESSING_DATA_FILE );
+        if( messageProcessingDataFile == null ) throw new FileNotFoundException( "Actor message processing file is not in the directory" );
         
-        long earliestAction = Long.MAX_VALUE;
-        long latestAction = Long.MIN_VALUE;
+        final LoadProgress progress = new LoadProgress( listener, actorCreationDataFile.file.length() + sendDataFile.file.length() + messageProcessingDataFile.file.length() );
+        progress.checkCancelled();
         
-        final ProfilingData profilingData = new ProfilingData();
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool( threads, (final Runnable runnable) -> {
+            final Thread thread = new Thread( runnable, "Model Loader" );
+            thread.setDaemon( true );
+            return thread;
+        });
         
-        try( final BufferedReader actorCreationBufferedReader = new BufferedReader( new FileReader( actorCreationDataFile ) ) ) {
-            String line = actorCreationBufferedReader.readLine();
+        try( final FileChannel sendDataChannel = open( sendDataFile );
+             final FileChannel messageProcessingDataChannel = open( messageProcessingDataFile ) ) {
             
-            while( (line = actorCreationBufferedReader.readLine()) != null ) {
-               final String[] elements = line.split( ";" );
-               if( elements.length != 4 ) throw new DataFormatException( "The actor creation data file must contain lines with three elements." );
-               
-               final long creationTime = Long.parseLong( elements[0] );
-               final String id = elements[1];
-               final String typeName = elements[2];
-               final String supervisor = elements[3];
-               
-               if( creationTime < earliestAction ) earliestAction = creationTime;
-               if( creationTime > latestAction ) latestAction = creationTime;
-               
-               final ActorInstance actorInstance = profilingData.registerActorInstance( typeName, id, creationTime, supervisor );
+            // The phase and the number of bytes of each task, for the progress.
+            final List< Callable< EventBuffer > > tasks = new ArrayList<>();
+            final List< LoadPhase > taskPhases = new ArrayList<>();
+            final List< Long > taskSizes = new ArrayList<>();
+            if( sendDataFile.isCompressed() ) {
+                tasks.add( createDecompressingParseTask( () -> new SendEventBuffer( 0, options ), sendDataFile, "actor send data file" ) );
+                taskPhases.add( LoadPhase.SEND_DATA );
+                taskSizes.add( sendDataFile.file.length() );
+            } else {
+                for( final FileChunk chunk : FileChunk.split( sendDataChannel, CHUNK_SIZE ) ) {
+                    tasks.add( createParseTask( () -> new SendEventBuffer( (int)(chunk.size() / ESTIMATED_LINE_LENGTH), options ), sendDataChannel, chunk, "actor send data file" ) );
+                    taskPhases.add( LoadPhase.SEND_DATA );
+                    taskSizes.add( chunk.size() );
+                }
             }
-        }
-        
-        try( final BufferedReader sendDataBufferedReader = new BufferedReader( new FileReader( sendDataFile ) ) ) {
-            
-            String line = sendDataBufferedReader.readLine();
-            int lineCount = 1;
-            while( (line = sendDataBufferedReader.readLine() ) != null ) {
-                ++lineCount;
-                final String[] elements = line.split( ";" );
-                if( elements.length != 5 ) throw new DataFormatException( "The actor creation data file must contain lines with five elements. In line " + lineCount + ". " + line );
-                
-                final long sendTime = Long.parseLong( elements[0] );
-                final String senderString = elements[1];
-                final String receiverString = elements[2];
-                final String messageType = elements[3];
-                final int messageID = Integer.parseInt( elements[4] );
-                
-                profilingData.registerSending( sendTime, senderString, receiverString, messageType, messageID );
+            if( messageProcessingDataFile.isCompressed() ) {
+                tasks.add( createDecompressingParseTask( () -> new ProcessingEventBuffer( 0, options ), messageProcessingDataFile, "actor message processing file" ) );
+                taskPhases.add( LoadPhase.MESSAGE_PROCESSING_DATA );
+                taskSizes.add( messageProcessingDataFile.file.length() );
+            } else {
+                for( final FileChunk chunk : FileChunk.split( messageProcessingDataChannel, CHUNK_SIZE ) ) {
+                    tasks.add( createParseTask( () -> new ProcessingEventBuffer( (int)(chunk.size() / ESTIMATED_LINE_LENGTH), options ), messageProcessingDataChannel, chunk, "actor message processing file" ) );
+                    taskPhases.add( LoadPhase.MESSAGE_PROCESSING_DATA );
+                    taskSizes.add( chunk.size() );
+                }
             }
             
-        }
-        
-        try( final BufferedReader messageProcessingDataBufferedReader = new BufferedReader( new FileReader( messageProcessingDataFile ) ) ) {
+            // Only a limited number of chunks is parsed ahead to bound the memory of the buffers.
+            final Deque< Future< EventBuffer > > pending = new ArrayDeque<>();
+            int next = 0;
+            while( next < tasks.size() && pending.size() < threads * 2 ) pending.add( executor.submit( tasks.get( next++ ) ) );
             
-            String line = messageProcessingDataBufferedReader.readLine();
+            final int actors = this.readActorCreationData( actorCreationDataFile, sink, options );
+            progress.advance( LoadPhase.ACTOR_CREATION_DATA, actorCreationDataFile.file.length(), actors );
             
-            while( (line = messageProcessingDataBufferedReader.readLine() ) != null ) {
-                final String[] elements = line.split( ";" );
-                if( elements.length != 6 ) throw new DataFormatException( "The actor creation data file must contain lines with six elements." );
-                
-                final long start = Long.parseLong( elements[0] );
-                final long end = Long.parseLong( elements[1] );
-                final String messageTypeString = elements[2];
-                final int messageID = Integer.parseInt( elements[3] );
-                final String senderString = elements[4];
-                final String receiverString = elements[5];
-                
-                profilingData.registerProcessingEvent( start, end, messageTypeString, messageID, senderString, receiverString );
-                
+            int replayed = 0;
+            while( !pending.isEmpty() ) {
+                final EventBuffer buffer = await( pending.poll() );
+                if( next < tasks.size() ) pending.add( executor.submit( tasks.get( next++ ) ) );
+                buffer.replay( sink );
+                progress.advance( taskPhases.get( replayed ), taskSizes.get( replayed ), buffer.size() );
+                replayed++;
             }
-            
+        } finally {
+            executor.shutdownNow();
         }
+    }
+    
+    private int readActorCreationData( final TraceFile actorCreationDataFile, final TraceEventSink sink, final LoadOptions options ) throws IOException, DataFormatException {
+        final SymbolTable symbols = new SymbolTable();
+        int count = 0;
         
+        try( final FileChannel channel = open( actorCreationDataFile );
+             final CsvTokenizer tokenizer = channel == null ? new CsvTokenizer( actorCreationDataFile.openDecompressed(), "actor creation data file" ) : this.readMode.open( channel, new FileChunk( 0, channel.size() ), "actor creation data file" ) ) {
+            tokenizer.nextLine();
+            
+            while( tokenizer.nextLine() ) {
+               final long creationTime = tokenizer.nextLong();
+               if( !options.acceptsActorCreation( creationTime ) ) {
+                   tokenizer.skipLine();
+                   continue;
+               }
+               final int id = tokenizer.nextSymbol( symbols );
+               final int typeName = tokenizer.nextSymbol( symbols );
+               final int supervisor = tokenizer.nextSymbol( symbols );
+               tokenizer.endOfLine( 4 );
+               
+               sink.actorCreated( creationTime, symbols.name( id ), symbols.name( typeName ), symbols.name( supervisor ) );
+               count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * The buffers are created when the tasks run, so only the buffers of the chunks that are parsed ahead occupy
+     * the heap.
+     */
+    private Callable< EventBuffer > createParseTask( final Supplier< EventBuffer > bufferFactory, final FileChannel channel, final FileChunk chunk, final String fileDescription ) {
+        return () -> {
+            final EventBuffer buffer = bufferFactory.get();
+            final CsvTokenizer tokenizer = this.readMode.open( channel, chunk, fileDescription + " chunk starting at byte " + chunk.start );
+            buffer.parse( tokenizer );
+            return buffer;
+        };
+    }
+    
+    private static Callable< EventBuffer > createDecompressingParseTask( final Supplier< EventBuffer > bufferFactory, final TraceFile file, final String fileDescription ) {
+        return () -> {
+            final EventBuffer buffer = bufferFactory.get();
+            try( final CsvTokenizer tokenizer = new CsvTokenizer( file.openDecompressed(), fileDescription ) ) {
+                tokenizer.nextLine();
+                buffer.parse( tokenizer );
+            }
+            return buffer;
+        };
+    }
+    
+    /**
+     * This method opens the channel of a plain trace file. Compressed files
+     * are read sequentially through a decompressing stream, so for them null
+     * is returned.
+     */
+    private static FileChannel open( final TraceFile file ) throws IOException {
+        return file.isCompressed() ? null : FileChannel.open( file.file.toPath(), StandardOpenOption.READ );
+    }
+    
+    @Override
+    public boolean accepts( final File path ) {
+        return path != null && path.isDirectory()
+            && TraceFile.find( path, ACTOR_CREATION_DATA_FILE ) != null
+            && TraceFile.find( path, SEND_DATA_FILE ) != null
+            && TraceFile.find( path, MESSAGE_PROCESSING_DATA_FILE ) != null;
+    }
+    
+    @Override
+    public boolean canFollow( final File path ) {
+        if( !this.accepts( path ) ) return false;
+        for( final String name : new String[] { ACTOR_CREATION_DATA_FILE, SEND_DATA_FILE, MESSAGE_PROCESSING_DATA_FILE } ) {
+            if( TraceFile.find( path, name ).isCompressed() ) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * This method loads the events that are currently in the csv files and
+     * starts a TraceFollower that adds new events while the files grow.
+     * Compressed files can not be followed. The trace cache is not used.
+     * 
+     * @param path The directory that contains the profiling data. Must not be null.
+     * @return The profiling data that contains the events available so far.
+     * @throws IOException
+     * @throws DataFormatException 
+     */
+    @Override
+    public ProfilingData follow( final File path ) throws IOException, DataFormatException {
+        if( path == null ) throw new IllegalArgumentException( "The parameter 'path' must not be null!" );
+        if( !this.canFollow( path ) ) throw new IllegalArgumentException( "The parameter 'path' needs to point to a directory with uncompressed csv files." );
+        final ProfilingData profilingData = new ProfilingData();
+        final TraceFollower follower = new TraceFollower( path, profilingData );
+        follower.readAvailable();
+        follower.start();
+        profilingData.addResource( follower );
         return profilingData;
     }
     
+    private static EventBuffer await( final Future< EventBuffer > future ) throws IOException, DataFormatException {
+        try {
+            return future.get();
+        } catch( final InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Loading the profiling data has been interrupted." );
+        } catch( final ExecutionException ex ) {
+            final Throwable cause = ex.getCause();
+            if( cause instanceof IOException ) throw (IOException)cause;
+            if( cause instanceof DataFormatException ) throw (DataFormatException)cause;
+            if( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+            if( cause instanceof Error ) throw (Error)cause;
+            throw new IllegalStateException( cause );
+        }
+    }
+    
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A PipedDecompressionStream reads a decompressing stream on a separate
+ * thread. The decompressed bytes are handed over in blocks through a bounded
+ * queue, so decompression and parsing run concurrently while the memory used
+ * for the blocks in flight is limited.
+ *
+ * @author Stephan Rehfeld
+ */
+public class PipedDecompressionStream extends InputStream {
+
+    /**
+     * Marks the end of the decompressed data in the queue.
+     */
+    private static final byte[] END = new byte[ 0 ];
+
+    /**
+     * The decompressed blocks. A block that is shorter than the block size is
+     * only sent at the end of the data.
+     */
+    private final BlockingQueue< byte[] > blocks;
+
+    /**
+     * The thread that decompresses the data.
+     */
+    private final Thread thread;
+
+    /**
+     * The error that occurred while decompressing, if any. It is thrown by
+     * the reader when it reaches the end of the data.
+     */
+    private volatile Throwable error;
+
+    /**
+     * The current block.
+     */
+    private byte[] block;
+
+    /**
+     * The position within the current block.
+     */
+    private int position;
+
+    /**
+     * True if the end of the data has been reached.
+     */
+    private boolean finished;
+
+    /**
+     * This constructor creates a new stream and starts the decompressing thread.
+     *
+     * @param in The decompressing stream. Must not be null. It is closed when the data is read completely or this stream is closed.
+     * @param name The name of the file, used for the name of the thread. Must not be null.
+     * @param blockSize The size of the blocks.
+     * @param queuedBlocks The maximum number of blocks that are decompressed ahead.
+     */
+    public PipedDecompressionStream( final InputStream in, final String name, final int blockSize, final int queuedBlocks ) {
+        if( in == null ) throw new IllegalArgumentException( "The parameter 'in' must not be null!" );
+        if( name == null ) throw new IllegalArgumentException( "The parameter 'name' must not be null!" );
+        if( blockSize < 1 ) throw new IllegalArgumentException( "The parameter 'blockSize' must be positive!" );
+        if( queuedBlocks < 1 ) throw new IllegalArgumentException( "The parameter 'queuedBlocks' must be positive!" );
+
+        this.blocks = new ArrayBlockingQueue<>( queuedBlocks );
+        this.block = END;
+        this.thread = new Thread( () -> this.decompress( in, blockSize ), "Decompressing " + name );
+        this.thread.setDaemon( true );
+        this.thread.start();
+    }
+
+    private void decompress( final InputStream in, final int blockSize ) {
+        try( final InputStream source = in ) {
+            while( true ) {
+                final byte[] data = new byte[ blockSize ];
+                int count = 0;
+                int read = 0;
+                while( count < blockSize && (read = source.read( data, count, blockSize - count )) != -1 ) count += read;
+                if( count > 0 ) this.blocks.put( count == blockSize ? data : Arrays.copyOf( data, count ) );
+                if( read == -1 ) break;
+            }
+        } catch( final InterruptedException ex ) {
+            // The stream has been closed.
+        } catch( final Throwable ex ) {
+            this.error = ex;
+        } finally {
+            // The end is always sent, so the reader never waits for a block that is not decompressed anymore.
+            try {
+                this.blocks.put( END );
+            } catch( final InterruptedException ex ) {
+                // The stream has been closed, nobody waits for the end anymore.
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if( !this.fill() ) return -1;
+        return this.block[ this.position++ ] & 0xff;
+    }
+
+    @Override
+    public int read( final byte[] b, final int off, final int len ) throws IOException {
+        if( len == 0 ) return 0;
+        if( !this.fill() ) return -1;
+        final int count = Math.min( len, this.block.length - this.position );
+        System.arraycopy( this.block, this.position, b, off, count );
+        this.position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.finished = true;
+        this.thread.interrupt();
+        this.blocks.clear();
+    }
+
+    private boolean fill() throws IOException {
+        while( this.position == this.block.length ) {
+            if( this.finished ) return false;
+            try {
+                this.block = this.blocks.take();
+            } catch( final InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Reading the decompressed data has been interrupted." );
+            }
+            this.position = 0;
+            if( this.block == END ) {
+                this.finished = true;
+                final Throwable error = this.error;
+                if( error instanceof IOException ) throw (IOException)error;
+                if( error != null ) throw new IOException( "Decompressing the data failed.", error );
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import simx.profiler.model.ActorInstance;
+import simx.profiler.model.MessageType;
+import simx.profiler.model.ProfilingData;
+
+/**
+ * A trace event sink that registers all events at a profiling data object.
+ * For the parsed chunks of the csv files, the actors and message types are
+ * looked up once per symbol of the chunk and not once per event.
+ *
+ * @author Stephan Rehfeld
+ */
+public class ProfilingDataSink implements TraceEventSink {
+
+    /**
+     * The profiling data that receives the events.
+     */
+    private final ProfilingData profilingData;
+
+    /**
+     * This constructor creates a new sink.
+     *
+     * @param profilingData The profiling data that receives the events. Must not be null.
+     */
+    public ProfilingDataSink( final ProfilingData profilingData ) {
+        if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
+        this.profilingData = profilingData;
+    }
+
+    @Override
+    public void actorCreated( final long creationTime, final String id, final String typeName, final String supervisor ) {
+        this.profilingData.registerActorInstance( typeName, id, creationTime, supervisor );
+    }
+
+    @Override
+    public void messageSent( final long sendTime, final String sender, final String receiver, final String messageType, final int messageID ) {
+        this.profilingData.registerSending( sendTime, sender, receiver, messageType, messageID );
+    }
+
+    @Override
+    public void messageProcessed( final long start, final long end, final String messageType, final int messageID, final String sender, final String receiver ) {
+        this.profilingData.registerProcessingEvent( start, end, messageType, messageID, sender, receiver );
+    }
+
+    @Override
+    public void messagesSent( final SendEventBuffer buffer ) {
+        final SymbolTable symbols = buffer.getSymbols();
+        final ActorInstance[] actorInstances = new ActorInstance[ symbols.size() ];
+        final MessageType[] messageTypes = new MessageType[ symbols.size() ];
+        for( int i = 0; i < buffer.size(); ++i ) {
+            final ActorInstance sender = this.actorInstance( actorInstances, symbols, buffer.getSender( i ) );
+            final ActorInstance receiver = this.actorInstance( actorInstances, symbols, buffer.getReceiver( i ) );
+            final MessageType messageType = this.messageType( messageTypes, symbols, buffer.getMessageType( i ) );
+            this.profilingData.registerSending( buffer.getSendTime( i ), sender, receiver, messageType, buffer.getMessageID( i ) );
+        }
+    }
+
+    @Override
+    public void messagesProcessed( final ProcessingEventBuffer buffer ) {
+        final SymbolTable symbols = buffer.getSymbols();
+        final ActorInstance[] actorInstances = new ActorInstance[ symbols.size() ];
+        final MessageType[] messageTypes = new MessageType[ symbols.size() ];
+        for( int i = 0; i < buffer.size(); ++i ) {
+            final MessageType messageType = this.messageType( messageTypes, symbols, buffer.getMessageType( i ) );
+            final ActorInstance sender = this.actorInstance( actorInstances, symbols, buffer.getSender( i ) );
+            final ActorInstance receiver = this.actorInstance( actorInstances, symbols, buffer.getReceiver( i ) );
+            this.profilingData.registerProcessingEvent( buffer.getStart( i ), buffer.getEnd( i ), messageType, buffer.getMessageID( i ), sender, receiver );
+        }
+    }
+
+    private ActorInstance actorInstance( final ActorInstance[] resolved, final SymbolTable symbols, final int symbol ) {
+        ActorInstance actorInstance = resolved[ symbol ];
+        if( actorInstance == null ) {
+            actorInstance = this.profilingData.getActorInstance( symbols.name( symbol ) );
+            resolved[ symbol ] = actorInstance;
+        }
+        return actorInstance;
+    }
+
+    private MessageType messageType( final MessageType[] resolved, final SymbolTable symbols, final int symbol ) {
+        MessageType messageType = resolved[ symbol ];
+        if( messageType == null ) {
+            messageType = this.profilingData.getOrRegisterMessageType( symbols.name( symbol ) );
+            resolved[ symbol ] = messageType;
+        }
+        return messageType;
+    }
+
+}
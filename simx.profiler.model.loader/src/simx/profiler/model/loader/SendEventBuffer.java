@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import simx.profiler.model.LoadOptions;
+
+/**
+ * A SendEventBuffer holds the parsed lines of one chunk of the send data file
+ * in primitive arrays. Text fields are stored as ids of a symbol table that
+ * belongs to the buffer, so chunks can be parsed concurrently. Lines that
+ * are not accepted by the load options are skipped while parsing.
+ *
+ * @author Stephan Rehfeld
+ */
+public class SendEventBuffer implements EventBuffer {
+
+    /**
+     * The symbol table for the text fields of this chunk.
+     */
+    private final SymbolTable symbols;
+
+    /**
+     * The options that restrict the parsed events.
+     */
+    private final LoadOptions options;
+
+    private long[] sendTimes;
+    private int[] senders;
+    private int[] receivers;
+    private int[] messageTypes;
+    private int[] messageIDs;
+
+    /**
+     * The number of events in this buffer.
+     */
+    private int size;
+
+    /**
+     * This constructor creates a new, empty buffer.
+     *
+     * @param expectedSize The expected number of events.
+     */
+    public SendEventBuffer( final int expectedSize ) {
+        this( expectedSize, LoadOptions.ALL );
+    }
+
+    /**
+     * This constructor creates a new, empty buffer that only keeps the events
+     * that are accepted by the given options.
+     *
+     * @param expectedSize The expected number of events.
+     * @param options The options that restrict the parsed events. Must not be null.
+     */
+    public SendEventBuffer( final int expectedSize, final LoadOptions options ) {
+        if( options == null ) throw new IllegalArgumentException( "The parameter 'options' must not be null!" );
+        final int capacity = Math.max( 16, expectedSize );
+        this.options = options;
+        this.symbols = new SymbolTable();
+        this.sendTimes = new long[ capacity ];
+        this.senders = new int[ capacity ];
+        this.receivers = new int[ capacity ];
+        this.messageTypes = new int[ capacity ];
+        this.messageIDs = new int[ capacity ];
+    }
+
+    @Override
+    public void parse( final CsvTokenizer tokenizer ) throws IOException, DataFormatException {
+        while( tokenizer.nextLine() ) {
+            if( this.size == this.sendTimes.length ) this.grow();
+            final long sendTime = tokenizer.nextLong();
+            if( !this.options.acceptsTime( sendTime ) ) {
+                tokenizer.skipLine();
+                continue;
+            }
+            this.sendTimes[ this.size ] = sendTime;
+            this.senders[ this.size ] = tokenizer.nextSymbol( this.symbols );
+            this.receivers[ this.size ] = tokenizer.nextSymbol( this.symbols );
+            this.messageTypes[ this.size ] = tokenizer.nextSymbol( this.symbols );
+            this.messageIDs[ this.size ] = tokenizer.nextInt();
+            tokenizer.endOfLine( 5 );
+            if( this.options.acceptsMessage( this.messageIDs[ this.size ] ) ) this.size++;
+        }
+    }
+
+    @Override
+    public void replay( final TraceEventSink sink ) throws IOException {
+        sink.messagesSent( this );
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * This method returns the symbol table of this buffer. The senders,
+     * receivers and message types are ids of this table.
+     *
+     * @return The symbol table of this buffer.
+     */
+    public SymbolTable getSymbols() {
+        return this.symbols;
+    }
+
+    public long getSendTime( final int index ) {
+        return this.sendTimes[ index ];
+    }
+
+    public int getSender( final int index ) {
+        return this.senders[ index ];
+    }
+
+    public int getReceiver( final int index ) {
+        return this.receivers[ index ];
+    }
+
+    public int getMessageType( final int index ) {
+        return this.messageTypes[ index ];
+    }
+
+    public int getMessageID( final int index ) {
+        return this.messageIDs[ index ];
+    }
+
+    private void grow() {
+        final int capacity = this.sendTimes.length * 2;
+        this.sendTimes = Arrays.copyOf( this.sendTimes, capacity );
+        this.senders = Arrays.copyOf( this.senders, capacity );
+        this.receivers = Arrays.copyOf( this.receivers, capacity );
+        this.messageTypes = Arrays.copyOf( this.messageTypes, capacity );
+        this.messageIDs = Arrays.copyOf( this.messageIDs, capacity );
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A symbol table maps raw byte sequences, like actor paths or message type
+ * names, to dense integer ids. The bytes of each distinct symbol are copied
+ * once into an internal pool, the string representation is created only once
+ * per symbol. Looking up an already known symbol does not allocate.
+ *
+ * @author Stephan Rehfeld
+ */
+public class SymbolTable {
+
+    /**
+     * Marks an empty slot of the hash table.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * The open addressing hash table. Each slot contains a symbol id or EMPTY.
+     */
+    private int[] slots;
+
+    /**
+     * The bytes of all symbols, one after another.
+     */
+    private byte[] pool;
+
+    /**
+     * The number of used bytes in the pool.
+     */
+    private int poolSize;
+
+    /**
+     * The offset of each symbol in the pool.
+     */
+    private int[] offsets;
+
+    /**
+     * The length of each symbol.
+     */
+    private int[] lengths;
+
+    /**
+     * The hash code of each symbol.
+     */
+    private int[] hashes;
+
+    /**
+     * The lazily created string representation of each symbol.
+     */
+    private String[] names;
+
+    /**
+     * The number of symbols in this table.
+     */
+    private int size;
+
+    /**
+     * This constructor creates a new, empty symbol table.
+     */
+    public SymbolTable() {
+        this.slots = new int[ 1024 ];
+        Arrays.fill( this.slots, EMPTY );
+        this.pool = new byte[ 16 * 1024 ];
+        this.offsets = new int[ 256 ];
+        this.lengths = new int[ 256 ];
+        this.hashes = new int[ 256 ];
+        this.names = new String[ 256 ];
+    }
+
+    /**
+     * This method returns the id of the symbol that is represented by the
+     * given bytes. If the symbol is not known yet, it is added to the table.
+     *
+     * @param bytes The array that contains the symbol. Must not be null.
+     * @param offset The offset of the first byte of the symbol.
+     * @param length The length of the symbol.
+     * @return The id of the symbol.
+     */
+    public int intern( final byte[] bytes, final int offset, final int length ) {
+        final int hash = hash( bytes, offset, length );
+        final int mask = this.slots.length - 1;
+        int slot = mix( hash ) & mask;
+        while( this.slots[ slot ] != EMPTY ) {
+            final int id = this.slots[ slot ];
+            if( this.hashes[ id ] == hash && this.equals( id, bytes, offset, length ) ) return id;
+            slot = (slot + 1) & mask;
+        }
+
+        final int id = this.add( bytes, offset, length, hash );
+        this.slots[ slot ] = id;
+        if( this.size * 2 > this.slots.length ) this.rehash();
+        return id;
+    }
+
+    /**
+     * This method returns the id of the given string. If the string is not
+     * known yet, it is added to the table.
+     *
+     * @param name The symbol. Must not be null.
+     * @return The id of the symbol.
+     */
+    public int intern( final String name ) {
+        if( name == null ) throw new IllegalArgumentException( "The parameter 'name' must not be null!" );
+        final byte[] bytes = name.getBytes( StandardCharsets.UTF_8 );
+        return this.intern( bytes, 0, bytes.length );
+    }
+
+    /**
+     * This method returns the string representation of a symbol. The string
+     * is created on the first call and returned on every subsequent call.
+     *
+     * @param id The id of the symbol.
+     * @return The string representation of the symbol.
+     */
+    public String name( final int id ) {
+        if( id < 0 || id >= this.size ) throw new IndexOutOfBoundsException( "Unknown symbol id " + id );
+        String name = this.names[ id ];
+        if( name == null ) {
+            name = new String( this.pool, this.offsets[ id ], this.lengths[ id ], StandardCharsets.UTF_8 );
+            this.names[ id ] = name;
+        }
+        return name;
+    }
+
+    /**
+     * This method returns the number of symbols in this table. Symbol ids are
+     * dense and range from 0 to size() - 1.
+     *
+     * @return The number of symbols in this table.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    private boolean equals( final int id, final byte[] bytes, final int offset, final int length ) {
+        if( this.lengths[ id ] != length ) return false;
+        final int symbolOffset = this.offsets[ id ];
+        for( int i = 0; i < length; ++i ) {
+            if( this.pool[ symbolOffset + i ] != bytes[ offset + i ] ) return false;
+        }
+        return true;
+    }
+
+    private int add( final byte[] bytes, final int offset, final int length, final int hash ) {
+        if( this.poolSize + length > this.pool.length ) {
+            this.pool = Arrays.copyOf( this.pool, Math.max( this.pool.length * 2, this.poolSize + length ) );
+        }
+        if( this.size == this.offsets.length ) {
+            final int capacity = this.size * 2;
+            this.offsets = Arrays.copyOf( this.offsets, capacity );
+            this.lengths = Arrays.copyOf( this.lengths, capacity );
+            this.hashes = Arrays.copyOf( this.hashes, capacity );
+            this.names = Arrays.copyOf( this.names, capacity );
+        }
+        System.arraycopy( bytes, offset, this.pool, this.poolSize, length );
+        final int id = this.size;
+        this.offsets[ id ] = this.poolSize;
+        this.lengths[ id ] = length;
+        this.hashes[ id ] = hash;
+        this.poolSize += length;
+        this.size++;
+        return id;
+    }
+
+    private void rehash() {
+        this.slots = new int[ this.slots.length * 2 ];
+        Arrays.fill( this.slots, EMPTY );
+        final int mask = this.slots.length - 1;
+        for( int id = 0; id < this.size; ++id ) {
+            int slot = mix( this.hashes[ id ] ) & mask;
+            while( this.slots[ slot ] != EMPTY ) slot = (slot + 1) & mask;
+            this.slots[ slot ] = id;
+        }
+    }
+
+    /**
+     * This method computes the hash of a symbol from all of its bytes. Actor
+     * paths share long prefixes and often differ only in a few bytes in the
+     * middle, so no byte may be left out.
+     *
+     * @param bytes The array that contains the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @param length The length of the symbol.
+     * @return The hash of the symbol.
+     */
+    private static int hash( final byte[] bytes, final int offset, final int length ) {
+        int hash = 1;
+        for( int i = offset; i < offset + length; ++i ) hash = 31 * hash + bytes[ i ];
+        return hash;
+    }
+
+    private static int mix( final int hash ) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import simx.profiler.model.LoadOptions;
+import simx.profiler.model.LoadProgressListener;
+import simx.profiler.model.ProfilingData;
+
+/**
+ * A TraceCache stores the events of a trace in the binary trace format in a
+ * hidden file next to the trace. Reading the cache is much faster than
+ * parsing the csv files. The cache starts with a fingerprint of the source
+ * files (name, size, modification time and a checksum of the first and last
+ * bytes), so it is ignored as soon as one of the source files changes.
+ *
+ * @see BinaryTraceFormat
+ * @author Stephan Rehfeld
+ */
+public class TraceCache {
+
+    /**
+     * The name of the cache file in the trace directory.
+     */
+    public static final String FILE_NAME = ".profilingdata.simxcache";
+
+    /**
+     * The magic bytes at the beginning of a cache file.
+     */
+    private static final byte[] MAGIC = "SIMXCACH".getBytes( StandardCharsets.US_ASCII );
+
+    /**
+     * The number of bytes at the beginning and at the end of each source file that are checksummed.
+     */
+    private static final int CHECKSUM_RANGE = 64 * 1024;
+
+    private static final Logger LOGGER = Logger.getLogger( TraceCache.class.getName() );
+
+    /**
+     * The trace directory.
+     */
+    private final File directory;
+
+    /**
+     * The names of the source files, without the suffix of the compression.
+     */
+    private final String[] sourceNames;
+
+    /**
+     * This constructor creates a new trace cache for a directory.
+     *
+     * @param directory The trace directory. Must not be null.
+     * @param sourceNames The names of the source files, e.g. "senddata.csv". Must not be null.
+     */
+    public TraceCache( final File directory, final String... sourceNames ) {
+        if( directory == null ) throw new IllegalArgumentException( "The parameter 'directory' must not be null!" );
+        if( sourceNames == null ) throw new IllegalArgumentException( "The parameter 'sourceNames' must not be null!" );
+        this.directory = directory;
+        this.sourceNames = sourceNames.clone();
+    }
+
+    /**
+     * This method returns the cache file.
+     *
+     * @return The cache file.
+     */
+    public File getFile() {
+        return new File( this.directory, FILE_NAME );
+    }
+
+    /**
+     * This method loads the profiling data from the cache. If there is no
+     * cache, the cache is out of date or it can not be read, null is returned
+     * and the profiling data has to be loaded from the source files.
+     *
+     * @param options The options that restrict the loaded events. Must not be null.
+     * @param listener The listener for the progress. May be null.
+     * @return The profiling data or null.
+     * @throws InterruptedIOException If the loading has been cancelled.
+     */
+    public ProfilingData load( final LoadOptions options, final LoadProgressListener listener ) throws InterruptedIOException {
+        if( options == null ) throw new IllegalArgumentException( "The parameter 'options' must not be null!" );
+        final File file = this.getFile();
+        if( !file.isFile() ) return null;
+        try( final InputStream in = new BufferedInputStream( new FileInputStream( file ), 64 * 1024 ) ) {
+            final DataInputStream header = new DataInputStream( in );
+            final byte[] magic = new byte[ MAGIC.length ];
+            header.readFully( magic );
+            if( !Arrays.equals( magic, MAGIC ) ) return null;
+            final byte[] fingerprint = new byte[ header.readInt() ];
+            header.readFully( fingerprint );
+            if( !Arrays.equals( fingerprint, this.fingerprint() ) ) return null;
+
+            final ProfilingData profilingData = new ProfilingData();
+            try( final BinaryTraceReader reader = new BinaryTraceReader( in, file.getName() ) ) {
+                final TraceEventSink sink = new ProfilingDataSink( profilingData );
+                reader.read( options.isAll() ? sink : new FilteringTraceEventSink( sink, options ), new LoadProgress( listener, file.length() ) );
+            }
+            return profilingData;
+        } catch( final InterruptedIOException ex ) {
+            throw ex;
+        } catch( final IOException | DataFormatException | RuntimeException ex ) {
+            LOGGER.log( Level.WARNING, "Could not read the trace cache " + file + ", it is ignored.", ex );
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * This method creates a writer for the cache. The writer passes all
+     * events to the given sink and writes them to a temporary file, which
+     * replaces the cache when the writer is committed. If the cache can not
+     * be written, e.g. because the directory is read only, null is returned.
+     *
+     * @param sink The sink that receives the events as well. Must not be null.
+     * @return The writer or null.
+     */
+    public Writer createWriter( final TraceEventSink sink ) {
+        if( sink == null ) throw new IllegalArgumentException( "The parameter 'sink' must not be null!" );
+        final File temporary = new File( this.directory, FILE_NAME + ".tmp" );
+        try {
+            final OutputStream out = new FileOutputStream( temporary );
+            try {
+                final byte[] fingerprint = this.fingerprint();
+                final DataOutputStream header = new DataOutputStream( out );
+                header.write( MAGIC );
+                header.writeInt( fingerprint.length );
+                header.write( fingerprint );
+                header.flush();
+                return new Writer( new BinaryTraceWriter( out ), sink, temporary, this.getFile() );
+            } catch( final IOException ex ) {
+                out.close();
+                throw ex;
+            }
+        } catch( final IOException ex ) {
+            LOGGER.log( Level.INFO, "Could not create the trace cache in " + this.directory + ".", ex );
+            temporary.delete();
+            return null;
+        }
+    }
+
+    /**
+     * This method computes the fingerprint of the source files.
+     */
+    private byte[] fingerprint() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream( bytes );
+        for( final String sourceName : this.sourceNames ) {
+            final TraceFile source = TraceFile.find( this.directory, sourceName );
+            if( source == null ) {
+                out.writeUTF( sourceName );
+                out.writeBoolean( false );
+                continue;
+            }
+            out.writeUTF( source.file.getName() );
+            out.writeBoolean( true );
+            out.writeLong( source.file.length() );
+            out.writeLong( source.file.lastModified() );
+            out.writeLong( checksum( source.file ) );
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static long checksum( final File file ) throws IOException {
+        final CRC32 crc = new CRC32();
+        try( final FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            final long size = channel.size();
+            final ByteBuffer buffer = ByteBuffer.allocate( CHECKSUM_RANGE );
+            update( crc, channel, buffer, 0 );
+            if( size > CHECKSUM_RANGE ) update( crc, channel, buffer, Math.max( CHECKSUM_RANGE, size - CHECKSUM_RANGE ) );
+        }
+        return crc.getValue();
+    }
+
+    private static void update( final CRC32 crc, final FileChannel channel, final ByteBuffer buffer, final long position ) throws IOException {
+        buffer.clear();
+        while( buffer.hasRemaining() && channel.read( buffer, position + buffer.position() ) != -1 );
+        buffer.flip();
+        crc.update( buffer.array(), 0, buffer.limit() );
+    }
+
+    /**
+     * A writer for the cache that passes all events on to another sink.
+     */
+    public static class Writer implements TraceEventSink, Closeable {
+
+        private final BinaryTraceWriter writer;
+        private final TraceEventSink sink;
+        private final File temporary;
+        private final File target;
+
+        /**
+         * The error that occurred while writing the cache, if any. Errors
+         * while writing the cache do not stop the events from being passed on.
+         */
+        private IOException failure;
+
+        /**
+         * True if the cache has been committed.
+         */
+        private boolean committed;
+
+        private Writer( final BinaryTraceWriter writer, final TraceEventSink sink, final File temporary, final File target ) {
+            this.writer = writer;
+            this.sink = sink;
+            this.temporary = temporary;
+            this.target = target;
+        }
+
+        @Override
+        public void actorCreated( final long creationTime, final String id, final String typeName, final String supervisor ) throws IOException {
+            this.sink.actorCreated( creationTime, id, typeName, supervisor );
+            if( this.failure != null ) return;
+            try {
+                this.writer.actorCreated( creationTime, id, typeName, supervisor );
+            } catch( final IOException ex ) {
+                this.failure = ex;
+            }
+        }
+
+        @Override
+        public void messageSent( final long sendTime, final String sender, final String receiver, final String messageType, final int messageID ) throws IOException {
+            this.sink.messageSent( sendTime, sender, receiver, messageType, messageID );
+            if( this.failure != null ) return;
+            try {
+                this.writer.messageSent( sendTime, sender, receiver, messageType, messageID );
+            } catch( final IOException ex ) {
+                this.failure = ex;
+            }
+        }
+
+        @Override
+        public void messageProcessed( final long start, final long end, final String messageType, final int messageID, final String sender, final String receiver ) throws IOException {
+            this.sink.messageProcessed( start, end, messageType, messageID, sender, receiver );
+            if( this.failure != null ) return;
+            try {
+                this.writer.messageProcessed( start, end, messageType, messageID, sender, receiver );
+            } catch( final IOException ex ) {
+                this.failure = ex;
+            }
+        }
+
+        @Override
+        public void messagesSent( final SendEventBuffer buffer ) throws IOException {
+            this.sink.messagesSent( buffer );
+            if( this.failure != null ) return;
+            try {
+                this.writer.messagesSent( buffer );
+            } catch( final IOException ex ) {
+                this.failure = ex;
+            }
+        }
+
+        @Override
+        public void messagesProcessed( final ProcessingEventBuffer buffer ) throws IOException {
+            this.sink.messagesProcessed( buffer );
+            if( this.failure != null ) return;
+            try {
+                this.writer.messagesProcessed( buffer );
+            } catch( final IOException ex ) {
+                this.failure = ex;
+            }
+        }
+
+        /**
+         * This method completes the cache and replaces the previous cache
+         * file. If the cache could not be written, it is discarded.
+         *
+         * @return True if the cache has been written.
+         */
+        public boolean commit() {
+            try {
+                if( this.failure != null ) throw this.failure;
+                this.writer.close();
+                if( this.target.exists() && !this.target.delete() ) throw new IOException( "Could not replace " + this.target );
+                if( !this.temporary.renameTo( this.target ) ) throw new IOException( "Could not rename " + this.temporary + " to " + this.target );
+                this.committed = true;
+            } catch( final IOException ex ) {
+                LOGGER.log( Level.INFO, "Could not write the trace cache " + this.target + ".", ex );
+            }
+            return this.committed;
+        }
+
+        /**
+         * This method discards the cache, if it has not been committed.
+         */
+        @Override
+        public void close() {
+            if( this.committed ) return;
+            try {
+                this.writer.close();
+            } catch( final IOException ex ) {
+                // The cache is discarded anyway.
+            }
+            this.temporary.delete();
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+
+/**
+ * The converter from the csv trace files to the binary trace format. The
+ * binary trace is written to a temporary file first and renamed when it is
+ * complete, so a partially written trace is never picked up.
+ *
+ * Usage: java simx.profiler.model.loader.TraceConverter directory [output file]
+ *
+ * @author Stephan Rehfeld
+ */
+public class TraceConverter {
+
+    public static void main( final String[] args ) throws IOException, DataFormatException {
+        if( args.length < 1 ) {
+            System.err.println( "Usage: TraceConverter directory [output file]" );
+            return;
+        }
+        final File directory = new File( args[ 0 ] );
+        final File target = args.length > 1 ? new File( args[ 1 ] ) : new File( directory, BinaryTraceFormat.FILE_NAME );
+        final long start = System.nanoTime();
+        convert( directory, target );
+        System.out.println( "Converted " + directory + " to " + target + " (" + target.length() + " bytes) in " + (System.nanoTime() - start) / 1000000 + " ms." );
+    }
+
+    /**
+     * This method converts the csv trace files of a directory to a binary trace.
+     *
+     * @param directory The directory that contains the csv trace files. Must not be null.
+     * @param target The binary trace file to write. Must not be null.
+     * @throws IOException
+     * @throws DataFormatException
+     */
+    public static void convert( final File directory, final File target ) throws IOException, DataFormatException {
+        if( directory == null ) throw new IllegalArgumentException( "The parameter 'directory' must not be null!" );
+        if( target == null ) throw new IllegalArgumentException( "The parameter 'target' must not be null!" );
+
+        final File temporary = new File( target.getAbsoluteFile().getParentFile(), target.getName() + ".tmp" );
+        try {
+            try( final BinaryTraceWriter writer = new BinaryTraceWriter( new FileOutputStream( temporary ) ) ) {
+                new ModelLoader().read( directory, writer );
+            }
+            if( target.exists() && !target.delete() ) throw new IOException( "Could not replace " + target );
+            if( !temporary.renameTo( target ) ) throw new IOException( "Could not rename " + temporary + " to " + target );
+        } finally {
+            if( temporary.exists() ) temporary.delete();
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.IOException;
+
+/**
+ * A TraceEventSink receives the events of a trace in the order of the trace
+ * files: all actor creations first, then all sendings, then all processing
+ * events. The loaders feed the events either into the profiling data or into
+ * a writer for another trace format.
+ *
+ * The parsed chunks of the csv files are passed as a whole to messagesSent
+ * and messagesProcessed. Their text fields are ids of the symbol table of
+ * the chunk, so a sink can resolve each distinct actor or message type once
+ * per chunk instead of once per event. By default, the events are passed one
+ * by one to messageSent and messageProcessed.
+ *
+ * @author Stephan Rehfeld
+ */
+public interface TraceEventSink {
+
+    /**
+     * An implementation of this method should handle the creation of an actor.
+     *
+     * @param creationTime The time when the actor has been created.
+     * @param id The id (path) of the actor.
+     * @param typeName The type of the actor.
+     * @param supervisor The id (path) of the supervisor of the actor.
+     * @throws IOException
+     */
+    public void actorCreated( final long creationTime, final String id, final String typeName, final String supervisor ) throws IOException;
+
+    /**
+     * An implementation of this method should handle the sending of a message.
+     *
+     * @param sendTime The time when the message has been sent.
+     * @param sender The id (path) of the sending actor.
+     * @param receiver The id (path) of the receiving actor.
+     * @param messageType The type of the message.
+     * @param messageID The id of the message.
+     * @throws IOException
+     */
+    public void messageSent( final long sendTime, final String sender, final String receiver, final String messageType, final int messageID ) throws IOException;
+
+    /**
+     * An implementation of this method should handle the processing of a message.
+     *
+     * @param start The time when the processing started.
+     * @param end The time when the processing ended.
+     * @param messageType The type of the message.
+     * @param messageID The id of the message.
+     * @param sender The id (path) of the sending actor.
+     * @param receiver The id (path) of the receiving actor.
+     * @throws IOException
+     */
+    public void messageProcessed( final long start, final long end, final String messageType, final int messageID, final String sender, final String receiver ) throws IOException;
+
+    /**
+     * This method handles all sendings of a parsed chunk of the send data file.
+     *
+     * @param buffer The parsed chunk. Must not be null.
+     * @throws IOException
+     */
+    public default void messagesSent( final SendEventBuffer buffer ) throws IOException {
+        final SymbolTable symbols = buffer.getSymbols();
+        for( int i = 0; i < buffer.size(); ++i ) {
+            this.messageSent( buffer.getSendTime( i ), symbols.name( buffer.getSender( i ) ), symbols.name( buffer.getReceiver( i ) ), symbols.name( buffer.getMessageType( i ) ), buffer.getMessageID( i ) );
+        }
+    }
+
+    /**
+     * This method handles all processing events of a parsed chunk of the
+     * message processing data file.
+     *
+     * @param buffer The parsed chunk. Must not be null.
+     * @throws IOException
+     */
+    public default void messagesProcessed( final ProcessingEventBuffer buffer ) throws IOException {
+        final SymbolTable symbols = buffer.getSymbols();
+        for( int i = 0; i < buffer.size(); ++i ) {
+            this.messageProcessed( buffer.getStart( i ), buffer.getEnd( i ), symbols.name( buffer.getMessageType( i ) ), buffer.getMessageID( i ), symbols.name( buffer.getSender( i ) ), symbols.name( buffer.getReceiver( i ) ) );
+        }
+    }
+
+}
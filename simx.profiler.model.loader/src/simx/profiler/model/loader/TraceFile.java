@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A TraceFile is one of the files of a trace directory, either as plain text
+ * or compressed. For a file name like "senddata.csv" the variants
+ * "senddata.csv", "senddata.csv.gz" (gzip) and "senddata.csv.deflate" (raw
+ * deflate without header) are looked up, in this order.
+ *
+ * @author Stephan Rehfeld
+ */
+public class TraceFile {
+
+    /**
+     * The compression formats of a trace file.
+     */
+    public enum Compression {
+
+        /**
+         * The file is plain text.
+         */
+        NONE( "" ),
+
+        /**
+         * The file is compressed with gzip.
+         */
+        GZIP( ".gz" ),
+
+        /**
+         * The file is compressed with raw deflate, without zlib or gzip header.
+         */
+        DEFLATE( ".deflate" );
+
+        /**
+         * The suffix that is appended to the name of the plain file.
+         */
+        public final String suffix;
+
+        private Compression( final String suffix ) {
+            this.suffix = suffix;
+        }
+
+    }
+
+    /**
+     * The size of the blocks that are handed from the decompressing thread to the parser.
+     */
+    private static final int BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * The number of decompressed blocks that may be queued ahead of the parser.
+     */
+    private static final int QUEUED_BLOCKS = 16;
+
+    /**
+     * The file on the disk.
+     */
+    public final File file;
+
+    /**
+     * The compression of the file.
+     */
+    public final Compression compression;
+
+    /**
+     * This constructor creates a new trace file.
+     *
+     * @param file The file on the disk. Must not be null.
+     * @param compression The compression of the file. Must not be null.
+     */
+    public TraceFile( final File file, final Compression compression ) {
+        if( file == null ) throw new IllegalArgumentException( "The parameter 'file' must not be null!" );
+        if( compression == null ) throw new IllegalArgumentException( "The parameter 'compression' must not be null!" );
+        this.file = file;
+        this.compression = compression;
+    }
+
+    /**
+     * This method returns true if the file is compressed.
+     *
+     * @return true if the file is compressed.
+     */
+    public boolean isCompressed() {
+        return this.compression != Compression.NONE;
+    }
+
+    /**
+     * This method opens a stream that reads the decompressed content of a
+     * compressed file. The decompression runs on a separate thread and is
+     * pipelined with the consumer of the stream. Closing the stream stops the
+     * thread and closes the file.
+     *
+     * @return A stream that reads the decompressed bytes.
+     * @throws IOException
+     */
+    public InputStream openDecompressed() throws IOException {
+        final InputStream in = new BufferedInputStream( new FileInputStream( this.file ), BLOCK_SIZE );
+        try {
+            switch( this.compression ) {
+                case GZIP:
+                    return new PipedDecompressionStream( new GZIPInputStream( in, BLOCK_SIZE ), this.file.getName(), BLOCK_SIZE, QUEUED_BLOCKS );
+                case DEFLATE:
+                    return new PipedDecompressionStream( new InflaterInputStream( in, new Inflater( true ), BLOCK_SIZE ), this.file.getName(), BLOCK_SIZE, QUEUED_BLOCKS );
+                default:
+                    return in;
+            }
+        } catch( final IOException ex ) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TraceFile{" + "file=" + file + ", compression=" + compression + '}';
+    }
+
+    /**
+     * This method looks up the plain or a compressed variant of a file in a
+     * directory.
+     *
+     * @param directory The directory. Must not be null.
+     * @param name The name of the plain file, e.g. "senddata.csv". Must not be null.
+     * @return The trace file or null, if no variant exists.
+     */
+    public static TraceFile find( final File directory, final String name ) {
+        if( directory == null ) throw new IllegalArgumentException( "The parameter 'directory' must not be null!" );
+        if( name == null ) throw new IllegalArgumentException( "The parameter 'name' must not be null!" );
+        for( final Compression compression : Compression.values() ) {
+            final File file = new File( directory, name + compression.suffix );
+            if( file.isFile() ) return new TraceFile( file, compression );
+        }
+        return null;
+    }
+
+}
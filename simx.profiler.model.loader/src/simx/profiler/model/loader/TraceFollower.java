@@ -0,0 +1,271 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model.loader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import javax.swing.SwingUtilities;
+import simx.profiler.model.ProfilingData;
+
+/**
+ * A TraceFollower reads the csv files of a trace while they are still
+ * written, like "tail -f". The files are polled periodically. Only complete
+ * lines are read, a partially written last line is read by the next poll.
+ * The new lines are parsed on the thread of the follower and added to the
+ * profiling data in one batch on the event dispatch thread. After each batch
+ * the profiling data is published again, so the windows refresh at most once
+ * per poll interval.
+ *
+ * In each poll the actor creation data is read first, then the send data and
+ * then the message processing data, like when loading a complete trace. If
+ * a processing event is read in an earlier poll than the sending of its
+ * message, its time in the mailbox is not known when it is registered.
+ *
+ * @author Stephan Rehfeld
+ */
+public class TraceFollower implements Closeable {
+
+    /**
+     * The time between two polls in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 1000;
+
+    /**
+     * The maximum number of bytes that are read from one file in one poll. It
+     * bounds the time a batch blocks the event dispatch thread.
+     */
+    private static final long MAX_BATCH_SIZE = 16 * 1024 * 1024;
+
+    private static final Logger LOGGER = Logger.getLogger( TraceFollower.class.getName() );
+
+    /**
+     * The profiling data that receives the events.
+     */
+    private final ProfilingData profilingData;
+
+    /**
+     * The followed files, in the order they are read.
+     */
+    private final List< FollowedFile > files;
+
+    /**
+     * The thread that polls the files.
+     */
+    private final Thread thread;
+
+    /**
+     * True if the follower has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * This constructor creates a new follower for the plain csv files of a
+     * trace directory.
+     *
+     * @param directory The trace directory. Must not be null.
+     * @param profilingData The profiling data that receives the events. Must not be null.
+     * @throws FileNotFoundException If one of the files does not exist.
+     */
+    public TraceFollower( final File directory, final ProfilingData profilingData ) throws FileNotFoundException {
+        if( directory == null ) throw new IllegalArgumentException( "The parameter 'directory' must not be null!" );
+        if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
+        this.profilingData = profilingData;
+        this.files = new ArrayList<>();
+        this.files.add( new FollowedFile( new File( directory, ModelLoader.ACTOR_CREATION_DATA_FILE ), "actor creation data file", () -> new CreationEventBuffer( 0 ) ) );
+        this.files.add( new FollowedFile( new File( directory, ModelLoader.SEND_DATA_FILE ), "actor send data file", () -> new SendEventBuffer( 0 ) ) );
+        this.files.add( new FollowedFile( new File( directory, ModelLoader.MESSAGE_PROCESSING_DATA_FILE ), "actor message processing file", () -> new ProcessingEventBuffer( 0 ) ) );
+        this.thread = new Thread( this::follow, "Trace Follower " + directory.getName() );
+        this.thread.setDaemon( true );
+    }
+
+    /**
+     * This method reads all complete lines that are currently available and
+     * adds them to the profiling data on the calling thread. It is used to
+     * load the initial state of the trace before the profiling data is
+     * published.
+     *
+     * @throws IOException
+     * @throws DataFormatException
+     */
+    public void readAvailable() throws IOException, DataFormatException {
+        final ProfilingDataSink sink = new ProfilingDataSink( this.profilingData );
+        List< EventBuffer > buffers;
+        while( !(buffers = this.poll()).isEmpty() ) {
+            for( final EventBuffer buffer : buffers ) buffer.replay( sink );
+        }
+    }
+
+    /**
+     * This method starts to follow the files on a separate thread.
+     */
+    public void start() {
+        this.thread.start();
+    }
+
+    /**
+     * This method stops following the files.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.thread.interrupt();
+    }
+
+    private void follow() {
+        final ProfilingDataSink sink = new ProfilingDataSink( this.profilingData );
+        try {
+            while( !this.closed ) {
+                Thread.sleep( POLL_INTERVAL );
+                final List< EventBuffer > buffers = this.poll();
+                if( buffers.isEmpty() ) continue;
+                SwingUtilities.invokeAndWait( () -> {
+                    try {
+                        for( final EventBuffer buffer : buffers ) buffer.replay( sink );
+                    } catch( final IOException ex ) {
+                        throw new IllegalStateException( ex );
+                    }
+                    ProfilingData.publish( this.profilingData, false );
+                });
+            }
+        } catch( final InterruptedException ex ) {
+            // The follower has been closed.
+        } catch( final IOException | DataFormatException | InvocationTargetException ex ) {
+            LOGGER.log( Level.WARNING, "Stopped following the trace.", ex );
+        }
+    }
+
+    /**
+     * This method reads the new complete lines of all files.
+     *
+     * @return The parsed lines. Files without new lines are left out.
+     */
+    private List< EventBuffer > poll() throws IOException, DataFormatException {
+        final List< EventBuffer > buffers = new ArrayList<>();
+        for( final FollowedFile file : this.files ) {
+            final EventBuffer buffer = file.readNewLines();
+            if( buffer != null ) buffers.add( buffer );
+        }
+        return buffers;
+    }
+
+    /**
+     * The state of one followed file.
+     */
+    private static class FollowedFile {
+
+        private final File file;
+        private final String description;
+        private final Supplier< EventBuffer > bufferFactory;
+
+        /**
+         * The position of the first unread line, or -1 if the header line has not been read yet.
+         */
+        private long position;
+
+        FollowedFile( final File file, final String description, final Supplier< EventBuffer > bufferFactory ) throws FileNotFoundException {
+            if( !file.isFile() ) throw new FileNotFoundException( file + " does not exist." );
+            this.file = file;
+            this.description = description;
+            this.bufferFactory = bufferFactory;
+            this.position = -1;
+        }
+
+        /**
+         * This method parses the complete lines that have been appended since
+         * the last call.
+         *
+         * @return The parsed lines or null, if there are no new complete lines.
+         */
+        EventBuffer readNewLines() throws IOException, DataFormatException {
+            try( final FileChannel channel = FileChannel.open( this.file.toPath(), StandardOpenOption.READ ) ) {
+                final long size = channel.size();
+                if( size < this.position ) throw new IOException( this.file + " has been truncated." );
+                if( this.position == -1 ) {
+                    final long headerEnd = firstLineEnd( channel, 0, size );
+                    if( headerEnd == 0 ) return null;
+                    this.position = headerEnd;
+                }
+                final long end = lastLineEnd( channel, this.position, Math.min( size, this.position + MAX_BATCH_SIZE ) );
+                if( end == this.position ) return null;
+
+                final FileChunk chunk = new FileChunk( this.position, end );
+                final EventBuffer buffer = this.bufferFactory.get();
+                buffer.parse( new CsvTokenizer( chunk.openStream( channel ), this.description + " chunk starting at byte " + chunk.start ) );
+                this.position = end;
+                return buffer;
+            }
+        }
+
+        /**
+         * This method returns the position after the first line break within
+         * the given range of the file, or the start of the range if it does
+         * not contain a line break.
+         */
+        private static long firstLineEnd( final FileChannel channel, final long from, final long to ) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+            long start = from;
+            while( start < to ) {
+                final int read = read( channel, buffer, start, to );
+                if( read == 0 ) break;
+                for( int i = 0; i < read; ++i ) {
+                    if( buffer.get( i ) == '\n' ) return start + i + 1;
+                }
+                start += read;
+            }
+            return from;
+        }
+
+        /**
+         * This method returns the position after the last line break within
+         * the given range of the file, or the start of the range if it does
+         * not contain a line break.
+         */
+        private static long lastLineEnd( final FileChannel channel, final long from, final long to ) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+            long end = to;
+            while( end > from ) {
+                final long start = Math.max( from, end - buffer.capacity() );
+                final int read = read( channel, buffer, start, end );
+                for( int i = read - 1; i >= 0; --i ) {
+                    if( buffer.get( i ) == '\n' ) return start + i + 1;
+                }
+                end = start;
+            }
+            return from;
+        }
+
+        private static int read( final FileChannel channel, final ByteBuffer buffer, final long from, final long to ) throws IOException {
+            buffer.clear();
+            buffer.limit( (int)Math.min( buffer.capacity(), to - from ) );
+            while( buffer.hasRemaining() && channel.read( buffer, from + buffer.position() ) > 0 );
+            return buffer.position();
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The ways how the model loader reads the bytes of the profiling data files.
+ * The mode can be selected with the system property
+ * "simx.profiler.loader.readMode" (values "stream" or "mapped").
+ *
+ * @author Stephan Rehfeld
+ */
+public enum TraceReadMode {
+
+    /**
+     * The chunks are read with positional reads from the file channel.
+     */
+    STREAM {
+        @Override
+        public CsvTokenizer open( final FileChannel channel, final FileChunk chunk, final String fileDescription ) {
+            return new CsvTokenizer( chunk.openStream( channel ), fileDescription );
+        }
+    },
+
+    /**
+     * The chunks are mapped into memory with FileChannel.map and tokenized in
+     * place. Regions larger than 2 GB are mapped in several segments, each
+     * ending after a line break.
+     */
+    MAPPED {
+        @Override
+        public CsvTokenizer open( final FileChannel channel, final FileChunk chunk, final String fileDescription ) throws IOException {
+            final List< ByteBuffer > segments = new ArrayList<>();
+            long position = chunk.start;
+            while( position < chunk.end ) {
+                final long size = Math.min( MAX_SEGMENT_SIZE, chunk.end - position );
+                final MappedByteBuffer segment = channel.map( FileChannel.MapMode.READ_ONLY, position, size );
+                if( position + size < chunk.end ) {
+                    int end = (int)size;
+                    while( end > 0 && segment.get( end - 1 ) != '\n' ) --end;
+                    if( end == 0 ) throw new IOException( "The " + fileDescription + " contains a line that is longer than " + MAX_SEGMENT_SIZE + " bytes." );
+                    segment.limit( end );
+                }
+                segments.add( segment );
+                position += segment.limit();
+            }
+            return new CsvTokenizer( segments, fileDescription );
+        }
+    };
+
+    /**
+     * The name of the system property to select the read mode.
+     */
+    public static final String PROPERTY = "simx.profiler.loader.readMode";
+
+    /**
+     * The maximum size of a single mapped segment.
+     */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * An implementation of this method opens a tokenizer that reads the bytes
+     * of the chunk. Closing the tokenizer does not close the channel.
+     *
+     * @param channel The channel of the file. Must not be null.
+     * @param chunk The chunk to read. Must not be null.
+     * @param fileDescription A description of the file, used in error messages. Must not be null.
+     * @return A tokenizer that reads the bytes of the chunk.
+     * @throws IOException
+     */
+    public abstract CsvTokenizer open( final FileChannel channel, final FileChunk chunk, final String fileDescription ) throws IOException;
+
+    /**
+     * This method returns the read mode selected by the system property. If
+     * the property is not set, STREAM is returned.
+     *
+     * @return The selected read mode.
+     */
+    public static TraceReadMode fromSystemProperty() {
+        final String value = System.getProperty( PROPERTY );
+        if( value == null || value.isEmpty() ) return STREAM;
+        return TraceReadMode.valueOf( value.toUpperCase( Locale.ROOT ) );
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.zip.DataFormatException;
+import simx.profiler.model.ActorInstance;
+import simx.profiler.model.ActorType;
+import simx.profiler.model.LoadOptions;
+import simx.profiler.model.MessageProcessingEvent;
+import simx.profiler.model.MessageSentEvent;
+import simx.profiler.model.ProfilingData;
+
+/**
+ * A small benchmark that measures how many bytes the model allocates: while a
+ * trace directory is loaded, while the processed and sent messages of the
+ * busiest actor instance are scanned like the latency discovery does, and
+ * while the entity lists and statistics of the model are read repeatedly.
+ * The allocations of the current thread are read from the ThreadMXBean of
+ * HotSpot, so the chunks the loader parses on its worker threads are not
+ * included. The benchmark is part of the test sources, so it is not shipped
+ * with the module.
+ *
+ * Usage: java simx.profiler.model.loader.ModelAllocationBenchmark directory
+ *
+ * @author Stephan Rehfeld
+ */
+public class ModelAllocationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    public static void main( final String[] args ) throws IOException, DataFormatException {
+        if( args.length < 1 ) {
+            System.err.println( "Usage: ModelAllocationBenchmark directory" );
+            return;
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        final ProfilingData profilingData = new ModelLoader().load( new File( args[ 0 ] ), LoadOptions.ALL, null );
+        report( "Loading", allocated, start, profilingData.getActorInstances().size() );
+
+        ActorInstance busiest = null;
+        for( final ActorInstance actorInstance : profilingData.getActorInstances() ) {
+            if( busiest == null || actorInstance.getReceivesMessagesCount() > busiest.getReceivesMessagesCount() ) busiest = actorInstance;
+        }
+        if( busiest == null ) return;
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        long checksum = 0;
+        int count = 0;
+        for( final MessageProcessingEvent processingEvent : busiest.getMessagesProcessed() ) {
+            if( ++count > 2000 ) break;
+            for( final MessageSentEvent sentEvent : busiest.getMessagesSent() ) {
+                if( sentEvent.timestamp >= processingEvent.start ) {
+                    checksum += sentEvent.timestamp - processingEvent.start;
+                    break;
+                }
+            }
+            if( processingEvent.messageInstance.getMessageSentEventsCount() == 1 ) checksum += processingEvent.messageInstance.getFirstSendTime();
+        }
+        report( "Latency scan", allocated, start, checksum );
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        checksum = 0;
+        for( int i = 0; i < 1000; ++i ) {
+            checksum += profilingData.getActorInstances().size();
+            for( final ActorType actorType : profilingData.getActorTypes() ) checksum += actorType.sentMessagesStatistic().size();
+        }
+        report( "Getters", allocated, start, checksum );
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes( Thread.currentThread().getId() );
+    }
+
+    /**
+     * The checksum is printed, so the measured work can not be eliminated.
+     */
+    private static void report( final String name, final long allocatedBefore, final long start, final long checksum ) {
+        final double megabytes = (allocatedBytes() - allocatedBefore) / (1024.0 * 1024.0);
+        final double milliseconds = (System.nanoTime() - start) / 1000000.0;
+        System.out.println( String.format( "%-16s %8.1f MB %8.1f ms (%d)", name, megabytes, milliseconds, checksum ) );
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model.loader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+
+/**
+ * A small benchmark that compares the throughput of the ways to read the
+ * send data and message processing data files of a trace directory: the
+ * former BufferedReader and String.split approach and the tokenizer with each
+ * TraceReadMode. Only parsing is measured, the model is not built. All
+ * variants run single threaded on the same files. The benchmark is part of
+ * the test sources, so it is not shipped with the module.
+ *
+ * Usage: java simx.profiler.model.loader.TraceReadBenchmark directory [iterations]
+ *
+ * @author Stephan Rehfeld
+ */
+public class TraceReadBenchmark {
+
+    public static void main( final String[] args ) throws IOException, DataFormatException {
+        if( args.length < 1 ) {
+            System.err.println( "Usage: TraceReadBenchmark directory [iterations]" );
+            return;
+        }
+        final File sendDataFile = new File( args[ 0 ], "senddata.csv" );
+        final File messageProcessingDataFile = new File( args[ 0 ], "messageprocessingdata.csv" );
+        final int iterations = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 5;
+        final double megabytes = (sendDataFile.length() + messageProcessingDataFile.length()) / (1024.0 * 1024.0);
+
+        System.out.println( "Trace: " + args[ 0 ] + " (" + String.format( "%.1f", megabytes ) + " MB)" );
+        for( int i = 0; i < iterations; ++i ) {
+            report( "BufferedReader", megabytes, readWithBufferedReader( sendDataFile, 5 ) + readWithBufferedReader( messageProcessingDataFile, 6 ) );
+            for( final TraceReadMode mode : TraceReadMode.values() ) {
+                report( mode.toString(), megabytes, readWithTokenizer( sendDataFile, new SendEventBuffer( 0 ), mode ) + readWithTokenizer( messageProcessingDataFile, new ProcessingEventBuffer( 0 ), mode ) );
+            }
+        }
+    }
+
+    private static void report( final String name, final double megabytes, final long nanos ) {
+        final double seconds = nanos / 1000000000.0;
+        System.out.println( String.format( "%-16s %8.1f ms %8.1f MB/s", name, seconds * 1000.0, megabytes / seconds ) );
+    }
+
+    private static long readWithBufferedReader( final File file, final int idColumn ) throws IOException {
+        final long start = System.nanoTime();
+        long checksum = 0;
+        try( final BufferedReader reader = new BufferedReader( new FileReader( file ) ) ) {
+            String line = reader.readLine();
+            while( (line = reader.readLine()) != null ) {
+                final String[] elements = line.split( ";" );
+                checksum += Long.parseLong( elements[ 0 ] ) + Integer.parseInt( elements[ idColumn == 5 ? 4 : 3 ] ) + elements.length;
+            }
+        }
+        final long time = System.nanoTime() - start;
+        if( checksum == 42 ) System.out.println();
+        return time;
+    }
+
+    private static long readWithTokenizer( final File file, final EventBuffer buffer, final TraceReadMode mode ) throws IOException, DataFormatException {
+        final long start = System.nanoTime();
+        try( final FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            for( final FileChunk chunk : FileChunk.split( channel, Long.MAX_VALUE ) ) {
+                buffer.parse( mode.open( channel, chunk, file.getName() ) );
+            }
+        }
+        final long time = System.nanoTime() - start;
+        if( buffer.size() == 42 ) System.out.println();
+        return time;
+    }
+
+}
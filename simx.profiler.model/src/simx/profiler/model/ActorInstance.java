@@ -16,9 +16,8 @@
 
 package simx.profiler.model;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -48,25 +47,33 @@ public class ActorInstance {
      */
     public final String shortId;
     
+    /**
+     * The dense index of this instance, unique within the profiling data. The instances are numbered from 0 in the
+     * order of their registration.
+     */
+    public final int index;
+    
     /**
      * The timestamp of creation or first appearence of this actor.
      */
     public final long created;
     
     /**
-     * The supervisor of this actor instance. May be null is this is the unknown instance.
+     * The supervisor of this actor instance. May be null is this is the unknown instance. The supervisor is the
+     * unknown instance until the creation of the supervisor has been registered.
      */
-    public final ActorInstance supervisor;
+    private ActorInstance supervisor;
     
     /**
-     * This list contains all message sent event.
+     * The sent and processed messages of this actor instance.
      */
-    private final List< MessageSentEvent > messagesSent;
+    final EventStore events;
     
     /**
-     * The list of all processed messages and the duration of processing.
+     * The index of the events. It is created on first use and recreated if events have been registered since. The
+     * index of frozen profiling data is created by freeze and never changes.
      */
-    private final List< MessageProcessingEvent > messagesProcessed;
+    private EventIndex eventIndex;
     
     // -------------------------------------------------------------------------
     // The following data can be derived from the previous lists. They are
@@ -75,42 +82,58 @@ public class ActorInstance {
     // -------------------------------------------------------------------------
     
     /**
-     * A set that contains the type of all processed messages.
+     * Total time how long this actor actually processed messages.
      */
-    private final Set< MessageType > processedMessageTypes;
+    private long overallProcessingTime;
     
     /**
-     * Total time how long this actor actually processed messages.
+     * Statistical about sent messages. It contains the number of sent
+     * messages for each message type, by the index of the message type.
+     * 
+     * The statistics are computed from the events on first request and are
+     * kept until further events are registered to the profiling data.
      */
-    private long overallProcessingTime;
+    private DenseStatistic sentMessagesStatistic;
     
     /**
-     * Statistical about sent messages. The map contains the number of sent
-     * messages for each message type.
+     * Statistical about received and processed messages. It contains the
+     * number of received messages and the accumulated processing time for
+     * each message type, by the index of the message type. The types of all
+     * processed messages are the types with a count.
      */
-    private final Map<MessageType, Integer> sentMessagesStatistic;
+    private DenseStatistic receivedMessagesStatistic;
     
     /**
-     * Statistical about received messages. The map contains the number of
-     * received messages for each type.
+     * Statistical data about message receitiens. For each receiver of messages
+     * from this actor instance, the number of each message type is saved, by
+     * the index of the receiver and the index of the message type.
      */
-    private final Map<MessageType, Integer> receivedMessagesStatistic;
+    private SparseStatistic receiverStatistics;
     
     /**
-     * Statistical data about processed messages. The map contains the
-     * accumulated processing time for each message type.
+     * The modification count of the profiling data when the statistics have
+     * been computed, or -1 if they have not been computed yet.
      */
-    private final Map<MessageType, Long> processedMessagesStatistic;
+    private long statisticsModificationCount;
     
     /**
-     * Statistical data about message receitiens. For each receiver of messages
-     * from this actor instance, the number of each message type is saved.
+     * The number and the sum of the times the messages processed by this actor instance spent in the mailbox. Only
+     * messages that have been sent exactly once are counted.
      */
-    private final Map<ActorInstance, Map<MessageType, Integer>> receiverStatistics;
+    private int timeInMailboxCount;
+    private long timeInMailboxSum;
     
-    private int averageTimeInMailboxCounter;
+    /**
+     * The distribution of the processing times of the messages processed by this actor instance.
+     */
+    private final Histogram processingTimeHistogram;
     
-    private double averageTimeInMailbox;
+    /**
+     * The distribution of the times the messages processed by this actor instance
+     * spent in the mailbox, from sending to the start of the processing. Only
+     * messages that have been sent exactly once are counted.
+     */
+    private final Histogram timeInMailboxHistogram;
     
     /**
      * Returns the number of messages sent by this actor instance.
@@ -118,7 +141,7 @@ public class ActorInstance {
      * @return The number of messages sent by this actor instance.
      */
     public int getSentMessagesCount() {
-        return this.messagesSent.size();
+        return this.events.getSentCount();
     }
 
     /**
@@ -127,7 +150,7 @@ public class ActorInstance {
      * @return The number of messages received by this actor instance.
      */
     public int getReceivesMessagesCount() {
-        return this.messagesProcessed.size();
+        return this.events.getProcessedCount();
     }
     
     /**
@@ -140,46 +163,50 @@ public class ActorInstance {
     }
 
     /**
-     * This method returns a set that contains the types of all processed
-     * messages.
+     * This method returns a read-only set that contains the types of all
+     * processed messages.
      * 
      * @return A Set that contains all message types processed by the actor.
      */
     public Set<MessageType> getProcessedMessageTypes() {
-        return new HashSet<>( this.processedMessageTypes );
+        this.updateStatistics();
+        return Collections.unmodifiableSet( this.receivedMessagesStatistic.countsAsMap( this.type.profilingData::getMessageType ).keySet() );
     }
     
     /**
-     * This method returns a map that contains the type and quantity of each
+     * This method returns a read-only map that contains the type and quantity of each
      * message type sent by the actor.
      * 
      * @return  A map that contains the type and quantity of each message type
      *          sent by this actor.
      */
     public Map<MessageType, Integer> sentMessagesStatistic() {
-        return new HashMap<>( this.sentMessagesStatistic );
+        this.updateStatistics();
+        return this.sentMessagesStatistic.countsAsMap( this.type.profilingData::getMessageType );
     }
 
     /**
-     * This method returns a map that contains the type and quantity of each
+     * This method returns a read-only map that contains the type and quantity of each
      * message type received by the actor.
      * 
      * @return  A map that contains the type and quantity of each message type
      *          received by this actor.
      */
     public Map<MessageType, Integer> receivedMessagesStatistic() {
-        return new HashMap<>( this.receivedMessagesStatistic );
+        this.updateStatistics();
+        return this.receivedMessagesStatistic.countsAsMap( this.type.profilingData::getMessageType );
     }
 
     /**
-     * This method returns a map that contains the type and accumulated
+     * This method returns a read-only map that contains the type and accumulated
      * processing for each message type processed by the actor.
      * 
      * @return  A map that contains the type and accumulated processing time
      *          for each message type processed by this actor.
      */
     public Map<MessageType, Long> processedMessagesStatistic() {
-        return new HashMap<>( this.processedMessagesStatistic );
+        this.updateStatistics();
+        return this.receivedMessagesStatistic.sumsAsMap( this.type.profilingData::getMessageType );
     }
 
     /**
@@ -190,34 +217,147 @@ public class ActorInstance {
      *         for each receiptient.
      */
     public Map<ActorInstance, Map<MessageType, Integer>> getReceiverStatistics() {
-        return new HashMap<>( this.receiverStatistics );
+        this.updateStatistics();
+        final ProfilingData profilingData = this.type.profilingData;
+        final Map< ActorInstance, Map< MessageType, Integer > > r = new HashMap<>();
+        this.receiverStatistics.forEach( (receiver, messageType, count) -> {
+            r.computeIfAbsent( profilingData.getActorInstance( receiver ), (k) -> new HashMap<>() ).put( profilingData.getMessageType( messageType ), count );
+        });
+        return r;
     }
 
     /**
-     * This method returns all message processed events.
+     * This method returns a read-only list of all message processed events.
+     * Events that are registered later are not added to the list.
      * 
      * @return A list that contains all message processed events.
      */
     public List<MessageProcessingEvent> getMessagesProcessed() {
-        return new ArrayList<>( messagesProcessed );
+        return this.events.getProcessedEvents();
     }
     
     /**
-     * This method returns all message sent event.
+     * This method returns the message processed event at the given position.
+     * 
+     * @param i The position of the event, between 0 and getReceivesMessagesCount() - 1.
+     * @return The message processed event.
+     */
+    public MessageProcessingEvent getMessageProcessed( final int i ) {
+        return this.events.getProcessed( i );
+    }
+    
+    /**
+     * This method returns when the processing of the message at the given position started, without creating the
+     * event.
+     * 
+     * @param i The position of the event, between 0 and getReceivesMessagesCount() - 1.
+     * @return The timestamp when the processing started.
+     */
+    public long getProcessingStart( final int i ) {
+        return this.events.getProcessingStart( i );
+    }
+    
+    /**
+     * This method returns when the processing of the message at the given position ended, without creating the
+     * event.
+     * 
+     * @param i The position of the event, between 0 and getReceivesMessagesCount() - 1.
+     * @return The timestamp when the processing ended.
+     */
+    public long getProcessingEnd( final int i ) {
+        return this.events.getProcessingEnd( i );
+    }
+    
+    /**
+     * This method returns a read-only list of all message sent event. Events
+     * that are registered later are not added to the list.
      * 
      * @return  A list that contains all message sent events.
      */
     public List<MessageSentEvent> getMessagesSent() {
-        return new ArrayList<>( this.messagesSent );
+        return this.events.getSentEvents();
+    }
+    
+    /**
+     * This method returns the message sent event at the given position.
+     * 
+     * @param i The position of the event, between 0 and getSentMessagesCount() - 1.
+     * @return The message sent event.
+     */
+    public MessageSentEvent getMessageSent( final int i ) {
+        return this.events.getSent( i );
+    }
+    
+    /**
+     * This method returns when the message at the given position has been sent, without creating the event.
+     * 
+     * @param i The position of the event, between 0 and getSentMessagesCount() - 1.
+     * @return The timestamp when the message has been sent.
+     */
+    public long getSendTime( final int i ) {
+        return this.events.getSendTime( i );
+    }
+    
+    /**
+     * This method returns an index of the sent and processed messages of this actor instance, sorted by time and
+     * message type. The index is created on the first call and recreated if events have been registered since. The
+     * index of frozen profiling data has been created when it was frozen, so it can be requested by several threads.
+     * 
+     * @return The index of the events of this actor instance.
+     */
+    public EventIndex getEventIndex() {
+        // The index is published by freeze before the volatile frozen flag of the profiling data is set.
+        if( this.type.profilingData.isFrozen() ) return this.eventIndex;
+        EventIndex index = this.eventIndex;
+        if( index == null || !index.isUpToDate() ) {
+            index = new EventIndex( this );
+            this.eventIndex = index;
+        }
+        return index;
     }
     
     public double getAverageTimeInMailbox() {
-        return this.averageTimeInMailbox;
+        return this.timeInMailboxCount == 0 ? 0.0 : (double)this.timeInMailboxSum / this.timeInMailboxCount;
+    }
+    
+    /**
+     * This method returns a copy of the distribution of the processing times of the messages processed by
+     * this actor instance.
+     * 
+     * @return The distribution of the processing times in nanoseconds.
+     */
+    public Histogram getProcessingTimeHistogram() {
+        return new Histogram( this.processingTimeHistogram );
+    }
+    
+    /**
+     * This method returns a copy of the distribution of the times the messages processed by
+     * this actor instance spent in the mailbox.
+     * 
+     * @return The distribution of the times in the mailbox in nanoseconds.
+     */
+    public Histogram getTimeInMailboxHistogram() {
+        return new Histogram( this.timeInMailboxHistogram );
+    }
+    
+    /**
+     * This method returns the estimated number of bytes the events, the index of the events and the histograms of
+     * this actor instance occupy on the heap.
+     * 
+     * @return The estimated number of bytes.
+     */
+    long getHeapBytes() {
+        final EventIndex index = this.eventIndex;
+        final long indexBytes = index == null ? 0 : index.getHeapBytes();
+        return this.events.getHeapBytes() + indexBytes + this.processingTimeHistogram.getHeapBytes() + this.timeInMailboxHistogram.getHeapBytes();
     }
     
     @Override
     public int hashCode() {
         int hash = 5;
+        hash = 53 * hash + Objects.hashCode( this.type );
+        hash = 53 * hash + Objects.hashCode( this.id );
+        hash = 53 * hash + Long.hashCode( this.created );
         return hash;
     }
 
@@ -255,8 +395,9 @@ public class ActorInstance {
      * @param id The id of the actor instance. Must not be null or empty.
      * @param created The timestamp where the actor has been created.
      * @param supervisor The supervisor instance of this actor instance. May be null.
+     * @param index The dense index of this instance.
      */
-     ActorInstance( final ActorType type, final String id, final long created, final ActorInstance supervisor ) {
+     ActorInstance( final ActorType type, final String id, final long created, final ActorInstance supervisor, final int index ) {
         if( type == null ) throw new IllegalArgumentException( "The parameter 'type' must not be null!" );
         if( id == null ) throw new IllegalArgumentException( "The parameter 'id' must not be null!" );
         if( id.isEmpty() ) throw new IllegalArgumentException( "The parameter 'id' must not be an empty string!" );
@@ -265,93 +406,125 @@ public class ActorInstance {
         this.id = id;
         final String[] segments = id.split( "/" );
         this.shortId = segments[ segments.length -1 ];
+        this.index = index;
         
         this.created = created;
         
         this.supervisor = supervisor;
         
-        this.messagesSent = new ArrayList<>();
-        this.messagesProcessed = new ArrayList<>();
+        this.events = EventStore.create( this );
         this.overallProcessingTime = 0;
-        this.processedMessageTypes = new HashSet<>();
         
-        this.sentMessagesStatistic = new HashMap<>();
-        this.receivedMessagesStatistic = new HashMap<>();
-        this.processedMessagesStatistic = new HashMap<>();
-        this.receiverStatistics = new HashMap<>();
+        this.statisticsModificationCount = -1;
+        this.processingTimeHistogram = new Histogram();
+        this.timeInMailboxHistogram = new Histogram();
     }
      
      
 
+    /**
+     * This method returns the supervisor of this actor instance.
+     * 
+     * @return The supervisor of this actor instance. May be null if this is the unknown instance.
+     */
+    public ActorInstance getSupervisor() {
+        return this.supervisor;
+    }
+    
+    /**
+     * This method sets the supervisor of this actor instance. It is called if the creation of the supervisor is
+     * registered after the creation of this actor instance.
+     * 
+     * @param supervisor The supervisor. Must not be null.
+     */
+    void setSupervisor( final ActorInstance supervisor ) {
+        if( supervisor == null ) throw new IllegalArgumentException( "The parameter 'supervisor' must not be null!" );
+        this.supervisor = supervisor;
+    }
+    
     /**
      * This method registers a message sending event to this actor instance.
      * 
-     * @param messageSentEvent The message sent event. Must not be null.
+     * @param receiver The receiver of the message. Must not be null.
+     * @param timestamp The time when the message has been sent.
+     * @param messageInstance The message. Must not be null.
+     * @return The position of the event in the sent messages of this actor instance.
      */
-    void registerMessageSentEvent( final MessageSentEvent messageSentEvent ) {
-        if( messageSentEvent == null ) throw new IllegalArgumentException( "The parameter 'messageSentEvent' must not be null!" );
-        this.messagesSent.add( messageSentEvent );
-        
-        final MessageType messageType = messageSentEvent.messageInstance.type;
-        
-        this.type.messageSent( messageType );
-        this.registerCommunication( messageSentEvent.receiver, messageType );
-        if( this.sentMessagesStatistic.containsKey( messageType ) ) {
-            this.sentMessagesStatistic.put(messageType, this.sentMessagesStatistic.get( messageType ) + 1 );
-        } else {
-            this.sentMessagesStatistic.put( messageType, 1 );
-        }
+    int registerMessageSentEvent( final ActorInstance receiver, final long timestamp, final MessageInstance messageInstance ) {
+        if( receiver == null ) throw new IllegalArgumentException( "The parameter 'receiver' must not be null!" );
+        if( messageInstance == null ) throw new IllegalArgumentException( "The parameter 'messageInstance' must not be null!" );
+        final int position = this.events.addSent( timestamp, receiver, messageInstance );
+        this.type.messageSent();
+        return position;
     }
 
     /**
      * This method registers a message processing event.
      * 
-     * @param messageProcessingEvent A message processing event. Must not be null.
+     * @param sender The sender of the message. Must not be null.
+     * @param start The time when the processing started.
+     * @param end The time when the processing ended.
+     * @param messageInstance The message. Must not be null.
+     * @return The position of the event in the processed messages of this actor instance.
      */
-    void registerMessageProcessingEvent( final MessageProcessingEvent messageProcessingEvent ) {
-        if( messageProcessingEvent == null ) throw new IllegalArgumentException( "The parameter 'messageProcessingEvent' must not be null!" );
-        final long processingTime = messageProcessingEvent.end - messageProcessingEvent.start;
-        this.messagesProcessed.add( messageProcessingEvent );
+    int registerMessageProcessingEvent( final ActorInstance sender, final long start, final long end, final MessageInstance messageInstance ) {
+        if( sender == null ) throw new IllegalArgumentException( "The parameter 'sender' must not be null!" );
+        if( messageInstance == null ) throw new IllegalArgumentException( "The parameter 'messageInstance' must not be null!" );
+        final long processingTime = end - start;
+        final int position = this.events.addProcessed( start, end, sender, messageInstance );
         this.overallProcessingTime += processingTime;
-        this.type.messageProcessed( messageProcessingEvent );
-        
-        final MessageType messageType = messageProcessingEvent.messageInstance.type;
-        
-        this.processedMessageTypes.add( messageType );
-        
-        if( this.receivedMessagesStatistic.containsKey( messageType ) ) {
-            this.receivedMessagesStatistic.put( messageType, this.receivedMessagesStatistic.get( messageType ) + 1 );
-        } else {
-            this.receivedMessagesStatistic.put( messageType, 1 );
-        }
+        this.type.messageProcessed( messageInstance, start, end );
         
-        if( this.processedMessagesStatistic.containsKey( messageType ) ) {
-            this.processedMessagesStatistic.put( messageType, this.processedMessagesStatistic.get( messageType ) + processingTime );
-        } else {
-            this.processedMessagesStatistic.put( messageType, processingTime );
-        }
+        this.processingTimeHistogram.record( processingTime );
         
-        if( messageProcessingEvent.messageInstance.getMessageSentEvents().size() == 1 ) {
-            this.averageTimeInMailbox = (this.averageTimeInMailbox * this.averageTimeInMailboxCounter / (this.averageTimeInMailbox+1) ) + ((messageProcessingEvent.messageInstance.getMessageSentEvents().get( 0 ).timestamp - messageProcessingEvent.start) / (this.averageTimeInMailbox+1) );
-            this.averageTimeInMailboxCounter++;
+        if( messageInstance.getMessageSentEventsCount() == 1 ) {
+            this.timeInMailboxHistogram.record( start - messageInstance.getFirstSendTime() );
+            this.timeInMailboxSum += start - messageInstance.getFirstSendTime();
+            this.timeInMailboxCount++;
         }
+        return position;
     }
     
-    private void registerCommunication( final ActorInstance receiver, MessageType messageType ) {
-        this.type.registerCommunication( receiver.type, messageType );
-        
-        if( this.receiverStatistics.containsKey( receiver ) ) {
-            final Map< MessageType, Integer > d = this.receiverStatistics.get( receiver );
-            if( d.containsKey( messageType ) ) {
-                d.put( messageType, d.get( messageType ) + 1 );
-            } else {
-                d.put( messageType, 1 );
-            }
-        } else {
-            final Map< MessageType, Integer > d = new HashMap<>();
-            d.put( messageType, 1 );
-            this.receiverStatistics.put( receiver, d );
+    /**
+     * This method computes the statistics about sent and received messages from the events, if they have not been
+     * computed since the last change of the profiling data.
+     */
+    private void updateStatistics() {
+        // The statistics of frozen profiling data have been computed when it was frozen and never change.
+        if( this.type.profilingData.isFrozen() ) return;
+        this.computeStatistics();
+    }
+    
+    /**
+     * This method shrinks the event storage to the events, computes the statistics and creates the index of the
+     * events. It is called when the profiling data is frozen.
+     */
+    void freeze() {
+        this.events.trim();
+        this.computeStatistics();
+        this.eventIndex = new EventIndex( this );
+    }
+    
+    private synchronized void computeStatistics() {
+        final long modificationCount = this.type.profilingData.getModificationCount();
+        if( this.statisticsModificationCount == modificationCount ) return;
+        final DenseStatistic sent = new DenseStatistic();
+        final DenseStatistic received = new DenseStatistic();
+        final SparseStatistic receivers = new SparseStatistic();
+        final int sentCount = this.events.getSentCount();
+        for( int i = 0; i < sentCount; ++i ) {
+            final int messageType = this.events.getSentMessageType( i );
+            sent.add( messageType, 0 );
+            receivers.increment( this.events.getReceiver( i ), messageType );
+        }
+        final int processedCount = this.events.getProcessedCount();
+        for( int i = 0; i < processedCount; ++i ) {
+            received.add( this.events.getProcessedMessageType( i ), this.events.getProcessingEnd( i ) - this.events.getProcessingStart( i ) );
         }
+        this.sentMessagesStatistic = sent;
+        this.receivedMessagesStatistic = received;
+        this.receiverStatistics = receivers;
+        this.statisticsModificationCount = modificationCount;
     }
     
 }
@@ -18,11 +18,9 @@ package simx.profiler.model;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * ActorType reprents a data type of an acotor loaded of profiling data of an
@@ -48,9 +46,15 @@ public class ActorType {
     public final String shortTypeName;
     
     /**
-     * The set of all instances of this type.
+     * The dense index of this type, unique within the profiling data. The types are numbered from 0 in the order
+     * of their registration.
      */
-    private final Set< ActorInstance > instances;
+    public final int index;
+    
+    /**
+     * The list of all instances of this type.
+     */
+    private final List< ActorInstance > instances;
     
     /**
      * The parent profiling data.
@@ -74,39 +78,56 @@ public class ActorType {
     
     /**
      * Statistical data about how many messages of a specific type has been sent
-     * by instances of this actor type.
+     * by instances of this actor type, by the index of the message type.
+     * 
+     * The statistics are computed from the events of the instances on first
+     * request and are kept until further events are registered to the
+     * profiling data.
      */
-    private final Map<MessageType, Integer> sentMessagesStatistic;
+    private DenseStatistic sentMessagesStatistic;
     
     /**
      * Statistical data about how many message of a specific type bas been
-     * received by instances of this actor type.
+     * received by instances of this actor type and how much time all instances
+     * spent for processing them, by the index of the message type.
+     */
+    private DenseStatistic receivedMessagesStatistic;
+    
+    /**
+     * Statistical data about which messages and how many of them are sent by
+     * instances of this type to instances of another actor types, by the index
+     * of the receiving actor type and the index of the message type.
      */
-    private final Map<MessageType, Integer> receivedMessagesStatistic;
+    private SparseStatistic receiverStatistics;
     
     /**
-     * Statistical data about how much time for processing message of the given
-     * type all instances spent.
+     * The modification count of the profiling data when the statistics have
+     * been computed, or -1 if they have not been computed yet.
      */
-    private final Map<MessageType, Long> processedMessagesStatistic;
+    private long statisticsModificationCount;
     
+    private TimeWindowIndex timeWindowIndex;
+    private long timeWindowIndexModificationCount;
     
     /**
-     * Statistical data about which messages and how many of them are sent by
-     * instances of this type to instances of another actor types.
+     * The number and the sum of the times messages spent in a mailbox of
+     * actors of this type. Only messages that have been sent exactly once are
+     * counted.
      */
-    private final Map<ActorType, Map<MessageType, Integer>> receiverStatistics;
+    private int timeInMailboxCount;
+    private long timeInMailboxSum;
     
     /**
-     * An internal counter that is used during model construction to calculate
-     * the average time messages spent in a mailbox.
+     * The distribution of the processing times of the messages processed by actors of this type.
      */
-    private int averageTimeInMailboxCounter;
+    private final Histogram processingTimeHistogram;
     
     /**
-     * The average type a message spent in a mailbox of actors of this type.
+     * The distribution of the times the messages processed by actors of this type
+     * spent in the mailbox, from sending to the start of the processing. Only
+     * messages that have been sent exactly once are counted.
      */
-    private double averageTimeInMailbox;
+    private final Histogram timeInMailboxHistogram;
     
     /**
      * This method returns the number of instances of this type.
@@ -118,12 +139,12 @@ public class ActorType {
     }
     
     /**
-     * This method returns a list of all instances of this type.
+     * This method returns a read-only list of all instances of this type.
      * 
      * @return A list of all instances of this type.
      */
     public List<ActorInstance> getActorInstances() {
-        return new ArrayList<>( this.instances );
+        return new ReadOnlyList<>( this.instances::get, this.instances.size() );
     }
     
     /**
@@ -155,36 +176,39 @@ public class ActorType {
     }
      
     /**
-     * This method returns a map that contains the number of sent messages for
+     * This method returns a read-only map that contains the number of sent messages for
      * each message type.
      * 
      * @return A map that contains the number of sent messages for each message
      *         type.
      */
     public Map<MessageType, Integer> sentMessagesStatistic() {
-        return new HashMap<>( this.sentMessagesStatistic );
+        this.updateStatistics();
+        return this.sentMessagesStatistic.countsAsMap( this.profilingData::getMessageType );
     }
     
     /**
-     * This method returns a map that contains the number of received messages
+     * This method returns a read-only map that contains the number of received messages
      * for each message type.
      * 
      * @return  A map that contains the number of sent message for each message
      *          type.
      */
     public Map<MessageType, Integer> receivedMessagesStatistic() {
-        return new HashMap<>( this.receivedMessagesStatistic );
+        this.updateStatistics();
+        return this.receivedMessagesStatistic.countsAsMap( this.profilingData::getMessageType );
     }
     
     /**
-     * This method returns a map that contains the accumulated proessing time
+     * This method returns a read-only map that contains the accumulated proessing time
      * for each message type.
      * 
      * @return A map that contains the accumulated processing time for each
      *         message type.
      */
     public Map<MessageType, Long > processedMessagesStatistic() {
-        return new HashMap<>( this.processedMessagesStatistic );
+        this.updateStatistics();
+        return this.receivedMessagesStatistic.sumsAsMap( this.profilingData::getMessageType );
     }
     
     /**
@@ -195,15 +219,60 @@ public class ActorType {
      *         message type has been sent to actors of another data type.
      */
     public Map< ActorType, Map< MessageType, Integer > > getReceiverStatistics() {
-        final Map< ActorType, Map< MessageType, Integer > > r = new HashMap<>();      
-        this.receiverStatistics.entrySet().stream().forEach((e) -> {     
-            r.put( e.getKey(), new HashMap<>( e.getValue() ) );
+        this.updateStatistics();
+        final Map< ActorType, Map< MessageType, Integer > > r = new HashMap<>();
+        this.receiverStatistics.forEach( (receiverType, messageType, count) -> {
+            r.computeIfAbsent( this.profilingData.getActorType( receiverType ), (k) -> new HashMap<>() ).put( this.profilingData.getMessageType( messageType ), count );
         });
         return r;
     }
 
     public double getAverageTimeInMailbox() {
-        return this.averageTimeInMailbox;
+        return this.timeInMailboxCount == 0 ? 0.0 : (double)this.timeInMailboxSum / this.timeInMailboxCount;
+    }
+    
+    /**
+     * This method returns the index for queries about time windows over the events of the instances of this type.
+     * The index is created once and reused until further events are registered.
+     * 
+     * @return The time window index.
+     */
+    public synchronized TimeWindowIndex getTimeWindowIndex() {
+        final long modificationCount = this.profilingData.getModificationCount();
+        if( this.timeWindowIndex == null || this.timeWindowIndexModificationCount != modificationCount ) {
+            this.timeWindowIndex = new TimeWindowIndex( this.getActorInstances() );
+            this.timeWindowIndexModificationCount = modificationCount;
+        }
+        return this.timeWindowIndex;
+    }
+    
+    /**
+     * This method returns a copy of the distribution of the processing times of the messages processed by
+     * actors of this type.
+     * 
+     * @return The distribution of the processing times in nanoseconds.
+     */
+    public Histogram getProcessingTimeHistogram() {
+        return new Histogram( this.processingTimeHistogram );
+    }
+    
+    /**
+     * This method returns a copy of the distribution of the times the messages processed by
+     * actors of this type spent in the mailbox.
+     * 
+     * @return The distribution of the times in the mailbox in nanoseconds.
+     */
+    public Histogram getTimeInMailboxHistogram() {
+        return new Histogram( this.timeInMailboxHistogram );
+    }
+    
+    /**
+     * This method returns the estimated number of bytes the histograms of this actor type occupy on the heap.
+     * 
+     * @return The estimated number of bytes.
+     */
+    long getHeapBytes() {
+        return this.processingTimeHistogram.getHeapBytes() + this.timeInMailboxHistogram.getHeapBytes();
     }
     
     @Override
@@ -240,14 +309,16 @@ public class ActorType {
      * 
      * @param profilingData The parent profiling data.
      * @param rawTypeName The name of the type. Must not be null and must not be empty.
+     * @param index The dense index of the type.
      */
-    ActorType( final ProfilingData profilingData, final String rawTypeName ) {
+    ActorType( final ProfilingData profilingData, final String rawTypeName, final int index ) {
         if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
         if( rawTypeName == null ) throw new IllegalArgumentException( "The parameter 'rawTypeName' must not be null!" );
         if( rawTypeName.isEmpty() ) throw new IllegalArgumentException( "The parameter 'rawTypeName' must not be an empty string!" );
         
         this.profilingData = profilingData;
         this.rawTypeName = rawTypeName;
+        this.index = index;
         if( rawTypeName.equals( "Unknow Type" ) ) {
             this.longTypeName = rawTypeName;
             this.shortTypeName = rawTypeName;
@@ -259,28 +330,19 @@ public class ActorType {
         }
         
         
-        this.instances = new HashSet<>();  
+        this.instances = new ArrayList<>();  
         this.sentMessagesCount = 0;
         this.receivedMessagesCount = 0;
         this.overallProcessingTime = 0;
-        this.sentMessagesStatistic = new HashMap<>();
-        this.receivedMessagesStatistic = new HashMap<>();
-        this.processedMessagesStatistic = new HashMap<>();
-        this.receiverStatistics = new HashMap<>();
+        this.statisticsModificationCount = -1;
+        this.processingTimeHistogram = new Histogram();
+        this.timeInMailboxHistogram = new Histogram();
     }
     
     /**
      * Registers a message sent event to this actor type.
-     * 
-     * @param messageType The message sent event. Must not be null!
      */
-    void messageSent( final MessageType messageType ) {
-        if( messageType == null ) throw new IllegalArgumentException( "The parameter 'messageType' must not be null!" );
-        if( this.sentMessagesStatistic.containsKey( messageType ) ) {
-            this.sentMessagesStatistic.put(messageType, this.sentMessagesStatistic.get( messageType ) + 1 );
-        } else {
-            this.sentMessagesStatistic.put( messageType, 1 );
-        }
+    void messageSent() {
         this.sentMessagesCount++;
     }
     
@@ -297,18 +359,9 @@ public class ActorType {
         if( id == null ) throw new IllegalArgumentException( "The parameter 'id' must not be null!" );
         this.profilingData.registerActorCreationTimeStamp( created );
         
-        final List< ActorInstance > actorInstances = this.profilingData.getActorInstances();
-        ActorInstance supervisorInstance = this.profilingData.getUnknownActorInstance();
-        for( final ActorInstance i : actorInstances ) {
-            if( i.id.equals( supervisor ) ) {
-                supervisorInstance = i;
-                break;
-            }
-        }
-        
-        final ActorInstance instance = new ActorInstance( this, id, created, supervisorInstance );
+        final ActorInstance instance = new ActorInstance( this, id, created, this.profilingData.getUnknownActorInstance(), this.profilingData.nextActorInstanceIndex() );
         this.instances.add( instance );
-        this.profilingData.registerInstance( id, instance );
+        this.profilingData.registerInstance( id, instance, supervisor );
         return instance;
     }
     
@@ -323,67 +376,86 @@ public class ActorType {
      */ 
     ActorInstance registerInstance( final String id ) {
         if( id == null ) throw new IllegalArgumentException( "The parameter 'id' must not be null!" );
-        final ActorInstance instance = new ActorInstance( this, id, -1, null );
+        final ActorInstance instance = new ActorInstance( this, id, -1, null, this.profilingData.nextActorInstanceIndex() );
         this.instances.add( instance );
-        this.profilingData.registerInstance( id, instance );
+        this.profilingData.registerInstance( id, instance, null );
         return instance;
     }
     
     /**
-     * This method return a set that contains all instances of this type.
+     * This method return a list that contains all instances of this type.
      * 
-     * @return A set that contains all instances of this type.
+     * @return A list that contains all instances of this type.
      */
-    Set< ActorInstance> getInstances() {
-        return new HashSet<>( this.instances );
+    List< ActorInstance> getInstances() {
+        return new ArrayList<>( this.instances );
     }
     
     /**
      * This method adds a message processing event to this type.
      * 
-     * @param messageProcessingEvent The messade processing event to add.
+     * @param messageInstance The processed message. Must not be null.
+     * @param start The time when the processing started.
+     * @param end The time when the processing ended.
      */
-    void messageProcessed( final MessageProcessingEvent messageProcessingEvent ) {
+    void messageProcessed( final MessageInstance messageInstance, final long start, final long end ) {
         
-        if( messageProcessingEvent == null ) throw new IllegalArgumentException( "The parameter 'messageProcessingEvent' must not be null!" );
+        if( messageInstance == null ) throw new IllegalArgumentException( "The parameter 'messageInstance' must not be null!" );
         
-        final long processingTime = messageProcessingEvent.end - messageProcessingEvent.start;
+        final long processingTime = end - start;
         this.overallProcessingTime += processingTime;
-        final MessageType messageType = messageProcessingEvent.messageInstance.type;
-        
-        if( this.receivedMessagesStatistic.containsKey( messageType ) ) {
-            this.receivedMessagesStatistic.put( messageType, this.receivedMessagesStatistic.get( messageType ) + 1 );
-        } else {
-            this.receivedMessagesStatistic.put( messageType, 1 );
-        }
         
-        if( this.processedMessagesStatistic.containsKey( messageType ) ) {
-            this.processedMessagesStatistic.put( messageType, this.processedMessagesStatistic.get( messageType ) + processingTime );
-        } else {
-            this.processedMessagesStatistic.put( messageType, processingTime );
-        }
+        this.processingTimeHistogram.record( processingTime );
         
-        if( messageProcessingEvent.messageInstance.getMessageSentEvents().size() == 1 ) {
-            this.averageTimeInMailbox = (this.averageTimeInMailbox * this.averageTimeInMailboxCounter / (this.averageTimeInMailbox+1) ) + ((messageProcessingEvent.messageInstance.getMessageSentEvents().get( 0 ).timestamp - messageProcessingEvent.start) / (this.averageTimeInMailbox+1) );
-            this.averageTimeInMailboxCounter++;
+        if( messageInstance.getMessageSentEventsCount() == 1 ) {
+            this.timeInMailboxHistogram.record( start - messageInstance.getFirstSendTime() );
+            this.timeInMailboxSum += start - messageInstance.getFirstSendTime();
+            this.timeInMailboxCount++;
         }
         
         this.receivedMessagesCount++;
     }
     
-    void registerCommunication( final ActorType type, MessageType messageType ) {
-        if( this.receiverStatistics.containsKey( type ) ) {
-            final Map< MessageType, Integer > d = this.receiverStatistics.get( type );
-            if( d.containsKey( messageType ) ) {
-                d.put( messageType, d.get( messageType ) + 1 );
-            } else {
-                d.put( messageType, 1 );
+    /**
+     * This method computes the statistics about sent and received messages from the events of all instances, if they
+     * have not been computed since the last change of the profiling data.
+     */
+    private void updateStatistics() {
+        // The statistics of frozen profiling data have been computed when it was frozen and never change.
+        if( this.profilingData.isFrozen() ) return;
+        this.computeStatistics();
+    }
+    
+    /**
+     * This method computes the statistics. It is called when the profiling data is frozen.
+     */
+    void freeze() {
+        this.computeStatistics();
+    }
+    
+    private synchronized void computeStatistics() {
+        final long modificationCount = this.profilingData.getModificationCount();
+        if( this.statisticsModificationCount == modificationCount ) return;
+        final DenseStatistic sent = new DenseStatistic();
+        final DenseStatistic received = new DenseStatistic();
+        final SparseStatistic receivers = new SparseStatistic();
+        for( final ActorInstance instance : this.instances ) {
+            final EventStore events = instance.events;
+            final int sentCount = events.getSentCount();
+            for( int i = 0; i < sentCount; ++i ) {
+                final int messageType = events.getSentMessageType( i );
+                sent.add( messageType, 0 );
+                receivers.increment( this.profilingData.getActorInstance( events.getReceiver( i ) ).type.index, messageType );
+            }
+            final int processedCount = events.getProcessedCount();
+            for( int i = 0; i < processedCount; ++i ) {
+                received.add( events.getProcessedMessageType( i ), events.getProcessingEnd( i ) - events.getProcessingStart( i ) );
             }
-        } else {
-            final Map< MessageType, Integer > d = new HashMap<>();
-            d.put( messageType, 1 );
-            this.receiverStatistics.put( type, d );
         }
+        this.sentMessagesStatistic = sent;
+        this.receivedMessagesStatistic = received;
+        this.receiverStatistics = receivers;
+        this.statisticsModificationCount = modificationCount;
     }
 
 }
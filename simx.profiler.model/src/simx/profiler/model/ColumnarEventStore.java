@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A ColumnarEventStore keeps the events in parallel primitive arrays, one for
+ * each attribute. The message type, the message instance and the peer are
+ * stored by their dense index, so a processed message takes 28 bytes and a sent message 20 bytes.
+ * The event objects of the public API are created on access. They are equal
+ * to the objects that have been created before for the same event.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class ColumnarEventStore extends EventStore {
+    
+    private static final int INITIAL_CAPACITY = 8;
+    
+    private int sentCount;
+    private long[] sendTimes;
+    private int[] sentMessageTypes;
+    private int[] sentMessageInstances;
+    private int[] receivers;
+    
+    private int processedCount;
+    private long[] starts;
+    private long[] ends;
+    private int[] processedMessageTypes;
+    private int[] processedMessageInstances;
+    private int[] senders;
+    
+    ColumnarEventStore( final ActorInstance owner ) {
+        super( owner );
+        this.sendTimes = new long[ 0 ];
+        this.sentMessageTypes = new int[ 0 ];
+        this.sentMessageInstances = new int[ 0 ];
+        this.receivers = new int[ 0 ];
+        this.starts = new long[ 0 ];
+        this.ends = new long[ 0 ];
+        this.processedMessageTypes = new int[ 0 ];
+        this.processedMessageInstances = new int[ 0 ];
+        this.senders = new int[ 0 ];
+    }
+    
+    @Override
+    int addSent( final long timestamp, final ActorInstance receiver, final MessageInstance messageInstance ) {
+        if( this.sentCount == this.sendTimes.length ) {
+            final int capacity = grow( this.sentCount );
+            this.sendTimes = Arrays.copyOf( this.sendTimes, capacity );
+            this.sentMessageTypes = Arrays.copyOf( this.sentMessageTypes, capacity );
+            this.sentMessageInstances = Arrays.copyOf( this.sentMessageInstances, capacity );
+            this.receivers = Arrays.copyOf( this.receivers, capacity );
+        }
+        this.sendTimes[ this.sentCount ] = timestamp;
+        this.sentMessageTypes[ this.sentCount ] = messageInstance.type.index;
+        this.sentMessageInstances[ this.sentCount ] = messageInstance.index;
+        this.receivers[ this.sentCount ] = receiver.index;
+        return this.sentCount++;
+    }
+    
+    @Override
+    int addProcessed( final long start, final long end, final ActorInstance sender, final MessageInstance messageInstance ) {
+        if( this.processedCount == this.starts.length ) {
+            final int capacity = grow( this.processedCount );
+            this.starts = Arrays.copyOf( this.starts, capacity );
+            this.ends = Arrays.copyOf( this.ends, capacity );
+            this.processedMessageTypes = Arrays.copyOf( this.processedMessageTypes, capacity );
+            this.processedMessageInstances = Arrays.copyOf( this.processedMessageInstances, capacity );
+            this.senders = Arrays.copyOf( this.senders, capacity );
+        }
+        this.starts[ this.processedCount ] = start;
+        this.ends[ this.processedCount ] = end;
+        this.processedMessageTypes[ this.processedCount ] = messageInstance.type.index;
+        this.processedMessageInstances[ this.processedCount ] = messageInstance.index;
+        this.senders[ this.processedCount ] = sender.index;
+        return this.processedCount++;
+    }
+    
+    private static int grow( final int size ) {
+        return size < INITIAL_CAPACITY ? INITIAL_CAPACITY : size + (size >> 1);
+    }
+    
+    @Override
+    int getSentCount() {
+        return this.sentCount;
+    }
+    
+    @Override
+    int getProcessedCount() {
+        return this.processedCount;
+    }
+    
+    @Override
+    long getSendTime( final int position ) {
+        if( position >= this.sentCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.sentCount );
+        return this.sendTimes[ position ];
+    }
+    
+    @Override
+    long getProcessingStart( final int position ) {
+        if( position >= this.processedCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.processedCount );
+        return this.starts[ position ];
+    }
+    
+    @Override
+    long getProcessingEnd( final int position ) {
+        if( position >= this.processedCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.processedCount );
+        return this.ends[ position ];
+    }
+    
+    @Override
+    int getSentMessageType( final int position ) {
+        if( position >= this.sentCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.sentCount );
+        return this.sentMessageTypes[ position ];
+    }
+    
+    @Override
+    int getProcessedMessageType( final int position ) {
+        if( position >= this.processedCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.processedCount );
+        return this.processedMessageTypes[ position ];
+    }
+    
+    @Override
+    int getReceiver( final int position ) {
+        if( position >= this.sentCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.sentCount );
+        return this.receivers[ position ];
+    }
+    
+    @Override
+    int getSender( final int position ) {
+        if( position >= this.processedCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.processedCount );
+        return this.senders[ position ];
+    }
+    
+    @Override
+    MessageInstance getProcessedMessageInstance( final int position ) {
+        if( position >= this.processedCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.processedCount );
+        return this.owner.type.profilingData.getMessageType( this.processedMessageTypes[ position ] ).getInstance( this.processedMessageInstances[ position ] );
+    }
+    
+    @Override
+    MessageSentEvent getSent( final int position ) {
+        if( position >= this.sentCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.sentCount );
+        final ProfilingData profilingData = this.owner.type.profilingData;
+        final MessageInstance messageInstance = profilingData.getMessageType( this.sentMessageTypes[ position ] ).getInstance( this.sentMessageInstances[ position ] );
+        return new MessageSentEvent( this.owner, profilingData.getActorInstance( this.receivers[ position ] ), this.sendTimes[ position ], messageInstance );
+    }
+    
+    @Override
+    MessageProcessingEvent getProcessed( final int position ) {
+        if( position >= this.processedCount ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.processedCount );
+        final ProfilingData profilingData = this.owner.type.profilingData;
+        final MessageInstance messageInstance = profilingData.getMessageType( this.processedMessageTypes[ position ] ).getInstance( this.processedMessageInstances[ position ] );
+        return new MessageProcessingEvent( profilingData.getActorInstance( this.senders[ position ] ), this.owner, this.starts[ position ], this.ends[ position ], messageInstance );
+    }
+    
+    /**
+     * The returned list creates the event objects on access.
+     */
+    @Override
+    List< MessageSentEvent > getSentEvents() {
+        return new ReadOnlyList<>( this::getSent, this.sentCount );
+    }
+    
+    /**
+     * The returned list creates the event objects on access.
+     */
+    @Override
+    List< MessageProcessingEvent > getProcessedEvents() {
+        return new ReadOnlyList<>( this::getProcessed, this.processedCount );
+    }
+    
+    @Override
+    void trim() {
+        this.sendTimes = Arrays.copyOf( this.sendTimes, this.sentCount );
+        this.sentMessageTypes = Arrays.copyOf( this.sentMessageTypes, this.sentCount );
+        this.sentMessageInstances = Arrays.copyOf( this.sentMessageInstances, this.sentCount );
+        this.receivers = Arrays.copyOf( this.receivers, this.sentCount );
+        this.starts = Arrays.copyOf( this.starts, this.processedCount );
+        this.ends = Arrays.copyOf( this.ends, this.processedCount );
+        this.processedMessageTypes = Arrays.copyOf( this.processedMessageTypes, this.processedCount );
+        this.processedMessageInstances = Arrays.copyOf( this.processedMessageInstances, this.processedCount );
+        this.senders = Arrays.copyOf( this.senders, this.processedCount );
+    }
+    
+    @Override
+    long getHeapBytes() {
+        return HeapEstimate.array( this.sendTimes.length, 8 ) + 3 * HeapEstimate.array( this.receivers.length, 4 )
+             + 2 * HeapEstimate.array( this.starts.length, 8 ) + 3 * HeapEstimate.array( this.senders.length, 4 );
+    }
+    
+}
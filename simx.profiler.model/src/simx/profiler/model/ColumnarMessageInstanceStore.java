@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.util.Arrays;
+
+/**
+ * A ColumnarMessageInstanceStore keeps the records of the message instances in
+ * primitive arrays on the heap: the int fields of all records in one array and
+ * the times when the instances have been sent first in another one, so an
+ * instance takes 44 bytes.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class ColumnarMessageInstanceStore extends MessageInstanceStore {
+    
+    private static final int INITIAL_CAPACITY = 8;
+    
+    private int count;
+    private int[] fields;
+    private long[] firstSendTimes;
+    
+    ColumnarMessageInstanceStore() {
+        this.fields = new int[ 0 ];
+        this.firstSendTimes = new long[ 0 ];
+    }
+    
+    @Override
+    int addRecord() {
+        if( this.count == this.firstSendTimes.length ) {
+            final int capacity = this.count < INITIAL_CAPACITY ? INITIAL_CAPACITY : this.count + (this.count >> 1);
+            this.fields = Arrays.copyOf( this.fields, capacity * FIELDS );
+            this.firstSendTimes = Arrays.copyOf( this.firstSendTimes, capacity );
+        }
+        return this.count++;
+    }
+    
+    @Override
+    int size() {
+        return this.count;
+    }
+    
+    @Override
+    int getInt( final int index, final int field ) {
+        return this.fields[ index * FIELDS + field ];
+    }
+    
+    @Override
+    void putInt( final int index, final int field, final int value ) {
+        this.fields[ index * FIELDS + field ] = value;
+    }
+    
+    @Override
+    long getFirstSendTime( final int index ) {
+        return this.firstSendTimes[ index ];
+    }
+    
+    @Override
+    void putFirstSendTime( final int index, final long sendTime ) {
+        this.firstSendTimes[ index ] = sendTime;
+    }
+    
+    @Override
+    void trim() {
+        this.fields = Arrays.copyOf( this.fields, this.count * FIELDS );
+        this.firstSendTimes = Arrays.copyOf( this.firstSendTimes, this.count );
+    }
+    
+    @Override
+    long getRecordsHeapBytes() {
+        return HeapEstimate.array( this.fields.length, 4 ) + HeapEstimate.array( this.firstSendTimes.length, 8 );
+    }
+    
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * A DenseStatistic holds a count and a sum for each dense index of a model
+ * entity, e.g. the number of received messages and the accumulated processing
+ * time for each message type. The values are stored in primitive arrays that
+ * grow with the largest index, so updates do neither hash nor box.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class DenseStatistic {
+    
+    private int[] counts;
+    private long[] sums;
+    
+    DenseStatistic() {
+        this.counts = new int[ 0 ];
+        this.sums = new long[ 0 ];
+    }
+    
+    /**
+     * This method increments the count of the given index and adds the value to its sum.
+     * 
+     * @param index The index of the entity.
+     * @param value The value that is added to the sum.
+     */
+    void add( final int index, final long value ) {
+        if( index >= this.counts.length ) this.grow( index );
+        this.counts[ index ]++;
+        this.sums[ index ] += value;
+    }
+    
+    int getCount( final int index ) {
+        return index < this.counts.length ? this.counts[ index ] : 0;
+    }
+    
+    long getSum( final int index ) {
+        return index < this.sums.length ? this.sums[ index ] : 0;
+    }
+    
+    /**
+     * This method returns the number of indices that have a count.
+     * 
+     * @return The number of indices that have a count.
+     */
+    int size() {
+        int size = 0;
+        for( final int count : this.counts ) if( count > 0 ) size++;
+        return size;
+    }
+    
+    /**
+     * This method returns a read-only view of the counts of all indices that have been added as a map.
+     * 
+     * @param <K> The type of the entities.
+     * @param keys A function that returns the entity for an index.
+     * @return A map from the entities to their counts.
+     */
+    < K > Map< K, Integer > countsAsMap( final IntFunction< K > keys ) {
+        return new View<>( keys, this::getCount );
+    }
+    
+    /**
+     * This method returns a read-only view of the sums of all indices that have been added as a map.
+     * 
+     * @param <K> The type of the entities.
+     * @param keys A function that returns the entity for an index.
+     * @return A map from the entities to their sums.
+     */
+    < K > Map< K, Long > sumsAsMap( final IntFunction< K > keys ) {
+        return new View<>( keys, this::getSum );
+    }
+    
+    /**
+     * This method returns a read-only view of the counts and the averages of all indices that have been added as a
+     * map.
+     * 
+     * @param <K> The type of the entities.
+     * @param keys A function that returns the entity for an index.
+     * @return A map from the entities to their counts and average values.
+     */
+    < K > Map< K, ImmutableTupel< Integer, Double > > averagesAsMap( final IntFunction< K > keys ) {
+        return new View<>( keys, (index) -> new ImmutableTupel<>( this.counts[ index ], (double)this.sums[ index ] / this.counts[ index ] ) );
+    }
+    
+    /**
+     * This method returns the index of an entity that can be a key of the maps.
+     * 
+     * @param key The entity.
+     * @return The index of the entity, or -1 if it is not an entity with an index.
+     */
+    private static int indexOf( final Object key ) {
+        if( key instanceof MessageType ) return ((MessageType)key).index;
+        if( key instanceof ActorType ) return ((ActorType)key).index;
+        if( key instanceof ActorInstance ) return ((ActorInstance)key).index;
+        return -1;
+    }
+    
+    private void grow( final int index ) {
+        final int capacity = Math.max( index + 1, Math.max( 8, this.counts.length * 2 ) );
+        this.counts = Arrays.copyOf( this.counts, capacity );
+        this.sums = Arrays.copyOf( this.sums, capacity );
+    }
+    
+    /**
+     * A read-only map of the indices with a count. The map reflects later
+     * changes of the statistic.
+     */
+    private final class View< K, V > extends AbstractMap< K, V > {
+        
+        private final IntFunction< K > keys;
+        private final IntFunction< V > values;
+        
+        View( final IntFunction< K > keys, final IntFunction< V > values ) {
+            this.keys = keys;
+            this.values = values;
+        }
+        
+        @Override
+        public boolean containsKey( final Object key ) {
+            final int index = indexOf( key );
+            return index >= 0 && getCount( index ) > 0 && this.keys.apply( index ) == key;
+        }
+        
+        @Override
+        public V get( final Object key ) {
+            return this.containsKey( key ) ? this.values.apply( indexOf( key ) ) : null;
+        }
+        
+        @Override
+        public int size() {
+            return DenseStatistic.this.size();
+        }
+        
+        @Override
+        public Set< Map.Entry< K, V > > entrySet() {
+            return new AbstractSet< Map.Entry< K, V > >() {
+                
+                @Override
+                public Iterator< Map.Entry< K, V > > iterator() {
+                    return new Iterator< Map.Entry< K, V > >() {
+                        
+                        private final int[] counts = DenseStatistic.this.counts;
+                        private int next = this.skip( 0 );
+                        
+                        private int skip( int index ) {
+                            while( index < this.counts.length && this.counts[ index ] == 0 ) index++;
+                            return index;
+                        }
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return this.next < this.counts.length;
+                        }
+                        
+                        @Override
+                        public Map.Entry< K, V > next() {
+                            if( !this.hasNext() ) throw new NoSuchElementException();
+                            final int index = this.next;
+                            this.next = this.skip( index + 1 );
+                            return new AbstractMap.SimpleImmutableEntry<>( keys.apply( index ), values.apply( index ) );
+                        }
+                        
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    return View.this.size();
+                }
+                
+            };
+        }
+        
+    }
+    
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An EventIndex sorts the sent and processed messages of an actor instance by
+ * their timestamp, for all messages and for each message type, so the first
+ * or last message at or around a time and all messages within a time range
+ * can be found by a binary search. Sent messages are sorted by the time when
+ * they have been sent and processed messages by the time when the processing
+ * started. The index is a snapshot of the events at the time it has been
+ * created, use ActorInstance.getEventIndex to get an index that contains
+ * all events.
+ * 
+ * @author Stephan Rehfeld
+ */
+public class EventIndex {
+    
+    /**
+     * The events of the actor instance.
+     */
+    private final EventStore events;
+    
+    /**
+     * The profiling data of the actor instance.
+     */
+    private final ProfilingData profilingData;
+    
+    private final Column sent;
+    private final Column processed;
+    
+    /**
+     * This constructor creates the index of the current events of an actor instance.
+     * 
+     * @param actorInstance The actor instance. Must not be null.
+     */
+    EventIndex( final ActorInstance actorInstance ) {
+        if( actorInstance == null ) throw new IllegalArgumentException( "The parameter 'actorInstance' must not be null!" );
+        this.events = actorInstance.events;
+        this.profilingData = actorInstance.type.profilingData;
+        this.sent = new Column( this.events.getSentCount(), this.events::getSendTime, this.events::getSentMessageType );
+        this.processed = new Column( this.events.getProcessedCount(), this.events::getProcessingStart, this.events::getProcessedMessageType );
+    }
+    
+    /**
+     * This method returns true if no events have been registered since the index has been created.
+     * 
+     * @return True if the index contains all events of the actor instance.
+     */
+    boolean isUpToDate() {
+        return this.sent.count == this.events.getSentCount() && this.processed.count == this.events.getProcessedCount();
+    }
+    
+    /**
+     * This method returns the first processed message at or after the given time.
+     * 
+     * @param messageType The type of the message. If null, messages of all types are considered.
+     * @param timestamp The time.
+     * @return The first processing event that started at or after the time, or null if there is none.
+     */
+    public MessageProcessingEvent ceilingProcessed( final MessageType messageType, final long timestamp ) {
+        final int position = this.processed.ceiling( this.typeIndex( messageType ), timestamp );
+        return position == -1 ? null : this.events.getProcessed( position );
+    }
+    
+    /**
+     * This method returns the last processed message at or before the given time.
+     * 
+     * @param messageType The type of the message. If null, messages of all types are considered.
+     * @param timestamp The time.
+     * @return The last processing event that started at or before the time, or null if there is none.
+     */
+    public MessageProcessingEvent floorProcessed( final MessageType messageType, final long timestamp ) {
+        final int position = this.processed.floor( this.typeIndex( messageType ), timestamp );
+        return position == -1 ? null : this.events.getProcessed( position );
+    }
+    
+    /**
+     * This method returns all processed messages within a time range, sorted by the time when the processing started.
+     * 
+     * @param messageType The type of the messages. If null, messages of all types are returned.
+     * @param from The begin of the range, inclusive.
+     * @param to The end of the range, inclusive.
+     * @return A read-only list of the processing events that started within the range.
+     */
+    public List< MessageProcessingEvent > processedInRange( final MessageType messageType, final long from, final long to ) {
+        final Segment segment = this.processed.range( this.typeIndex( messageType ), from, to );
+        return new ReadOnlyList<>( (i) -> this.events.getProcessed( segment.position( i ) ), segment.size() );
+    }
+    
+    /**
+     * This method returns the first sent message at or after the given time.
+     * 
+     * @param messageType The type of the message. If null, messages of all types are considered.
+     * @param timestamp The time.
+     * @return The first sent event at or after the time, or null if there is none.
+     */
+    public MessageSentEvent ceilingSent( final MessageType messageType, final long timestamp ) {
+        final int position = this.sent.ceiling( this.typeIndex( messageType ), timestamp );
+        return position == -1 ? null : this.events.getSent( position );
+    }
+    
+    /**
+     * This method returns the last sent message at or before the given time.
+     * 
+     * @param messageType The type of the message. If null, messages of all types are considered.
+     * @param timestamp The time.
+     * @return The last sent event at or before the time, or null if there is none.
+     */
+    public MessageSentEvent floorSent( final MessageType messageType, final long timestamp ) {
+        final int position = this.sent.floor( this.typeIndex( messageType ), timestamp );
+        return position == -1 ? null : this.events.getSent( position );
+    }
+    
+    /**
+     * This method returns all sent messages within a time range, sorted by the time when they have been sent.
+     * 
+     * @param messageType The type of the messages. If null, messages of all types are returned.
+     * @param from The begin of the range, inclusive.
+     * @param to The end of the range, inclusive.
+     * @return A read-only list of the sent events within the range.
+     */
+    public List< MessageSentEvent > sentInRange( final MessageType messageType, final long from, final long to ) {
+        final Segment segment = this.sent.range( this.typeIndex( messageType ), from, to );
+        return new ReadOnlyList<>( (i) -> this.events.getSent( segment.position( i ) ), segment.size() );
+    }
+    
+    /**
+     * This method returns the estimated number of bytes this index occupies on the heap.
+     * 
+     * @return The estimated number of bytes.
+     */
+    long getHeapBytes() {
+        return this.sent.getHeapBytes() + this.processed.getHeapBytes();
+    }
+    
+    private int typeIndex( final MessageType messageType ) {
+        if( messageType == null ) return -1;
+        if( messageType.profilingData != this.profilingData ) throw new IllegalArgumentException( "The message type is not part of the profiling data of this actor instance!" );
+        return messageType.index;
+    }
+    
+    /**
+     * This method sorts the positions 0 to count - 1 by their time with a stable merge sort.
+     * 
+     * @param count The number of positions.
+     * @param times The time of each position.
+     * @return The positions, sorted by time.
+     */
+    static int[] sortedPositions( final int count, final IntToLongFunction times ) {
+        final long[] keys = new long[ count ];
+        int[] positions = new int[ count ];
+        int[] buffer = new int[ count ];
+        for( int i = 0; i < count; ++i ) {
+            keys[ i ] = times.applyAsLong( i );
+            positions[ i ] = i;
+        }
+        for( int width = 1; width < count; width *= 2 ) {
+            for( int low = 0; low < count; low += 2 * width ) {
+                final int middle = Math.min( low + width, count );
+                final int high = Math.min( low + 2 * width, count );
+                int left = low;
+                int right = middle;
+                for( int i = low; i < high; ++i ) {
+                    if( right >= high || (left < middle && keys[ positions[ left ] ] <= keys[ positions[ right ] ]) ) {
+                        buffer[ i ] = positions[ left++ ];
+                    } else {
+                        buffer[ i ] = positions[ right++ ];
+                    }
+                }
+            }
+            final int[] swap = positions;
+            positions = buffer;
+            buffer = swap;
+        }
+        return positions;
+    }
+    
+    /**
+     * The positions of the sent or processed messages in the event store,
+     * sorted by time and grouped by message type.
+     */
+    private static final class Column {
+        
+        private final int count;
+        private final IntToLongFunction times;
+        
+        /**
+         * All positions, sorted by time. Null if the events have been registered in the order of their time.
+         */
+        private final int[] order;
+        
+        /**
+         * The indices of the message types of the events, ascending.
+         */
+        private final int[] types;
+        
+        /**
+         * The positions of the events of types[ i ] are grouped[ offsets[ i ] ] to grouped[ offsets[ i + 1 ] - 1 ],
+         * sorted by time.
+         */
+        private final int[] offsets;
+        private final int[] grouped;
+        
+        Column( final int count, final IntToLongFunction times, final IntUnaryOperator types ) {
+            this.count = count;
+            this.times = times;
+            
+            boolean sorted = true;
+            for( int i = 1; i < count && sorted; ++i ) sorted = times.applyAsLong( i - 1 ) <= times.applyAsLong( i );
+            this.order = sorted ? null : sortedPositions( count, times );
+            
+            int maxType = -1;
+            for( int i = 0; i < count; ++i ) maxType = Math.max( maxType, types.applyAsInt( i ) );
+            final int[] counts = new int[ maxType + 1 ];
+            for( int i = 0; i < count; ++i ) counts[ types.applyAsInt( i ) ]++;
+            int distinct = 0;
+            for( final int c : counts ) if( c > 0 ) distinct++;
+            
+            this.types = new int[ distinct ];
+            this.offsets = new int[ distinct + 1 ];
+            final int[] next = new int[ maxType + 1 ];
+            distinct = 0;
+            for( int type = 0; type <= maxType; ++type ) {
+                if( counts[ type ] == 0 ) continue;
+                this.types[ distinct ] = type;
+                this.offsets[ distinct + 1 ] = this.offsets[ distinct ] + counts[ type ];
+                next[ type ] = this.offsets[ distinct ];
+                distinct++;
+            }
+            
+            // Filling the groups in the order of time keeps each group sorted.
+            this.grouped = new int[ count ];
+            for( int i = 0; i < count; ++i ) {
+                final int position = this.order == null ? i : this.order[ i ];
+                this.grouped[ next[ types.applyAsInt( position ) ]++ ] = position;
+            }
+        }
+        
+        int ceiling( final int type, final long timestamp ) {
+            final Segment segment = this.segment( type );
+            final int i = this.lowerBound( segment, timestamp );
+            return i < segment.to ? segment.at( i ) : -1;
+        }
+        
+        int floor( final int type, final long timestamp ) {
+            final Segment segment = this.segment( type );
+            final int i = this.upperBound( segment, timestamp ) - 1;
+            return i >= segment.from ? segment.at( i ) : -1;
+        }
+        
+        Segment range( final int type, final long from, final long to ) {
+            final Segment segment = this.segment( type );
+            if( from > to ) return new Segment( null, 0, 0 );
+            return new Segment( segment.positions, this.lowerBound( segment, from ), this.upperBound( segment, to ) );
+        }
+        
+        private Segment segment( final int type ) {
+            if( type == -1 ) return new Segment( this.order, 0, this.count );
+            final int i = Arrays.binarySearch( this.types, type );
+            if( i < 0 ) return new Segment( null, 0, 0 );
+            return new Segment( this.grouped, this.offsets[ i ], this.offsets[ i + 1 ] );
+        }
+        
+        /**
+         * This method returns the first index in the segment with a time at or after the timestamp.
+         */
+        private int lowerBound( final Segment segment, final long timestamp ) {
+            int low = segment.from;
+            int high = segment.to;
+            while( low < high ) {
+                final int middle = (low + high) >>> 1;
+                if( this.times.applyAsLong( segment.at( middle ) ) < timestamp ) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+        
+        /**
+         * This method returns the first index in the segment with a time after the timestamp.
+         */
+        private int upperBound( final Segment segment, final long timestamp ) {
+            int low = segment.from;
+            int high = segment.to;
+            while( low < high ) {
+                final int middle = (low + high) >>> 1;
+                if( this.times.applyAsLong( segment.at( middle ) ) <= timestamp ) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+        
+        long getHeapBytes() {
+            final long order = this.order == null ? 0 : HeapEstimate.array( this.order.length, 4 );
+            return order + HeapEstimate.array( this.types.length, 4 ) + HeapEstimate.array( this.offsets.length, 4 ) + HeapEstimate.array( this.grouped.length, 4 );
+        }
+        
+    }
+    
+    /**
+     * A range of a position array. If the array is null, the positions are the indices.
+     */
+    private static final class Segment {
+        
+        private final int[] positions;
+        private final int from;
+        private final int to;
+        
+        Segment( final int[] positions, final int from, final int to ) {
+            this.positions = positions;
+            this.from = from;
+            this.to = Math.max( from, to );
+        }
+        
+        int at( final int i ) {
+            return this.positions == null ? i : this.positions[ i ];
+        }
+        
+        int position( final int i ) {
+            return this.at( this.from + i );
+        }
+        
+        int size() {
+            return this.to - this.from;
+        }
+        
+    }
+    
+}
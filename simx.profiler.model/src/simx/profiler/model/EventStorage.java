@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+/**
+ * The ways in which the events of the actor instances can be stored.
+ * 
+ * @author Stephan Rehfeld
+ */
+public enum EventStorage {
+    
+    /**
+     * Each event is stored as a MessageSentEvent or MessageProcessingEvent object on the heap.
+     */
+    OBJECTS,
+    
+    /**
+     * The events are stored in primitive arrays on the heap. The event objects are created on access.
+     */
+    COLUMNAR,
+    
+    /**
+     * The events and the message instances are stored outside of the heap, in direct or memory-mapped buffers. The
+     * event and message instance objects are created on access. The heap holds the actors, the message types and
+     * their statistics, which do not grow with the number of messages, and the ids of the messages until the profiling
+     * data is frozen. Messages that are sent or processed more than once keep their further events on the heap.
+     */
+    OFF_HEAP;
+    
+    /**
+     * The name of the system property that selects the event storage. Its value is the name of one of the
+     * constants, e.g. "OFF_HEAP".
+     */
+    public static final String PROPERTY = "simx.profiler.model.storage";
+    
+    /**
+     * This method returns the event storage that has been selected by the system property
+     * "simx.profiler.model.storage". If it is not set, the events are stored in columns if the system property
+     * "simx.profiler.model.columnar" is true, or as objects otherwise.
+     * 
+     * @return The selected event storage.
+     */
+    public static EventStorage fromSystemProperties() {
+        final String name = System.getProperty( PROPERTY );
+        if( name != null ) return EventStorage.valueOf( name.trim().toUpperCase() );
+        return Boolean.getBoolean( "simx.profiler.model.columnar" ) ? COLUMNAR : OBJECTS;
+    }
+    
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.List;
+
+/**
+ * An EventStore holds the sent and processed messages of one actor instance in
+ * the order of their registration. The position of an event in the store is
+ * used by the message instance to reference it. The events can be stored as
+ * objects, in primitive columns or outside of the heap.
+ * 
+ * @see ObjectEventStore
+ * @see ColumnarEventStore
+ * @see OffHeapEventStore
+ * @author Stephan Rehfeld
+ */
+abstract class EventStore {
+    
+    /**
+     * The actor instance that owns the events. It is the sender of the sent
+     * messages and the receiver of the processed messages.
+     */
+    final ActorInstance owner;
+    
+    EventStore( final ActorInstance owner ) {
+        this.owner = owner;
+    }
+    
+    /**
+     * This method creates the event store for an actor instance, depending on
+     * the storage that has been chosen for the profiling data.
+     * 
+     * @param owner The actor instance. Must not be null.
+     * @return The event store.
+     */
+    static EventStore create( final ActorInstance owner ) {
+        if( owner == null ) throw new IllegalArgumentException( "The parameter 'owner' must not be null!" );
+        final ProfilingData profilingData = owner.type.profilingData;
+        switch( profilingData.getEventStorage() ) {
+            case COLUMNAR:
+                return new ColumnarEventStore( owner );
+            case OFF_HEAP:
+                return new OffHeapEventStore( owner, profilingData.offHeapArena );
+            default:
+                return new ObjectEventStore( owner );
+        }
+    }
+    
+    /**
+     * This method adds a sent message.
+     * 
+     * @param timestamp The time when the message has been sent.
+     * @param receiver The receiver of the message.
+     * @param messageInstance The message.
+     * @return The position of the event.
+     */
+    abstract int addSent( long timestamp, ActorInstance receiver, MessageInstance messageInstance );
+    
+    /**
+     * This method adds a processed message.
+     * 
+     * @param start The time when the processing started.
+     * @param end The time when the processing ended.
+     * @param sender The sender of the message.
+     * @param messageInstance The message.
+     * @return The position of the event.
+     */
+    abstract int addProcessed( long start, long end, ActorInstance sender, MessageInstance messageInstance );
+    
+    abstract int getSentCount();
+    
+    abstract int getProcessedCount();
+    
+    abstract long getSendTime( int position );
+    
+    abstract long getProcessingStart( int position );
+    
+    abstract long getProcessingEnd( int position );
+    
+    /**
+     * This method returns the index of the message type of a sent message.
+     * 
+     * @param position The position of the event.
+     * @return The index of the message type.
+     */
+    abstract int getSentMessageType( int position );
+    
+    /**
+     * This method returns the index of the message type of a processed message.
+     * 
+     * @param position The position of the event.
+     * @return The index of the message type.
+     */
+    abstract int getProcessedMessageType( int position );
+    
+    /**
+     * This method returns the index of the receiver of a sent message.
+     * 
+     * @param position The position of the event.
+     * @return The index of the receiver.
+     */
+    abstract int getReceiver( int position );
+    
+    /**
+     * This method returns the index of the sender of a processed message.
+     * 
+     * @param position The position of the event.
+     * @return The index of the sender.
+     */
+    abstract int getSender( int position );
+    
+    /**
+     * This method returns the message of a processed message.
+     * 
+     * @param position The position of the event.
+     * @return The message instance.
+     */
+    abstract MessageInstance getProcessedMessageInstance( int position );
+    
+    abstract MessageSentEvent getSent( int position );
+    
+    abstract MessageProcessingEvent getProcessed( int position );
+    
+    /**
+     * This method returns a read-only list of the sent events. Later events are not added to the list.
+     * 
+     * @return A list that contains all sent events.
+     */
+    abstract List< MessageSentEvent > getSentEvents();
+    
+    /**
+     * This method returns a read-only list of the processing events. Later events are not added to the list.
+     * 
+     * @return A list that contains all processing events.
+     */
+    abstract List< MessageProcessingEvent > getProcessedEvents();
+    
+    /**
+     * This method shrinks the storage to the stored events. It is called when the profiling data is frozen.
+     */
+    abstract void trim();
+    
+    /**
+     * This method returns the estimated number of bytes the events occupy on the heap, see {@link HeapEstimate}.
+     * 
+     * @return The estimated number of bytes.
+     */
+    abstract long getHeapBytes();
+    
+}
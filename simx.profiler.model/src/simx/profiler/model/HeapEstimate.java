@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+/**
+ * HeapEstimate approximates the number of bytes that objects and arrays occupy
+ * on the heap. It assumes a 64 bit virtual machine with compressed references:
+ * object headers have 12 bytes, array headers 16 bytes, references 4 bytes and
+ * every object is aligned to 8 bytes. The estimate is used to compare the
+ * footprint of loaded profiling data against a memory budget, it is not exact.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class HeapEstimate {
+    
+    /**
+     * The size of a reference in bytes.
+     */
+    static final int REFERENCE = 4;
+    
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    
+    private HeapEstimate() {
+    }
+    
+    /**
+     * This method returns the estimated size of an object.
+     * 
+     * @param fieldBytes The accumulated size of the fields of the object.
+     * @return The estimated size of the object in bytes.
+     */
+    static long object( final long fieldBytes ) {
+        return align( OBJECT_HEADER + fieldBytes );
+    }
+    
+    /**
+     * This method returns the estimated size of an array.
+     * 
+     * @param length The length of the array.
+     * @param elementBytes The size of an element in bytes.
+     * @return The estimated size of the array in bytes.
+     */
+    static long array( final long length, final int elementBytes ) {
+        return align( ARRAY_HEADER + length * elementBytes );
+    }
+    
+    private static long align( final long bytes ) {
+        return (bytes + 7) & ~7L;
+    }
+    
+}
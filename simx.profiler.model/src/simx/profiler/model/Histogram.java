@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A Histogram counts values, e.g. processing times in nanoseconds, in log-linear
+ * buckets. Values below 64 have a bucket each, larger values are divided into
+ * 32 buckets per power of two, so every bucket is at most 1/32 of its values
+ * wide. The memory of a histogram is bounded by the number of buckets that
+ * are needed for the largest recorded value, independent of the number of
+ * values, and two histograms can be merged by adding their buckets.
+ * 
+ * @author Stephan Rehfeld
+ */
+public class Histogram {
+    
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    
+    /**
+     * The counts of the buckets, up to the highest bucket that has been used.
+     */
+    private int[] counts;
+    
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+    
+    /**
+     * This constructor creates an empty histogram.
+     */
+    public Histogram() {
+        this.counts = new int[ 0 ];
+        this.min = Long.MAX_VALUE;
+        this.max = Long.MIN_VALUE;
+    }
+    
+    /**
+     * This constructor creates a copy of a histogram.
+     * 
+     * @param histogram The histogram to copy. Must not be null.
+     */
+    public Histogram( final Histogram histogram ) {
+        if( histogram == null ) throw new IllegalArgumentException( "The parameter 'histogram' must not be null!" );
+        this.counts = histogram.counts.clone();
+        this.count = histogram.count;
+        this.sum = histogram.sum;
+        this.min = histogram.min;
+        this.max = histogram.max;
+    }
+    
+    /**
+     * This method records a value. Negative values are recorded as 0.
+     * 
+     * @param value The value.
+     */
+    public void record( final long value ) {
+        final long v = Math.max( 0, value );
+        final int bucket = bucketIndex( v );
+        if( bucket >= this.counts.length ) this.counts = Arrays.copyOf( this.counts, (bucket / SUB_BUCKET_HALF + 1) * SUB_BUCKET_HALF );
+        this.counts[ bucket ]++;
+        this.count++;
+        this.sum += v;
+        if( v < this.min ) this.min = v;
+        if( v > this.max ) this.max = v;
+    }
+    
+    /**
+     * This method adds all values of another histogram to this histogram.
+     * 
+     * @param histogram The other histogram. Must not be null.
+     */
+    public void add( final Histogram histogram ) {
+        if( histogram == null ) throw new IllegalArgumentException( "The parameter 'histogram' must not be null!" );
+        if( histogram.counts.length > this.counts.length ) this.counts = Arrays.copyOf( this.counts, histogram.counts.length );
+        for( int i = 0; i < histogram.counts.length; ++i ) this.counts[ i ] += histogram.counts[ i ];
+        this.count += histogram.count;
+        this.sum += histogram.sum;
+        this.min = Math.min( this.min, histogram.min );
+        this.max = Math.max( this.max, histogram.max );
+    }
+    
+    /**
+     * This method returns the number of recorded values.
+     * 
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return this.count;
+    }
+    
+    /**
+     * This method returns the smallest recorded value.
+     * 
+     * @return The smallest value, or 0 if no value has been recorded.
+     */
+    public long getMin() {
+        return this.count == 0 ? 0 : this.min;
+    }
+    
+    /**
+     * This method returns the largest recorded value.
+     * 
+     * @return The largest value, or 0 if no value has been recorded.
+     */
+    public long getMax() {
+        return this.count == 0 ? 0 : this.max;
+    }
+    
+    /**
+     * This method returns the sum of the recorded values.
+     * 
+     * @return The sum of the recorded values.
+     */
+    long getSum() {
+        return this.sum;
+    }
+    
+    /**
+     * This method returns the exact mean of the recorded values.
+     * 
+     * @return The mean, or 0 if no value has been recorded.
+     */
+    public double getMean() {
+        return this.count == 0 ? 0.0 : (double)this.sum / this.count;
+    }
+    
+    /**
+     * This method returns the value below or at which the given percentage of the recorded values lie. The value is
+     * the upper bound of the bucket that contains the percentile, but not more than the largest recorded value.
+     * 
+     * @param percentile The percentile, between 0 and 100, e.g. 99.9.
+     * @return The value at the percentile, or 0 if no value has been recorded.
+     */
+    public long getValueAtPercentile( final double percentile ) {
+        if( percentile < 0.0 || percentile > 100.0 ) throw new IllegalArgumentException( "The parameter 'percentile' must be between 0 and 100!" );
+        if( this.count == 0 ) return 0;
+        final long rank = Math.max( 1, (long)Math.ceil( percentile / 100.0 * this.count ) );
+        long seen = 0;
+        for( int i = 0; i < this.counts.length; ++i ) {
+            seen += this.counts[ i ];
+            if( seen >= rank ) return Math.min( highestValue( i ), this.max );
+        }
+        return this.max;
+    }
+    
+    /**
+     * This method returns the median, the 90th, 99th and 99.9th percentile and the maximum as a text. The values
+     * are expected to be nanoseconds and are shown in milliseconds with three decimal places and a decimal point,
+     * independent of the default locale.
+     * 
+     * @return The percentiles as a text.
+     */
+    public String toPercentileString() {
+        return String.format( Locale.ROOT, "p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f ms",
+                this.getValueAtPercentile( 50.0 ) / 1000000.0,
+                this.getValueAtPercentile( 90.0 ) / 1000000.0,
+                this.getValueAtPercentile( 99.0 ) / 1000000.0,
+                this.getValueAtPercentile( 99.9 ) / 1000000.0,
+                this.getMax() / 1000000.0 );
+    }
+    
+    @Override
+    public String toString() {
+        return "Histogram{" + "count=" + this.count + ", min=" + this.getMin() + ", max=" + this.getMax() + ", mean=" + this.getMean() + '}';
+    }
+    
+    /**
+     * This method returns the estimated number of bytes this histogram occupies on the heap.
+     * 
+     * @return The estimated number of bytes.
+     */
+    long getHeapBytes() {
+        return HeapEstimate.object( HeapEstimate.REFERENCE + 32 ) + HeapEstimate.array( this.counts.length, 4 );
+    }
+    
+    private static int bucketIndex( final long value ) {
+        if( value < SUB_BUCKET_COUNT ) return (int)value;
+        final int exponent = 63 - Long.numberOfLeadingZeros( value );
+        final int shift = exponent - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + (int)(value >>> shift) - SUB_BUCKET_HALF;
+    }
+    
+    private static long highestValue( final int bucket ) {
+        if( bucket < SUB_BUCKET_COUNT ) return bucket;
+        final int exponent = SUB_BUCKET_BITS + (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF;
+        final long subBucket = SUB_BUCKET_HALF + (bucket - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF;
+        final int shift = exponent - SUB_BUCKET_BITS + 1;
+        final long highest = ((subBucket + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+    
+}
@@ -36,4 +36,77 @@ public interface IModelLoader {
      * @throws DataFormatException 
      */
     public ProfilingData load( final File path ) throws IOException, DataFormatException;
+    
+    /**
+     * An implementation of this method should load the profiling data from the given path, report the progress to
+     * the listener and stop with an InterruptedIOException if the listener cancels the loading or the thread is
+     * interrupted. The default implementation ignores the listener.
+     * 
+     * @param path The file to load.
+     * @param listener The listener for the progress. May be null.
+     * @return The loaded profile. An implementation should never return null.
+     * @throws IOException
+     * @throws DataFormatException 
+     */
+    public default ProfilingData load( final File path, final LoadProgressListener listener ) throws IOException, DataFormatException {
+        return this.load( path );
+    }
+    
+    /**
+     * An implementation of this method should load the profiling data from the given path like load( path, listener )
+     * and skip all events that are not accepted by the load options. The default implementation ignores the options
+     * and loads all events.
+     * 
+     * @param path The file to load.
+     * @param options The options that restrict the loaded events. Must not be null.
+     * @param listener The listener for the progress. May be null.
+     * @return The loaded profile. An implementation should never return null and should freeze
+     *         the profile, so it can be analyzed by several threads.
+     * @throws IOException
+     * @throws DataFormatException 
+     */
+    public default ProfilingData load( final File path, final LoadOptions options, final LoadProgressListener listener ) throws IOException, DataFormatException {
+        return this.load( path, listener );
+    }
+    
+    /**
+     * This method returns if the loader is able to load the profiling data from the given path.
+     * The default implementation checks if the directory contains the files creationdata.csv,
+     * senddata.csv and messageprocessingdata.csv.
+     * 
+     * @param path The file to check.
+     * @return true, if the loader is able to load the profiling data from the path.
+     */
+    public default boolean accepts( final File path ) {
+        return path != null && path.isDirectory()
+            && new File( path, "creationdata.csv" ).isFile()
+            && new File( path, "senddata.csv" ).isFile()
+            && new File( path, "messageprocessingdata.csv" ).isFile();
+    }
+    
+    /**
+     * This method returns if the loader is able to follow the profiling data in the given path while it grows.
+     * The default implementation returns false.
+     * 
+     * @param path The file to check.
+     * @return true, if the loader is able to follow the profiling data.
+     */
+    public default boolean canFollow( final File path ) {
+        return false;
+    }
+    
+    /**
+     * An implementation of this method should load the profiling data that is currently available in the given path
+     * and keep adding new events to it while the files grow. Updates are applied on the event dispatch thread and
+     * announced with ProfilingData.publish. The follower should be added as a resource of the profiling data, see
+     * ProfilingData.addResource, so it stops when the session of the trace is closed or unloaded.
+     * 
+     * @param path The file to follow.
+     * @return The profiling data that contains the events available so far. An implementation should never return null.
+     * @throws IOException
+     * @throws DataFormatException 
+     */
+    public default ProfilingData follow( final File path ) throws IOException, DataFormatException {
+        throw new UnsupportedOperationException( "This loader can not follow growing profiling data." );
+    }
 }
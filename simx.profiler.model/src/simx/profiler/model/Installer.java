@@ -18,52 +18,213 @@ package simx.profiler.model;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Collection;
 import java.util.zip.DataFormatException;
+import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
+import org.netbeans.api.progress.ProgressHandle;
+import org.netbeans.api.progress.ProgressHandleFactory;
 import org.openide.modules.ModuleInstall;
+import org.openide.util.Cancellable;
 import org.openide.util.Exceptions;
 import org.openide.util.Lookup;
+import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
 
 /**
- * The module installer. It loads the model on installation of the module.
+ * The module installer. It asks for the profiling data on installation of the module and loads the model in the
+ * background. The progress is shown in the status bar and the loading can be cancelled there. The windows are
+ * populated as soon as the model is published. Further traces can be opened at runtime, each trace is opened as a
+ * session of the {@link SessionManager}.
  * 
  * @author Stephan Rehfeld
  */
 public class Installer extends ModuleInstall {
     
+    /**
+     * The request processor that loads the model.
+     */
+    private static final RequestProcessor REQUEST_PROCESSOR = new RequestProcessor( "Model Loader", 1, true );
+    
+    /**
+     * The number of work units of the progress handle.
+     */
+    private static final int WORK_UNITS = 1000;
+    
     @Override
     public void restored() {
+        openTrace( true );
+    }
+    
+    /**
+     * This method asks for a trace and loads it in the background as a new session.
+     * 
+     * @param startup True if the trace is opened on startup. The application is closed if no trace is selected or
+     * the trace can not be loaded.
+     */
+    static void openTrace( final boolean startup ) {
+        final Collection< ? extends IModelLoader > loaders = Lookup.getDefault().lookupAll( IModelLoader.class );
+        if( loaders.isEmpty() ) {
+            if( startup ) System.exit( 0 );
+            return;
+        }
+        
         final JFileChooser fc = new JFileChooser();
         fc.setFileSelectionMode( JFileChooser.DIRECTORIES_ONLY );
+        final JCheckBox followCheckBox = new JCheckBox( NbBundle.getMessage( Installer.class, "Installer.followCheckBox.text" ) );
+        fc.setAccessory( followCheckBox );
         
         File targetDirectory;
+        IModelLoader loader = null;
         
         do {
             final int returnVal = fc.showOpenDialog( null );
-            if( returnVal == JFileChooser.CANCEL_OPTION ) System.exit( 0 );
+            if( returnVal != JFileChooser.APPROVE_OPTION ) {
+                if( startup ) System.exit( 0 );
+                return;
+            }
             targetDirectory = fc.getSelectedFile();
-            if( !targetDirectory.exists() || !targetDirectory.isDirectory() ) {
-                targetDirectory = null;
-                continue;
+            loader = findLoader( loaders, targetDirectory );
+        } while( loader == null );
+        
+        final boolean follow = followCheckBox.isSelected() && loader.canFollow( targetDirectory );
+        final LoadTask loadTask = new LoadTask( loader, targetDirectory, follow, null, startup );
+        loadTask.task = REQUEST_PROCESSOR.post( loadTask );
+    }
+    
+    /**
+     * This method activates a session. If the session has been unloaded, it is loaded again in the background and
+     * activated afterwards.
+     * 
+     * @param session The session. Must not be null.
+     */
+    static void activate( final Session session ) {
+        if( session.isLoaded() ) {
+            SessionManager.getDefault().activate( session );
+        } else if( session.canReload() ) {
+            final LoadTask loadTask = new LoadTask( session.getLoader(), session.getDirectory(), session.isFollowed(), session, false );
+            loadTask.task = REQUEST_PROCESSOR.post( loadTask );
+        }
+    }
+    
+    /**
+     * This method returns the first loader that accepts the given path. The loaders are ordered by their position.
+     * 
+     * @param loaders The available loaders.
+     * @param path The selected path.
+     * @return The first loader that accepts the path or null, if no loader accepts it.
+     */
+    private static IModelLoader findLoader( final Collection< ? extends IModelLoader > loaders, final File path ) {
+        for( final IModelLoader loader : loaders ) {
+            if( loader.accepts( path ) ) return loader;
+        }
+        return null;
+    }
+
+    /**
+     * A task that loads the model in the background, shows the progress and opens a session for the loaded model or
+     * loads an unloaded session again. If the loading on startup is cancelled or fails, the application is closed like
+     * it is when no profiling data is selected.
+     */
+    private static class LoadTask implements Runnable, Cancellable, LoadProgressListener {
+        
+        /**
+         * The loader.
+         */
+        private final IModelLoader loader;
+        
+        /**
+         * The selected directory.
+         */
+        private final File directory;
+        
+        /**
+         * True if the trace should be followed while it grows.
+         */
+        private final boolean follow;
+        
+        /**
+         * The session that is loaded again, or null if a new session is opened.
+         */
+        private final Session session;
+        
+        /**
+         * True if the application is closed when the loading is cancelled or fails.
+         */
+        private final boolean startup;
+        
+        /**
+         * The progress handle in the status bar.
+         */
+        private final ProgressHandle handle;
+        
+        /**
+         * The task of the request processor. Cancelling it interrupts the loading thread.
+         */
+        private volatile RequestProcessor.Task task;
+        
+        /**
+         * True if the loading has been cancelled by the user.
+         */
+        private volatile boolean cancelled;
+        
+        /**
+         * The work units that have been reported to the progress handle.
+         */
+        private int workUnits;
+        
+        public LoadTask( final IModelLoader loader, final File directory, final boolean follow, final Session session, final boolean startup ) {
+            this.loader = loader;
+            this.directory = directory;
+            this.follow = follow;
+            this.session = session;
+            this.startup = startup;
+            this.handle = ProgressHandleFactory.createHandle( NbBundle.getMessage( Installer.class, "Installer.progress.text", directory.getName() ), this );
+        }
+        
+        @Override
+        public void run() {
+            this.handle.start( WORK_UNITS );
+            try {
+                if( this.session == null ) {
+                    final ProfilingData profilingData = this.follow ? this.loader.follow( this.directory ) : this.loader.load( this.directory, LoadOptions.fromSystemProperties(), this );
+                    SessionManager.getDefault().open( this.directory, this.loader, this.follow, profilingData );
+                } else {
+                    SessionManager.getDefault().load( this.session, this );
+                }
+            } catch( final InterruptedIOException | ClosedByInterruptException ex ) {
+                if( this.startup ) System.exit( 0 );
+            } catch( final IOException | DataFormatException ex ) {
+                // Cancelling interrupts the thread, which makes other reads fail, too.
+                if( !this.cancelled ) Exceptions.printStackTrace(ex);
+                if( this.startup ) System.exit( 0 );
+            } finally {
+                this.handle.finish();
             }
-            final File[] files = targetDirectory.listFiles();
-            final List< String > fileNames = new ArrayList<>();
-            for( final File file : files ) fileNames.add( file.getName() );
-            if( !fileNames.contains( "creationdata.csv" ) || !fileNames.contains( "messageprocessingdata.csv" ) || !fileNames.contains( "senddata.csv" ) )
-                targetDirectory = null;
-        } while( targetDirectory == null );
-        
-        final IModelLoader loader = Lookup.getDefault().lookup( IModelLoader.class );
-        if( loader == null ) System.exit( 0 );
-        try {
-            final ProfilingData profilingData = loader.load( targetDirectory );
-            ProfilingData.profilingData = profilingData;            
-        } catch( final IOException | DataFormatException ex ) {
-            Exceptions.printStackTrace(ex);
-            System.exit( 0 );
         }
+        
+        @Override
+        public void progress( final LoadPhase phase, final long bytesRead, final long bytesTotal, final long eventsRead ) {
+            // The work units of a progress handle must not decrease.
+            if( bytesTotal > 0 ) this.workUnits = Math.max( this.workUnits, (int)Math.min( WORK_UNITS, bytesRead * WORK_UNITS / bytesTotal ) );
+            this.handle.progress( NbBundle.getMessage( Installer.class, "Installer.progress.phase", phase.description, eventsRead ), this.workUnits );
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+        
+        @Override
+        public boolean cancel() {
+            this.cancelled = true;
+            final RequestProcessor.Task t = this.task;
+            if( t != null ) t.cancel();
+            return true;
+        }
+        
     }
 
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+/**
+ * An IntIntMap maps int keys to non-negative int values without boxing, like
+ * the IntObjectMap. The entries are stored in an open addressing hash table
+ * with linear probing. The values are stored incremented by one, so a 0 marks
+ * an empty slot.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class IntIntMap {
+    
+    private int[] keys;
+    private int[] values;
+    private int size;
+    
+    IntIntMap() {
+        this.keys = new int[ 8 ];
+        this.values = new int[ 8 ];
+    }
+    
+    /**
+     * This method returns the value of a key.
+     * 
+     * @param key The key.
+     * @return The value, or -1 if the key is not contained.
+     */
+    int get( final int key ) {
+        return this.values[ this.slot( key ) ] - 1;
+    }
+    
+    /**
+     * This method associates a value with a key. A previous value of the key is replaced.
+     * 
+     * @param key The key.
+     * @param value The value. Must not be negative.
+     */
+    void put( final int key, final int value ) {
+        if( value < 0 ) throw new IllegalArgumentException( "The parameter 'value' must not be negative!" );
+        final int slot = this.slot( key );
+        if( this.values[ slot ] == 0 ) {
+            this.keys[ slot ] = key;
+            this.size++;
+        }
+        this.values[ slot ] = value + 1;
+        if( this.size * 2 > this.keys.length ) this.rehash();
+    }
+    
+    int size() {
+        return this.size;
+    }
+    
+    long getHeapBytes() {
+        return HeapEstimate.array( this.keys.length, 4 ) + HeapEstimate.array( this.values.length, 4 );
+    }
+    
+    private int slot( final int key ) {
+        final int mask = this.keys.length - 1;
+        int slot = mix( key ) & mask;
+        while( this.values[ slot ] != 0 && this.keys[ slot ] != key ) slot = (slot + 1) & mask;
+        return slot;
+    }
+    
+    private void rehash() {
+        final int[] oldKeys = this.keys;
+        final int[] oldValues = this.values;
+        this.keys = new int[ oldKeys.length * 2 ];
+        this.values = new int[ oldKeys.length * 2 ];
+        for( int i = 0; i < oldKeys.length; ++i ) {
+            if( oldValues[ i ] == 0 ) continue;
+            final int slot = this.slot( oldKeys[ i ] );
+            this.keys[ slot ] = oldKeys[ i ];
+            this.values[ slot ] = oldValues[ i ];
+        }
+    }
+    
+    private static int mix( final int key ) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An IntObjectMap maps int keys to objects without boxing the keys. The
+ * entries are stored in an open addressing hash table with linear probing, so
+ * a lookup or an insertion hashes the key only once. Null values can not be
+ * stored, a null value marks an empty slot.
+ * 
+ * @param <V> The type of the values.
+ * @author Stephan Rehfeld
+ */
+final class IntObjectMap< V > {
+    
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    
+    IntObjectMap() {
+        this.keys = new int[ 8 ];
+        this.values = new Object[ 8 ];
+    }
+    
+    /**
+     * This method returns the value of a key.
+     * 
+     * @param key The key.
+     * @return The value, or null if the key is not contained.
+     */
+    @SuppressWarnings( "unchecked" )
+    V get( final int key ) {
+        return (V)this.values[ this.slot( key ) ];
+    }
+    
+    /**
+     * This method associates a value with a key. A previous value of the key is replaced.
+     * 
+     * @param key The key.
+     * @param value The value. Must not be null.
+     */
+    void put( final int key, final V value ) {
+        if( value == null ) throw new IllegalArgumentException( "The parameter 'value' must not be null!" );
+        final int slot = this.slot( key );
+        if( this.values[ slot ] == null ) {
+            this.keys[ slot ] = key;
+            this.size++;
+        }
+        this.values[ slot ] = value;
+        if( this.size * 2 > this.keys.length ) this.rehash();
+    }
+    
+    int size() {
+        return this.size;
+    }
+    
+    /**
+     * This method calls the consumer for each value and its key, in no particular order.
+     * 
+     * @param consumer The consumer.
+     */
+    @SuppressWarnings( "unchecked" )
+    void forEach( final ObjIntConsumer< V > consumer ) {
+        for( int i = 0; i < this.values.length; ++i ) {
+            if( this.values[ i ] != null ) consumer.accept( (V)this.values[ i ], this.keys[ i ] );
+        }
+    }
+    
+    long getHeapBytes() {
+        return HeapEstimate.array( this.keys.length, 4 ) + HeapEstimate.array( this.values.length, HeapEstimate.REFERENCE );
+    }
+    
+    private int slot( final int key ) {
+        final int mask = this.keys.length - 1;
+        int slot = mix( key ) & mask;
+        while( this.values[ slot ] != null && this.keys[ slot ] != key ) slot = (slot + 1) & mask;
+        return slot;
+    }
+    
+    private void rehash() {
+        final int[] oldKeys = this.keys;
+        final Object[] oldValues = this.values;
+        this.keys = new int[ oldKeys.length * 2 ];
+        this.values = new Object[ oldKeys.length * 2 ];
+        for( int i = 0; i < oldKeys.length; ++i ) {
+            if( oldValues[ i ] == null ) continue;
+            final int slot = this.slot( oldKeys[ i ] );
+            this.keys[ slot ] = oldKeys[ i ];
+            this.values[ slot ] = oldValues[ i ];
+        }
+    }
+    
+    private static int mix( final int key ) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+/**
+ * LoadOptions restrict the events that are loaded to a time range and a deterministic sample of the messages. The
+ * loaders apply them while reading, so skipped events never become model objects. Actors are always loaded if they
+ * have been created before the end of the time range.
+ * 
+ * A message is sampled by a hash of its message id, so the sending and the processing of a message are either both
+ * loaded or both skipped.
+ * 
+ * @author Stephan Rehfeld
+ */
+public class LoadOptions {
+    
+    /**
+     * The name of the system property for the beginning of the time range.
+     */
+    public static final String FROM_PROPERTY = "simx.profiler.loader.from";
+    
+    /**
+     * The name of the system property for the end of the time range.
+     */
+    public static final String TO_PROPERTY = "simx.profiler.loader.to";
+    
+    /**
+     * The name of the system property for the percentage of the sampled messages.
+     */
+    public static final String SAMPLE_PERCENT_PROPERTY = "simx.profiler.loader.samplePercent";
+    
+    /**
+     * Options that load all events.
+     */
+    public static final LoadOptions ALL = new LoadOptions( Long.MIN_VALUE, Long.MAX_VALUE, 100 );
+    
+    /**
+     * The beginning of the time range, inclusive.
+     */
+    public final long from;
+    
+    /**
+     * The end of the time range, inclusive.
+     */
+    public final long to;
+    
+    /**
+     * The percentage of the messages that are loaded.
+     */
+    public final int samplePercent;
+    
+    /**
+     * This constructor creates new load options.
+     * 
+     * @param from The beginning of the time range, inclusive.
+     * @param to The end of the time range, inclusive. Must not be smaller than from.
+     * @param samplePercent The percentage of the messages that are loaded. Must be between 1 and 100.
+     */
+    public LoadOptions( final long from, final long to, final int samplePercent ) {
+        if( to < from ) throw new IllegalArgumentException( "The parameter 'to' must not be smaller than 'from'!" );
+        if( samplePercent < 1 || samplePercent > 100 ) throw new IllegalArgumentException( "The parameter 'samplePercent' must be between 1 and 100!" );
+        this.from = from;
+        this.to = to;
+        this.samplePercent = samplePercent;
+    }
+    
+    /**
+     * This method returns true if these options load all events.
+     * 
+     * @return true, if no event is skipped.
+     */
+    public boolean isAll() {
+        return this.from == Long.MIN_VALUE && this.to == Long.MAX_VALUE && this.samplePercent == 100;
+    }
+    
+    /**
+     * This method returns true if an actor that has been created at the given time is loaded.
+     * 
+     * @param creationTime The time when the actor has been created.
+     * @return true, if the actor is loaded.
+     */
+    public boolean acceptsActorCreation( final long creationTime ) {
+        return creationTime <= this.to;
+    }
+    
+    /**
+     * This method returns true if the given point in time is within the time range.
+     * 
+     * @param timestamp The point in time.
+     * @return true, if the point in time is within the time range.
+     */
+    public boolean acceptsTime( final long timestamp ) {
+        return timestamp >= this.from && timestamp <= this.to;
+    }
+    
+    /**
+     * This method returns true if the given interval overlaps the time range.
+     * 
+     * @param start The beginning of the interval.
+     * @param end The end of the interval.
+     * @return true, if the interval overlaps the time range.
+     */
+    public boolean acceptsInterval( final long start, final long end ) {
+        return start <= this.to && end >= this.from;
+    }
+    
+    /**
+     * This method returns true if the message with the given id is part of the sample.
+     * 
+     * @param messageID The id of the message.
+     * @return true, if the message is part of the sample.
+     */
+    public boolean acceptsMessage( final int messageID ) {
+        if( this.samplePercent == 100 ) return true;
+        int hash = messageID * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % 100 < this.samplePercent;
+    }
+    
+    /**
+     * This method creates the load options from the system properties "simx.profiler.loader.from",
+     * "simx.profiler.loader.to" and "simx.profiler.loader.samplePercent". Missing properties do not restrict the
+     * loaded events.
+     * 
+     * @return The load options.
+     */
+    public static LoadOptions fromSystemProperties() {
+        final long from = Long.getLong( FROM_PROPERTY, Long.MIN_VALUE );
+        final long to = Long.getLong( TO_PROPERTY, Long.MAX_VALUE );
+        final int samplePercent = Integer.getInteger( SAMPLE_PERCENT_PROPERTY, 100 );
+        return new LoadOptions( from, to, samplePercent );
+    }
+
+    @Override
+    public String toString() {
+        return "LoadOptions{" + "from=" + from + ", to=" + to + ", samplePercent=" + samplePercent + '}';
+    }
+    
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+/**
+ * The phases of loading profiling data.
+ * 
+ * @author Stephan Rehfeld
+ */
+public enum LoadPhase {
+    
+    /**
+     * The actor creation data is read.
+     */
+    ACTOR_CREATION_DATA( "Reading actor creation data" ),
+    
+    /**
+     * The send data is read.
+     */
+    SEND_DATA( "Reading send data" ),
+    
+    /**
+     * The message processing data is read.
+     */
+    MESSAGE_PROCESSING_DATA( "Reading message processing data" ),
+    
+    /**
+     * A binary trace or a cached trace is read.
+     */
+    BINARY_TRACE( "Reading binary trace" );
+    
+    /**
+     * A human readable description of the phase.
+     */
+    public final String description;
+    
+    private LoadPhase( final String description ) {
+        this.description = description;
+    }
+    
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+/**
+ * A listener that is informed about the progress of loading profiling data and that can cancel the loading.
+ * 
+ * @author Stephan Rehfeld
+ */
+public interface LoadProgressListener {
+    
+    /**
+     * This method is called by the loader from time to time while the profiling data is loaded. It may be called from
+     * any thread.
+     * 
+     * @param phase The current phase.
+     * @param bytesRead The number of bytes of all files that have been read so far.
+     * @param bytesTotal The number of bytes of all files that are going to be read.
+     * @param eventsRead The number of events that have been read so far.
+     */
+    public void progress( final LoadPhase phase, final long bytesRead, final long bytesTotal, final long eventsRead );
+    
+    /**
+     * This method is polled by the loader. If it returns true, the loader stops and throws an InterruptedIOException.
+     * 
+     * @return true, if loading should be cancelled.
+     */
+    public boolean isCancelled();
+    
+}
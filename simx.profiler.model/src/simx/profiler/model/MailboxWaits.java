@@ -0,0 +1,342 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * The MailboxWaits are the times the processed messages of a profile spent in
+ * a mailbox, from sending to the start of the processing. Each processing is
+ * joined with the sending of its message by the message id, and only messages
+ * that have been sent exactly once are counted. The waits are stored in
+ * primitive columns in the order of the processing starts, together with the
+ * receiver, the sender and the message type, and grouped by receiver and by
+ * message type, so the exact average, the distribution and the time series
+ * of the waits can be computed for a receiver, an edge from a sender to a
+ * receiver or a message type without scanning all messages.
+ * 
+ * Negative waits, which are caused by clocks that are not synchronized, are
+ * stored as 0, so the averages, the distributions and the time series agree
+ * with each other and with the histograms of the model. The running averages
+ * of the actor instances and types include negative waits as they are.
+ * 
+ * @author Stephan Rehfeld
+ */
+public class MailboxWaits {
+    
+    /**
+     * The profiling data.
+     */
+    private final ProfilingData profilingData;
+    
+    /**
+     * The starts of the processings, sorted, and the time each message waited in the mailbox.
+     */
+    private final long[] starts;
+    private final long[] waits;
+    
+    /**
+     * The indices of the receiving and the sending actor instance and of the message type of each wait.
+     */
+    private final int[] receivers;
+    private final int[] senders;
+    private final int[] messageTypes;
+    
+    /**
+     * The waits of receiver i are at the positions byReceiver[ receiverStart[ i ] ] to
+     * byReceiver[ receiverStart[ i + 1 ] - 1 ], in the order of their start. The waits of the message types are
+     * grouped the same way.
+     */
+    private final int[] receiverStart;
+    private final int[] byReceiver;
+    private final int[] messageTypeStart;
+    private final int[] byMessageType;
+    
+    /**
+     * This constructor joins the processings of all actor instances of the given profiling data with the sendings
+     * of their messages.
+     * 
+     * @param profilingData The profiling data. Must not be null.
+     */
+    MailboxWaits( final ProfilingData profilingData ) {
+        if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
+        this.profilingData = profilingData;
+        final int instancesCount = profilingData.getActorInstancesCount();
+        int count = 0;
+        for( int i = 0; i < instancesCount; ++i ) {
+            final EventStore events = profilingData.getActorInstance( i ).events;
+            for( int j = 0; j < events.getProcessedCount(); ++j ) {
+                if( events.getProcessedMessageInstance( j ).getMessageSentEventsCount() == 1 ) count++;
+            }
+        }
+        
+        final long[] unsortedStarts = new long[ count ];
+        final long[] unsortedWaits = new long[ count ];
+        final int[] unsortedReceivers = new int[ count ];
+        final int[] unsortedSenders = new int[ count ];
+        final int[] unsortedMessageTypes = new int[ count ];
+        int position = 0;
+        for( int i = 0; i < instancesCount; ++i ) {
+            final EventStore events = profilingData.getActorInstance( i ).events;
+            for( int j = 0; j < events.getProcessedCount(); ++j ) {
+                final MessageInstance messageInstance = events.getProcessedMessageInstance( j );
+                if( messageInstance.getMessageSentEventsCount() != 1 ) continue;
+                unsortedStarts[ position ] = events.getProcessingStart( j );
+                unsortedWaits[ position ] = Math.max( 0, unsortedStarts[ position ] - messageInstance.getFirstSendTime() );
+                unsortedReceivers[ position ] = i;
+                unsortedSenders[ position ] = events.getSender( j );
+                unsortedMessageTypes[ position ] = events.getProcessedMessageType( j );
+                position++;
+            }
+        }
+        
+        final int[] order = EventIndex.sortedPositions( count, (i) -> unsortedStarts[ i ] );
+        this.starts = new long[ count ];
+        this.waits = new long[ count ];
+        this.receivers = new int[ count ];
+        this.senders = new int[ count ];
+        this.messageTypes = new int[ count ];
+        for( int i = 0; i < count; ++i ) {
+            final int unsorted = order[ i ];
+            this.starts[ i ] = unsortedStarts[ unsorted ];
+            this.waits[ i ] = unsortedWaits[ unsorted ];
+            this.receivers[ i ] = unsortedReceivers[ unsorted ];
+            this.senders[ i ] = unsortedSenders[ unsorted ];
+            this.messageTypes[ i ] = unsortedMessageTypes[ unsorted ];
+        }
+        
+        this.receiverStart = new int[ instancesCount + 1 ];
+        this.byReceiver = group( this.receivers, this.receiverStart );
+        this.messageTypeStart = new int[ profilingData.getMessageTypesCount() + 1 ];
+        this.byMessageType = group( this.messageTypes, this.messageTypeStart );
+    }
+    
+    /**
+     * This method returns the number of waits, i.e. the number of processed messages that have been sent exactly
+     * once.
+     * 
+     * @return The number of waits.
+     */
+    public int size() {
+        return this.starts.length;
+    }
+    
+    /**
+     * This method returns the start of the processing of a message.
+     * 
+     * @param position The position of the wait, between 0 and size() - 1, in the order of the processing starts.
+     * @return The start of the processing.
+     */
+    public long getStart( final int position ) {
+        return this.starts[ position ];
+    }
+    
+    /**
+     * This method returns the time a message waited in the mailbox.
+     * 
+     * @param position The position of the wait, between 0 and size() - 1, in the order of the processing starts.
+     * @return The time from sending to the start of the processing, or 0 if it is negative.
+     */
+    public long getWait( final int position ) {
+        return this.waits[ position ];
+    }
+    
+    public ActorInstance getReceiver( final int position ) {
+        return this.profilingData.getActorInstance( this.receivers[ position ] );
+    }
+    
+    public ActorInstance getSender( final int position ) {
+        return this.profilingData.getActorInstance( this.senders[ position ] );
+    }
+    
+    public MessageType getMessageType( final int position ) {
+        return this.profilingData.getMessageType( this.messageTypes[ position ] );
+    }
+    
+    /**
+     * This method returns the number of waits of the messages that match the given sender, receiver and message
+     * type.
+     * 
+     * @param sender The sender of the messages, or null for all senders.
+     * @param receiver The receiver of the messages, or null for all receivers.
+     * @param messageType The type of the messages, or null for all types.
+     * @return The number of waits.
+     */
+    public int getCount( final ActorInstance sender, final ActorInstance receiver, final MessageType messageType ) {
+        final int[] count = new int[ 1 ];
+        this.forEach( sender, receiver, messageType, Long.MIN_VALUE, Long.MAX_VALUE, (position) -> count[ 0 ]++ );
+        return count[ 0 ];
+    }
+    
+    /**
+     * This method returns the exact average time in the mailbox of the messages that match the given sender,
+     * receiver and message type.
+     * 
+     * @param sender The sender of the messages, or null for all senders.
+     * @param receiver The receiver of the messages, or null for all receivers.
+     * @param messageType The type of the messages, or null for all types.
+     * @return The average time in the mailbox, or 0 if no message matches.
+     */
+    public double getAverage( final ActorInstance sender, final ActorInstance receiver, final MessageType messageType ) {
+        final long[] sumAndCount = new long[ 2 ];
+        this.forEach( sender, receiver, messageType, Long.MIN_VALUE, Long.MAX_VALUE, (position) -> {
+            sumAndCount[ 0 ] += this.waits[ position ];
+            sumAndCount[ 1 ]++;
+        } );
+        return sumAndCount[ 1 ] == 0 ? 0.0 : (double)sumAndCount[ 0 ] / sumAndCount[ 1 ];
+    }
+    
+    /**
+     * This method returns the distribution of the times in the mailbox of the messages that match the given sender,
+     * receiver and message type.
+     * 
+     * @param sender The sender of the messages, or null for all senders.
+     * @param receiver The receiver of the messages, or null for all receivers.
+     * @param messageType The type of the messages, or null for all types.
+     * @return The distribution of the times in the mailbox in nanoseconds.
+     */
+    public Histogram getHistogram( final ActorInstance sender, final ActorInstance receiver, final MessageType messageType ) {
+        final Histogram histogram = new Histogram();
+        this.forEach( sender, receiver, messageType, Long.MIN_VALUE, Long.MAX_VALUE, (position) -> histogram.record( this.waits[ position ] ) );
+        return histogram;
+    }
+    
+    /**
+     * This method returns the distributions of the times in the mailbox of the messages that match the given
+     * receiver and message type for each of their senders.
+     * 
+     * @param receiver The receiver of the messages, or null for all receivers.
+     * @param messageType The type of the messages, or null for all types.
+     * @return The distribution of the times in the mailbox in nanoseconds of each sender.
+     */
+    public Map< ActorInstance, Histogram > getHistogramsBySender( final ActorInstance receiver, final MessageType messageType ) {
+        final IntObjectMap< Histogram > histograms = new IntObjectMap<>();
+        this.forEach( null, receiver, messageType, Long.MIN_VALUE, Long.MAX_VALUE, (position) -> {
+            Histogram histogram = histograms.get( this.senders[ position ] );
+            if( histogram == null ) {
+                histogram = new Histogram();
+                histograms.put( this.senders[ position ], histogram );
+            }
+            histogram.record( this.waits[ position ] );
+        } );
+        final Map< ActorInstance, Histogram > bySender = new HashMap<>();
+        histograms.forEach( (histogram, sender) -> bySender.put( this.profilingData.getActorInstance( sender ), histogram ) );
+        return bySender;
+    }
+    
+    /**
+     * This method divides the time window [from, to] into buckets of the same length and returns the exact average
+     * time in the mailbox of the messages that match the given sender, receiver and message type and whose
+     * processing started in each bucket.
+     * 
+     * @param sender The sender of the messages, or null for all senders.
+     * @param receiver The receiver of the messages, or null for all receivers.
+     * @param messageType The type of the messages, or null for all types.
+     * @param from The beginning of the time window, inclusive.
+     * @param to The end of the time window, inclusive. Must not be before from.
+     * @param buckets The number of buckets. Must be positive.
+     * @return The average time in the mailbox of each bucket, or 0 for buckets without a matching message.
+     */
+    public double[] getAverageTimeSeries( final ActorInstance sender, final ActorInstance receiver, final MessageType messageType, final long from, final long to, final int buckets ) {
+        if( to < from ) throw new IllegalArgumentException( "The parameter 'to' must not be before 'from'!" );
+        if( buckets < 1 ) throw new IllegalArgumentException( "The parameter 'buckets' must be positive!" );
+        final long length = to - from + 1;
+        final long[] sums = new long[ buckets ];
+        final int[] counts = new int[ buckets ];
+        this.forEach( sender, receiver, messageType, from, to, (position) -> {
+            final int bucket = (int)Math.min( buckets - 1, (double)(this.starts[ position ] - from) * buckets / length );
+            sums[ bucket ] += this.waits[ position ];
+            counts[ bucket ]++;
+        } );
+        final double[] averages = new double[ buckets ];
+        for( int i = 0; i < buckets; ++i ) averages[ i ] = counts[ i ] == 0 ? 0.0 : (double)sums[ i ] / counts[ i ];
+        return averages;
+    }
+    
+    /**
+     * This method passes the positions of the waits that match the given sender, receiver and message type and
+     * whose processing started in [from, to] to the action, in the order of their start. The smallest group of the
+     * receiver or the message type is scanned.
+     */
+    private void forEach( final ActorInstance sender, final ActorInstance receiver, final MessageType messageType, final long from, final long to, final IntConsumer action ) {
+        if( receiver != null && receiver.index >= this.receiverStart.length - 1 ) return;
+        if( messageType != null && messageType.index >= this.messageTypeStart.length - 1 ) return;
+        final int[] positions;
+        int first;
+        int last;
+        if( receiver != null && (messageType == null || groupSize( this.receiverStart, receiver.index ) <= groupSize( this.messageTypeStart, messageType.index )) ) {
+            positions = this.byReceiver;
+            first = this.receiverStart[ receiver.index ];
+            last = this.receiverStart[ receiver.index + 1 ];
+        } else if( messageType != null ) {
+            positions = this.byMessageType;
+            first = this.messageTypeStart[ messageType.index ];
+            last = this.messageTypeStart[ messageType.index + 1 ];
+        } else {
+            positions = null;
+            first = 0;
+            last = this.starts.length;
+        }
+        first = this.lowerBound( positions, first, last, from );
+        for( int i = first; i < last; ++i ) {
+            final int position = positions == null ? i : positions[ i ];
+            if( this.starts[ position ] > to ) return;
+            if( sender != null && this.senders[ position ] != sender.index ) continue;
+            if( receiver != null && this.receivers[ position ] != receiver.index ) continue;
+            if( messageType != null && this.messageTypes[ position ] != messageType.index ) continue;
+            action.accept( position );
+        }
+    }
+    
+    /**
+     * This method returns the first index between first and last whose wait started at or after the given time.
+     * The positions are the identity if they are null.
+     */
+    private int lowerBound( final int[] positions, final int first, final int last, final long time ) {
+        int low = first;
+        int high = last;
+        while( low < high ) {
+            final int middle = (low + high) >>> 1;
+            if( this.starts[ positions == null ? middle : positions[ middle ] ] < time ) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private static int groupSize( final int[] groupStart, final int group ) {
+        return groupStart[ group + 1 ] - groupStart[ group ];
+    }
+    
+    /**
+     * This method groups the positions by the given keys. The positions of key k are stored from groupStart[ k ] to
+     * groupStart[ k + 1 ] - 1 of the returned array, in ascending order.
+     */
+    private static int[] group( final int[] keys, final int[] groupStart ) {
+        for( final int key : keys ) groupStart[ key + 1 ]++;
+        for( int i = 1; i < groupStart.length; ++i ) groupStart[ i ] += groupStart[ i - 1 ];
+        final int[] next = groupStart.clone();
+        final int[] positions = new int[ keys.length ];
+        for( int i = 0; i < keys.length; ++i ) positions[ next[ keys[ i ] ]++ ] = i;
+        return positions;
+    }
+    
+}
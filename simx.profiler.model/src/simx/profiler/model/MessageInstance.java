@@ -16,13 +16,15 @@
 
 package simx.profiler.model;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * An object of this class represents an instance of a message. It references
- * its type, and events when it was sent and processed.
+ * its type, and events when it was sent and processed. The events are kept in
+ * the MessageInstanceStore of the type, an object of this class only knows its
+ * type, its id and its index. Instances whose events are stored off-heap are
+ * created on access, two objects for the same instance are equal.
  * 
  * @author Stephan Rehfeld
  */
@@ -39,36 +41,89 @@ public class MessageInstance {
     public final int messageID;
     
     /**
-     * A list of events, when this message was sent.
+     * The dense index of this instance, unique within its message type. The instances are numbered from 0 in the
+     * order of their registration.
      */
-    private final List< MessageSentEvent > messageSentEvents;
+    final int index;
     
     /**
-     * A list of events when this message was processed.
-     */
-    private final List< MessageProcessingEvent > messageProcessingEvents;
-    
-    /**
-     * Return a list that contains all message processing events.
+     * Return a read-only list that contains all message processing events.
      * 
      * @return A list that contains all message processing events.
      */
     public List<MessageProcessingEvent> getMessageProcessingEvents() {
-        return new ArrayList<>( messageProcessingEvents );
+        return new ReadOnlyList<>( this::getMessageProcessingEvent, this.getMessageProcessingEventsCount() );
     }
     
     /**
-     * Returns a list that contains all message sent event.
+     * Returns a read-only list that contains all message sent event.
      * 
      * @return  A list that contains all message processing events.
      */
     public List<MessageSentEvent> getMessageSentEvents() {
-        return new ArrayList<>( this.messageSentEvents );
+        return new ReadOnlyList<>( this::getMessageSentEvent, this.getMessageSentEventsCount() );
+    }
+    
+    /**
+     * This method returns the number of times this message has been processed.
+     * 
+     * @return The number of processing events.
+     */
+    public int getMessageProcessingEventsCount() {
+        return this.type.instanceStore.getProcessedCount( this.index );
+    }
+    
+    /**
+     * This method returns the message processing event at the given position.
+     * 
+     * @param i The position, between 0 and getMessageProcessingEventsCount() - 1.
+     * @return The message processing event.
+     */
+    public MessageProcessingEvent getMessageProcessingEvent( final int i ) {
+        final MessageInstanceStore store = this.type.instanceStore;
+        final int count = store.getProcessedCount( this.index );
+        if( i < 0 || i >= count ) throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + count );
+        return this.type.profilingData.getActorInstance( store.getReceiver( this.index, i ) ).events.getProcessed( store.getProcessedPosition( this.index, i ) );
+    }
+    
+    /**
+     * This method returns the number of times this message has been sent.
+     * 
+     * @return The number of sent events.
+     */
+    public int getMessageSentEventsCount() {
+        return this.type.instanceStore.getSentCount( this.index );
+    }
+    
+    /**
+     * This method returns the message sent event at the given position.
+     * 
+     * @param i The position, between 0 and getMessageSentEventsCount() - 1.
+     * @return The message sent event.
+     */
+    public MessageSentEvent getMessageSentEvent( final int i ) {
+        final MessageInstanceStore store = this.type.instanceStore;
+        final int count = store.getSentCount( this.index );
+        if( i < 0 || i >= count ) throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + count );
+        return this.type.profilingData.getActorInstance( store.getSender( this.index, i ) ).events.getSent( store.getSentPosition( this.index, i ) );
+    }
+    
+    /**
+     * This method returns the time when the message has been sent first, without creating the event.
+     * 
+     * @return The timestamp of the first sent event.
+     * @throws IllegalStateException If the message has not been sent.
+     */
+    public long getFirstSendTime() {
+        if( this.getMessageSentEventsCount() == 0 ) throw new IllegalStateException( "The message has not been sent!" );
+        return this.type.instanceStore.getFirstSendTime( this.index );
     }
 
     @Override
     public int hashCode() {
         int hash = 3;
+        hash = 89 * hash + Objects.hashCode( this.type );
+        hash = 89 * hash + this.messageID;
         return hash;
     }
 
@@ -84,7 +139,7 @@ public class MessageInstance {
         if (!Objects.equals(this.type, other.type)) {
             return false;
         }
-        return this.messageID == other.messageID;
+        return this.messageID == other.messageID && this.index == other.index;
     }
 
     @Override
@@ -97,17 +152,17 @@ public class MessageInstance {
     // -------------------------------------------------------------------------
     
     /**
-     * This constructor creates a new message instance.
+     * This constructor creates an object for a message instance that has been added to the store of its type.
      * 
-     * @param messageType The type of the message. Must not be null.
+     * @param type The type of the message. Must not be null.
      * @param messageID The id of the message.
+     * @param index The index of the instance within its type.
      */
-    MessageInstance( final MessageType type, final int messageID ) {
+    MessageInstance( final MessageType type, final int messageID, final int index ) {
         if( type == null ) throw new IllegalArgumentException( "The parameter 'type' must not be null!" );
         this.type = type;
         this.messageID = messageID;
-        this.messageSentEvents = new ArrayList<>();
-        this.messageProcessingEvents = new ArrayList<>();
+        this.index = index;
     }
 
     /**
@@ -120,21 +175,26 @@ public class MessageInstance {
     void registerSentEvent( final ActorInstance sender, final ActorInstance receiver, long sendTime ) {
         if( sender == null ) throw new IllegalArgumentException( "The parameter 'sender' must not be null!" );
         if( receiver == null ) throw new IllegalArgumentException( "The parameter 'receiver' must not be null!" );
-        final MessageSentEvent messageSentEvent = new MessageSentEvent( sender, receiver, sendTime, this );
-        this.messageSentEvents.add( messageSentEvent );
-        sender.registerMessageSentEvent( messageSentEvent );
-        this.type.sent( sender );
+        final int position = sender.registerMessageSentEvent( receiver, sendTime, this );
+        this.type.instanceStore.addSent( this.index, sender.index, position, sendTime );
+        this.type.sent();
     }
 
     /**
-     * This method registers a messave processing event to this instance.
+     * This method registers a message processing event to this instance and to the receiver of the message.
      * 
-     * @param messageProcessingEvent A processing processing event of this instance. Must not be null!
+     * @param sender The sender of the message. Must not be null.
+     * @param receiver The receiver of the message. Must not be null.
+     * @param start The timestamp when the processing started.
+     * @param end The timestamp when the processing ended.
      */
-    void registerProcessingEvent( final MessageProcessingEvent messageProcessingEvent ) {
-        if( messageProcessingEvent == null ) throw new IllegalArgumentException( "The parameter 'messageProcessingEvent' must not be null!" );
-        this.messageProcessingEvents.add( messageProcessingEvent );
-        this.type.processed( messageProcessingEvent.receiver, messageProcessingEvent.end - messageProcessingEvent.start );
+    void registerProcessingEvent( final ActorInstance sender, final ActorInstance receiver, final long start, final long end ) {
+        if( sender == null ) throw new IllegalArgumentException( "The parameter 'sender' must not be null!" );
+        if( receiver == null ) throw new IllegalArgumentException( "The parameter 'receiver' must not be null!" );
+        final int position = receiver.registerMessageProcessingEvent( sender, start, end, this );
+        this.type.instanceStore.addProcessed( this.index, receiver.index, position );
+        this.type.processed( end - start );
+        if( this.getMessageSentEventsCount() == 1 ) this.type.waitedInMailbox( start - this.getFirstSendTime() );
     }
     
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.util.Arrays;
+
+/**
+ * A MessageInstanceStore holds the state of the instances of one message type,
+ * addressed by the index of the instance. A MessageInstance only knows its
+ * type, its id and its index and reads everything else from the store. Each
+ * instance is a record of int fields and the time when it has been sent first.
+ * The first sent and the first processing event are referenced by the record,
+ * further events of messages that are sent or processed more than once are
+ * kept in a map on the heap. The records are stored in primitive columns or
+ * outside of the heap.
+ * 
+ * @see ColumnarMessageInstanceStore
+ * @see OffHeapMessageInstanceStore
+ * @author Stephan Rehfeld
+ */
+abstract class MessageInstanceStore {
+    
+    /**
+     * The int fields of a record: the id of the message, the epoch of the message ids of the type when the instance
+     * has been registered, the index of the previous instance with the same id or -1, the number of sent and of
+     * processing events, and the first sent and processing event, each referenced by the index of the actor
+     * instance and the position of the event in its event store.
+     */
+    static final int MESSAGE_ID = 0;
+    static final int EPOCH = 1;
+    static final int PREVIOUS = 2;
+    static final int SENT_COUNT = 3;
+    static final int PROCESSED_COUNT = 4;
+    static final int SENDER = 5;
+    static final int SENT_POSITION = 6;
+    static final int RECEIVER = 7;
+    static final int PROCESSED_POSITION = 8;
+    static final int FIELDS = 9;
+    
+    /**
+     * The second and further events of an instance by its index, as pairs of the index of the actor instance and
+     * the position of the event.
+     */
+    private final IntObjectMap< int[] > moreSentEvents;
+    private final IntObjectMap< int[] > moreProcessingEvents;
+    private long moreEventsHeapBytes;
+    
+    MessageInstanceStore() {
+        this.moreSentEvents = new IntObjectMap<>();
+        this.moreProcessingEvents = new IntObjectMap<>();
+    }
+    
+    /**
+     * This method creates the store for the instances of a message type, depending on the storage that has been
+     * chosen for the events of the profiling data.
+     * 
+     * @param profilingData The profiling data. Must not be null.
+     * @return The store.
+     */
+    static MessageInstanceStore create( final ProfilingData profilingData ) {
+        if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
+        if( profilingData.getEventStorage() == EventStorage.OFF_HEAP ) return new OffHeapMessageInstanceStore( profilingData.offHeapArena );
+        return new ColumnarMessageInstanceStore();
+    }
+    
+    /**
+     * This method adds an instance without events.
+     * 
+     * @param messageID The id of the message.
+     * @param epoch The epoch of the message ids of the type.
+     * @param previous The index of the previous instance with the same id, or -1.
+     * @return The index of the instance.
+     */
+    final int add( final int messageID, final int epoch, final int previous ) {
+        final int index = this.addRecord();
+        this.putInt( index, MESSAGE_ID, messageID );
+        this.putInt( index, EPOCH, epoch );
+        this.putInt( index, PREVIOUS, previous );
+        this.putInt( index, SENT_COUNT, 0 );
+        this.putInt( index, PROCESSED_COUNT, 0 );
+        return index;
+    }
+    
+    /**
+     * This method adds a sent event to an instance.
+     * 
+     * @param index The index of the instance.
+     * @param sender The index of the sender.
+     * @param position The position of the event in the event store of the sender.
+     * @param sendTime The timestamp of the event.
+     */
+    final void addSent( final int index, final int sender, final int position, final long sendTime ) {
+        final int count = this.getInt( index, SENT_COUNT );
+        if( count == 0 ) {
+            this.putInt( index, SENDER, sender );
+            this.putInt( index, SENT_POSITION, position );
+            this.putFirstSendTime( index, sendTime );
+        } else {
+            this.addMoreEvent( this.moreSentEvents, index, count - 1, sender, position );
+        }
+        this.putInt( index, SENT_COUNT, count + 1 );
+    }
+    
+    /**
+     * This method adds a processing event to an instance.
+     * 
+     * @param index The index of the instance.
+     * @param receiver The index of the receiver.
+     * @param position The position of the event in the event store of the receiver.
+     */
+    final void addProcessed( final int index, final int receiver, final int position ) {
+        final int count = this.getInt( index, PROCESSED_COUNT );
+        if( count == 0 ) {
+            this.putInt( index, RECEIVER, receiver );
+            this.putInt( index, PROCESSED_POSITION, position );
+        } else {
+            this.addMoreEvent( this.moreProcessingEvents, index, count - 1, receiver, position );
+        }
+        this.putInt( index, PROCESSED_COUNT, count + 1 );
+    }
+    
+    private void addMoreEvent( final IntObjectMap< int[] > moreEvents, final int index, final int i, final int actorInstance, final int position ) {
+        int[] events = moreEvents.get( index );
+        if( events == null || 2 * i == events.length ) {
+            final long bytes = events == null ? 0 : HeapEstimate.array( events.length, 4 );
+            events = events == null ? new int[ 2 ] : Arrays.copyOf( events, 2 * events.length );
+            moreEvents.put( index, events );
+            this.moreEventsHeapBytes += HeapEstimate.array( events.length, 4 ) - bytes;
+        }
+        events[ 2 * i ] = actorInstance;
+        events[ 2 * i + 1 ] = position;
+    }
+    
+    int getSentCount( final int index ) {
+        return this.getInt( index, SENT_COUNT );
+    }
+    
+    int getProcessedCount( final int index ) {
+        return this.getInt( index, PROCESSED_COUNT );
+    }
+    
+    /**
+     * This method returns the index of the sender of a sent event of an instance.
+     * 
+     * @param index The index of the instance.
+     * @param i The number of the sent event, between 0 and getSentCount( index ) - 1.
+     * @return The index of the sender.
+     */
+    int getSender( final int index, final int i ) {
+        return i == 0 ? this.getInt( index, SENDER ) : this.moreSentEvents.get( index )[ 2 * (i - 1) ];
+    }
+    
+    int getSentPosition( final int index, final int i ) {
+        return i == 0 ? this.getInt( index, SENT_POSITION ) : this.moreSentEvents.get( index )[ 2 * (i - 1) + 1 ];
+    }
+    
+    /**
+     * This method returns the index of the receiver of a processing event of an instance.
+     * 
+     * @param index The index of the instance.
+     * @param i The number of the processing event, between 0 and getProcessedCount( index ) - 1.
+     * @return The index of the receiver.
+     */
+    int getReceiver( final int index, final int i ) {
+        return i == 0 ? this.getInt( index, RECEIVER ) : this.moreProcessingEvents.get( index )[ 2 * (i - 1) ];
+    }
+    
+    int getProcessedPosition( final int index, final int i ) {
+        return i == 0 ? this.getInt( index, PROCESSED_POSITION ) : this.moreProcessingEvents.get( index )[ 2 * (i - 1) + 1 ];
+    }
+    
+    /**
+     * This method returns the estimated number of bytes this store occupies on the heap.
+     * 
+     * @return The estimated number of bytes.
+     */
+    final long getHeapBytes() {
+        return this.moreSentEvents.getHeapBytes() + this.moreProcessingEvents.getHeapBytes() + this.moreEventsHeapBytes + this.getRecordsHeapBytes();
+    }
+    
+    /**
+     * This method appends a record. Its fields are set by add.
+     * 
+     * @return The index of the record.
+     */
+    abstract int addRecord();
+    
+    /**
+     * This method returns the number of instances.
+     * 
+     * @return The number of instances.
+     */
+    abstract int size();
+    
+    abstract int getInt( int index, int field );
+    
+    abstract void putInt( int index, int field, int value );
+    
+    abstract long getFirstSendTime( int index );
+    
+    abstract void putFirstSendTime( int index, long sendTime );
+    
+    /**
+     * This method shrinks the storage to the number of instances. It is called when the profiling data is frozen.
+     */
+    abstract void trim();
+    
+    /**
+     * This method returns the estimated number of bytes the records occupy on the heap.
+     * 
+     * @return The estimated number of bytes.
+     */
+    abstract long getRecordsHeapBytes();
+    
+}
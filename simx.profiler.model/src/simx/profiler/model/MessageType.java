@@ -16,7 +16,7 @@
 
 package simx.profiler.model;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -42,9 +42,34 @@ public class MessageType {
     public final String shortType;
     
     /**
-     * A map to the instances of this messages.
+     * The dense index of this type, unique within the profiling data. The types are numbered from 0 in the order
+     * of their registration.
      */
-    private final Map< Integer, MessageInstance > instances;
+    public final int index;
+    
+    /**
+     * The index of the newest instance of this message type for each message id. It is only needed to register
+     * events and is dropped when the profiling data is frozen.
+     */
+    private IntIntMap instancesByID;
+    
+    /**
+     * The state of all instances of this message type by their index.
+     */
+    final MessageInstanceStore instanceStore;
+    
+    /**
+     * The objects of all instances of this message type by their index, or null if the events are stored off-heap.
+     * Then the objects are created on access, so the heap does not grow with the number of messages.
+     */
+    private MessageInstance[] instances;
+    
+    /**
+     * The epoch of the message ids. It is incremented when the id of a sent message wraps around from the largest to
+     * the smallest int value. A message id that is sent again in a later epoch belongs to a new message instance.
+     */
+    private int epoch;
+    private int lastSentMessageID;
     
     /**
      * How often a message of this type has been processed.
@@ -62,9 +87,25 @@ public class MessageType {
     private double averageProcessingTime;
     
     /**
-     * Information about how often actors of a specific type sent message of this message type.
+     * The distribution of the processing times of messages of this type.
+     */
+    private final Histogram processingTimeHistogram;
+    
+    /**
+     * The distribution of the times messages of this type spent in a mailbox,
+     * from sending to the start of the processing. Only messages that have
+     * been sent exactly once are counted.
+     */
+    private final Histogram timeInMailboxHistogram;
+    
+    /**
+     * Information about how often actors of a specific type sent message of this message type, by the index of the
+     * actor type.
+     * 
+     * The statistics are computed from the events of the message instances on first request and are kept until
+     * further events are registered to the profiling data.
      */
-    private final Map<ActorType, Integer> sentByTypeStatistic;
+    private DenseStatistic sentByTypeStatistic;
     
     /**
      * Back reference to the profiling data.
@@ -72,13 +113,23 @@ public class MessageType {
     public final ProfilingData profilingData;
     
     /**
-     * Information about how often a specific actor instance sent message of this message type.
+     * Information about how often a specific actor instance sent message of this message type, by the index of the
+     * actor instance.
      */
-    private final Map<ActorInstance, Integer> sentByInstanceStatistic;
+    private DenseStatistic sentByInstanceStatistic;
     
+    /**
+     * Information about how often actors of a specific type or a specific actor instance processed messages of this
+     * type and how long it took, by the index of the actor type or actor instance.
+     */
+    private DenseStatistic receivedByTypeStatistic;
+    private DenseStatistic receivedByInstanceStatistic;
     
-    private final Map<ActorType, ImmutableTupel<Integer, Double>> receivedByTypeStatistic;
-    private final Map<ActorInstance, ImmutableTupel<Integer, Double>> receivedByInstanceStatistic;
+    /**
+     * The modification count of the profiling data when the statistics have been computed, or -1 if they have not
+     * been computed yet.
+     */
+    private long statisticsModificationCount;
 
     public int getTimesProcessed() {
         return timesProcessed;
@@ -91,41 +142,65 @@ public class MessageType {
     public double getAverageProcessingTime() {
         return this.averageProcessingTime;
     }
+    
+    /**
+     * This method returns a copy of the distribution of the processing times of messages of this type.
+     * 
+     * @return The distribution of the processing times in nanoseconds.
+     */
+    public Histogram getProcessingTimeHistogram() {
+        return new Histogram( this.processingTimeHistogram );
+    }
+    
+    /**
+     * This method returns a copy of the distribution of the times messages of this type spent in a mailbox.
+     * 
+     * @return The distribution of the times in a mailbox in nanoseconds.
+     */
+    public Histogram getTimeInMailboxHistogram() {
+        return new Histogram( this.timeInMailboxHistogram );
+    }
 
     public Map<ActorType, Integer> getSentByTypeStatistic() {
-        return new HashMap<>( this.sentByTypeStatistic );
+        this.updateStatistics();
+        return this.sentByTypeStatistic.countsAsMap( this.profilingData::getActorType );
     }
     
     public Map<ActorInstance, Integer> getSentByInstanceStatistic() {
-        return new HashMap<>( this.sentByInstanceStatistic );
+        this.updateStatistics();
+        return this.sentByInstanceStatistic.countsAsMap( this.profilingData::getActorInstance );
     }
 
     public Map<ActorType, ImmutableTupel< Integer, Double > > getReceivedByTypeStatistic() {
-        return new HashMap<>( this.receivedByTypeStatistic );
+        this.updateStatistics();
+        return this.receivedByTypeStatistic.averagesAsMap( this.profilingData::getActorType );
     }
 
     public Map<ActorInstance, ImmutableTupel< Integer, Double > > getReceivedByInstanceStatistic() {
-        return new HashMap<>( this.receivedByInstanceStatistic );
+        this.updateStatistics();
+        return this.receivedByInstanceStatistic.averagesAsMap( this.profilingData::getActorInstance );
     }
     
-    MessageType( final String rawType, final ProfilingData profilingData ) {
+    MessageType( final String rawType, final ProfilingData profilingData, final int index ) {
         if( rawType == null ) throw new IllegalArgumentException( "The parameter 'rawType' must not be null!" );
         if( rawType.isEmpty() ) throw new IllegalArgumentException( "The parameter 'rawType' must not be an empty string!" );
         if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
         this.rawType = rawType;
+        this.index = index;
         String[] segments = rawType.split( " " );
         this.longType = segments[ segments.length -1 ];
         segments = rawType.split( "\\." );
         this.shortType = segments[ segments.length -1 ];
-        this.instances = new HashMap<>();
+        this.instancesByID = new IntIntMap();
+        this.instanceStore = MessageInstanceStore.create( profilingData );
+        this.instances = profilingData.getEventStorage() == EventStorage.OFF_HEAP ? null : new MessageInstance[ 0 ];
         this.timesProcessed = 0;
         this.timesSent = 0;
         this.averageProcessingTime = 0.0;
-        this.sentByTypeStatistic = new HashMap<>();
-        this.sentByInstanceStatistic = new HashMap<>();
+        this.statisticsModificationCount = -1;
         this.profilingData = profilingData;
-        this.receivedByTypeStatistic = new HashMap<>();
-        this.receivedByInstanceStatistic = new HashMap<>();
+        this.processingTimeHistogram = new Histogram();
+        this.timeInMailboxHistogram = new Histogram();
     }
 
     @Override
@@ -152,47 +227,141 @@ public class MessageType {
         return "MessageType{" + "type=" + longType + '}';
     }  
 
-    MessageInstance getOrRegisterInstance( final int messageID ) {
-        if( this.instances.containsKey( messageID ) ) {
-            return this.instances.get( messageID );
+    /**
+     * This method returns the message instance that is sent with the given id. If no message with this id has been
+     * registered in the current epoch of the message ids, a new instance is registered.
+     * 
+     * @param messageID The id of the message.
+     * @return The message instance.
+     */
+    MessageInstance getOrRegisterSentInstance( final int messageID ) {
+        if( messageID < this.lastSentMessageID && messageID - this.lastSentMessageID > 0 ) this.epoch++;
+        this.lastSentMessageID = messageID;
+        final int newest = this.instancesByID.get( messageID );
+        if( newest >= 0 && this.instanceStore.getInt( newest, MessageInstanceStore.EPOCH ) == this.epoch ) return this.getInstance( newest );
+        return this.registerInstance( messageID, newest );
+    }
+    
+    /**
+     * This method returns the message instance that is processed with the given id. If the id has been reused, it is
+     * the newest message with this id that has been sent before the processing started. If no message with this id
+     * has been registered, a new instance is registered.
+     * 
+     * @param messageID The id of the message.
+     * @param start The time when the processing started.
+     * @return The message instance.
+     */
+    MessageInstance getOrRegisterProcessedInstance( final int messageID, final long start ) {
+        int index = this.instancesByID.get( messageID );
+        if( index < 0 ) return this.registerInstance( messageID, -1 );
+        final MessageInstanceStore store = this.instanceStore;
+        while( store.getInt( index, MessageInstanceStore.PREVIOUS ) >= 0 && store.getSentCount( index ) > 0 && store.getFirstSendTime( index ) > start ) {
+            index = store.getInt( index, MessageInstanceStore.PREVIOUS );
+        }
+        return this.getInstance( index );
+    }
+    
+    /**
+     * This method returns the message instance with the given index.
+     * 
+     * @param index The index of the message instance within this type.
+     * @return The message instance.
+     */
+    MessageInstance getInstance( final int index ) {
+        final int count = this.instanceStore.size();
+        if( index < 0 || index >= count ) throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + count );
+        if( this.instances == null ) return new MessageInstance( this, this.instanceStore.getInt( index, MessageInstanceStore.MESSAGE_ID ), index );
+        return this.instances[ index ];
+    }
+    
+    /**
+     * This method returns the estimated number of bytes the message instances and the histograms of this type occupy
+     * on the heap.
+     * 
+     * @return The estimated number of bytes.
+     */
+    long getHeapBytes() {
+        final IntIntMap instancesByID = this.instancesByID;
+        final MessageInstance[] instances = this.instances;
+        long bytes = this.instanceStore.getHeapBytes() + this.processingTimeHistogram.getHeapBytes() + this.timeInMailboxHistogram.getHeapBytes();
+        if( instancesByID != null ) bytes += instancesByID.getHeapBytes();
+        if( instances != null ) bytes += HeapEstimate.array( instances.length, HeapEstimate.REFERENCE ) + this.instanceStore.size() * HeapEstimate.object( HeapEstimate.REFERENCE + 8 );
+        return bytes;
+    }
+    
+    private MessageInstance registerInstance( final int messageID, final int previous ) {
+        final int index = this.instanceStore.add( messageID, this.epoch, previous );
+        final MessageInstance messageInstance = new MessageInstance( this, messageID, index );
+        if( this.instances != null ) {
+            if( index == this.instances.length ) this.instances = Arrays.copyOf( this.instances, Math.max( 8, index + (index >> 1) ) );
+            this.instances[ index ] = messageInstance;
         }
-        final MessageInstance messageInstance = new MessageInstance( this, messageID );
-        this.instances.put(messageID, messageInstance);
+        this.instancesByID.put( messageID, index );
         return messageInstance;
     }
 
-    void processed( final ActorInstance actorInstance, final long time ) {
+    void processed( final long time ) {
+        this.processingTimeHistogram.record( time );
         this.averageProcessingTime = this.averageProcessingTime * (double)this.timesProcessed / (this.timesProcessed+1.0) + (double)time / (this.timesProcessed+1.0) ;
-        if( this.receivedByTypeStatistic.containsKey( actorInstance.type ) ) {
-            final ImmutableTupel< Integer, Double > old = this.receivedByTypeStatistic.get( actorInstance.type );
-            final double newAverage = old.b * (double)old.a / (old.a+1.0) + (double)time / (old.a+1.0) ;
-            this.receivedByTypeStatistic.put( actorInstance.type, new ImmutableTupel<>( old.a+1, newAverage ) );
-        } else {
-            this.receivedByTypeStatistic.put( actorInstance.type, new ImmutableTupel<>( 1, (double)time ) );
-        }
-        if( this.receivedByInstanceStatistic.containsKey( actorInstance ) ) {
-            final ImmutableTupel< Integer, Double > old = this.receivedByInstanceStatistic.get( actorInstance );
-            final double newAverage = old.b * (double)old.a / (old.a+1.0) + (double)time / (old.a+1.0) ;
-            this.receivedByInstanceStatistic.put( actorInstance, new ImmutableTupel<>( old.a+1, newAverage ) );
-        } else {
-            this.receivedByInstanceStatistic.put( actorInstance, new ImmutableTupel<>( 1, (double)time ) );
-        }
         this.timesProcessed++;
     }
     
-    void sent( final ActorInstance actorInstance ) {
-        if( this.sentByTypeStatistic.containsKey( actorInstance.type ) ) {
-            this.sentByTypeStatistic.put( actorInstance.type, this.sentByTypeStatistic.get( actorInstance.type ) + 1 );
-        } else {
-            this.sentByTypeStatistic.put( actorInstance.type, 1 );
-        }
-        
-        if( this.sentByInstanceStatistic.containsKey( actorInstance ) ) {
-            this.sentByInstanceStatistic.put( actorInstance, this.sentByInstanceStatistic.get( actorInstance ) + 1 );
-        } else {
-            this.sentByInstanceStatistic.put( actorInstance, 1 );
-        }
+    void waitedInMailbox( final long time ) {
+        this.timeInMailboxHistogram.record( time );
+    }
+    
+    void sent() {
         this.timesSent++;
     }
     
+    /**
+     * This method computes the statistics about the senders and receivers from the events of the message instances,
+     * if they have not been computed since the last change of the profiling data.
+     */
+    private void updateStatistics() {
+        // The statistics of frozen profiling data have been computed when it was frozen and never change.
+        if( this.profilingData.isFrozen() ) return;
+        this.computeStatistics();
+    }
+    
+    /**
+     * This method shrinks the storage of the message instances, drops the map of the message ids and computes the
+     * statistics. It is called when the profiling data is frozen.
+     */
+    void freeze() {
+        if( this.instances != null ) this.instances = Arrays.copyOf( this.instances, this.instanceStore.size() );
+        this.instanceStore.trim();
+        this.instancesByID = null;
+        this.computeStatistics();
+    }
+    
+    private synchronized void computeStatistics() {
+        final long modificationCount = this.profilingData.getModificationCount();
+        if( this.statisticsModificationCount == modificationCount ) return;
+        final DenseStatistic sentByType = new DenseStatistic();
+        final DenseStatistic sentByInstance = new DenseStatistic();
+        final DenseStatistic receivedByType = new DenseStatistic();
+        final DenseStatistic receivedByInstance = new DenseStatistic();
+        final MessageInstanceStore store = this.instanceStore;
+        for( int i = 0; i < store.size(); ++i ) {
+            for( int j = 0; j < store.getSentCount( i ); ++j ) {
+                final ActorInstance sender = this.profilingData.getActorInstance( store.getSender( i, j ) );
+                sentByType.add( sender.type.index, 0 );
+                sentByInstance.add( sender.index, 0 );
+            }
+            for( int j = 0; j < store.getProcessedCount( i ); ++j ) {
+                final ActorInstance receiver = this.profilingData.getActorInstance( store.getReceiver( i, j ) );
+                final int position = store.getProcessedPosition( i, j );
+                final long time = receiver.events.getProcessingEnd( position ) - receiver.events.getProcessingStart( position );
+                receivedByType.add( receiver.type.index, time );
+                receivedByInstance.add( receiver.index, time );
+            }
+        }
+        this.sentByTypeStatistic = sentByType;
+        this.sentByInstanceStatistic = sentByInstance;
+        this.receivedByTypeStatistic = receivedByType;
+        this.receivedByInstanceStatistic = receivedByInstance;
+        this.statisticsModificationCount = modificationCount;
+    }
+    
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ObjectEventStore keeps one MessageSentEvent or MessageProcessingEvent
+ * object for each event.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class ObjectEventStore extends EventStore {
+    
+    private final ArrayList< MessageSentEvent > messagesSent;
+    private final ArrayList< MessageProcessingEvent > messagesProcessed;
+    
+    ObjectEventStore( final ActorInstance owner ) {
+        super( owner );
+        this.messagesSent = new ArrayList<>();
+        this.messagesProcessed = new ArrayList<>();
+    }
+    
+    @Override
+    int addSent( final long timestamp, final ActorInstance receiver, final MessageInstance messageInstance ) {
+        this.messagesSent.add( new MessageSentEvent( this.owner, receiver, timestamp, messageInstance ) );
+        return this.messagesSent.size() - 1;
+    }
+    
+    @Override
+    int addProcessed( final long start, final long end, final ActorInstance sender, final MessageInstance messageInstance ) {
+        this.messagesProcessed.add( new MessageProcessingEvent( sender, this.owner, start, end, messageInstance ) );
+        return this.messagesProcessed.size() - 1;
+    }
+    
+    @Override
+    int getSentCount() {
+        return this.messagesSent.size();
+    }
+    
+    @Override
+    int getProcessedCount() {
+        return this.messagesProcessed.size();
+    }
+    
+    @Override
+    long getSendTime( final int position ) {
+        return this.messagesSent.get( position ).timestamp;
+    }
+    
+    @Override
+    long getProcessingStart( final int position ) {
+        return this.messagesProcessed.get( position ).start;
+    }
+    
+    @Override
+    long getProcessingEnd( final int position ) {
+        return this.messagesProcessed.get( position ).end;
+    }
+    
+    @Override
+    int getSentMessageType( final int position ) {
+        return this.messagesSent.get( position ).messageInstance.type.index;
+    }
+    
+    @Override
+    int getProcessedMessageType( final int position ) {
+        return this.messagesProcessed.get( position ).messageInstance.type.index;
+    }
+    
+    @Override
+    int getReceiver( final int position ) {
+        return this.messagesSent.get( position ).receiver.index;
+    }
+    
+    @Override
+    int getSender( final int position ) {
+        return this.messagesProcessed.get( position ).sender.index;
+    }
+    
+    @Override
+    MessageInstance getProcessedMessageInstance( final int position ) {
+        return this.messagesProcessed.get( position ).messageInstance;
+    }
+    
+    @Override
+    MessageSentEvent getSent( final int position ) {
+        return this.messagesSent.get( position );
+    }
+    
+    @Override
+    MessageProcessingEvent getProcessed( final int position ) {
+        return this.messagesProcessed.get( position );
+    }
+    
+    @Override
+    List< MessageSentEvent > getSentEvents() {
+        return new ReadOnlyList<>( this.messagesSent::get, this.messagesSent.size() );
+    }
+    
+    @Override
+    List< MessageProcessingEvent > getProcessedEvents() {
+        return new ReadOnlyList<>( this.messagesProcessed::get, this.messagesProcessed.size() );
+    }
+    
+    @Override
+    void trim() {
+        this.messagesSent.trimToSize();
+        this.messagesProcessed.trimToSize();
+    }
+    
+    /**
+     * The capacity of the lists is not known, the estimate assumes that they are full.
+     */
+    @Override
+    long getHeapBytes() {
+        final long sent = this.messagesSent.size();
+        final long processed = this.messagesProcessed.size();
+        return HeapEstimate.array( sent, HeapEstimate.REFERENCE ) + sent * HeapEstimate.object( 3 * HeapEstimate.REFERENCE + 8 )
+             + HeapEstimate.array( processed, HeapEstimate.REFERENCE ) + processed * HeapEstimate.object( 3 * HeapEstimate.REFERENCE + 16 );
+    }
+    
+}
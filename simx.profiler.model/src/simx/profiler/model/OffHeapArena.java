@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An OffHeapArena hands out memory outside of the heap to the off-heap event
+ * stores of all actor instances and to the message instance stores of all
+ * message types of the profiling data. The memory is divided
+ * into segments of 64 MiB that are either direct buffers or regions of a
+ * temporary file that are mapped into memory. Memory is addressed by a long
+ * that combines the number of the segment and the offset in it. An allocation
+ * never crosses the border of a segment and is never freed. The temporary
+ * files are deleted as soon as they are mapped, and the segments are reclaimed
+ * by the garbage collector together with the profiling data. They are never
+ * freed explicitly, because windows and background analyses may still read
+ * the events of disposed profiling data.
+ * 
+ * Direct buffers are limited by -XX:MaxDirectMemorySize, which defaults to
+ * -Xmx, so only temporary files allow traces that are larger than the heap.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class OffHeapArena {
+    
+    private static final int SEGMENT_BITS = 26;
+    
+    /**
+     * The size of a segment in bytes.
+     */
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    
+    /**
+     * The directory of the temporary files, or null if direct buffers are used.
+     */
+    private final File directory;
+    
+    /**
+     * The segments. The array is replaced when it grows, so readers on other threads see a complete array.
+     */
+    private volatile ByteBuffer[] segments;
+    private int segmentCount;
+    private int offset;
+    private boolean released;
+    
+    /**
+     * This constructor creates a new, empty arena.
+     * 
+     * @param directory The directory in which the temporary files for the segments are created, or null if the
+     * segments should be direct buffers.
+     */
+    OffHeapArena( final File directory ) {
+        this.directory = directory;
+        this.segments = new ByteBuffer[ 0 ];
+        this.offset = SEGMENT_SIZE;
+    }
+    
+    /**
+     * This method allocates memory.
+     * 
+     * @param size The number of bytes. Must not be larger than the size of a segment.
+     * @return The address of the memory.
+     */
+    synchronized long allocate( final int size ) {
+        if( size <= 0 || size > SEGMENT_SIZE ) throw new IllegalArgumentException( "The parameter 'size' must be between 1 and " + SEGMENT_SIZE + "!" );
+        if( this.released ) throw new IllegalStateException( "The off-heap memory has been released!" );
+        if( this.offset + size > SEGMENT_SIZE ) {
+            final ByteBuffer[] segments = Arrays.copyOf( this.segments, this.segmentCount + 1 );
+            segments[ this.segmentCount++ ] = this.createSegment();
+            this.segments = segments;
+            this.offset = 0;
+        }
+        final long address = ((long)(this.segmentCount - 1) << SEGMENT_BITS) | this.offset;
+        this.offset += size;
+        return address;
+    }
+    
+    /**
+     * This method returns the number of bytes that have been reserved outside of the heap.
+     * 
+     * @return The number of reserved bytes.
+     */
+    synchronized long getReservedBytes() {
+        return (long)this.segmentCount * SEGMENT_SIZE;
+    }
+    
+    /**
+     * This method releases the arena, no memory can be allocated afterwards. The events that have been stored can
+     * still be read until the arena is garbage collected, which frees the direct buffers and mappings.
+     */
+    synchronized void release() {
+        this.released = true;
+    }
+    
+    long getLong( final long address ) {
+        return this.segment( address ).getLong( (int)address & (SEGMENT_SIZE - 1) );
+    }
+    
+    int getInt( final long address ) {
+        return this.segment( address ).getInt( (int)address & (SEGMENT_SIZE - 1) );
+    }
+    
+    void putLong( final long address, final long value ) {
+        this.segment( address ).putLong( (int)address & (SEGMENT_SIZE - 1), value );
+    }
+    
+    void putInt( final long address, final int value ) {
+        this.segment( address ).putInt( (int)address & (SEGMENT_SIZE - 1), value );
+    }
+    
+    private ByteBuffer segment( final long address ) {
+        return this.segments[ (int)(address >>> SEGMENT_BITS) ];
+    }
+    
+    private ByteBuffer createSegment() {
+        if( this.directory == null ) {
+            try {
+                return ByteBuffer.allocateDirect( SEGMENT_SIZE ).order( ByteOrder.nativeOrder() );
+            } catch( final OutOfMemoryError e ) {
+                throw new IllegalStateException( "The direct memory for the events is exhausted after " + this.getReservedBytes() / (1024 * 1024) + " MiB. Raise -XX:MaxDirectMemorySize or store the events in temporary files with -Dsimx.profiler.model.offHeapDirectory.", e );
+            }
+        }
+        try {
+            final File file = File.createTempFile( "simx-profiler-events", ".bin", this.directory );
+            try( final RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" ) ) {
+                randomAccessFile.setLength( SEGMENT_SIZE );
+                return randomAccessFile.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE ).order( ByteOrder.nativeOrder() );
+            } finally {
+                // The mapping stays valid after the file has been deleted on most platforms.
+                if( !file.delete() ) file.deleteOnExit();
+            }
+        } catch( final IOException e ) {
+            throw new UncheckedIOException( "Could not map a segment for the events in " + this.directory, e );
+        }
+    }
+    
+}
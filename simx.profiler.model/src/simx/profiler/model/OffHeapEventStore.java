@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.List;
+
+/**
+ * An OffHeapEventStore keeps the events outside of the heap, in memory of the
+ * OffHeapArena of the profiling data. The events are stored as records of
+ * fixed size, see OffHeapRecords. As in the ColumnarEventStore, the message
+ * type, the message instance and the peer are stored by their dense index and
+ * the event objects of the public API are created on access.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class OffHeapEventStore extends EventStore {
+    
+    /**
+     * A sent message: the time (long), the index of the message type, the index of the message instance within its
+     * type and the index of the receiver (int).
+     */
+    private static final int SENT_RECORD_SIZE = 20;
+    private static final int SENT_MESSAGE_TYPE = 8;
+    private static final int SENT_MESSAGE_INSTANCE = 12;
+    private static final int RECEIVER = 16;
+    
+    /**
+     * A processed message: the start and the end (long), the index of the message type, the index of the message
+     * instance within its type and the index of the sender (int).
+     */
+    private static final int PROCESSED_RECORD_SIZE = 28;
+    private static final int END = 8;
+    private static final int PROCESSED_MESSAGE_TYPE = 16;
+    private static final int PROCESSED_MESSAGE_INSTANCE = 20;
+    private static final int SENDER = 24;
+    
+    private final OffHeapArena arena;
+    private final OffHeapRecords sent;
+    private final OffHeapRecords processed;
+    
+    OffHeapEventStore( final ActorInstance owner, final OffHeapArena arena ) {
+        super( owner );
+        this.arena = arena;
+        this.sent = new OffHeapRecords( arena, SENT_RECORD_SIZE );
+        this.processed = new OffHeapRecords( arena, PROCESSED_RECORD_SIZE );
+    }
+    
+    @Override
+    int addSent( final long timestamp, final ActorInstance receiver, final MessageInstance messageInstance ) {
+        final int position = this.sent.add();
+        final long address = this.sent.address( position );
+        this.arena.putLong( address, timestamp );
+        this.arena.putInt( address + SENT_MESSAGE_TYPE, messageInstance.type.index );
+        this.arena.putInt( address + SENT_MESSAGE_INSTANCE, messageInstance.index );
+        this.arena.putInt( address + RECEIVER, receiver.index );
+        return position;
+    }
+    
+    @Override
+    int addProcessed( final long start, final long end, final ActorInstance sender, final MessageInstance messageInstance ) {
+        final int position = this.processed.add();
+        final long address = this.processed.address( position );
+        this.arena.putLong( address, start );
+        this.arena.putLong( address + END, end );
+        this.arena.putInt( address + PROCESSED_MESSAGE_TYPE, messageInstance.type.index );
+        this.arena.putInt( address + PROCESSED_MESSAGE_INSTANCE, messageInstance.index );
+        this.arena.putInt( address + SENDER, sender.index );
+        return position;
+    }
+    
+    @Override
+    int getSentCount() {
+        return this.sent.size();
+    }
+    
+    @Override
+    int getProcessedCount() {
+        return this.processed.size();
+    }
+    
+    @Override
+    long getSendTime( final int position ) {
+        return this.arena.getLong( this.sent.address( position ) );
+    }
+    
+    @Override
+    long getProcessingStart( final int position ) {
+        return this.arena.getLong( this.processed.address( position ) );
+    }
+    
+    @Override
+    long getProcessingEnd( final int position ) {
+        return this.arena.getLong( this.processed.address( position ) + END );
+    }
+    
+    @Override
+    int getSentMessageType( final int position ) {
+        return this.arena.getInt( this.sent.address( position ) + SENT_MESSAGE_TYPE );
+    }
+    
+    @Override
+    int getProcessedMessageType( final int position ) {
+        return this.arena.getInt( this.processed.address( position ) + PROCESSED_MESSAGE_TYPE );
+    }
+    
+    @Override
+    int getReceiver( final int position ) {
+        return this.arena.getInt( this.sent.address( position ) + RECEIVER );
+    }
+    
+    @Override
+    int getSender( final int position ) {
+        return this.arena.getInt( this.processed.address( position ) + SENDER );
+    }
+    
+    @Override
+    MessageInstance getProcessedMessageInstance( final int position ) {
+        final long address = this.processed.address( position );
+        return this.owner.type.profilingData.getMessageType( this.arena.getInt( address + PROCESSED_MESSAGE_TYPE ) ).getInstance( this.arena.getInt( address + PROCESSED_MESSAGE_INSTANCE ) );
+    }
+    
+    @Override
+    MessageSentEvent getSent( final int position ) {
+        final long address = this.sent.address( position );
+        final ProfilingData profilingData = this.owner.type.profilingData;
+        final MessageInstance messageInstance = profilingData.getMessageType( this.arena.getInt( address + SENT_MESSAGE_TYPE ) ).getInstance( this.arena.getInt( address + SENT_MESSAGE_INSTANCE ) );
+        return new MessageSentEvent( this.owner, profilingData.getActorInstance( this.arena.getInt( address + RECEIVER ) ), this.arena.getLong( address ), messageInstance );
+    }
+    
+    @Override
+    MessageProcessingEvent getProcessed( final int position ) {
+        final long address = this.processed.address( position );
+        final ProfilingData profilingData = this.owner.type.profilingData;
+        final MessageInstance messageInstance = profilingData.getMessageType( this.arena.getInt( address + PROCESSED_MESSAGE_TYPE ) ).getInstance( this.arena.getInt( address + PROCESSED_MESSAGE_INSTANCE ) );
+        return new MessageProcessingEvent( profilingData.getActorInstance( this.arena.getInt( address + SENDER ) ), this.owner, this.arena.getLong( address ), this.arena.getLong( address + END ), messageInstance );
+    }
+    
+    /**
+     * The returned list creates the event objects on access.
+     */
+    @Override
+    List< MessageSentEvent > getSentEvents() {
+        return new ReadOnlyList<>( this::getSent, this.sent.size() );
+    }
+    
+    /**
+     * The returned list creates the event objects on access.
+     */
+    @Override
+    List< MessageProcessingEvent > getProcessedEvents() {
+        return new ReadOnlyList<>( this::getProcessed, this.processed.size() );
+    }
+    
+    /**
+     * The records can not be moved within the arena, the storage is not shrunk.
+     */
+    @Override
+    void trim() {
+    }
+    
+    /**
+     * Only the chunk addresses are stored on the heap, the records are counted by
+     * {@link ProfilingData#getOffHeapBytes()}.
+     */
+    @Override
+    long getHeapBytes() {
+        return this.sent.getHeapBytes() + this.processed.getHeapBytes();
+    }
+    
+}
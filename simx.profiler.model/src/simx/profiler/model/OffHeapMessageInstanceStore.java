@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+/**
+ * An OffHeapMessageInstanceStore keeps the records of the message instances
+ * outside of the heap, in memory of the OffHeapArena of the profiling data.
+ * A record is the time when the instance has been sent first (long) followed
+ * by the int fields.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class OffHeapMessageInstanceStore extends MessageInstanceStore {
+    
+    private static final int FIELDS_OFFSET = 8;
+    private static final int RECORD_SIZE = FIELDS_OFFSET + 4 * FIELDS;
+    
+    private final OffHeapArena arena;
+    private final OffHeapRecords records;
+    
+    OffHeapMessageInstanceStore( final OffHeapArena arena ) {
+        this.arena = arena;
+        this.records = new OffHeapRecords( arena, RECORD_SIZE );
+    }
+    
+    @Override
+    int addRecord() {
+        return this.records.add();
+    }
+    
+    @Override
+    int size() {
+        return this.records.size();
+    }
+    
+    @Override
+    int getInt( final int index, final int field ) {
+        return this.arena.getInt( this.records.address( index ) + FIELDS_OFFSET + 4 * field );
+    }
+    
+    @Override
+    void putInt( final int index, final int field, final int value ) {
+        this.arena.putInt( this.records.address( index ) + FIELDS_OFFSET + 4 * field, value );
+    }
+    
+    @Override
+    long getFirstSendTime( final int index ) {
+        return this.arena.getLong( this.records.address( index ) );
+    }
+    
+    @Override
+    void putFirstSendTime( final int index, final long sendTime ) {
+        this.arena.putLong( this.records.address( index ), sendTime );
+    }
+    
+    /**
+     * The records can not be moved within the arena, the storage is not shrunk.
+     */
+    @Override
+    void trim() {
+    }
+    
+    /**
+     * Only the chunk addresses are stored on the heap.
+     */
+    @Override
+    long getRecordsHeapBytes() {
+        return this.records.getHeapBytes();
+    }
+    
+}
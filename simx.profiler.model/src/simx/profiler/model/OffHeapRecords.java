@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.util.Arrays;
+
+/**
+ * OffHeapRecords is a growing sequence of records of fixed size in memory of
+ * an OffHeapArena. The records are stored in chunks. The first chunk holds 8
+ * records, each further chunk twice as many as the previous one, up to 65536
+ * records. Only the addresses of the chunks are kept on the heap.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class OffHeapRecords {
+    
+    private static final int FIRST_CHUNK_BITS = 3;
+    private static final int MAX_CHUNK_BITS = 16;
+    private static final int GROWING_CHUNKS = MAX_CHUNK_BITS - FIRST_CHUNK_BITS + 1;
+    private static final int MAX_CHUNK_SIZE = 1 << MAX_CHUNK_BITS;
+    
+    /**
+     * The number of records in all chunks that grow, which is the position of the first record in a chunk of the
+     * maximum size.
+     */
+    private static final int GROWING_CAPACITY = (1 << FIRST_CHUNK_BITS) * ((1 << GROWING_CHUNKS) - 1);
+    
+    private final OffHeapArena arena;
+    private final int recordSize;
+    
+    private int count;
+    private long[] chunks;
+    
+    /**
+     * This constructor creates an empty sequence of records.
+     * 
+     * @param arena The arena that provides the memory. Must not be null.
+     * @param recordSize The size of a record in bytes. Must be positive.
+     */
+    OffHeapRecords( final OffHeapArena arena, final int recordSize ) {
+        if( arena == null ) throw new IllegalArgumentException( "The parameter 'arena' must not be null!" );
+        if( recordSize <= 0 ) throw new IllegalArgumentException( "The parameter 'recordSize' must be positive!" );
+        this.arena = arena;
+        this.recordSize = recordSize;
+        this.chunks = new long[ 0 ];
+    }
+    
+    /**
+     * This method appends a record. The memory of the record is not cleared.
+     * 
+     * @return The position of the new record.
+     */
+    int add() {
+        if( chunk( this.count ) == this.chunks.length ) {
+            final long[] grown = Arrays.copyOf( this.chunks, this.chunks.length + 1 );
+            grown[ this.chunks.length ] = this.arena.allocate( chunkSize( this.chunks.length ) * this.recordSize );
+            this.chunks = grown;
+        }
+        return this.count++;
+    }
+    
+    /**
+     * This method returns the number of records.
+     * 
+     * @return The number of records.
+     */
+    int size() {
+        return this.count;
+    }
+    
+    /**
+     * This method returns the address of a record in the arena.
+     * 
+     * @param position The position of the record, between 0 and size() - 1.
+     * @return The address of the record.
+     */
+    long address( final int position ) {
+        if( position < 0 || position >= this.count ) throw new IndexOutOfBoundsException( "Position: " + position + ", Size: " + this.count );
+        final int chunk = chunk( position );
+        final int offset = chunk < GROWING_CHUNKS ? position - (((1 << chunk) - 1) << FIRST_CHUNK_BITS) : (position - GROWING_CAPACITY) % MAX_CHUNK_SIZE;
+        return this.chunks[ chunk ] + (long)offset * this.recordSize;
+    }
+    
+    /**
+     * This method returns the estimated number of bytes the addresses of the chunks occupy on the heap. The records
+     * are counted by {@link ProfilingData#getOffHeapBytes()}.
+     * 
+     * @return The estimated number of bytes.
+     */
+    long getHeapBytes() {
+        return HeapEstimate.object( HeapEstimate.REFERENCE + 12 ) + HeapEstimate.array( this.chunks.length, 8 );
+    }
+    
+    private static int chunkSize( final int chunk ) {
+        return chunk < GROWING_CHUNKS ? 1 << (FIRST_CHUNK_BITS + chunk) : MAX_CHUNK_SIZE;
+    }
+    
+    private static int chunk( final int position ) {
+        if( position >= GROWING_CAPACITY ) return GROWING_CHUNKS + (position - GROWING_CAPACITY) / MAX_CHUNK_SIZE;
+        return 31 - Integer.numberOfLeadingZeros( (position >>> FIRST_CHUNK_BITS) + 1 );
+    }
+    
+}
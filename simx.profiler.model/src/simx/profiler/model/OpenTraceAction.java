@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import org.openide.awt.ActionID;
+import org.openide.awt.ActionReference;
+import org.openide.awt.ActionRegistration;
+
+/**
+ * This action asks for another trace and opens it as a new session, without
+ * restarting the application.
+ * 
+ * @author Stephan Rehfeld
+ */
+@ActionID( category = "File", id = "simx.profiler.model.OpenTraceAction" )
+@ActionRegistration( displayName = "#CTL_OpenTraceAction" )
+@ActionReference( path = "Menu/File", position = 100 )
+public final class OpenTraceAction implements ActionListener {
+    
+    @Override
+    public void actionPerformed( final ActionEvent e ) {
+        Installer.openTrace( false );
+    }
+    
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.util.Arrays;
+
+/**
+ * The ParallelismProfile is the degree of parallelism (DOP) of a profile over
+ * time, i.e. the number of messages that are processed at the same time. The
+ * starts and ends of the processings are kept in primitive arrays and sorted,
+ * and a single merge of both arrays yields the step function of the DOP,
+ * where all changes at the same time form one step, and the time spent at
+ * each DOP between the first and the last change. A parallelism profile is a
+ * snapshot, use ProfilingData.getParallelismProfile to get a profile that
+ * reflects later changes. The TimeWindowIndex uses the same step function.
+ * 
+ * @author Stephan Rehfeld
+ */
+public class ParallelismProfile {
+    
+    /**
+     * The times when the DOP changes and the DOP from this time on.
+     */
+    final long[] changes;
+    final int[] parallelism;
+    
+    /**
+     * The time spent at each DOP, indexed by the DOP. The time at DOP 0 is idle time.
+     */
+    private final long[] timeAtParallelism;
+    
+    /**
+     * This constructor creates the profile of the given processings. The first count values of both arrays are
+     * used. If a processing ends before it starts, the DOP can drop below 0 for a while. Such a DOP is counted
+     * as 0.
+     * 
+     * @param starts The starts of the processings. Must not be null.
+     * @param ends The ends of the processings. Must not be null.
+     * @param count The number of processings.
+     * @param sorted True if the starts and the ends are sorted already. Otherwise they are copied and sorted, the
+     *               arrays are not changed.
+     */
+    ParallelismProfile( final long[] starts, final long[] ends, final int count, final boolean sorted ) {
+        if( starts == null ) throw new IllegalArgumentException( "The parameter 'starts' must not be null!" );
+        if( ends == null ) throw new IllegalArgumentException( "The parameter 'ends' must not be null!" );
+        final long[] sortedStarts = sorted ? starts : Arrays.copyOf( starts, count );
+        final long[] sortedEnds = sorted ? ends : Arrays.copyOf( ends, count );
+        if( !sorted ) {
+            Arrays.parallelSort( sortedStarts );
+            Arrays.parallelSort( sortedEnds );
+        }
+        
+        // The number of steps is counted first, so the step function does not need to be copied afterwards.
+        int steps = 0;
+        int s = 0;
+        int e = 0;
+        while( s < count || e < count ) {
+            final long time = e >= count || (s < count && sortedStarts[ s ] <= sortedEnds[ e ]) ? sortedStarts[ s ] : sortedEnds[ e ];
+            while( s < count && sortedStarts[ s ] == time ) s++;
+            while( e < count && sortedEnds[ e ] == time ) e++;
+            steps++;
+        }
+        
+        this.changes = new long[ steps ];
+        this.parallelism = new int[ steps ];
+        long[] times = new long[ 8 ];
+        int maxParallelism = 0;
+        int level = 0;
+        steps = 0;
+        s = 0;
+        e = 0;
+        while( s < count || e < count ) {
+            final long time = e >= count || (s < count && sortedStarts[ s ] <= sortedEnds[ e ]) ? sortedStarts[ s ] : sortedEnds[ e ];
+            if( steps > 0 ) times[ this.parallelism[ steps - 1 ] ] += time - this.changes[ steps - 1 ];
+            while( s < count && sortedStarts[ s ] == time ) {
+                level++;
+                s++;
+            }
+            while( e < count && sortedEnds[ e ] == time ) {
+                level--;
+                e++;
+            }
+            if( level >= times.length ) times = Arrays.copyOf( times, Math.max( level + 1, times.length * 2 ) );
+            maxParallelism = Math.max( maxParallelism, level );
+            this.changes[ steps ] = time;
+            this.parallelism[ steps ] = Math.max( 0, level );
+            steps++;
+        }
+        this.timeAtParallelism = Arrays.copyOf( times, steps == 0 ? 0 : maxParallelism + 1 );
+    }
+    
+    /**
+     * This method returns the number of steps of the DOP.
+     * 
+     * @return The number of steps.
+     */
+    public int getStepsCount() {
+        return this.changes.length;
+    }
+    
+    /**
+     * This method returns the time when the DOP changes to the DOP of the step.
+     * 
+     * @param step The step, between 0 and getStepsCount() - 1.
+     * @return The time of the step.
+     */
+    public long getTime( final int step ) {
+        return this.changes[ step ];
+    }
+    
+    /**
+     * This method returns the DOP from the time of the step until the time of the next step.
+     * 
+     * @param step The step, between 0 and getStepsCount() - 1.
+     * @return The DOP of the step.
+     */
+    public int getParallelism( final int step ) {
+        return this.parallelism[ step ];
+    }
+    
+    /**
+     * This method returns the highest DOP.
+     * 
+     * @return The highest DOP, or 0 if no message has been processed.
+     */
+    public int getMaxParallelism() {
+        return Math.max( 0, this.timeAtParallelism.length - 1 );
+    }
+    
+    /**
+     * This method returns the time that has been spent at the given DOP between the first and the last change.
+     * 
+     * @param parallelism The DOP. The time at DOP 0 is idle time.
+     * @return The time at the DOP.
+     */
+    public long getTimeAtParallelism( final int parallelism ) {
+        return parallelism >= 0 && parallelism < this.timeAtParallelism.length ? this.timeAtParallelism[ parallelism ] : 0;
+    }
+    
+    /**
+     * This method divides the time between the first and the last change into buckets of the same length and
+     * returns the average DOP of each bucket, e.g. to plot the DOP of a profile with more steps than pixels.
+     * 
+     * @param buckets The number of buckets. Must be positive.
+     * @return The average DOP of each bucket.
+     */
+    public double[] getAverageParallelismSeries( final int buckets ) {
+        if( buckets < 1 ) throw new IllegalArgumentException( "The parameter 'buckets' must be positive!" );
+        final double[] series = new double[ buckets ];
+        if( this.changes.length < 2 ) return series;
+        final long first = this.changes[ 0 ];
+        final double length = (double)(this.changes[ this.changes.length - 1 ] - first) / buckets;
+        for( int i = 0; i < this.changes.length - 1; ++i ) {
+            // A step can span several buckets, it adds to each of them the part that lies inside of the bucket.
+            final double from = (this.changes[ i ] - first) / length;
+            final double to = (this.changes[ i + 1 ] - first) / length;
+            for( int bucket = (int)from; bucket < buckets && bucket < to; ++bucket ) {
+                series[ bucket ] += this.parallelism[ i ] * (Math.min( to, bucket + 1 ) - Math.max( from, bucket ));
+            }
+        }
+        return series;
+    }
+    
+}
@@ -15,10 +15,21 @@
  */
 package simx.profiler.model;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.Lookup;
+import org.openide.util.lookup.AbstractLookup;
+import org.openide.util.lookup.InstanceContent;
+import simx.profiler.model.events.ProfilingDataLoadedEvent;
 
 /**
  *
@@ -26,34 +37,185 @@ import java.util.Map;
  */
 public class ProfilingData {
     
-    static ProfilingData profilingData;
+    private static final Logger LOGGER = Logger.getLogger( ProfilingData.class.getName() );
     
+    /**
+     * The estimated number of bytes of an actor type, an actor instance or a message type on the heap, without the
+     * events and the histograms. It covers the names, the map entries and the statistics.
+     */
+    private static final long ENTITY_BYTES = 512;
+    
+    /**
+     * The content of the lookup that announces loaded or updated profiling data.
+     */
+    private static final InstanceContent content = new InstanceContent();
+    
+    /**
+     * The lookup that announces loaded or updated profiling data.
+     */
+    private static final Lookup lookup = new AbstractLookup( content );
+    
+    /**
+     * This method returns the profiling data of the active session of the {@link SessionManager}.
+     * 
+     * @return The profiling data of the active session, or null if no session is active.
+     */
     public static ProfilingData getLoadedProfilingData() {
-        return ProfilingData.profilingData;
+        return SessionManager.getDefault().getActiveProfilingData();
+    }
+    
+    /**
+     * This method returns a lookup that contains a ProfilingDataLoadedEvent for the profiling data of the active
+     * session and the active {@link Session} itself. A new event is put into the lookup each time the active profiling
+     * data is published or another session is activated, so listeners are notified about updates of a growing trace
+     * and rebind to the active session. The lookup is empty if no session is active. Listeners are notified on the
+     * thread that publishes the data.
+     * 
+     * @return The lookup for ProfilingDataLoadedEvents.
+     */
+    public static Lookup getLookup() {
+        return ProfilingData.lookup;
+    }
+    
+    /**
+     * This method announces that the given profiling data has been loaded or updated. If the profiling data does not
+     * belong to a session yet, a new session is opened and activated for it, see
+     * {@link SessionManager#published(ProfilingData, boolean)}. If the profiling data is still growing, it should be
+     * published again after every update. Updates of profiling data that is not active are not announced.
+     * 
+     * @param profilingData The profiling data. Must not be null.
+     * @param complete False if more events will be added to the profiling data later.
+     */
+    public static void publish( final ProfilingData profilingData, final boolean complete ) {
+        if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
+        SessionManager.getDefault().published( profilingData, complete );
+    }
+    
+    /**
+     * This method puts the active session into the lookup.
+     * 
+     * @param session The active session, or null if no session is active.
+     */
+    static void announce( final Session session ) {
+        if( session == null || !session.isLoaded() ) {
+            ProfilingData.content.set( Collections.emptySet(), null );
+        } else {
+            ProfilingData.content.set( Arrays.asList( new ProfilingDataLoadedEvent( session.getProfilingData(), session.isComplete() ), session ), null );
+        }
     }
     
     private final Map< String, ActorType > actorTypes;
     private final Map< String, MessageType > messageTypes;
     private final Map< String, ActorInstance > idToInstance;
     
+    /**
+     * The actor instances whose supervisor has not been created yet, by the id of the supervisor.
+     */
+    private final Map< String, List< ActorInstance > > unresolvedSupervisors;
+    
+    /**
+     * The actor types, actor instances and message types by their dense index.
+     */
+    private final List< ActorType > actorTypesByIndex;
+    private final List< ActorInstance > actorInstancesByIndex;
+    private final List< MessageType > messageTypesByIndex;
+    
     private long firstEventTimestamp;
     private long lastEventTimestamp;
     private int processedMessagesCount;
     
     private final ActorInstance unknownActorInstance;
     
-    private final List< ParallelismEvent > parallelismEvents;
+    /**
+     * The starts and the ends of all processings, for the degree of parallelism. Both arrays are sorted when the
+     * profiling data is frozen. If the events are stored off-heap, the arrays are null and the starts and ends are
+     * read from the event stores when they are needed, so the heap does not grow with the number of processings.
+     */
+    private long[] processingStarts;
+    private long[] processingEnds;
+    private int processingsCount;
     private long overallProcessingTime;
     private int messagesSentCount;
     private int messagesProcessedCount;
     
-    private int averageTimeInMailboxCounter;
-    private double averageTimeInMailbox;
+    private int timeInMailboxCount;
+    private long timeInMailboxSum;
+    
+    /**
+     * This counter is incremented whenever an actor instance or an event is registered.
+     */
+    private long modificationCount;
+    private SpawnTree spawnTree;
+    private long spawnTreeModificationCount;
+    
+    /**
+     * The resources that are closed when the profiling data is disposed, e.g. a follower of a growing trace.
+     */
+    private final List< Closeable > resources;
+    private volatile boolean disposed;
+    private TimeWindowIndex timeWindowIndex;
+    private long timeWindowIndexModificationCount;
+    private MailboxWaits mailboxWaits;
+    private long mailboxWaitsModificationCount;
+    private ParallelismProfile parallelismProfile;
+    private long parallelismProfileModificationCount;
+    
+    /**
+     * Frozen profiling data does not accept further events. Its statistics and spawn tree have been computed and its
+     * processings have been sorted by freeze and can be read by several threads without locking.
+     */
+    private volatile boolean frozen;
+    
+    /**
+     * How the events of the actor instances are stored.
+     */
+    private final EventStorage eventStorage;
+    
+    /**
+     * The memory outside of the heap for the events, or null if the events are stored on the heap.
+     */
+    final OffHeapArena offHeapArena;
     
+    /**
+     * This constructor creates empty profiling data. The event storage is selected by the system properties, see
+     * {@link EventStorage#fromSystemProperties()}. Off-heap events are stored in memory-mapped temporary files in
+     * the directory named by the system property simx.profiler.model.offHeapDirectory, or in java.io.tmpdir. Direct
+     * buffers are not used, because they are limited by -XX:MaxDirectMemorySize, which defaults to -Xmx.
+     */
     public ProfilingData() {
+        this( EventStorage.fromSystemProperties(), new File( System.getProperty( "simx.profiler.model.offHeapDirectory", System.getProperty( "java.io.tmpdir" ) ) ) );
+    }
+    
+    /**
+     * This constructor creates empty profiling data.
+     * 
+     * @param columnarEventStore True if the events of the actor instances should be stored in primitive columns. The
+     * columns need much less memory and are faster to scan, but the event objects are created on each access.
+     */
+    public ProfilingData( final boolean columnarEventStore ) {
+        this( columnarEventStore ? EventStorage.COLUMNAR : EventStorage.OBJECTS, null );
+    }
+    
+    /**
+     * This constructor creates empty profiling data.
+     * 
+     * @param eventStorage How the events of the actor instances should be stored. Must not be null.
+     * @param offHeapDirectory The directory for the temporary files of the off-heap event storage, or null if the
+     * events should be stored in direct buffers. Only used if the events are stored off-heap. Direct buffers are
+     * limited by -XX:MaxDirectMemorySize, which defaults to -Xmx.
+     */
+    public ProfilingData( final EventStorage eventStorage, final File offHeapDirectory ) {
+        if( eventStorage == null ) throw new IllegalArgumentException( "The parameter 'eventStorage' must not be null!" );
+        if( eventStorage == EventStorage.OFF_HEAP && offHeapDirectory != null && !offHeapDirectory.isDirectory() ) throw new IllegalArgumentException( "The parameter 'offHeapDirectory' must be a directory!" );
+        this.eventStorage = eventStorage;
+        this.offHeapArena = eventStorage == EventStorage.OFF_HEAP ? new OffHeapArena( offHeapDirectory ) : null;
         this.actorTypes = new HashMap<>();
         this.messageTypes = new HashMap<>();
         this.idToInstance = new HashMap<>();
+        this.unresolvedSupervisors = new HashMap<>();
+        this.actorTypesByIndex = new ArrayList<>();
+        this.actorInstancesByIndex = new ArrayList<>();
+        this.messageTypesByIndex = new ArrayList<>();
         
         this.firstEventTimestamp = Long.MAX_VALUE;
         this.lastEventTimestamp = Long.MIN_VALUE;
@@ -62,7 +224,9 @@ public class ProfilingData {
         
         ActorType unknownActorType = this.getOrRegisterActorType( "Unknown Type" );
         this.unknownActorInstance = unknownActorType.registerInstance( "Unknown Instance" );
-        this.parallelismEvents = new ArrayList<>();
+        this.processingStarts = eventStorage == EventStorage.OFF_HEAP ? null : new long[ 16 ];
+        this.processingEnds = eventStorage == EventStorage.OFF_HEAP ? null : new long[ 16 ];
+        this.resources = new ArrayList<>();
     }
     
     final ActorType getOrRegisterActorType( final String typeName ) {
@@ -70,22 +234,39 @@ public class ProfilingData {
         if( this.actorTypes.containsKey( typeName ) ) {
             actorType = this.actorTypes.get( typeName );
         } else {
-            actorType = new ActorType( this, typeName );
+            this.checkNotFrozen();
+            actorType = new ActorType( this, typeName, this.actorTypesByIndex.size() );
             this.actorTypes.put( typeName, actorType );
+            this.actorTypesByIndex.add( actorType );
         }
         return actorType;
     }
 
     public void registerSending( final long sendTime, final String senderString, final String receiverString, final String type, final int messageID ) {
+        this.registerSending( sendTime, this.getActorInstance( senderString ), this.getActorInstance( receiverString ), this.getOrRegisterMessageType( type ), messageID );
+    }
+    
+    /**
+     * This method registers the sending of a message by already resolved actors and message type. Loaders that
+     * resolve each distinct actor and message type only once should use this method.
+     * 
+     * @param sendTime The time when the message has been sent.
+     * @param sender The sender, as returned by getActorInstance. Must not be null.
+     * @param receiver The receiver, as returned by getActorInstance. Must not be null.
+     * @param messageType The type of the message, as returned by getOrRegisterMessageType. Must not be null.
+     * @param messageID The id of the message.
+     */
+    public void registerSending( final long sendTime, final ActorInstance sender, final ActorInstance receiver, final MessageType messageType, final int messageID ) {
+        if( sender == null ) throw new IllegalArgumentException( "The parameter 'sender' must not be null!" );
+        if( receiver == null ) throw new IllegalArgumentException( "The parameter 'receiver' must not be null!" );
+        if( messageType == null ) throw new IllegalArgumentException( "The parameter 'messageType' must not be null!" );
+        this.checkNotFrozen();
         
         if( sendTime < this.firstEventTimestamp ) this.firstEventTimestamp = sendTime;
         if( sendTime > this.lastEventTimestamp ) this.lastEventTimestamp = sendTime;
         this.messagesSentCount++;
-        final MessageType messageType = this.getOrRegisterMessageType( type );
-        final MessageInstance messageInstance = messageType.getOrRegisterInstance( messageID );
-        
-        final ActorInstance sender = this.getActorInstance( senderString );
-        final ActorInstance receiver = this.getActorInstance( receiverString );
+        this.modificationCount++;
+        final MessageInstance messageInstance = messageType.getOrRegisterSentInstance( messageID );
         
         messageInstance.registerSentEvent( sender, receiver, sendTime );
         
@@ -96,21 +277,255 @@ public class ProfilingData {
         if( this.messageTypes.containsKey( type ) ) {
             messageType = this.messageTypes.get( type );
         } else {
-            messageType = new MessageType( type, this );
+            this.checkNotFrozen();
+            messageType = new MessageType( type, this, this.messageTypesByIndex.size() );
             this.messageTypes.put( type, messageType );
+            this.messageTypesByIndex.add( messageType );
         }
         return messageType;
     }
     
-    ActorInstance getActorInstance( final String id ) {
+    /**
+     * This method returns the actor instance with the given id. If no actor with this id has been created, the
+     * unknown actor instance is returned.
+     * 
+     * @param id The id (path) of the actor.
+     * @return The actor instance or the unknown actor instance.
+     */
+    public ActorInstance getActorInstance( final String id ) {
         if( this.idToInstance.containsKey( id ) ) {
             return this.idToInstance.get( id );
         }
         return this.unknownActorInstance;
     }
     
-    void registerInstance( final String id, final ActorInstance actorInstance ) {
+    /**
+     * This method registers a new actor instance and links it to its supervisor. If the supervisor has not been
+     * created yet, the actor instance is linked as soon as the supervisor is registered. Actor instances that are
+     * waiting for this actor instance are linked to it.
+     * 
+     * @param id The id of the actor instance.
+     * @param actorInstance The actor instance.
+     * @param supervisor The id of the supervisor. May be null.
+     */
+    void registerInstance( final String id, final ActorInstance actorInstance, final String supervisor ) {
+        this.checkNotFrozen();
+        final ActorInstance supervisorInstance = supervisor == null ? null : this.idToInstance.get( supervisor );
         this.idToInstance.put( id, actorInstance );
+        this.actorInstancesByIndex.add( actorInstance );
+        this.modificationCount++;
+        
+        final List< ActorInstance > children = this.unresolvedSupervisors.remove( id );
+        if( children != null ) {
+            for( final ActorInstance child : children ) child.setSupervisor( actorInstance );
+        }
+        if( supervisorInstance != null ) {
+            actorInstance.setSupervisor( supervisorInstance );
+        } else if( supervisor != null ) {
+            this.unresolvedSupervisors.computeIfAbsent( supervisor, key -> new ArrayList<>() ).add( actorInstance );
+        }
+    }
+    
+    /**
+     * This method returns true if the events of the actor instances are stored in primitive columns.
+     * 
+     * @return True if the events are stored in primitive columns.
+     */
+    public boolean isColumnarEventStore() {
+        return this.eventStorage == EventStorage.COLUMNAR;
+    }
+    
+    /**
+     * This method returns how the events of the actor instances are stored.
+     * 
+     * @return The event storage.
+     */
+    public EventStorage getEventStorage() {
+        return this.eventStorage;
+    }
+    
+    /**
+     * This method returns the number of bytes that have been reserved outside of the heap for the events.
+     * 
+     * @return The number of bytes, or 0 if the events are stored on the heap.
+     */
+    public long getOffHeapBytes() {
+        return this.offHeapArena == null ? 0 : this.offHeapArena.getReservedBytes();
+    }
+    
+    /**
+     * This method returns the estimated number of bytes this profiling data occupies on the heap. The estimate counts
+     * the events, the message instances and the histograms, see {@link HeapEstimate}. Events that are stored
+     * off-heap are counted by {@link #getOffHeapBytes()}.
+     * 
+     * @return The estimated number of bytes.
+     */
+    public long getEstimatedHeapBytes() {
+        long bytes = ENTITY_BYTES * (this.actorTypesByIndex.size() + this.actorInstancesByIndex.size() + this.messageTypesByIndex.size());
+        for( final ActorType actorType : this.actorTypesByIndex ) bytes += actorType.getHeapBytes();
+        for( final ActorInstance actorInstance : this.actorInstancesByIndex ) bytes += actorInstance.getHeapBytes();
+        for( final MessageType messageType : this.messageTypesByIndex ) bytes += messageType.getHeapBytes();
+        if( this.processingStarts != null ) bytes += HeapEstimate.array( this.processingStarts.length, 8 ) + HeapEstimate.array( this.processingEnds.length, 8 );
+        return bytes;
+    }
+    
+    /**
+     * This method adds a resource that is closed when the profiling data is disposed, e.g. a follower that adds the
+     * events of a growing trace. If the profiling data has already been disposed, the resource is closed immediately.
+     * 
+     * @param resource The resource. Must not be null.
+     */
+    public void addResource( final Closeable resource ) {
+        if( resource == null ) throw new IllegalArgumentException( "The parameter 'resource' must not be null!" );
+        synchronized( this.resources ) {
+            if( !this.disposed ) {
+                this.resources.add( resource );
+                return;
+            }
+        }
+        close( resource );
+    }
+    
+    /**
+     * This method returns if the profiling data has been disposed, i.e. its session has been closed or unloaded.
+     * Disposed profiling data is not updated anymore and can not be published.
+     * 
+     * @return True if the profiling data has been disposed.
+     */
+    public boolean isDisposed() {
+        return this.disposed;
+    }
+    
+    /**
+     * This method closes all resources of the profiling data and releases the off-heap arena of the events. The
+     * events can still be read, the off-heap memory is reclaimed when the profiling data is garbage collected. It is
+     * called by the session manager when the session is closed or unloaded.
+     */
+    void dispose() {
+        final List< Closeable > closed;
+        synchronized( this.resources ) {
+            this.disposed = true;
+            closed = new ArrayList<>( this.resources );
+            this.resources.clear();
+        }
+        for( final Closeable resource : closed ) close( resource );
+        if( this.offHeapArena != null ) this.offHeapArena.release();
+    }
+    
+    private static void close( final Closeable resource ) {
+        try {
+            resource.close();
+        } catch( final IOException ex ) {
+            LOGGER.log( Level.WARNING, "Could not close a resource of the profiling data.", ex );
+        }
+    }
+    
+    /**
+     * This method returns the modification count, which is incremented whenever an actor instance or an event is
+     * registered. Statistics that are computed on request are kept until the count changes.
+     * 
+     * @return The modification count.
+     */
+    long getModificationCount() {
+        return this.modificationCount;
+    }
+    
+    /**
+     * This method returns the spawn tree of the actor instances. The spawn tree is created once and reused until
+     * further events are registered.
+     * 
+     * @return The spawn tree.
+     */
+    public SpawnTree getSpawnTree() {
+        if( this.frozen ) return this.spawnTree;
+        if( this.spawnTree == null || this.spawnTreeModificationCount != this.modificationCount ) {
+            this.spawnTree = new SpawnTree( this );
+            this.spawnTreeModificationCount = this.modificationCount;
+        }
+        return this.spawnTree;
+    }
+    
+    /**
+     * This method returns the index for queries about time windows over the events of all actor instances. The
+     * index is created once and reused until further events are registered. The index is not created by freeze,
+     * because it needs memory for every event. The index of frozen profiling data can be requested from several
+     * threads. While events are registered, e.g. by a follower of a growing trace, it must be requested on the
+     * thread that registers them.
+     * 
+     * @return The time window index.
+     */
+    public synchronized TimeWindowIndex getTimeWindowIndex() {
+        if( this.timeWindowIndex == null || this.timeWindowIndexModificationCount != this.modificationCount ) {
+            this.timeWindowIndex = new TimeWindowIndex( this.getActorInstances() );
+            this.timeWindowIndexModificationCount = this.modificationCount;
+        }
+        return this.timeWindowIndex;
+    }
+    
+    /**
+     * This method returns the times the processed messages spent in a mailbox, joined by the message id. The data
+     * set is created once and reused until further events are registered. Like the time window index it is not
+     * created by freeze, because it needs memory for every processed message.
+     * 
+     * @return The times in the mailbox.
+     */
+    public synchronized MailboxWaits getMailboxWaits() {
+        if( this.mailboxWaits == null || this.mailboxWaitsModificationCount != this.modificationCount ) {
+            this.mailboxWaits = new MailboxWaits( this );
+            this.mailboxWaitsModificationCount = this.modificationCount;
+        }
+        return this.mailboxWaits;
+    }
+    
+    /**
+     * This method returns the index for the next actor instance.
+     * 
+     * @return The index for the next actor instance.
+     */
+    int nextActorInstanceIndex() {
+        return this.actorInstancesByIndex.size();
+    }
+    
+    /**
+     * This method returns the actor type with the given dense index.
+     * 
+     * @param index The index of the actor type, between 0 and getActorTypesCount() - 1.
+     * @return The actor type.
+     */
+    public ActorType getActorType( final int index ) {
+        return this.actorTypesByIndex.get( index );
+    }
+    
+    /**
+     * This method returns the actor instance with the given dense index.
+     * 
+     * @param index The index of the actor instance, between 0 and getActorInstancesCount() - 1.
+     * @return The actor instance.
+     */
+    public ActorInstance getActorInstance( final int index ) {
+        return this.actorInstancesByIndex.get( index );
+    }
+    
+    /**
+     * This method returns the message type with the given dense index.
+     * 
+     * @param index The index of the message type, between 0 and getMessageTypesCount() - 1.
+     * @return The message type.
+     */
+    public MessageType getMessageType( final int index ) {
+        return this.messageTypesByIndex.get( index );
+    }
+    
+    public int getActorTypesCount() {
+        return this.actorTypesByIndex.size();
+    }
+    
+    public int getActorInstancesCount() {
+        return this.actorInstancesByIndex.size();
+    }
+    
+    public int getMessageTypesCount() {
+        return this.messageTypesByIndex.size();
     }
 
     public long applicationRunTime() {
@@ -121,15 +536,37 @@ public class ProfilingData {
         return this.firstEventTimestamp;
     }
     
+    /**
+     * This method returns a read-only list of all actor instances, ordered by their index. The position of an
+     * actor instance in the list is its index.
+     * 
+     * @return A list of all actor instances.
+     */
     public List< ActorInstance > getActorInstances() {
-        final List< ActorInstance > actorInstances = new ArrayList<>();
-        this.getActorTypes().stream().forEach((actorType) -> {
-            actorInstances.addAll( actorType.getInstances() );
-        });
-        return actorInstances;
+        return new ReadOnlyList<>( this.actorInstancesByIndex::get, this.actorInstancesByIndex.size() );
     }
     
     public void registerProcessingEvent( final long start, final long end, final String messageTypeString, final int messageID, final String senderString, final String receiverString) {
+        this.registerProcessingEvent( start, end, this.getOrRegisterMessageType( messageTypeString ), messageID, this.getActorInstance( senderString ), this.getActorInstance( receiverString ) );
+    }
+    
+    /**
+     * This method registers the processing of a message with already resolved actors and message type. Loaders that
+     * resolve each distinct actor and message type only once should use this method.
+     * 
+     * @param start The time when the processing started.
+     * @param end The time when the processing ended.
+     * @param messageType The type of the message, as returned by getOrRegisterMessageType. Must not be null.
+     * @param messageID The id of the message.
+     * @param sender The sender, as returned by getActorInstance. Must not be null.
+     * @param receiver The receiver, as returned by getActorInstance. Must not be null.
+     */
+    public void registerProcessingEvent( final long start, final long end, final MessageType messageType, final int messageID, final ActorInstance sender, final ActorInstance receiver ) {
+        if( messageType == null ) throw new IllegalArgumentException( "The parameter 'messageType' must not be null!" );
+        if( sender == null ) throw new IllegalArgumentException( "The parameter 'sender' must not be null!" );
+        if( receiver == null ) throw new IllegalArgumentException( "The parameter 'receiver' must not be null!" );
+        this.checkNotFrozen();
+        
         if( start < this.firstEventTimestamp ) this.firstEventTimestamp = start;
         if( start > this.lastEventTimestamp ) this.lastEventTimestamp = start;
         
@@ -138,38 +575,50 @@ public class ProfilingData {
         
         this.overallProcessingTime += end - start;
         this.messagesProcessedCount++;
-        this.parallelismEvents.add( new ParallelismEvent( start, ParallelismEvent.ParallelimEventTypes.PROCESSING_START ) );
-        this.parallelismEvents.add( new ParallelismEvent( end, ParallelismEvent.ParallelimEventTypes.PROCESSING_END ) );
+        this.modificationCount++;
+        if( this.processingStarts != null ) {
+            if( this.processingsCount == this.processingStarts.length ) {
+                this.processingStarts = Arrays.copyOf( this.processingStarts, 2 * this.processingsCount );
+                this.processingEnds = Arrays.copyOf( this.processingEnds, 2 * this.processingsCount );
+            }
+            this.processingStarts[ this.processingsCount ] = start;
+            this.processingEnds[ this.processingsCount ] = end;
+        }
+        this.processingsCount++;
               
-        final MessageType messageType = this.getOrRegisterMessageType( messageTypeString );
-        final MessageInstance messageInstance = messageType.getOrRegisterInstance( messageID );
+        final MessageInstance messageInstance = messageType.getOrRegisterProcessedInstance( messageID, start );
         
-        final ActorInstance sender = this.getActorInstance( senderString );
-        final ActorInstance receiver = this.getActorInstance( receiverString );
+        messageInstance.registerProcessingEvent( sender, receiver, start, end );
         
-        final MessageProcessingEvent messageProcessingEvent = new MessageProcessingEvent( sender, receiver, start, end, messageInstance );
-        
-        messageInstance.registerProcessingEvent( messageProcessingEvent );
-        receiver.registerMessageProcessingEvent( messageProcessingEvent );   
-        
-        if( messageInstance.getMessageSentEvents().size() == 1 ) {
-            this.averageTimeInMailbox = (this.averageTimeInMailbox * this.averageTimeInMailboxCounter / (this.averageTimeInMailbox+1) ) + ((messageInstance.getMessageSentEvents().get( 0 ).timestamp - start) / (this.averageTimeInMailbox+1) );
-            this.averageTimeInMailboxCounter++;
+        if( messageInstance.getMessageSentEventsCount() == 1 ) {
+            this.timeInMailboxSum += start - messageInstance.getFirstSendTime();
+            this.timeInMailboxCount++;
         }
         this.processedMessagesCount++;
     }
     
+    /**
+     * This method returns a read-only list of all actor types, ordered by their index.
+     * 
+     * @return A list of all actor types.
+     */
     public List<ActorType> getActorTypes() {
-        return new ArrayList<>(this.actorTypes.values());
+        return new ReadOnlyList<>( this.actorTypesByIndex::get, this.actorTypesByIndex.size() );
     }
 
     void registerActorCreationTimeStamp( final long created ) {
+        this.checkNotFrozen();
         if( created < this.firstEventTimestamp ) this.firstEventTimestamp = created;
         if( created > this.lastEventTimestamp ) this.lastEventTimestamp = created;
     }
     
+    /**
+     * This method returns a read-only list of all message types, ordered by their index.
+     * 
+     * @return A list of all message types.
+     */
     public List< MessageType > getMessageTypes() {
-        return new ArrayList<>( this.messageTypes.values() );
+        return new ReadOnlyList<>( this.messageTypesByIndex::get, this.messageTypesByIndex.size() );
     }
     
     public int getProcessedMessagesCount() {
@@ -181,13 +630,126 @@ public class ProfilingData {
     }
 
     public ActorInstance registerActorInstance( final String typeName, final String id, final long creationTime, final String supervisor ) {
+        this.checkNotFrozen();
         final ActorType type = this.getOrRegisterActorType( typeName );
         return type.registerInstance( id, creationTime, supervisor );
     }
     
+    /**
+     * This method returns a new list with an event for the start and the end of each processing. The events are
+     * created on each call, so a call allocates two objects for each processing.
+     * 
+     * @return The parallelism events.
+     * @deprecated Use {@link #getParallelismProfile()}, which is created once and stores the degree of parallelism
+     *             in primitive arrays.
+     */
+    @Deprecated
     public List< ParallelismEvent > getParallelismEvents() {
-        return this.parallelismEvents;
+        long[] starts = this.processingStarts;
+        long[] ends = this.processingEnds;
+        int count = this.processingsCount;
+        if( starts == null ) {
+            starts = new long[ count ];
+            ends = new long[ count ];
+            count = this.readProcessings( starts, ends );
+            if( this.frozen ) {
+                // The starts and ends of frozen profiling data are sorted, like the arrays on the heap.
+                Arrays.parallelSort( starts, 0, count );
+                Arrays.parallelSort( ends, 0, count );
+            }
+        }
+        final List< ParallelismEvent > parallelismEvents = new ArrayList<>( 2 * count );
+        for( int i = 0; i < count; ++i ) {
+            parallelismEvents.add( new ParallelismEvent( starts[ i ], ParallelismEvent.ParallelimEventTypes.PROCESSING_START ) );
+            parallelismEvents.add( new ParallelismEvent( ends[ i ], ParallelismEvent.ParallelimEventTypes.PROCESSING_END ) );
+        }
+        return parallelismEvents;
     };
+    
+    /**
+     * This method returns the degree of parallelism over time. The profile is created once and reused until further
+     * events are registered. The profile of frozen profiling data is created without copying the starts and ends.
+     * 
+     * @return The parallelism profile.
+     */
+    public synchronized ParallelismProfile getParallelismProfile() {
+        if( this.parallelismProfile == null || this.parallelismProfileModificationCount != this.modificationCount ) {
+            final long modificationCount = this.modificationCount;
+            if( this.processingStarts != null ) {
+                this.parallelismProfile = new ParallelismProfile( this.processingStarts, this.processingEnds, this.processingsCount, this.frozen );
+            } else {
+                final long[] starts = new long[ this.processingsCount ];
+                final long[] ends = new long[ this.processingsCount ];
+                final int count = this.readProcessings( starts, ends );
+                Arrays.parallelSort( starts, 0, count );
+                Arrays.parallelSort( ends, 0, count );
+                this.parallelismProfile = new ParallelismProfile( starts, ends, count, true );
+            }
+            this.parallelismProfileModificationCount = modificationCount;
+        }
+        return this.parallelismProfile;
+    }
+    
+    /**
+     * This method reads the starts and the ends of the processings from the event stores of the actor instances. It
+     * is used if the events are stored off-heap, where they are not kept in arrays on the heap.
+     * 
+     * @param starts The array for the starts. Its length limits the number of processings that are read.
+     * @param ends The array for the ends. Must be as long as the array for the starts.
+     * @return The number of processings that have been read.
+     */
+    private int readProcessings( final long[] starts, final long[] ends ) {
+        int count = 0;
+        for( int i = 0; i < this.actorInstancesByIndex.size(); ++i ) {
+            final EventStore events = this.actorInstancesByIndex.get( i ).events;
+            final int processed = Math.min( events.getProcessedCount(), starts.length - count );
+            for( int j = 0; j < processed; ++j ) {
+                starts[ count ] = events.getProcessingStart( j );
+                ends[ count ] = events.getProcessingEnd( j );
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * This method returns if the profiling data has been frozen.
+     * 
+     * @return True if the profiling data has been frozen.
+     */
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+    
+    /**
+     * This method freezes the profiling data after it has been loaded completely. The statistics of all actor
+     * instances, actor types and message types, the indexes of the events of the actor instances and the spawn tree
+     * are computed in parallel, the starts and ends of the processings are sorted, and the storage of the events is
+     * shrunk. Afterwards no further actors or events can be registered, and all getters can be called by several
+     * threads, e.g. by analyses that run in a fork join pool. Freezing profiling data that is frozen already has no
+     * effect.
+     * 
+     * @return This profiling data.
+     */
+    public synchronized ProfilingData freeze() {
+        if( this.frozen ) return this;
+        if( this.processingStarts != null ) {
+            this.processingStarts = Arrays.copyOf( this.processingStarts, this.processingsCount );
+            this.processingEnds = Arrays.copyOf( this.processingEnds, this.processingsCount );
+            Arrays.parallelSort( this.processingStarts );
+            Arrays.parallelSort( this.processingEnds );
+        }
+        this.actorInstancesByIndex.parallelStream().forEach( ActorInstance::freeze );
+        this.actorTypesByIndex.parallelStream().forEach( ActorType::freeze );
+        this.messageTypesByIndex.parallelStream().forEach( MessageType::freeze );
+        this.getSpawnTree();
+        this.frozen = true;
+        return this;
+    }
+    
+    private void checkNotFrozen() {
+        if( this.frozen ) throw new IllegalStateException( "The profiling data has been frozen!" );
+    }
 
     public long getOverallProcessingTime() {
         return this.overallProcessingTime;
@@ -202,6 +764,6 @@ public class ProfilingData {
     }
    
     public double getAverageTimeInMailbox() {
-        return this.averageTimeInMailbox;
+        return this.timeInMailboxCount == 0 ? 0.0 : (double)this.timeInMailboxSum / this.timeInMailboxCount;
     }
 }
@@ -0,0 +1,547 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A ProfilingDataDiff compares two runs of an application, e.g. the runs of
+ * two builds. It computes the number of sent and processed messages, the
+ * distributions of the processing times and the times in the mailbox and the
+ * average degree of parallelism for the whole application, each actor type,
+ * each message type and each path, i.e. each combination of the type of the
+ * sender, the message type and the type of the receiver. The entities of the
+ * two runs are matched by their names.
+ * 
+ * The events of both runs are aggregated in a single parallel pass. The
+ * events of the actor instances are split into chunks, each chunk is
+ * aggregated into primitive-keyed tables of the thread that processes it and
+ * the tables of the threads are merged at the end. The profiling data must not
+ * be modified while it is compared.
+ * 
+ * @author Stephan Rehfeld
+ */
+public final class ProfilingDataDiff {
+    
+    /**
+     * The kinds of the compared entities.
+     */
+    public enum Kind {
+        
+        APPLICATION( "Application" ),
+        ACTOR_TYPE( "Actor type" ),
+        MESSAGE_TYPE( "Message type" ),
+        PATH( "Path" );
+        
+        public final String description;
+        
+        private Kind( final String description ) {
+            this.description = description;
+        }
+        
+    }
+    
+    /**
+     * The minimum number of event positions that are aggregated by one task of the parallel pass. Each task merges
+     * its tables into the result, so the tasks must not be too small.
+     */
+    private static final int MIN_TASK_SIZE = 1 << 14;
+    
+    /**
+     * The number of tasks per processor. More tasks than processors balance the load if the events of some actor
+     * instances are more expensive to read than others.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+    
+    private final ProfilingData baseline;
+    private final ProfilingData current;
+    
+    /**
+     * All entries, ordered by their regression, largest first.
+     */
+    private final List< Entry > entries;
+    
+    private ProfilingDataDiff( final ProfilingData baseline, final ProfilingData current, final List< Entry > entries ) {
+        this.baseline = baseline;
+        this.current = current;
+        this.entries = entries;
+    }
+    
+    /**
+     * This method compares two runs.
+     * 
+     * @param baseline The profiling data of the earlier run. Must not be null.
+     * @param current The profiling data of the run that is compared against the baseline. Must not be null.
+     * @return The differences between the runs.
+     */
+    public static ProfilingDataDiff compare( final ProfilingData baseline, final ProfilingData current ) {
+        if( baseline == null ) throw new IllegalArgumentException( "The parameter 'baseline' must not be null!" );
+        if( current == null ) throw new IllegalArgumentException( "The parameter 'current' must not be null!" );
+        final ProfilingData[] runs = { baseline, current };
+        
+        // The events are split into tasks of about the same size. A task consists of segments, each segment is a
+        // range of the positions of the events of one actor instance. Small actor instances share a task, large ones
+        // are split into several tasks.
+        long positionsCount = 0;
+        for( final ProfilingData run : runs ) {
+            for( final ActorInstance instance : run.getActorInstances() ) positionsCount += positions( instance );
+        }
+        final int taskSize = (int)Math.max( MIN_TASK_SIZE, Math.min( Integer.MAX_VALUE, positionsCount / (TASKS_PER_THREAD * Runtime.getRuntime().availableProcessors()) + 1 ) );
+        final List< Segment > segments = new ArrayList<>();
+        final List< Integer > taskStarts = new ArrayList<>();
+        int taskFill = taskSize;
+        for( int run = 0; run < runs.length; ++run ) {
+            for( final ActorInstance instance : runs[ run ].getActorInstances() ) {
+                final int positions = positions( instance );
+                int from = 0;
+                while( from < positions ) {
+                    if( taskFill == taskSize ) {
+                        taskStarts.add( segments.size() );
+                        taskFill = 0;
+                    }
+                    final int to = (int)Math.min( positions, (long)from + taskSize - taskFill );
+                    segments.add( new Segment( run, instance, from, to ) );
+                    taskFill += to - from;
+                    from = to;
+                }
+            }
+        }
+        taskStarts.add( segments.size() );
+        
+        final Aggregate[] aggregates = IntStream.range( 0, taskStarts.size() - 1 ).parallel().collect(
+            () -> new Aggregate[] { new Aggregate( baseline ), new Aggregate( current ) },
+            (partial, task) -> {
+                for( int i = taskStarts.get( task ); i < taskStarts.get( task + 1 ); ++i ) {
+                    final Segment segment = segments.get( i );
+                    partial[ segment.run ].add( segment.instance, segment.from, segment.to );
+                }
+            },
+            (left, right) -> {
+                left[ 0 ].add( right[ 0 ] );
+                left[ 1 ].add( right[ 1 ] );
+            }
+        );
+        
+        final Map< String, Entry > matched = new LinkedHashMap<>();
+        aggregates[ 0 ].summarize( matched, true );
+        aggregates[ 1 ].summarize( matched, false );
+        final List< Entry > entries = new ArrayList<>( matched.values() );
+        entries.sort( Comparator.comparingDouble( Entry::getRegression ).reversed() );
+        return new ProfilingDataDiff( baseline, current, Collections.unmodifiableList( entries ) );
+    }
+    
+    /**
+     * This method returns the number of positions of the events of an actor instance. A position covers the sent
+     * event and the processing event with this position.
+     * 
+     * @param instance The actor instance.
+     * @return The number of positions.
+     */
+    private static int positions( final ActorInstance instance ) {
+        return Math.max( instance.events.getSentCount(), instance.events.getProcessedCount() );
+    }
+    
+    public ProfilingData getBaseline() {
+        return this.baseline;
+    }
+    
+    public ProfilingData getCurrent() {
+        return this.current;
+    }
+    
+    /**
+     * This method returns all compared entities, ordered by their regression, largest first.
+     * 
+     * @return A read-only list of all entries.
+     */
+    public List< Entry > getEntries() {
+        return this.entries;
+    }
+    
+    /**
+     * This method returns the compared entities of one kind, ordered by their regression, largest first.
+     * 
+     * @param kind The kind of the entities. Must not be null.
+     * @return The entries of the given kind.
+     */
+    public List< Entry > getEntries( final Kind kind ) {
+        if( kind == null ) throw new IllegalArgumentException( "The parameter 'kind' must not be null!" );
+        final List< Entry > result = new ArrayList<>();
+        for( final Entry entry : this.entries ) if( entry.kind == kind ) result.add( entry );
+        return result;
+    }
+    
+    /**
+     * This method returns the entities that got slower, ordered by their regression, largest first.
+     * 
+     * @param limit The maximum number of returned entries.
+     * @return The entries with a positive regression.
+     */
+    public List< Entry > getRegressions( final int limit ) {
+        final List< Entry > result = new ArrayList<>();
+        for( final Entry entry : this.entries ) {
+            if( result.size() >= limit || entry.getRegression() <= 0 ) break;
+            result.add( entry );
+        }
+        return result;
+    }
+    
+    /**
+     * The aggregated events of an entity in one run.
+     */
+    public static final class Summary {
+        
+        private static final Summary EMPTY = new Summary( new Accumulator(), 0 );
+        
+        public final long sentCount;
+        public final long processedCount;
+        
+        /**
+         * The accumulated processing time in nanoseconds.
+         */
+        public final long processingTime;
+        
+        /**
+         * The average degree of parallelism, i.e. the processing time divided by the run time of the application.
+         */
+        public final double parallelism;
+        
+        private final Histogram processingTimeHistogram;
+        private final Histogram timeInMailboxHistogram;
+        
+        private Summary( final Accumulator accumulator, final long runTime ) {
+            this.sentCount = accumulator.sentCount;
+            this.processedCount = accumulator.processingTime.getCount();
+            this.processingTime = accumulator.processingTime.getSum();
+            this.parallelism = runTime > 0 ? (double)this.processingTime / runTime : 0.0;
+            this.processingTimeHistogram = accumulator.processingTime;
+            this.timeInMailboxHistogram = accumulator.timeInMailbox;
+        }
+        
+        /**
+         * This method returns a copy of the distribution of the processing times.
+         * 
+         * @return The distribution of the processing times in nanoseconds.
+         */
+        public Histogram getProcessingTimeHistogram() {
+            return new Histogram( this.processingTimeHistogram );
+        }
+        
+        /**
+         * This method returns a copy of the distribution of the times in the mailbox. Only messages that have been
+         * sent once are counted.
+         * 
+         * @return The distribution of the times in the mailbox in nanoseconds.
+         */
+        public Histogram getTimeInMailboxHistogram() {
+            return new Histogram( this.timeInMailboxHistogram );
+        }
+        
+        public double getMeanProcessingTime() {
+            return this.processingTimeHistogram.getMean();
+        }
+        
+        public long getProcessingTimeAtPercentile( final double percentile ) {
+            return this.processingTimeHistogram.getValueAtPercentile( percentile );
+        }
+        
+        public double getMeanTimeInMailbox() {
+            return this.timeInMailboxHistogram.getMean();
+        }
+        
+    }
+    
+    /**
+     * A compared entity. If the entity does not occur in one of the runs, its summary of that run is empty.
+     */
+    public static final class Entry {
+        
+        public final Kind kind;
+        
+        /**
+         * The short name of the entity.
+         */
+        public final String name;
+        
+        public final Summary baseline;
+        public final Summary current;
+        
+        private final double regression;
+        
+        private Entry( final Kind kind, final String name, final Summary baseline, final Summary current ) {
+            this.kind = kind;
+            this.name = name;
+            this.baseline = baseline;
+            this.current = current;
+            this.regression = current.processedCount * (current.getMeanProcessingTime() - baseline.getMeanProcessingTime())
+                            + current.timeInMailboxHistogram.getCount() * (current.getMeanTimeInMailbox() - baseline.getMeanTimeInMailbox());
+        }
+        
+        /**
+         * This method returns how much longer the messages of the current run have been processed and waited in the
+         * mailbox than they would have with the mean processing time and the mean time in the mailbox of the
+         * baseline. An entity that does not occur in the baseline regresses by all of its time.
+         * 
+         * @return The regression in nanoseconds. Negative if the entity got faster.
+         */
+        public double getRegression() {
+            return this.regression;
+        }
+        
+        public long getSentCountDelta() {
+            return this.current.sentCount - this.baseline.sentCount;
+        }
+        
+        public long getProcessedCountDelta() {
+            return this.current.processedCount - this.baseline.processedCount;
+        }
+        
+        public double getMeanProcessingTimeDelta() {
+            return this.current.getMeanProcessingTime() - this.baseline.getMeanProcessingTime();
+        }
+        
+        public long getProcessingTimeDeltaAtPercentile( final double percentile ) {
+            return this.current.getProcessingTimeAtPercentile( percentile ) - this.baseline.getProcessingTimeAtPercentile( percentile );
+        }
+        
+        public double getMeanTimeInMailboxDelta() {
+            return this.current.getMeanTimeInMailbox() - this.baseline.getMeanTimeInMailbox();
+        }
+        
+        public double getParallelismDelta() {
+            return this.current.parallelism - this.baseline.parallelism;
+        }
+        
+        @Override
+        public String toString() {
+            return "Entry{" + "kind=" + this.kind + ", name=" + this.name + ", regression=" + this.regression + '}';
+        }
+        
+    }
+    
+    /**
+     * A range of the positions of the events of an actor instance in one run.
+     */
+    private static final class Segment {
+        
+        final int run;
+        final ActorInstance instance;
+        final int from;
+        final int to;
+        
+        Segment( final int run, final ActorInstance instance, final int from, final int to ) {
+            this.run = run;
+            this.instance = instance;
+            this.from = from;
+            this.to = to;
+        }
+        
+    }
+    
+    /**
+     * The counts and the distributions of the events of an entity while they are aggregated.
+     */
+    private static final class Accumulator {
+        
+        private long sentCount;
+        private final Histogram processingTime;
+        private final Histogram timeInMailbox;
+        
+        Accumulator() {
+            this.processingTime = new Histogram();
+            this.timeInMailbox = new Histogram();
+        }
+        
+        void add( final Accumulator accumulator ) {
+            this.sentCount += accumulator.sentCount;
+            this.processingTime.add( accumulator.processingTime );
+            this.timeInMailbox.add( accumulator.timeInMailbox );
+        }
+        
+    }
+    
+    /**
+     * The accumulators of all entities of one run. The accumulators are indexed by the dense indices of the types,
+     * the paths are kept per type of the receiver and keyed by the index of the type of the sender and the index of
+     * the message type.
+     */
+    private static final class Aggregate {
+        
+        private final ProfilingData profilingData;
+        private final int messageTypesCount;
+        private final Accumulator application;
+        private final Accumulator[] actorTypes;
+        private final Accumulator[] messageTypes;
+        private final List< IntObjectMap< Accumulator > > paths;
+        
+        Aggregate( final ProfilingData profilingData ) {
+            this.profilingData = profilingData;
+            this.messageTypesCount = profilingData.getMessageTypesCount();
+            this.application = new Accumulator();
+            this.actorTypes = new Accumulator[ profilingData.getActorTypesCount() ];
+            this.messageTypes = new Accumulator[ this.messageTypesCount ];
+            this.paths = new ArrayList<>( this.actorTypes.length );
+            for( int i = 0; i < this.actorTypes.length; ++i ) this.paths.add( null );
+        }
+        
+        /**
+         * This method adds the events of an actor instance within a range of positions.
+         * 
+         * @param instance The actor instance.
+         * @param from The first position.
+         * @param to The position after the last position.
+         */
+        void add( final ActorInstance instance, final int from, final int to ) {
+            final EventStore events = instance.events;
+            final int ownType = instance.type.index;
+            
+            final int processedEnd = Math.min( events.getProcessedCount(), to );
+            for( int position = from; position < processedEnd; ++position ) {
+                final long start = events.getProcessingStart( position );
+                final long time = events.getProcessingEnd( position ) - start;
+                final int messageType = events.getProcessedMessageType( position );
+                final int senderType = this.profilingData.getActorInstance( events.getSender( position ) ).type.index;
+                final MessageInstance messageInstance = events.getProcessedMessageInstance( position );
+                final boolean inMailbox = messageInstance.getMessageSentEventsCount() == 1;
+                final long timeInMailbox = inMailbox ? start - messageInstance.getFirstSendTime() : 0;
+                this.processed( this.application, time, inMailbox, timeInMailbox );
+                this.processed( this.actorType( ownType ), time, inMailbox, timeInMailbox );
+                this.processed( this.messageType( messageType ), time, inMailbox, timeInMailbox );
+                this.processed( this.path( senderType, ownType, messageType ), time, inMailbox, timeInMailbox );
+            }
+            
+            final int sentEnd = Math.min( events.getSentCount(), to );
+            for( int position = from; position < sentEnd; ++position ) {
+                final int messageType = events.getSentMessageType( position );
+                final int receiverType = this.profilingData.getActorInstance( events.getReceiver( position ) ).type.index;
+                this.application.sentCount++;
+                this.actorType( ownType ).sentCount++;
+                this.messageType( messageType ).sentCount++;
+                this.path( ownType, receiverType, messageType ).sentCount++;
+            }
+        }
+        
+        private void processed( final Accumulator accumulator, final long time, final boolean inMailbox, final long timeInMailbox ) {
+            accumulator.processingTime.record( time );
+            if( inMailbox ) accumulator.timeInMailbox.record( timeInMailbox );
+        }
+        
+        private Accumulator actorType( final int index ) {
+            if( this.actorTypes[ index ] == null ) this.actorTypes[ index ] = new Accumulator();
+            return this.actorTypes[ index ];
+        }
+        
+        private Accumulator messageType( final int index ) {
+            if( this.messageTypes[ index ] == null ) this.messageTypes[ index ] = new Accumulator();
+            return this.messageTypes[ index ];
+        }
+        
+        private Accumulator path( final int senderType, final int receiverType, final int messageType ) {
+            IntObjectMap< Accumulator > receiverPaths = this.paths.get( receiverType );
+            if( receiverPaths == null ) {
+                receiverPaths = new IntObjectMap<>();
+                this.paths.set( receiverType, receiverPaths );
+            }
+            final int key = senderType * this.messageTypesCount + messageType;
+            Accumulator accumulator = receiverPaths.get( key );
+            if( accumulator == null ) {
+                accumulator = new Accumulator();
+                receiverPaths.put( key, accumulator );
+            }
+            return accumulator;
+        }
+        
+        /**
+         * This method merges the accumulators of another aggregate of the same run into this aggregate.
+         * 
+         * @param aggregate The other aggregate.
+         */
+        void add( final Aggregate aggregate ) {
+            this.application.add( aggregate.application );
+            merge( this.actorTypes, aggregate.actorTypes );
+            merge( this.messageTypes, aggregate.messageTypes );
+            for( int receiverType = 0; receiverType < this.paths.size(); ++receiverType ) {
+                final IntObjectMap< Accumulator > otherPaths = aggregate.paths.get( receiverType );
+                if( otherPaths == null ) continue;
+                final int type = receiverType;
+                otherPaths.forEach( (accumulator, key) -> this.path( key / this.messageTypesCount, type, key % this.messageTypesCount ).add( accumulator ) );
+            }
+        }
+        
+        private static void merge( final Accumulator[] target, final Accumulator[] source ) {
+            for( int i = 0; i < target.length; ++i ) {
+                if( source[ i ] == null ) continue;
+                if( target[ i ] == null ) {
+                    target[ i ] = source[ i ];
+                } else {
+                    target[ i ].add( source[ i ] );
+                }
+            }
+        }
+        
+        /**
+         * This method adds the summaries of all entities of this run to the matched entries.
+         * 
+         * @param matched The entries by the kind and the raw names of their entities.
+         * @param baseline True if this run is the baseline.
+         */
+        void summarize( final Map< String, Entry > matched, final boolean baseline ) {
+            final long runTime = Math.max( 0, this.profilingData.applicationRunTime() );
+            match( matched, baseline, Kind.APPLICATION, "", Kind.APPLICATION.description, new Summary( this.application, runTime ) );
+            for( int i = 0; i < this.actorTypes.length; ++i ) {
+                if( this.actorTypes[ i ] == null ) continue;
+                final ActorType actorType = this.profilingData.getActorType( i );
+                match( matched, baseline, Kind.ACTOR_TYPE, actorType.rawTypeName, actorType.shortTypeName, new Summary( this.actorTypes[ i ], runTime ) );
+            }
+            for( int i = 0; i < this.messageTypes.length; ++i ) {
+                if( this.messageTypes[ i ] == null ) continue;
+                final MessageType messageType = this.profilingData.getMessageType( i );
+                match( matched, baseline, Kind.MESSAGE_TYPE, messageType.rawType, messageType.shortType, new Summary( this.messageTypes[ i ], runTime ) );
+            }
+            for( int receiverType = 0; receiverType < this.paths.size(); ++receiverType ) {
+                final IntObjectMap< Accumulator > receiverPaths = this.paths.get( receiverType );
+                if( receiverPaths == null ) continue;
+                final ActorType receiver = this.profilingData.getActorType( receiverType );
+                receiverPaths.forEach( (accumulator, key) -> {
+                    final ActorType sender = this.profilingData.getActorType( key / this.messageTypesCount );
+                    final MessageType messageType = this.profilingData.getMessageType( key % this.messageTypesCount );
+                    final String rawName = sender.rawTypeName + '\n' + messageType.rawType + '\n' + receiver.rawTypeName;
+                    final String name = sender.shortTypeName + " -> " + messageType.shortType + " -> " + receiver.shortTypeName;
+                    match( matched, baseline, Kind.PATH, rawName, name, new Summary( accumulator, runTime ) );
+                });
+            }
+        }
+        
+        private static void match( final Map< String, Entry > matched, final boolean baseline, final Kind kind, final String rawName, final String name, final Summary summary ) {
+            final String key = kind.name() + '\n' + rawName;
+            final Entry entry = matched.get( key );
+            if( baseline ) {
+                matched.put( key, new Entry( kind, name, summary, Summary.EMPTY ) );
+            } else {
+                matched.put( key, new Entry( kind, name, entry == null ? Summary.EMPTY : entry.baseline, summary ) );
+            }
+        }
+        
+    }
+    
+}
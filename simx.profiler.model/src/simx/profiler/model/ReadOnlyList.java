@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+/**
+ * A ReadOnlyList is a read-only view of the first elements of an indexed
+ * collection that only grows at its end. The size is fixed when the view is
+ * created, so elements that are added later are not part of the view, like
+ * with a copy, but no elements are copied.
+ * 
+ * @param <E> The type of the elements.
+ * @author Stephan Rehfeld
+ */
+final class ReadOnlyList< E > extends AbstractList< E > implements RandomAccess {
+    
+    private final IntFunction< E > elements;
+    private final int size;
+    
+    /**
+     * This constructor creates a new view.
+     * 
+     * @param elements A function that returns the element at a position.
+     * @param size The number of elements of the view.
+     */
+    ReadOnlyList( final IntFunction< E > elements, final int size ) {
+        this.elements = elements;
+        this.size = size;
+    }
+    
+    @Override
+    public E get( final int index ) {
+        if( index < 0 || index >= this.size ) throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + this.size );
+        return this.elements.apply( index );
+    }
+    
+    @Override
+    public int size() {
+        return this.size;
+    }
+    
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.io.File;
+
+/**
+ * A Session is a trace that has been opened in the {@link SessionManager}. A
+ * loaded session holds the profiling data of the trace. The session manager
+ * unloads the least recently used sessions if the loaded sessions exceed the
+ * memory budget. An unloaded session keeps the directory and the loader of the
+ * trace, so it can be loaded again when it is activated.
+ * 
+ * @author Stephan Rehfeld
+ */
+public final class Session {
+    
+    private final String name;
+    
+    /**
+     * The directory of the trace, or null if the profiling data has not been loaded from a directory.
+     */
+    private final File directory;
+    
+    /**
+     * The loader of the trace, or null if the profiling data has not been loaded by a loader.
+     */
+    private final IModelLoader loader;
+    
+    /**
+     * True if the trace is followed while it grows.
+     */
+    private final boolean follow;
+    
+    /**
+     * The profiling data, or null if the session is not loaded.
+     */
+    private volatile ProfilingData profilingData;
+    private volatile boolean complete;
+    
+    /**
+     * The estimated footprint of the profiling data on the heap and off the heap in bytes. It is updated whenever
+     * the profiling data is published.
+     */
+    private volatile long heapBytes;
+    private volatile long offHeapBytes;
+    
+    /**
+     * The value of the use counter of the session manager when the session was used the last time.
+     */
+    long lastUsed;
+    
+    /**
+     * The number of times the session has been pinned by the session manager and not yet been unpinned.
+     */
+    int pins;
+    
+    /**
+     * This constructor creates a new session.
+     * 
+     * @param name The name of the session. Must not be null.
+     * @param directory The directory of the trace, or null if the profiling data has not been loaded from a directory.
+     * @param loader The loader of the trace, or null if the profiling data has not been loaded by a loader.
+     * @param follow True if the trace is followed while it grows.
+     */
+    Session( final String name, final File directory, final IModelLoader loader, final boolean follow ) {
+        if( name == null ) throw new IllegalArgumentException( "The parameter 'name' must not be null!" );
+        this.name = name;
+        this.directory = directory;
+        this.loader = loader;
+        this.follow = follow;
+    }
+    
+    public String getName() {
+        return this.name;
+    }
+    
+    /**
+     * This method returns the directory of the trace.
+     * 
+     * @return The directory, or null if the profiling data has not been loaded from a directory.
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+    
+    /**
+     * This method returns if the trace is followed while it grows.
+     * 
+     * @return True if the trace is followed.
+     */
+    public boolean isFollowed() {
+        return this.follow;
+    }
+    
+    /**
+     * This method returns if the profiling data of the session is in memory.
+     * 
+     * @return True if the session is loaded.
+     */
+    public boolean isLoaded() {
+        return this.profilingData != null;
+    }
+    
+    /**
+     * This method returns if the session can be loaded again after it has been unloaded.
+     * 
+     * @return True if the directory and the loader of the trace are known.
+     */
+    public boolean canReload() {
+        return this.directory != null && this.loader != null;
+    }
+    
+    /**
+     * This method returns the profiling data of the session.
+     * 
+     * @return The profiling data, or null if the session is not loaded.
+     */
+    public ProfilingData getProfilingData() {
+        return this.profilingData;
+    }
+    
+    /**
+     * This method returns if the profiling data is complete or if it is still growing.
+     * 
+     * @return False if more events will be added to the profiling data later.
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+    
+    /**
+     * This method returns the estimated number of bytes the profiling data occupies on the heap.
+     * 
+     * @return The estimated number of bytes, or 0 if the session is not loaded.
+     */
+    public long getEstimatedHeapBytes() {
+        return this.heapBytes;
+    }
+    
+    /**
+     * This method returns the number of bytes that have been reserved outside of the heap for the events.
+     * 
+     * @return The number of bytes, or 0 if the session is not loaded or the events are stored on the heap.
+     */
+    public long getOffHeapBytes() {
+        return this.offHeapBytes;
+    }
+    
+    /**
+     * This method returns the estimated memory footprint of the session, which is compared against the memory budget
+     * of the session manager.
+     * 
+     * @return The estimated number of bytes on the heap and off the heap.
+     */
+    public long getFootprint() {
+        return this.heapBytes + this.offHeapBytes;
+    }
+    
+    IModelLoader getLoader() {
+        return this.loader;
+    }
+    
+    /**
+     * This method sets the profiling data of the session and updates the estimated footprint.
+     * 
+     * @param profilingData The profiling data, or null if the session is unloaded.
+     * @param complete False if more events will be added to the profiling data later.
+     */
+    void setProfilingData( final ProfilingData profilingData, final boolean complete ) {
+        this.profilingData = profilingData;
+        this.complete = complete;
+        this.updateFootprint();
+    }
+    
+    void updateFootprint() {
+        final ProfilingData data = this.profilingData;
+        this.heapBytes = data == null ? 0 : data.getEstimatedHeapBytes();
+        this.offHeapBytes = data == null ? 0 : data.getOffHeapBytes();
+    }
+    
+    @Override
+    public String toString() {
+        if( !this.isLoaded() ) return this.name + " (unloaded)";
+        return this.name + " (" + (this.getFootprint() >> 20) + " MiB)";
+    }
+    
+}
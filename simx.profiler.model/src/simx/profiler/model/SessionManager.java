@@ -0,0 +1,395 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import javax.swing.event.ChangeListener;
+import org.openide.util.ChangeSupport;
+
+/**
+ * The SessionManager keeps the traces that have been opened at runtime. Each
+ * trace is a {@link Session}. One session is active, its profiling data is
+ * announced by the lookup of {@link ProfilingData#getLookup()}, so the windows
+ * rebind to it when another session is activated.
+ * 
+ * The estimated footprint of the loaded sessions is bounded by a memory
+ * budget. If it is exceeded, the least recently used sessions are unloaded
+ * until the footprint fits into the budget again. The active session is never
+ * unloaded, neither are pinned sessions, e.g. while their profiling data is
+ * compared in the background. The budget is read from the system property
+ * simx.profiler.sessions.memoryBudget in MiB. If it is not set, the budget is
+ * half of the maximum heap size.
+ * 
+ * @author Stephan Rehfeld
+ */
+public final class SessionManager {
+    
+    /**
+     * The name of the system property that sets the memory budget in MiB.
+     */
+    public static final String MEMORY_BUDGET_PROPERTY = "simx.profiler.sessions.memoryBudget";
+    
+    private static final Logger LOGGER = Logger.getLogger( SessionManager.class.getName() );
+    
+    private static final SessionManager DEFAULT = new SessionManager( memoryBudgetFromSystemProperties() );
+    
+    private final long memoryBudget;
+    
+    /**
+     * The sessions in the order they have been opened.
+     */
+    private final List< Session > sessions;
+    private Session activeSession;
+    
+    /**
+     * A counter that is incremented whenever a session is used, to find the least recently used session.
+     */
+    private long useCounter;
+    
+    private final ChangeSupport changeSupport;
+    
+    /**
+     * This constructor creates a new session manager.
+     * 
+     * @param memoryBudget The memory budget in bytes. Must be positive.
+     */
+    SessionManager( final long memoryBudget ) {
+        if( memoryBudget <= 0 ) throw new IllegalArgumentException( "The parameter 'memoryBudget' must be positive!" );
+        this.memoryBudget = memoryBudget;
+        this.sessions = new ArrayList<>();
+        this.changeSupport = new ChangeSupport( this );
+    }
+    
+    /**
+     * This method returns the session manager of the application.
+     * 
+     * @return The session manager.
+     */
+    public static SessionManager getDefault() {
+        return DEFAULT;
+    }
+    
+    private static long memoryBudgetFromSystemProperties() {
+        final String value = System.getProperty( MEMORY_BUDGET_PROPERTY );
+        if( value != null ) {
+            try {
+                final long megabytes = Long.parseLong( value.trim() );
+                if( megabytes > 0 ) return megabytes << 20;
+            } catch( final NumberFormatException ex ) {
+                // Falls back to the default budget.
+            }
+            LOGGER.warning( "Ignoring invalid memory budget " + value + "." );
+        }
+        return Runtime.getRuntime().maxMemory() / 2;
+    }
+    
+    /**
+     * This method returns the memory budget of the loaded sessions.
+     * 
+     * @return The memory budget in bytes.
+     */
+    public long getMemoryBudget() {
+        return this.memoryBudget;
+    }
+    
+    /**
+     * This method returns the estimated footprint of all loaded sessions.
+     * 
+     * @return The estimated number of bytes on the heap and off the heap.
+     */
+    public synchronized long getFootprint() {
+        long footprint = 0;
+        for( final Session session : this.sessions ) footprint += session.getFootprint();
+        return footprint;
+    }
+    
+    /**
+     * This method returns a snapshot of the sessions in the order they have been opened.
+     * 
+     * @return The sessions.
+     */
+    public synchronized List< Session > getSessions() {
+        return Collections.unmodifiableList( new ArrayList<>( this.sessions ) );
+    }
+    
+    /**
+     * This method returns the active session.
+     * 
+     * @return The active session, or null if no session is open.
+     */
+    public synchronized Session getActiveSession() {
+        return this.activeSession;
+    }
+    
+    /**
+     * This method returns the profiling data of the active session.
+     * 
+     * @return The profiling data, or null if no session is open.
+     */
+    public synchronized ProfilingData getActiveProfilingData() {
+        return this.activeSession == null ? null : this.activeSession.getProfilingData();
+    }
+    
+    /**
+     * This method opens a session for loaded profiling data and activates it. The profiling data of a trace that is
+     * not followed is frozen, if the loader has not frozen it already.
+     * 
+     * @param directory The directory of the trace. Must not be null.
+     * @param loader The loader of the trace. Used to load the session again after it has been unloaded. May be null.
+     * @param follow True if the trace is followed while it grows.
+     * @param profilingData The loaded profiling data. Must not be null.
+     * @return The new session.
+     */
+    public Session open( final File directory, final IModelLoader loader, final boolean follow, final ProfilingData profilingData ) {
+        if( directory == null ) throw new IllegalArgumentException( "The parameter 'directory' must not be null!" );
+        if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
+        if( profilingData.isDisposed() ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be disposed!" );
+        if( !follow ) profilingData.freeze();
+        final Session session;
+        synchronized( this ) {
+            // A follower may have published the profiling data before the session is opened.
+            final Session published = this.find( profilingData );
+            if( published != null ) this.sessions.remove( published );
+            session = new Session( this.uniqueName( directory.getName() ), directory, loader, follow );
+            session.setProfilingData( profilingData, !follow );
+            this.sessions.add( session );
+            this.setActiveSession( session );
+            this.evict();
+        }
+        this.changeSupport.fireChange();
+        return session;
+    }
+    
+    /**
+     * This method loads an unloaded session again and activates it. The loading blocks the calling thread, so it
+     * should not be called on the event dispatch thread. A loaded session is only activated.
+     * 
+     * @param session The session. Must not be null and must be able to reload.
+     * @param listener The listener for the progress. May be null.
+     * @throws IOException
+     * @throws DataFormatException 
+     */
+    public void load( final Session session, final LoadProgressListener listener ) throws IOException, DataFormatException {
+        if( session == null ) throw new IllegalArgumentException( "The parameter 'session' must not be null!" );
+        if( !session.canReload() ) throw new IllegalArgumentException( "The session can not be loaded again!" );
+        if( session.isLoaded() ) {
+            this.activate( session );
+            return;
+        }
+        final ProfilingData profilingData = session.isFollowed() ? session.getLoader().follow( session.getDirectory() ) : session.getLoader().load( session.getDirectory(), LoadOptions.fromSystemProperties(), listener );
+        if( !session.isFollowed() ) profilingData.freeze();
+        synchronized( this ) {
+            if( !this.sessions.contains( session ) || session.isLoaded() ) {
+                // The session has been closed or loaded by someone else in the meantime.
+                profilingData.dispose();
+                return;
+            }
+            session.setProfilingData( profilingData, !session.isFollowed() );
+            this.setActiveSession( session );
+            this.evict();
+        }
+        this.changeSupport.fireChange();
+    }
+    
+    /**
+     * This method activates a session. The profiling data of the session is announced by the lookup.
+     * 
+     * @param session The session. Must not be null, must be open and must be loaded.
+     */
+    public void activate( final Session session ) {
+        if( session == null ) throw new IllegalArgumentException( "The parameter 'session' must not be null!" );
+        synchronized( this ) {
+            if( !this.sessions.contains( session ) ) throw new IllegalArgumentException( "The session is not open!" );
+            if( !session.isLoaded() ) throw new IllegalStateException( "The session must be loaded before it is activated!" );
+            if( session == this.activeSession ) return;
+            this.setActiveSession( session );
+            this.evict();
+        }
+        this.changeSupport.fireChange();
+    }
+    
+    /**
+     * This method closes a session and releases its profiling data. If it is the active session, the most recently
+     * used loaded session is activated.
+     * 
+     * @param session The session. Must not be null.
+     */
+    public void close( final Session session ) {
+        if( session == null ) throw new IllegalArgumentException( "The parameter 'session' must not be null!" );
+        synchronized( this ) {
+            if( !this.sessions.remove( session ) ) return;
+            this.unload( session );
+            if( session == this.activeSession ) this.setActiveSession( this.mostRecentlyUsed() );
+        }
+        this.changeSupport.fireChange();
+    }
+    
+    /**
+     * This method pins a loaded session, so it is not unloaded to stay within the memory budget until it is
+     * unpinned, e.g. while its profiling data is read on another thread. A session can be pinned several times, it
+     * can be unloaded again when it has been unpinned as often. Closing a session unloads it even if it is pinned.
+     * 
+     * @param session The session. Must not be null.
+     * @return The profiling data of the session, or null if the session is not open or not loaded. Then the session
+     *         is not pinned.
+     */
+    public synchronized ProfilingData pin( final Session session ) {
+        if( session == null ) throw new IllegalArgumentException( "The parameter 'session' must not be null!" );
+        final ProfilingData profilingData = session.getProfilingData();
+        if( profilingData == null || !this.sessions.contains( session ) ) return null;
+        session.pins++;
+        return profilingData;
+    }
+    
+    /**
+     * This method unpins a session that has been pinned before. If the session is not pinned anymore, it may be
+     * unloaded to stay within the memory budget.
+     * 
+     * @param session The session. Must not be null and must be pinned.
+     */
+    public void unpin( final Session session ) {
+        if( session == null ) throw new IllegalArgumentException( "The parameter 'session' must not be null!" );
+        synchronized( this ) {
+            if( session.pins == 0 ) throw new IllegalStateException( "The session is not pinned!" );
+            session.pins--;
+            if( !this.evict() ) return;
+        }
+        this.changeSupport.fireChange();
+    }
+    
+    /**
+     * This method is called whenever profiling data is published. If the profiling data belongs to a session, the
+     * footprint of the session is updated and the profiling data is announced if the session is active. Otherwise
+     * a new session is opened and activated for it, e.g. if a module publishes profiling data it has created itself.
+     * Disposed profiling data is ignored.
+     * 
+     * @param profilingData The published profiling data.
+     * @param complete False if more events will be added to the profiling data later.
+     */
+    void published( final ProfilingData profilingData, final boolean complete ) {
+        synchronized( this ) {
+            if( profilingData.isDisposed() ) return;
+            Session session = this.find( profilingData );
+            final boolean opened = session == null;
+            if( opened ) {
+                session = new Session( this.uniqueName( "Profiling data" ), null, null, !complete );
+                this.sessions.add( session );
+            }
+            session.setProfilingData( profilingData, complete );
+            if( opened ) {
+                this.setActiveSession( session );
+            } else if( session == this.activeSession ) {
+                ProfilingData.announce( session );
+            }
+            this.evict();
+        }
+        this.changeSupport.fireChange();
+    }
+    
+    /**
+     * This method adds a listener that is notified whenever a session is opened, closed, loaded, unloaded or
+     * activated, and whenever the footprint of a session changes.
+     * 
+     * @param listener The listener.
+     */
+    public void addChangeListener( final ChangeListener listener ) {
+        this.changeSupport.addChangeListener( listener );
+    }
+    
+    public void removeChangeListener( final ChangeListener listener ) {
+        this.changeSupport.removeChangeListener( listener );
+    }
+    
+    private void setActiveSession( final Session session ) {
+        this.activeSession = session;
+        if( session != null ) session.lastUsed = ++this.useCounter;
+        ProfilingData.announce( session );
+    }
+    
+    /**
+     * This method unloads the least recently used sessions until the footprint of the loaded sessions fits into the
+     * memory budget. The active session is never unloaded, neither are pinned sessions and sessions that can not be
+     * loaded again.
+     * 
+     * @return True if a session has been unloaded.
+     */
+    private boolean evict() {
+        boolean unloaded = false;
+        long footprint = this.getFootprint();
+        while( footprint > this.memoryBudget ) {
+            Session leastRecentlyUsed = null;
+            for( final Session session : this.sessions ) {
+                if( session == this.activeSession || session.pins > 0 || !session.isLoaded() || !session.canReload() ) continue;
+                if( leastRecentlyUsed == null || session.lastUsed < leastRecentlyUsed.lastUsed ) leastRecentlyUsed = session;
+            }
+            if( leastRecentlyUsed == null ) return unloaded;
+            footprint -= leastRecentlyUsed.getFootprint();
+            LOGGER.info( "Unloading " + leastRecentlyUsed + " to stay within the memory budget of " + (this.memoryBudget >> 20) + " MiB." );
+            this.unload( leastRecentlyUsed );
+            unloaded = true;
+        }
+        return unloaded;
+    }
+    
+    private void unload( final Session session ) {
+        final ProfilingData profilingData = session.getProfilingData();
+        if( profilingData != null ) profilingData.dispose();
+        session.setProfilingData( null, false );
+    }
+    
+    private Session mostRecentlyUsed() {
+        Session mostRecentlyUsed = null;
+        for( final Session session : this.sessions ) {
+            if( !session.isLoaded() ) continue;
+            if( mostRecentlyUsed == null || session.lastUsed > mostRecentlyUsed.lastUsed ) mostRecentlyUsed = session;
+        }
+        return mostRecentlyUsed;
+    }
+    
+    private Session find( final ProfilingData profilingData ) {
+        for( final Session session : this.sessions ) {
+            if( session.getProfilingData() == profilingData ) return session;
+        }
+        return null;
+    }
+    
+    /**
+     * This method returns the given name, followed by a number if another session has the same name.
+     * 
+     * @param name The name.
+     * @return A name that is not used by another session.
+     */
+    private String uniqueName( final String name ) {
+        String uniqueName = name;
+        for( int i = 2; this.hasSession( uniqueName ); ++i ) uniqueName = name + " (" + i + ")";
+        return uniqueName;
+    }
+    
+    private boolean hasSession( final String name ) {
+        for( final Session session : this.sessions ) {
+            if( session.getName().equals( name ) ) return true;
+        }
+        return false;
+    }
+    
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simx.profiler.model;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import org.openide.awt.ActionID;
+import org.openide.awt.ActionReference;
+import org.openide.awt.ActionRegistration;
+import org.openide.util.NbBundle;
+
+/**
+ * This action shows the open sessions with their estimated footprint and lets
+ * the user activate or close a session. Activating an unloaded session loads
+ * it again in the background.
+ * 
+ * @author Stephan Rehfeld
+ */
+@ActionID( category = "File", id = "simx.profiler.model.SessionsAction" )
+@ActionRegistration( displayName = "#CTL_SessionsAction" )
+@ActionReference( path = "Menu/File", position = 110 )
+public final class SessionsAction implements ActionListener {
+    
+    @Override
+    public void actionPerformed( final ActionEvent e ) {
+        final SessionManager sessionManager = SessionManager.getDefault();
+        final List< Session > sessions = sessionManager.getSessions();
+        if( sessions.isEmpty() ) return;
+        
+        final JList< Session > sessionList = new JList<>( sessions.toArray( new Session[ sessions.size() ] ) );
+        sessionList.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
+        sessionList.setSelectedValue( sessionManager.getActiveSession(), true );
+        sessionList.setVisibleRowCount( Math.min( 10, sessions.size() ) );
+        
+        final JPanel panel = new JPanel( new BorderLayout( 0, 5 ) );
+        panel.add( new JLabel( NbBundle.getMessage( SessionsAction.class, "SessionsAction.footprint", sessionManager.getFootprint() >> 20, sessionManager.getMemoryBudget() >> 20 ) ), BorderLayout.NORTH );
+        panel.add( new JScrollPane( sessionList ), BorderLayout.CENTER );
+        
+        final String activate = NbBundle.getMessage( SessionsAction.class, "SessionsAction.activate" );
+        final String close = NbBundle.getMessage( SessionsAction.class, "SessionsAction.close" );
+        final String cancel = NbBundle.getMessage( SessionsAction.class, "SessionsAction.cancel" );
+        final int option = JOptionPane.showOptionDialog( null, panel, NbBundle.getMessage( SessionsAction.class, "CTL_SessionsAction" ), JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, new Object[] { activate, close, cancel }, activate );
+        
+        final Session session = sessionList.getSelectedValue();
+        if( session == null ) return;
+        if( option == 0 ) {
+            Installer.activate( session );
+        } else if( option == 1 ) {
+            sessionManager.close( session );
+        }
+    }
+    
+}
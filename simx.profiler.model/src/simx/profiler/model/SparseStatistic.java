@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.Arrays;
+
+/**
+ * A SparseStatistic counts pairs of dense indices, e.g. how many messages of
+ * a message type have been sent to a receiver. Only the pairs that occurred
+ * are stored, in an open addressing hash table with primitive keys and
+ * counts.
+ * 
+ * @author Stephan Rehfeld
+ */
+final class SparseStatistic {
+    
+    /**
+     * A consumer for the entries of the statistic.
+     */
+    interface EntryConsumer {
+        void accept( final int row, final int column, final int count );
+    }
+    
+    /**
+     * Marks an empty slot. Keys are never negative, because the indices are not negative.
+     */
+    private static final long EMPTY = -1L;
+    
+    private long[] keys;
+    private int[] counts;
+    private int size;
+    
+    SparseStatistic() {
+        this.keys = new long[ 8 ];
+        Arrays.fill( this.keys, EMPTY );
+        this.counts = new int[ 8 ];
+    }
+    
+    /**
+     * This method increments the count of the given pair of indices.
+     * 
+     * @param row The first index.
+     * @param column The second index.
+     */
+    void increment( final int row, final int column ) {
+        final long key = key( row, column );
+        final int slot = this.slot( key );
+        if( this.keys[ slot ] == EMPTY ) {
+            this.keys[ slot ] = key;
+            this.size++;
+            if( this.size * 2 > this.keys.length ) {
+                this.counts[ slot ]++;
+                this.rehash();
+                return;
+            }
+        }
+        this.counts[ slot ]++;
+    }
+    
+    int get( final int row, final int column ) {
+        final long key = key( row, column );
+        final int slot = this.slot( key );
+        return this.keys[ slot ] == EMPTY ? 0 : this.counts[ slot ];
+    }
+    
+    int size() {
+        return this.size;
+    }
+    
+    void forEach( final EntryConsumer consumer ) {
+        for( int i = 0; i < this.keys.length; ++i ) {
+            if( this.keys[ i ] != EMPTY ) consumer.accept( (int)(this.keys[ i ] >>> 32), (int)this.keys[ i ], this.counts[ i ] );
+        }
+    }
+    
+    private int slot( final long key ) {
+        final int mask = this.keys.length - 1;
+        int slot = mix( key ) & mask;
+        while( this.keys[ slot ] != EMPTY && this.keys[ slot ] != key ) slot = (slot + 1) & mask;
+        return slot;
+    }
+    
+    private void rehash() {
+        final long[] oldKeys = this.keys;
+        final int[] oldCounts = this.counts;
+        this.keys = new long[ oldKeys.length * 2 ];
+        Arrays.fill( this.keys, EMPTY );
+        this.counts = new int[ oldKeys.length * 2 ];
+        for( int i = 0; i < oldKeys.length; ++i ) {
+            if( oldKeys[ i ] == EMPTY ) continue;
+            final int slot = this.slot( oldKeys[ i ] );
+            this.keys[ slot ] = oldKeys[ i ];
+            this.counts[ slot ] = oldCounts[ i ];
+        }
+    }
+    
+    private static long key( final int row, final int column ) {
+        return ((long)row << 32) | (column & 0xFFFFFFFFL);
+    }
+    
+    private static int mix( final long key ) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+    
+}
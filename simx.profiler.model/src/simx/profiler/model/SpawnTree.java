@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The spawn tree of the actor instances. Each actor instance is a child of its supervisor. The children are stored
+ * in primitive arrays indexed by the dense index of the actor instances, and the aggregates of each subtree (number
+ * of actors, sent and received messages, processing time) are computed once when the tree is created. A spawn tree
+ * is a snapshot, use ProfilingData.getSpawnTree to get a tree that reflects later changes.
+ * 
+ * @author Stephan Rehfeld
+ */
+public class SpawnTree {
+    
+    /**
+     * The profiling data.
+     */
+    private final ProfilingData profilingData;
+    
+    /**
+     * The indices of the root instances, i.e. the instances without supervisor.
+     */
+    private final int[] roots;
+    
+    /**
+     * The children of instance i are childIndices[ childStart[ i ] ] to childIndices[ childStart[ i + 1 ] - 1 ].
+     */
+    private final int[] childStart;
+    private final int[] childIndices;
+    
+    private final int[] subtreeSize;
+    private final long[] subtreeSentMessages;
+    private final long[] subtreeReceivedMessages;
+    private final long[] subtreeProcessingTime;
+    
+    /**
+     * This constructor creates the spawn tree of the current actor instances of the given profiling data.
+     * 
+     * @param profilingData The profiling data. Must not be null.
+     */
+    SpawnTree( final ProfilingData profilingData ) {
+        if( profilingData == null ) throw new IllegalArgumentException( "The parameter 'profilingData' must not be null!" );
+        this.profilingData = profilingData;
+        final int count = profilingData.getActorInstancesCount();
+        
+        final int[] parents = new int[ count ];
+        this.childStart = new int[ count + 1 ];
+        int rootCount = 0;
+        for( int i = 0; i < count; ++i ) {
+            final ActorInstance supervisor = profilingData.getActorInstance( i ).getSupervisor();
+            parents[ i ] = supervisor == null ? -1 : supervisor.index;
+            if( parents[ i ] == -1 ) {
+                rootCount++;
+            } else {
+                this.childStart[ parents[ i ] + 1 ]++;
+            }
+        }
+        for( int i = 0; i < count; ++i ) this.childStart[ i + 1 ] += this.childStart[ i ];
+        
+        this.roots = new int[ rootCount ];
+        this.childIndices = new int[ count - rootCount ];
+        final int[] fill = new int[ count ];
+        rootCount = 0;
+        for( int i = 0; i < count; ++i ) {
+            if( parents[ i ] == -1 ) {
+                this.roots[ rootCount++ ] = i;
+            } else {
+                this.childIndices[ this.childStart[ parents[ i ] ] + fill[ parents[ i ] ]++ ] = i;
+            }
+        }
+        
+        this.subtreeSize = new int[ count ];
+        this.subtreeSentMessages = new long[ count ];
+        this.subtreeReceivedMessages = new long[ count ];
+        this.subtreeProcessingTime = new long[ count ];
+        for( int i = 0; i < count; ++i ) {
+            final ActorInstance actorInstance = profilingData.getActorInstance( i );
+            this.subtreeSize[ i ] = 1;
+            this.subtreeSentMessages[ i ] = actorInstance.getSentMessagesCount();
+            this.subtreeReceivedMessages[ i ] = actorInstance.getReceivesMessagesCount();
+            this.subtreeProcessingTime[ i ] = actorInstance.getOverallProcessingTime();
+        }
+        
+        // The instances in breadth first order from the roots. Adding the aggregates in reverse order adds each
+        // subtree to its parent after the subtree is complete.
+        final int[] order = new int[ count ];
+        int size = 0;
+        for( final int root : this.roots ) order[ size++ ] = root;
+        for( int next = 0; next < size; ++next ) {
+            final int i = order[ next ];
+            for( int c = this.childStart[ i ]; c < this.childStart[ i + 1 ]; ++c ) order[ size++ ] = this.childIndices[ c ];
+        }
+        for( int next = size - 1; next >= 0; --next ) {
+            final int i = order[ next ];
+            final int parent = parents[ i ];
+            if( parent == -1 ) continue;
+            this.subtreeSize[ parent ] += this.subtreeSize[ i ];
+            this.subtreeSentMessages[ parent ] += this.subtreeSentMessages[ i ];
+            this.subtreeReceivedMessages[ parent ] += this.subtreeReceivedMessages[ i ];
+            this.subtreeProcessingTime[ parent ] += this.subtreeProcessingTime[ i ];
+        }
+    }
+    
+    /**
+     * This method returns the actor instances without supervisor.
+     * 
+     * @return A list of the actor instances without supervisor.
+     */
+    public List< ActorInstance > getRoots() {
+        final List< ActorInstance > result = new ArrayList<>( this.roots.length );
+        for( final int root : this.roots ) result.add( this.profilingData.getActorInstance( root ) );
+        return result;
+    }
+    
+    /**
+     * This method returns the actor instances that are supervised by the given actor instance.
+     * 
+     * @param actorInstance The supervisor. Must not be null.
+     * @return A list of the children of the actor instance.
+     */
+    public List< ActorInstance > getChildren( final ActorInstance actorInstance ) {
+        final int i = this.checkedIndex( actorInstance );
+        final List< ActorInstance > result = new ArrayList<>( this.childStart[ i + 1 ] - this.childStart[ i ] );
+        for( int c = this.childStart[ i ]; c < this.childStart[ i + 1 ]; ++c ) result.add( this.profilingData.getActorInstance( this.childIndices[ c ] ) );
+        return result;
+    }
+    
+    /**
+     * This method returns the number of actor instances in the subtree of the given actor instance, including itself.
+     * 
+     * @param actorInstance The root of the subtree. Must not be null.
+     * @return The number of actor instances in the subtree.
+     */
+    public int getSubtreeSize( final ActorInstance actorInstance ) {
+        return this.subtreeSize[ this.checkedIndex( actorInstance ) ];
+    }
+    
+    /**
+     * This method returns the number of messages sent by the actor instances in the subtree of the given actor
+     * instance.
+     * 
+     * @param actorInstance The root of the subtree. Must not be null.
+     * @return The number of sent messages of the subtree.
+     */
+    public long getSubtreeSentMessagesCount( final ActorInstance actorInstance ) {
+        return this.subtreeSentMessages[ this.checkedIndex( actorInstance ) ];
+    }
+    
+    /**
+     * This method returns the number of messages received by the actor instances in the subtree of the given actor
+     * instance.
+     * 
+     * @param actorInstance The root of the subtree. Must not be null.
+     * @return The number of received messages of the subtree.
+     */
+    public long getSubtreeReceivedMessagesCount( final ActorInstance actorInstance ) {
+        return this.subtreeReceivedMessages[ this.checkedIndex( actorInstance ) ];
+    }
+    
+    /**
+     * This method returns the overall processing time of the actor instances in the subtree of the given actor
+     * instance.
+     * 
+     * @param actorInstance The root of the subtree. Must not be null.
+     * @return The processing time of the subtree.
+     */
+    public long getSubtreeProcessingTime( final ActorInstance actorInstance ) {
+        return this.subtreeProcessingTime[ this.checkedIndex( actorInstance ) ];
+    }
+    
+    private int checkedIndex( final ActorInstance actorInstance ) {
+        if( actorInstance == null ) throw new IllegalArgumentException( "The parameter 'actorInstance' must not be null!" );
+        if( actorInstance.type.profilingData != this.profilingData || actorInstance.index >= this.subtreeSize.length ) {
+            throw new IllegalArgumentException( "The actor instance is not part of this spawn tree!" );
+        }
+        return actorInstance.index;
+    }
+    
+}
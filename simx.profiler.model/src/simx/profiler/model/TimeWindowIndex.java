@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015 Stephan Rehfeld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package simx.profiler.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A TimeWindowIndex answers aggregate queries for arbitrary time windows
+ * [from, to], e.g. the number of sent messages or the time spent processing
+ * messages between two frames. It is built once from the events of a set of
+ * actor instances and answers each query in logarithmic time:
+ * 
+ * The times of the sent messages and the starts of the processings are kept
+ * sorted, so counts are two binary searches. The times in the mailbox are
+ * summed up in the order of the processing starts. The degree of parallelism
+ * (DOP) is a step function that changes at the starts and ends of the
+ * processings; its integral up to each change is the processing time, and a
+ * segment tree over the steps answers the maximal DOP of a window.
+ * 
+ * @author Stephan Rehfeld
+ */
+public class TimeWindowIndex {
+    
+    /**
+     * The times of all sent messages, sorted.
+     */
+    private final long[] sendTimes;
+    
+    /**
+     * The starts of all processings, sorted.
+     */
+    private final long[] starts;
+    
+    /**
+     * The sums and the numbers of the times in the mailbox of the first i processings in the order of their start.
+     * Only messages that have been sent exactly once are counted.
+     */
+    private final long[] timeInMailboxSums;
+    private final int[] timeInMailboxCounts;
+    
+    /**
+     * The times when the DOP changes, the DOP from this time on, and the processing time from the first change up to
+     * this time.
+     */
+    private final long[] changes;
+    private final int[] parallelism;
+    private final long[] processingTimes;
+    
+    /**
+     * A segment tree for the maximum of the DOP. The leaves are tree[ n ] to tree[ 2n - 1 ].
+     */
+    private final int[] maxParallelismTree;
+    
+    /**
+     * This constructor creates the index of the events of the given actor instances.
+     * 
+     * @param instances The actor instances. Must not be null.
+     */
+    TimeWindowIndex( final List< ActorInstance > instances ) {
+        if( instances == null ) throw new IllegalArgumentException( "The parameter 'instances' must not be null!" );
+        // The counts are taken once, so events that a follower adds while the index is built are left out.
+        final int[] sentCounts = new int[ instances.size() ];
+        final int[] processedCounts = new int[ instances.size() ];
+        int sentCount = 0;
+        int processedCount = 0;
+        for( int i = 0; i < instances.size(); ++i ) {
+            sentCounts[ i ] = instances.get( i ).events.getSentCount();
+            processedCounts[ i ] = instances.get( i ).events.getProcessedCount();
+            sentCount += sentCounts[ i ];
+            processedCount += processedCounts[ i ];
+        }
+        
+        this.sendTimes = new long[ sentCount ];
+        final long[] unsortedStarts = new long[ processedCount ];
+        final long[] ends = new long[ processedCount ];
+        final long[] timesInMailbox = new long[ processedCount ];
+        final boolean[] inMailbox = new boolean[ processedCount ];
+        int sent = 0;
+        int processed = 0;
+        for( int j = 0; j < instances.size(); ++j ) {
+            final EventStore events = instances.get( j ).events;
+            for( int i = 0; i < sentCounts[ j ]; ++i ) this.sendTimes[ sent++ ] = events.getSendTime( i );
+            for( int i = 0; i < processedCounts[ j ]; ++i ) {
+                unsortedStarts[ processed ] = events.getProcessingStart( i );
+                ends[ processed ] = events.getProcessingEnd( i );
+                final MessageInstance messageInstance = events.getProcessedMessageInstance( i );
+                if( messageInstance.getMessageSentEventsCount() == 1 ) {
+                    inMailbox[ processed ] = true;
+                    timesInMailbox[ processed ] = unsortedStarts[ processed ] - messageInstance.getFirstSendTime();
+                }
+                processed++;
+            }
+        }
+        Arrays.sort( this.sendTimes );
+        
+        final int[] order = EventIndex.sortedPositions( processedCount, (i) -> unsortedStarts[ i ] );
+        this.starts = new long[ processedCount ];
+        this.timeInMailboxSums = new long[ processedCount + 1 ];
+        this.timeInMailboxCounts = new int[ processedCount + 1 ];
+        for( int i = 0; i < processedCount; ++i ) {
+            final int position = order[ i ];
+            this.starts[ i ] = unsortedStarts[ position ];
+            this.timeInMailboxSums[ i + 1 ] = this.timeInMailboxSums[ i ] + (inMailbox[ position ] ? timesInMailbox[ position ] : 0);
+            this.timeInMailboxCounts[ i + 1 ] = this.timeInMailboxCounts[ i ] + (inMailbox[ position ] ? 1 : 0);
+        }
+        
+        // The steps of the DOP are built like the ones of the parallelism profile. All changes at the same time form one step.
+        Arrays.sort( ends );
+        final ParallelismProfile profile = new ParallelismProfile( this.starts, ends, processedCount, true );
+        this.changes = profile.changes;
+        this.parallelism = profile.parallelism;
+        final int steps = this.changes.length;
+        this.processingTimes = new long[ steps ];
+        for( int i = 1; i < steps; ++i ) {
+            this.processingTimes[ i ] = this.processingTimes[ i - 1 ] + this.parallelism[ i - 1 ] * (this.changes[ i ] - this.changes[ i - 1 ]);
+        }
+        
+        this.maxParallelismTree = new int[ 2 * steps ];
+        System.arraycopy( this.parallelism, 0, this.maxParallelismTree, steps, steps );
+        for( int i = steps - 1; i > 0; --i ) this.maxParallelismTree[ i ] = Math.max( this.maxParallelismTree[ 2 * i ], this.maxParallelismTree[ 2 * i + 1 ] );
+    }
+    
+    /**
+     * This method returns the number of messages that have been sent in the time window.
+     * 
+     * @param from The beginning of the time window, inclusive.
+     * @param to The end of the time window, inclusive.
+     * @return The number of sent messages.
+     */
+    public int getSentMessagesCount( final long from, final long to ) {
+        if( from > to ) return 0;
+        return upperBound( this.sendTimes, to ) - lowerBound( this.sendTimes, from );
+    }
+    
+    /**
+     * This method returns the number of messages whose processing started in the time window.
+     * 
+     * @param from The beginning of the time window, inclusive.
+     * @param to The end of the time window, inclusive.
+     * @return The number of processed messages.
+     */
+    public int getProcessedMessagesCount( final long from, final long to ) {
+        if( from > to ) return 0;
+        return upperBound( this.starts, to ) - lowerBound( this.starts, from );
+    }
+    
+    /**
+     * This method returns the time that has been spent processing messages within the time window. Processings that
+     * overlap the borders of the window only count with their part inside of the window. Parallel processings count
+     * each, so the processing time can be larger than the window.
+     * 
+     * @param from The beginning of the time window.
+     * @param to The end of the time window.
+     * @return The processing time in the window.
+     */
+    public long getProcessingTime( final long from, final long to ) {
+        if( from >= to ) return 0;
+        return this.processingTimeUntil( to ) - this.processingTimeUntil( from );
+    }
+    
+    /**
+     * This method returns the average time in the mailbox of the messages whose processing started in the time
+     * window. Only messages that have been sent exactly once are counted.
+     * 
+     * @param from The beginning of the time window, inclusive.
+     * @param to The end of the time window, inclusive.
+     * @return The average time from sending to the start of the processing, or 0 if no message has been counted.
+     */
+    public double getAverageTimeInMailbox( final long from, final long to ) {
+        if( from > to ) return 0.0;
+        final int first = lowerBound( this.starts, from );
+        final int last = upperBound( this.starts, to );
+        final int count = this.timeInMailboxCounts[ last ] - this.timeInMailboxCounts[ first ];
+        return count == 0 ? 0.0 : (double)(this.timeInMailboxSums[ last ] - this.timeInMailboxSums[ first ]) / count;
+    }
+    
+    /**
+     * This method returns the average degree of parallelism in the time window, including idle time.
+     * 
+     * @param from The beginning of the time window.
+     * @param to The end of the time window.
+     * @return The average number of messages that have been processed at the same time.
+     */
+    public double getAverageParallelism( final long from, final long to ) {
+        if( from >= to ) return 0.0;
+        return (double)this.getProcessingTime( from, to ) / (to - from);
+    }
+    
+    /**
+     * This method returns the highest degree of parallelism in the time window.
+     * 
+     * @param from The beginning of the time window, inclusive.
+     * @param to The end of the time window, inclusive.
+     * @return The highest number of messages that have been processed at the same time.
+     */
+    public int getMaxParallelism( final long from, final long to ) {
+        if( from > to ) return 0;
+        final int atFrom = upperBound( this.changes, from ) - 1;
+        final int last = upperBound( this.changes, to );
+        int max = atFrom >= 0 ? this.parallelism[ atFrom ] : 0;
+        final int n = this.changes.length;
+        for( int low = atFrom + 1 + n, high = last + n; low < high; low >>= 1, high >>= 1 ) {
+            if( (low & 1) == 1 ) max = Math.max( max, this.maxParallelismTree[ low++ ] );
+            if( (high & 1) == 1 ) max = Math.max( max, this.maxParallelismTree[ --high ] );
+        }
+        return max;
+    }
+    
+    /**
+     * This method returns the processing time from the first event up to the given time.
+     */
+    private long processingTimeUntil( final long time ) {
+        final int step = upperBound( this.changes, time ) - 1;
+        if( step < 0 ) return 0;
+        return this.processingTimes[ step ] + this.parallelism[ step ] * (time - this.changes[ step ]);
+    }
+    
+    /**
+     * This method returns the first index of a sorted array with a value at or after the given value.
+     */
+    private static int lowerBound( final long[] values, final long value ) {
+        int low = 0;
+        int high = values.length;
+        while( low < high ) {
+            final int middle = (low + high) >>> 1;
+            if( values[ middle ] < value ) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * This method returns the first index of a sorted array with a value after the given value.
+     */
+    private static int upperBound( final long[] values, final long value ) {
+        int low = 0;
+        int high = values.length;
+        while( low < high ) {
+            final int middle = (low + high) >>> 1;
+            if( values[ middle ] <= value ) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+}
@@ -19,21 +19,44 @@ package simx.profiler.model.events;
 import simx.profiler.model.ProfilingData;
 
 /**
+ * This event announces that profiling data has been loaded or, while a growing trace is followed, that new events
+ * have been added to the profiling data.
  *
  * @author Stephan Rehfeld
  */
 public class ProfilingDataLoadedEvent {
    
     private ProfilingData profilingData;
+    
+    private final boolean complete;
 
     public ProfilingDataLoadedEvent( final ProfilingData profilingData ) {
+        this( profilingData, true );
+    }
+    
+    /**
+     * This constructor creates a new event.
+     * 
+     * @param profilingData The loaded profiling data. Must not be null.
+     * @param complete False if more events will be added to the profiling data later.
+     */
+    public ProfilingDataLoadedEvent( final ProfilingData profilingData, final boolean complete ) {
         if( profilingData == null ) throw new IllegalArgumentException();
         this.profilingData = profilingData;
+        this.complete = complete;
     }
 
     public ProfilingData getProfilingData() {
         return profilingData;
     }
     
+    /**
+     * This method returns if the profiling data is complete or if it is still growing.
+     * 
+     * @return False if more events will be added to the profiling data later.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
     
 }